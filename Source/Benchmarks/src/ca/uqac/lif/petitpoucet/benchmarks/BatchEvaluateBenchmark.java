@@ -0,0 +1,115 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ca.uqac.lif.petitpoucet.function.Circuit;
+import ca.uqac.lif.petitpoucet.function.Function;
+
+/**
+ * Measures the time taken to evaluate the same circuit on a batch of input
+ * tuples. The circuit computes <i>x</i><sup>2</sup>+1, and is evaluated
+ * either by resetting it and calling {@link Circuit#evaluate(Object...)} on
+ * each tuple, or through {@link Function#evaluateBatch(Iterator)
+ * evaluateBatch()}.
+ * 
+ * @author Sylvain Hallé
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BatchEvaluateBenchmark
+{
+	/**
+	 * The number of input tuples.
+	 */
+	@Param({"100", "1000", "10000"})
+	public int m_size;
+
+	/**
+	 * The circuit to evaluate.
+	 */
+	protected Circuit m_circuit;
+
+	/**
+	 * The input tuples.
+	 */
+	protected List<Object[]> m_inputs;
+
+	/**
+	 * Builds the circuit and its inputs.
+	 */
+	@Setup
+	public void setup()
+	{
+		m_circuit = Workloads.squarePlusOne();
+		m_inputs = new ArrayList<Object[]>(m_size);
+		for (Object o : Workloads.numbers(m_size))
+		{
+			m_inputs.add(new Object[] {o});
+		}
+	}
+
+	/**
+	 * Evaluates the circuit on each tuple, resetting it between two calls.
+	 * @param bh The blackhole consuming the outputs
+	 */
+	@Benchmark
+	public void evaluateEach(Blackhole bh)
+	{
+		for (Object[] in : m_inputs)
+		{
+			m_circuit.reset();
+			bh.consume(m_circuit.evaluate(in)[0]);
+		}
+	}
+
+	/**
+	 * Evaluates the circuit on all tuples as a single batch.
+	 * @param bh The blackhole consuming the outputs
+	 */
+	@Benchmark
+	public void evaluateBatch(Blackhole bh)
+	{
+		Iterator<Object[]> it = m_circuit.evaluateBatch(m_inputs.iterator());
+		while (it.hasNext())
+		{
+			bh.consume(it.next()[0]);
+		}
+	}
+}
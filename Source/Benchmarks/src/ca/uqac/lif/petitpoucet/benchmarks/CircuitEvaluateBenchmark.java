@@ -0,0 +1,155 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.uqac.lif.dag.NodeConnector;
+import ca.uqac.lif.petitpoucet.function.Circuit;
+import ca.uqac.lif.petitpoucet.function.EvaluationPlan;
+import ca.uqac.lif.petitpoucet.function.vector.VectorApply;
+import ca.uqac.lif.petitpoucet.function.vector.VectorSum;
+
+/**
+ * Measures the time taken by {@link Circuit#evaluate(Object...)}. Two
+ * circuits are used:
+ * <ul>
+ * <li>a chain of additions of the given length, which exercises the
+ * propagation of values from one function to the next;</li>
+ * <li>a circuit applying a function to every element of a vector of the
+ * given size and summing the result, which exercises vector functions and
+ * the evaluation of a nested circuit.</li>
+ * </ul>
+ * The circuit is reset before each evaluation, as in a typical usage where
+ * the same circuit is called on successive inputs. Each circuit is also
+ * evaluated through its compiled {@link EvaluationPlan}.
+ * 
+ * @author Sylvain Hallé
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CircuitEvaluateBenchmark
+{
+	/**
+	 * The number of functions in the chain, and the size of the input vector.
+	 */
+	@Param({"10", "100", "1000"})
+	public int m_size;
+
+	/**
+	 * The chain of additions.
+	 */
+	protected Circuit m_chain;
+
+	/**
+	 * The evaluation plan compiled from {@link #m_chain}.
+	 */
+	protected EvaluationPlan m_chainPlan;
+
+	/**
+	 * The circuit operating on vectors.
+	 */
+	protected Circuit m_vector;
+
+	/**
+	 * The evaluation plan compiled from {@link #m_vector}.
+	 */
+	protected EvaluationPlan m_vectorPlan;
+
+	/**
+	 * The input vector given to {@link #m_vector}.
+	 */
+	protected Object m_input;
+
+	/**
+	 * Builds the circuits and their input.
+	 */
+	@Setup
+	public void setup()
+	{
+		m_chain = Workloads.additionChain(m_size);
+		m_vector = new Circuit(1, 1);
+		VectorApply va = new VectorApply(Workloads.squarePlusOne());
+		VectorSum sum = new VectorSum();
+		m_vector.addNodes(va, sum);
+		NodeConnector.connect(va, 0, sum, 0);
+		m_vector.associateInput(0, va.getInputPin(0));
+		m_vector.associateOutput(0, sum.getOutputPin(0));
+		m_input = Workloads.numbers(m_size);
+		m_chainPlan = m_chain.compile();
+		m_vectorPlan = m_vector.compile();
+	}
+
+	/**
+	 * Evaluates the chain of additions.
+	 * @return The output of the circuit
+	 */
+	@Benchmark
+	public Object[] evaluateChain()
+	{
+		m_chain.reset();
+		return m_chain.evaluate(0);
+	}
+
+	/**
+	 * Evaluates the circuit operating on vectors.
+	 * @return The output of the circuit
+	 */
+	@Benchmark
+	public Object[] evaluateVector()
+	{
+		m_vector.reset();
+		return m_vector.evaluate(m_input);
+	}
+
+	/**
+	 * Evaluates the chain of additions through its evaluation plan.
+	 * @return The output of the circuit
+	 */
+	@Benchmark
+	public Object[] evaluateChainCompiled()
+	{
+		return m_chainPlan.evaluate(0);
+	}
+
+	/**
+	 * Evaluates the circuit operating on vectors through its evaluation plan.
+	 * @return The output of the circuit
+	 */
+	@Benchmark
+	public Object[] evaluateVectorCompiled()
+	{
+		return m_vectorPlan.evaluate(m_input);
+	}
+}
@@ -0,0 +1,117 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+
+import ca.uqac.lif.dag.Node;
+import ca.uqac.lif.petitpoucet.Clause;
+import ca.uqac.lif.petitpoucet.GraphUtilities;
+
+/**
+ * Measures the time taken by {@link GraphUtilities#asDnf(Node)} and
+ * {@link GraphUtilities#asMinimalDnf(Node)} on a conjunction of disjunctions
+ * of the given width. The number of clauses produced grows exponentially
+ * with the width, which makes this benchmark sensitive to the cost of
+ * distributing and comparing clauses. The conversion is also measured on a
+ * chain of "diamonds" four times as deep, whose number of paths grows
+ * exponentially with its depth while its DNF has a single clause.
+ * 
+ * @author Sylvain Hallé
+ * @see Workloads#andOfOrs(int)
+ * @see Workloads#diamonds(int)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DnfBenchmark
+{
+	/**
+	 * The number of disjunctions in the graph.
+	 */
+	@Param({"4", "8", "12"})
+	public int m_width;
+
+	/**
+	 * The root of the lineage graph to convert.
+	 */
+	protected Node m_root;
+
+	/**
+	 * The root of the chain of diamonds.
+	 */
+	protected Node m_diamonds;
+
+	/**
+	 * Creates the lineage graphs.
+	 */
+	@Setup
+	public void setup()
+	{
+		m_root = Workloads.andOfOrs(m_width);
+		m_diamonds = Workloads.diamonds(m_width * 4);
+	}
+
+	/**
+	 * Converts the lineage graph into disjunctive normal form.
+	 * @return The set of clauses
+	 */
+	@Benchmark
+	public Set<Clause> asDnf()
+	{
+		return GraphUtilities.asDnf(m_root);
+	}
+
+	/**
+	 * Converts the lineage graph into disjunctive normal form, keeping only
+	 * minimal clauses.
+	 * @return The set of clauses
+	 */
+	@Benchmark
+	public Set<Clause> asMinimalDnf()
+	{
+		return GraphUtilities.asMinimalDnf(m_root);
+	}
+
+	/**
+	 * Converts the chain of diamonds into disjunctive normal form.
+	 * @return The set of clauses
+	 */
+	@Benchmark
+	public Set<Clause> asDnfDiamonds()
+	{
+		return GraphUtilities.asDnf(m_diamonds);
+	}
+}
@@ -0,0 +1,142 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.uqac.lif.petitpoucet.PartNode;
+import ca.uqac.lif.petitpoucet.function.AtomicFunction;
+import ca.uqac.lif.petitpoucet.function.Circuit;
+import ca.uqac.lif.petitpoucet.function.NthOutput;
+import ca.uqac.lif.petitpoucet.function.RelationNodeFactory;
+import ca.uqac.lif.petitpoucet.function.vector.NthElement;
+import ca.uqac.lif.petitpoucet.function.vector.VectorApply;
+import ca.uqac.lif.petitpoucet.function.vector.VectorProduct;
+import ca.uqac.lif.petitpoucet.function.vector.Window;
+
+import static ca.uqac.lif.petitpoucet.ComposedPart.compose;
+
+/**
+ * Measures the time taken by
+ * {@link AtomicFunction#getExplanation(ca.uqac.lif.petitpoucet.Part, RelationNodeFactory)}
+ * on vector functions that have been evaluated on an input of the given
+ * size, and by {@link Circuit#getExplanation(ca.uqac.lif.petitpoucet.Part, RelationNodeFactory)}
+ * on a chain of additions of the given length. A fresh node factory is
+ * used on each call, and the explanation cache of the circuit is emptied,
+ * so that no node is recycled from one measurement to the next.
+ * 
+ * @author Sylvain Hallé
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ExplanationBenchmark
+{
+	/**
+	 * The size of the input vector.
+	 */
+	@Param({"10", "100", "1000"})
+	public int m_size;
+
+	/**
+	 * A function applying a circuit to every element of a vector.
+	 */
+	protected VectorApply m_apply;
+
+	/**
+	 * A function computing the product of a sliding window of width 3.
+	 */
+	protected Window m_window;
+
+	/**
+	 * A chain of additions.
+	 */
+	protected Circuit m_chain;
+
+	/**
+	 * Evaluates the functions on a vector of the given size.
+	 */
+	@Setup
+	public void setup()
+	{
+		m_apply = new VectorApply(Workloads.squarePlusOne());
+		m_apply.evaluate(Workloads.numbers(m_size));
+		m_window = new Window(new VectorProduct(), 3);
+		m_window.evaluate(Workloads.numbers(m_size));
+		m_chain = Workloads.additionChain(m_size);
+		m_chain.evaluate(0);
+	}
+
+	/**
+	 * Explains the whole output of the {@link VectorApply} function.
+	 * @return The root of the explanation
+	 */
+	@Benchmark
+	public PartNode explainApplyOutput()
+	{
+		return m_apply.getExplanation(NthOutput.FIRST, new RelationNodeFactory());
+	}
+
+	/**
+	 * Explains an element in the middle of the output of the
+	 * {@link VectorApply} function.
+	 * @return The root of the explanation
+	 */
+	@Benchmark
+	public PartNode explainApplyElement()
+	{
+		return m_apply.getExplanation(compose(new NthElement(m_size / 2), NthOutput.FIRST), new RelationNodeFactory());
+	}
+
+	/**
+	 * Explains the whole output of the {@link Window} function.
+	 * @return The root of the explanation
+	 */
+	@Benchmark
+	public PartNode explainWindowOutput()
+	{
+		return m_window.getExplanation(NthOutput.FIRST, new RelationNodeFactory());
+	}
+
+	/**
+	 * Explains the output of the chain of additions, which develops the
+	 * explanation of every function in the chain.
+	 * @return The root of the explanation
+	 */
+	@Benchmark
+	public PartNode explainChainOutput()
+	{
+		m_chain.getExplanationCache().clear();
+		return m_chain.getExplanation(NthOutput.FIRST, new RelationNodeFactory());
+	}
+}
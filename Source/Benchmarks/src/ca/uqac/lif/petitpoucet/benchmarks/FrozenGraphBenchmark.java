@@ -0,0 +1,136 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.benchmarks;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.uqac.lif.dag.Node;
+import ca.uqac.lif.dag.NodeVisitor;
+import ca.uqac.lif.dag.Traversal;
+import ca.uqac.lif.petitpoucet.FrozenGraph;
+import ca.uqac.lif.petitpoucet.GraphUtilities;
+
+/**
+ * Compares a lineage graph with its {@link FrozenGraph} snapshot. The graph
+ * is the one of {@link NodeMemoryBenchmark}; the setup prints the heap space
+ * retained by the snapshot per node, to be compared with that of the graph.
+ * The benchmarks measure the time taken to take the snapshot, and to find
+ * the descendants of the root in the graph and in the snapshot.
+ * 
+ * @author Sylvain Hallé
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FrozenGraphBenchmark
+{
+	/**
+	 * The number of disjunctions in the graph.
+	 */
+	@Param({"10000", "100000"})
+	public int m_size;
+
+	/**
+	 * The root of the graph.
+	 */
+	protected Node m_root;
+
+	/**
+	 * The snapshot of the graph.
+	 */
+	protected FrozenGraph m_frozen;
+
+	/**
+	 * Builds the graph and its snapshot, and prints the number of bytes the
+	 * snapshot retains per node.
+	 */
+	@Setup
+	public void setup()
+	{
+		NodeMemoryBenchmark graph = new NodeMemoryBenchmark();
+		graph.m_size = m_size;
+		graph.setup();
+		m_root = graph.m_root;
+		long before = NodeMemoryBenchmark.getUsedMemory();
+		m_frozen = GraphUtilities.freeze(m_root);
+		long after = NodeMemoryBenchmark.getUsedMemory();
+		System.out.println("Frozen bytes per node: " + (after - before) / m_frozen.size());
+	}
+
+	/**
+	 * Takes a snapshot of the graph.
+	 * @return The snapshot
+	 */
+	@Benchmark
+	public FrozenGraph freeze()
+	{
+		return GraphUtilities.freeze(m_root);
+	}
+
+	/**
+	 * Counts the descendants of the root by traversing the graph.
+	 * @return The number of descendants
+	 */
+	@Benchmark
+	public int descendantsGraph()
+	{
+		final int[] count = new int[1];
+		new Traversal(Traversal.DEPTH_FIRST).traverse(m_root, new NodeVisitor() {
+			@Override
+			public boolean previsit(Node n)
+			{
+				count[0]++;
+				return true;
+			}
+
+			@Override
+			public void postvisit(Node n)
+			{
+				// Nothing to do
+			}
+		});
+		return count[0] - 1;
+	}
+
+	/**
+	 * Counts the descendants of the root in the snapshot.
+	 * @return The number of descendants
+	 */
+	@Benchmark
+	public int descendantsFrozen()
+	{
+		BitSet descendants = m_frozen.getDescendantSet(0);
+		return descendants.cardinality();
+	}
+}
@@ -0,0 +1,96 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.uqac.lif.dag.Node;
+import ca.uqac.lif.petitpoucet.function.LineageDotRenderer;
+import ca.uqac.lif.petitpoucet.function.NthOutput;
+import ca.uqac.lif.petitpoucet.function.RelationNodeFactory;
+import ca.uqac.lif.petitpoucet.function.vector.VectorApply;
+
+/**
+ * Measures the time taken by {@link LineageDotRenderer#render(PrintStream)}
+ * on the explanation of a {@link VectorApply} function evaluated on a
+ * vector of the given size. The output is written to a stream that
+ * discards it, so that only the traversal of the graph and the formatting
+ * of the DOT file are measured.
+ * 
+ * @author Sylvain Hallé
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LineageDotRendererBenchmark
+{
+	/**
+	 * The size of the input vector.
+	 */
+	@Param({"10", "100", "1000"})
+	public int m_size;
+
+	/**
+	 * The root of the lineage graph to render.
+	 */
+	protected Node m_root;
+
+	/**
+	 * A print stream that discards everything written to it.
+	 */
+	protected PrintStream m_out;
+
+	/**
+	 * Evaluates the function and computes the lineage graph of its output.
+	 */
+	@Setup
+	public void setup()
+	{
+		VectorApply va = new VectorApply(Workloads.squarePlusOne());
+		va.evaluate(Workloads.numbers(m_size));
+		m_root = va.getExplanation(NthOutput.FIRST, new RelationNodeFactory());
+		m_out = new PrintStream(OutputStream.nullOutputStream());
+	}
+
+	/**
+	 * Renders the lineage graph as a DOT file.
+	 */
+	@Benchmark
+	public void render()
+	{
+		LineageDotRenderer renderer = new LineageDotRenderer(m_root);
+		renderer.render(m_out);
+	}
+}
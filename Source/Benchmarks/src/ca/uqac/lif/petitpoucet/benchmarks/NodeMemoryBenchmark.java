@@ -0,0 +1,129 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.uqac.lif.dag.Node;
+import ca.uqac.lif.petitpoucet.AndNode;
+import ca.uqac.lif.petitpoucet.NodeFactory;
+import ca.uqac.lif.petitpoucet.OrNode;
+import ca.uqac.lif.petitpoucet.Part;
+
+/**
+ * Measures the memory taken by the nodes of a lineage graph. The graph is a
+ * conjunction of disjunctions of two leaves each, which is the shape most
+ * explanations take, and has 3<i>n</i>+1 nodes for <i>n</i> disjunctions.
+ * The setup builds such a graph, and prints the heap space it retains
+ * divided by its number of nodes; parts and subjects are shared with the
+ * benchmark and not counted. The benchmark itself builds the graph, so that
+ * running it with the GC profiler ({@code -prof gc}) also gives the number
+ * of bytes allocated per graph.
+ * 
+ * @author Sylvain Hallé
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class NodeMemoryBenchmark
+{
+	/**
+	 * The number of disjunctions in the graph.
+	 */
+	@Param({"10000", "100000"})
+	public int m_size;
+
+	/**
+	 * The subjects of the leaves of the graph.
+	 */
+	protected Object[] m_subjects;
+
+	/**
+	 * The graph built by the setup, kept so that it is not collected before
+	 * its memory is measured.
+	 */
+	protected Node m_root;
+
+	/**
+	 * Builds a graph and prints the number of bytes it retains per node.
+	 */
+	@Setup
+	public void setup()
+	{
+		m_subjects = new Object[2 * m_size];
+		for (int i = 0; i < m_subjects.length; i++)
+		{
+			m_subjects[i] = new Object();
+		}
+		long before = getUsedMemory();
+		m_root = build();
+		long after = getUsedMemory();
+		int nodes = 3 * m_size + 1;
+		System.out.println("Nodes: " + nodes + ", bytes per node: " + (after - before) / nodes);
+	}
+
+	/**
+	 * Builds the graph.
+	 * @return The root of the graph
+	 */
+	@Benchmark
+	public Node build()
+	{
+		// The factory keeps its own references to leaves; it is discarded
+		// once the graph is built, so that only the graph is retained
+		NodeFactory factory = NodeFactory.getFactory();
+		AndNode and = factory.getAndNode();
+		for (int i = 0; i < m_size; i++)
+		{
+			OrNode or = factory.getOrNode();
+			and.addChild(or);
+			or.addChild(factory.getPartNode(Part.all, m_subjects[2 * i]));
+			or.addChild(factory.getPartNode(Part.all, m_subjects[2 * i + 1]));
+		}
+		return and;
+	}
+
+	/**
+	 * Gets the amount of heap memory in use after garbage collection.
+	 * @return The number of bytes
+	 */
+	protected static long getUsedMemory()
+	{
+		Runtime r = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++)
+		{
+			System.gc();
+		}
+		return r.totalMemory() - r.freeMemory();
+	}
+}
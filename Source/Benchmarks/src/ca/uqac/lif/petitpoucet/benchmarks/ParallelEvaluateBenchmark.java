@@ -0,0 +1,169 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.uqac.lif.dag.NodeConnector;
+import ca.uqac.lif.petitpoucet.function.Circuit;
+import ca.uqac.lif.petitpoucet.function.EvaluationPlan;
+import ca.uqac.lif.petitpoucet.function.number.Addition;
+import ca.uqac.lif.petitpoucet.function.vector.VectorApply;
+import ca.uqac.lif.petitpoucet.function.vector.VectorSum;
+
+/**
+ * Compares the sequential and the parallel evaluation of functions on
+ * vectors:
+ * <ul>
+ * <li>a circuit made of independent branches, where the input vector is
+ * copied into four branches, each of which applies a function to every
+ * element of the vector and sums the result; the four sums are then
+ * added;</li>
+ * <li>a single {@link VectorApply} whose elements are processed in
+ * parallel.</li>
+ * </ul>
+ * 
+ * @author Sylvain Hallé
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParallelEvaluateBenchmark
+{
+	/**
+	 * The number of branches of the circuit.
+	 */
+	protected static final int s_branches = 4;
+
+	/**
+	 * The size of the input vector.
+	 */
+	@Param({"100", "1000", "10000"})
+	public int m_size;
+
+	/**
+	 * The evaluation plan of the circuit.
+	 */
+	protected EvaluationPlan m_plan;
+
+	/**
+	 * A function applied sequentially to each element of a vector.
+	 */
+	protected VectorApply m_apply;
+
+	/**
+	 * The same function as {@link #m_apply}, processing elements in parallel.
+	 */
+	protected VectorApply m_applyParallel;
+
+	/**
+	 * The pool used for the parallel evaluation.
+	 */
+	protected ForkJoinPool m_pool;
+
+	/**
+	 * The input vector.
+	 */
+	protected Object m_input;
+
+	/**
+	 * Builds the circuit and its input.
+	 */
+	@Setup
+	public void setup()
+	{
+		Circuit c = new Circuit(1, 1);
+		ca.uqac.lif.petitpoucet.function.Fork f = new ca.uqac.lif.petitpoucet.function.Fork(s_branches);
+		Addition add = new Addition(s_branches);
+		c.addNodes(f, add);
+		for (int i = 0; i < s_branches; i++)
+		{
+			VectorApply va = new VectorApply(Workloads.squarePlusOne());
+			VectorSum sum = new VectorSum();
+			c.addNodes(va, sum);
+			NodeConnector.connect(f, i, va, 0);
+			NodeConnector.connect(va, 0, sum, 0);
+			NodeConnector.connect(sum, 0, add, i);
+		}
+		c.associateInput(0, f.getInputPin(0));
+		c.associateOutput(0, add.getOutputPin(0));
+		m_plan = c.compile();
+		m_pool = ForkJoinPool.commonPool();
+		m_input = Workloads.numbers(m_size);
+		m_apply = new VectorApply(Workloads.squarePlusOne());
+		m_applyParallel = new VectorApply(Workloads.squarePlusOne()).parallel(m_pool, 256);
+	}
+
+	/**
+	 * Evaluates the circuit sequentially.
+	 * @return The output of the circuit
+	 */
+	@Benchmark
+	public Object[] evaluateSequential()
+	{
+		return m_plan.evaluate(m_input);
+	}
+
+	/**
+	 * Evaluates the branches of the circuit in parallel.
+	 * @return The output of the circuit
+	 */
+	@Benchmark
+	public Object[] evaluateParallel()
+	{
+		return m_plan.evaluateParallel(m_pool, m_input);
+	}
+
+	/**
+	 * Applies a function to each element of the vector sequentially.
+	 * @return The output of the function
+	 */
+	@Benchmark
+	public Object[] applySequential()
+	{
+		m_apply.reset();
+		return m_apply.evaluate(m_input);
+	}
+
+	/**
+	 * Applies a function to each element of the vector in parallel.
+	 * @return The output of the function
+	 */
+	@Benchmark
+	public Object[] applyParallel()
+	{
+		m_applyParallel.reset();
+		return m_applyParallel.evaluate(m_input);
+	}
+}
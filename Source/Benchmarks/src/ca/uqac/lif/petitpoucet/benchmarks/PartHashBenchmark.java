@@ -0,0 +1,174 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.benchmarks;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.uqac.lif.petitpoucet.NodeFactory;
+import ca.uqac.lif.petitpoucet.Part;
+import ca.uqac.lif.petitpoucet.PartHash;
+import ca.uqac.lif.petitpoucet.PartNode;
+import ca.uqac.lif.petitpoucet.function.NthOutput;
+import ca.uqac.lif.petitpoucet.function.RelationNodeFactory;
+import ca.uqac.lif.petitpoucet.function.vector.NthElement;
+import ca.uqac.lif.petitpoucet.function.vector.VectorApply;
+import ca.uqac.lif.petitpoucet.function.vector.VectorProduct;
+import ca.uqac.lif.petitpoucet.function.vector.Window;
+
+import static ca.uqac.lif.petitpoucet.ComposedPart.compose;
+
+/**
+ * Measures how well the hash codes of parts (see {@link PartHash}) spread
+ * the nodes of a {@link NodeFactory} across the buckets of its hash table.
+ * A single factory is filled with the nodes created by explaining each
+ * element of the output of a {@link Window} and of a {@link VectorApply}
+ * evaluated on a vector of the given size. The setup prints the
+ * distribution of the keys of this factory in a hash table of the size that
+ * a {@link java.util.HashMap HashMap} would use for them: the number of
+ * distinct hash codes, the number of occupied buckets, and the length of
+ * the longest chain of keys sharing a bucket. The benchmark then measures
+ * the time taken to look up every node of the factory once.
+ * 
+ * @author Sylvain Hallé
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PartHashBenchmark
+{
+	/**
+	 * The size of the input vector.
+	 */
+	@Param({"1000", "10000"})
+	public int m_size;
+
+	/**
+	 * The factory containing the nodes of the explanations.
+	 */
+	protected RelationNodeFactory m_factory;
+
+	/**
+	 * The parts of the nodes in the factory.
+	 */
+	protected Part[] m_parts;
+
+	/**
+	 * The subjects of the nodes in the factory, in the same order as
+	 * {@link #m_parts}.
+	 */
+	protected Object[] m_subjects;
+
+	/**
+	 * Explains every element of the output of the vector functions, and
+	 * prints the distribution of the resulting nodes.
+	 */
+	@Setup
+	public void setup()
+	{
+		m_factory = new RelationNodeFactory();
+		Window w = new Window(new VectorProduct(), 3);
+		w.evaluate(Workloads.numbers(m_size));
+		for (int i = 0; i < m_size - 2; i++)
+		{
+			w.getExplanation(compose(new NthElement(i), NthOutput.FIRST), m_factory);
+		}
+		VectorApply apply = new VectorApply(Workloads.squarePlusOne());
+		apply.evaluate(Workloads.numbers(m_size));
+		for (int i = 0; i < m_size; i++)
+		{
+			apply.getExplanation(compose(new NthElement(i), NthOutput.FIRST), m_factory);
+		}
+		List<PartNode> nodes = m_factory.getNodeStore().values();
+		m_parts = new Part[nodes.size()];
+		m_subjects = new Object[nodes.size()];
+		for (int i = 0; i < m_parts.length; i++)
+		{
+			m_parts[i] = nodes.get(i).getPart();
+			m_subjects[i] = nodes.get(i).getSubject();
+		}
+		System.out.println(describeBuckets(m_factory.getNodeStore().keys()));
+	}
+
+	/**
+	 * Looks up every node of the factory.
+	 * @return The number of nodes looked up
+	 */
+	@Benchmark
+	public int lookupAll()
+	{
+		int found = 0;
+		for (int i = 0; i < m_parts.length; i++)
+		{
+			if (m_factory.getPartNode(m_parts[i], m_subjects[i]) != null)
+			{
+				found++;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Describes the distribution of a collection of keys in the buckets of a
+	 * hash table. The table has the size that a {@link java.util.HashMap}
+	 * with the default load factor would have for this number of keys, and
+	 * hash codes are spread over its buckets in the same way.
+	 * @param keys The keys
+	 * @return A line of text describing the distribution
+	 */
+	/*@ non_null @*/ public static String describeBuckets(/*@ non_null @*/ Collection<?> keys)
+	{
+		int table_size = Integer.highestOneBit(Math.max(1, (int) (keys.size() / 0.75f)) * 2 - 1);
+		int[] buckets = new int[table_size];
+		Set<Integer> hashes = new HashSet<Integer>();
+		for (Object k : keys)
+		{
+			int h = k.hashCode();
+			hashes.add(h);
+			buckets[(h ^ (h >>> 16)) & (table_size - 1)]++;
+		}
+		int occupied = 0, longest = 0;
+		for (int b : buckets)
+		{
+			if (b > 0)
+			{
+				occupied++;
+			}
+			longest = Math.max(longest, b);
+		}
+		return "Keys: " + keys.size() + ", distinct hashes: " + hashes.size() + ", buckets: " + table_size + ", occupied: " + occupied + ", longest chain: " + longest;
+	}
+}
@@ -0,0 +1,111 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.uqac.lif.petitpoucet.function.vector.PrimitiveVector;
+import ca.uqac.lif.petitpoucet.function.vector.VectorSum;
+
+/**
+ * Measures the time taken by {@link VectorSum} to add the elements of an
+ * array of ints, when the array is given as is (and read without boxing
+ * through a {@link PrimitiveVector}) and when it is first copied into an
+ * array of {@link Integer}.
+ * 
+ * @author Sylvain Hallé
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PrimitiveVectorBenchmark
+{
+	/**
+	 * The number of elements in the array.
+	 */
+	@Param({"1000", "100000"})
+	public int m_size;
+
+	/**
+	 * The function to evaluate.
+	 */
+	protected VectorSum m_sum;
+
+	/**
+	 * The array of primitive ints.
+	 */
+	protected int[] m_ints;
+
+	/**
+	 * The same values as boxed integers.
+	 */
+	protected Integer[] m_boxed;
+
+	/**
+	 * Builds the arrays.
+	 */
+	@Setup
+	public void setup()
+	{
+		m_sum = new VectorSum();
+		m_ints = new int[m_size];
+		m_boxed = new Integer[m_size];
+		for (int i = 0; i < m_size; i++)
+		{
+			m_ints[i] = i % 100;
+			m_boxed[i] = i % 100;
+		}
+	}
+
+	/**
+	 * Sums the elements of the array of ints.
+	 * @return The sum
+	 */
+	@Benchmark
+	public Object sumPrimitive()
+	{
+		m_sum.reset();
+		return m_sum.evaluate(m_ints)[0];
+	}
+
+	/**
+	 * Sums the elements of the array of boxed integers.
+	 * @return The sum
+	 */
+	@Benchmark
+	public Object sumBoxed()
+	{
+		m_sum.reset();
+		return m_sum.evaluate((Object) m_boxed)[0];
+	}
+}
@@ -0,0 +1,88 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.uqac.lif.petitpoucet.function.strings.RangeMapping;
+
+/**
+ * Measures the time taken by
+ * {@link RangeMapping#compose(RangeMapping, RangeMapping)} on two mappings
+ * made of the given number of range pairs. The boundaries of the ranges in
+ * both mappings do not coincide, so that the composition must fragment them.
+ * 
+ * @author Sylvain Hallé
+ * @see Workloads#stretch(int, int)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RangeMappingComposeBenchmark
+{
+	/**
+	 * The number of range pairs in each mapping.
+	 */
+	@Param({"10", "100", "1000"})
+	public int m_size;
+
+	/**
+	 * The first mapping to compose.
+	 */
+	protected RangeMapping m_first;
+
+	/**
+	 * The second mapping to compose.
+	 */
+	protected RangeMapping m_second;
+
+	/**
+	 * Creates the two mappings.
+	 */
+	@Setup
+	public void setup()
+	{
+		m_first = Workloads.stretch(m_size, 4);
+		m_second = Workloads.stretch(m_size, 5);
+	}
+
+	/**
+	 * Composes the two mappings.
+	 * @return The composed mapping
+	 */
+	@Benchmark
+	public RangeMapping compose()
+	{
+		return RangeMapping.compose(m_first, m_second);
+	}
+}
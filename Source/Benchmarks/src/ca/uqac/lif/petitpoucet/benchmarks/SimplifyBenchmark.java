@@ -0,0 +1,97 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.uqac.lif.dag.Node;
+import ca.uqac.lif.dag.NodeConnector;
+import ca.uqac.lif.petitpoucet.GraphUtilities;
+import ca.uqac.lif.petitpoucet.function.Circuit;
+import ca.uqac.lif.petitpoucet.function.NthOutput;
+import ca.uqac.lif.petitpoucet.function.RelationNodeFactory;
+import ca.uqac.lif.petitpoucet.function.vector.VectorApply;
+import ca.uqac.lif.petitpoucet.function.vector.VectorSum;
+
+/**
+ * Measures the time taken by {@link GraphUtilities#simplify(Node)} on the
+ * explanation of the output of a circuit that applies a nested circuit to
+ * every element of a vector and sums the result. The size of the lineage
+ * graph, including the nested nodes that need to be flattened, grows
+ * linearly with the size of the input vector.
+ * 
+ * @author Sylvain Hallé
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SimplifyBenchmark
+{
+	/**
+	 * The size of the input vector.
+	 */
+	@Param({"10", "100", "1000"})
+	public int m_size;
+
+	/**
+	 * The root of the lineage graph to simplify.
+	 */
+	protected Node m_root;
+
+	/**
+	 * Evaluates the circuit and computes the lineage graph of its output.
+	 */
+	@Setup
+	public void setup()
+	{
+		Circuit c = new Circuit(1, 1);
+		VectorApply va = new VectorApply(Workloads.squarePlusOne());
+		VectorSum sum = new VectorSum();
+		c.addNodes(va, sum);
+		NodeConnector.connect(va, 0, sum, 0);
+		c.associateInput(0, va.getInputPin(0));
+		c.associateOutput(0, sum.getOutputPin(0));
+		c.evaluate(Workloads.numbers(m_size));
+		m_root = c.getExplanation(NthOutput.FIRST, new RelationNodeFactory());
+	}
+
+	/**
+	 * Simplifies the lineage graph.
+	 * @return The root of the simplified graph
+	 */
+	@Benchmark
+	public Node simplify()
+	{
+		return GraphUtilities.simplify(m_root);
+	}
+}
@@ -0,0 +1,98 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.uqac.lif.petitpoucet.function.vector.VectorSum;
+import ca.uqac.lif.petitpoucet.function.vector.Window;
+
+/**
+ * Measures the time taken by a {@link Window} computing sums over a list of
+ * numbers, when it evaluates a copy of {@link VectorSum} on each window and
+ * when it is {@link Window#incremental(boolean) incremental}.
+ * 
+ * @author Sylvain Hallé
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class WindowBenchmark
+{
+	/**
+	 * The number of elements in the input list.
+	 */
+	@Param({"1000", "10000"})
+	public int m_size;
+
+	/**
+	 * The width of the window.
+	 */
+	@Param({"10", "100"})
+	public int m_width;
+
+	/**
+	 * The input list.
+	 */
+	protected List<Object> m_input;
+
+	/**
+	 * Builds the input list.
+	 */
+	@Setup
+	public void setup()
+	{
+		m_input = Workloads.numbers(m_size);
+	}
+
+	/**
+	 * Evaluates a window that applies its inner function on each window.
+	 * @return The output list
+	 */
+	@Benchmark
+	public Object windowEach()
+	{
+		return new Window(new VectorSum(), m_width).evaluate(m_input)[0];
+	}
+
+	/**
+	 * Evaluates an incremental window.
+	 * @return The output list
+	 */
+	@Benchmark
+	public Object windowIncremental()
+	{
+		return new Window(new VectorSum(), m_width).incremental(true).evaluate(m_input)[0];
+	}
+}
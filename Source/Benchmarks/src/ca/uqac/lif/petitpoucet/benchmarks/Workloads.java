@@ -0,0 +1,197 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ca.uqac.lif.dag.Node;
+import ca.uqac.lif.dag.NodeConnector;
+import ca.uqac.lif.petitpoucet.AndNode;
+import ca.uqac.lif.petitpoucet.NodeFactory;
+import ca.uqac.lif.petitpoucet.OrNode;
+import ca.uqac.lif.petitpoucet.PartNode;
+import ca.uqac.lif.petitpoucet.function.Circuit;
+import ca.uqac.lif.petitpoucet.function.Constant;
+import ca.uqac.lif.petitpoucet.function.Fork;
+import ca.uqac.lif.petitpoucet.function.NthInput;
+import ca.uqac.lif.petitpoucet.function.number.Addition;
+import ca.uqac.lif.petitpoucet.function.number.Multiplication;
+import ca.uqac.lif.petitpoucet.function.strings.RangeMapping;
+import ca.uqac.lif.petitpoucet.function.strings.RangeMapping.RangePair;
+import ca.uqac.lif.petitpoucet.function.vector.NthElement;
+
+import static ca.uqac.lif.petitpoucet.ComposedPart.compose;
+
+/**
+ * Builds the circuits, vectors and graphs that serve as inputs to the
+ * benchmarks of this package. Every method takes a size parameter, so that
+ * each benchmark can observe how the operation it measures scales.
+ * 
+ * @author Sylvain Hallé
+ */
+public class Workloads
+{
+	/**
+	 * Private constructor, to prevent instantiation.
+	 */
+	private Workloads()
+	{
+		super();
+	}
+
+	/**
+	 * Creates a circuit made of a chain of additions, each of which adds the
+	 * constant 1 to the output of the previous one.
+	 * @param length The number of additions in the chain
+	 * @return The circuit, which has an input and an output arity of 1
+	 */
+	/*@ non_null @*/ public static Circuit additionChain(int length)
+	{
+		Circuit c = new Circuit(1, 1);
+		Addition previous = null;
+		for (int i = 0; i < length; i++)
+		{
+			Addition a = new Addition(2);
+			Constant one = new Constant(1);
+			c.addNodes(a, one);
+			NodeConnector.connect(one, 0, a, 1);
+			if (previous == null)
+			{
+				c.associateInput(0, a.getInputPin(0));
+			}
+			else
+			{
+				NodeConnector.connect(previous, 0, a, 0);
+			}
+			previous = a;
+		}
+		c.associateOutput(0, previous.getOutputPin(0));
+		return c;
+	}
+
+	/**
+	 * Creates a circuit computing <i>x</i><sup>2</sup> + 1 on its input.
+	 * @return The circuit
+	 */
+	/*@ non_null @*/ public static Circuit squarePlusOne()
+	{
+		Circuit c = new Circuit(1, 1);
+		Fork f = new Fork(2);
+		Multiplication m = new Multiplication(2);
+		Addition a = new Addition(2);
+		Constant one = new Constant(1);
+		c.addNodes(f, m, a, one);
+		NodeConnector.connect(f, 0, m, 0);
+		NodeConnector.connect(f, 1, m, 1);
+		NodeConnector.connect(m, 0, a, 0);
+		NodeConnector.connect(one, 0, a, 1);
+		c.associateInput(0, f.getInputPin(0));
+		c.associateOutput(0, a.getOutputPin(0));
+		return c;
+	}
+
+	/**
+	 * Creates a list of numbers where one element out of three is equal to
+	 * zero.
+	 * @param size The size of the list
+	 * @return The list
+	 */
+	/*@ non_null @*/ public static List<Object> numbers(int size)
+	{
+		List<Object> list = new ArrayList<Object>(size);
+		for (int i = 0; i < size; i++)
+		{
+			list.add(i % 3 == 0 ? 0 : i);
+		}
+		return list;
+	}
+
+	/**
+	 * Creates a lineage graph made of a conjunction of disjunctions. Each
+	 * disjunction has two leaves, and leaves are shared between adjacent
+	 * disjunctions. The DNF of this graph therefore has up to
+	 * 2<sup><i>n</i></sup> clauses, where <i>n</i> is the number of
+	 * disjunctions.
+	 * @param width The number of disjunctions
+	 * @return The root of the graph
+	 */
+	/*@ non_null @*/ public static PartNode andOfOrs(int width)
+	{
+		NodeFactory factory = NodeFactory.getFactory();
+		PartNode root = factory.getPartNode(NthInput.FIRST, "root");
+		AndNode and = factory.getAndNode();
+		root.addChild(and);
+		for (int i = 0; i < width; i++)
+		{
+			OrNode or = factory.getOrNode();
+			and.addChild(or);
+			or.addChild(factory.getPartNode(compose(new NthElement(i), NthInput.FIRST), "x"));
+			or.addChild(factory.getPartNode(compose(new NthElement(i + 1), NthInput.FIRST), "x"));
+		}
+		return root;
+	}
+
+	/**
+	 * Creates a lineage graph made of a chain of "diamonds": each disjunction
+	 * has two children, both of which have the next disjunction as their
+	 * single child. The graph has 2<sup><i>n</i></sup> paths from its root to
+	 * its only leaf, where <i>n</i> is the number of disjunctions, but its
+	 * DNF has a single clause.
+	 * @param depth The number of disjunctions
+	 * @return The root of the graph
+	 */
+	/*@ non_null @*/ public static PartNode diamonds(int depth)
+	{
+		NodeFactory factory = NodeFactory.getFactory();
+		Node below = factory.getPartNode(NthInput.FIRST, "x");
+		for (int i = depth - 1; i >= 0; i--)
+		{
+			PartNode left = factory.getPartNode(compose(new NthElement(2 * i), NthInput.FIRST), "x");
+			PartNode right = factory.getPartNode(compose(new NthElement(2 * i + 1), NthInput.FIRST), "x");
+			left.addChild(below);
+			right.addChild(below);
+			OrNode or = factory.getOrNode();
+			or.addChild(left);
+			or.addChild(right);
+			below = or;
+		}
+		PartNode root = factory.getPartNode(NthInput.FIRST, "root");
+		root.addChild(below);
+		return root;
+	}
+
+	/**
+	 * Creates a range mapping made of contiguous pairs of length <i>k</i>,
+	 * with a gap of one character between consecutive ranges on the output
+	 * side. This corresponds to the mapping of a function that inserts a
+	 * character every <i>k</i> characters of its input.
+	 * @param size The number of pairs in the mapping
+	 * @param k The length of each range in the input
+	 * @return The range mapping
+	 */
+	/*@ non_null @*/ public static RangeMapping stretch(int size, int k)
+	{
+		RangePair[] pairs = new RangePair[size];
+		for (int i = 0; i < size; i++)
+		{
+			pairs[i] = new RangePair(i * k, i * k + k - 1, i * (k + 1), i * (k + 1) + k - 1);
+		}
+		return new RangeMapping(pairs);
+	}
+}
@@ -17,17 +17,13 @@
  */
 package ca.uqac.lif.dag;
 
-import java.util.ArrayDeque;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Queue;
-import java.util.Set;
-
 /**
- * Visits every node in a directed acyclic graph.
+ * Visits every node in a directed acyclic graph. A crawler is a
+ * {@link NodeVisitor} that runs a {@link Traversal} from a single starting
+ * point and calls {@link #visit(Node)} on each node it reaches.
  * @author Sylvain Hallé
  */
-public class Crawler
+public class Crawler implements NodeVisitor
 {
 	/**
 	 * A flag that determines if the crawler is allowed to take forward
@@ -41,6 +37,17 @@ public class Crawler
 	 */
 	protected boolean m_allowBackward;
 	
+	/**
+	 * The order in which nodes are visited, which is one of the orders
+	 * defined in {@link Traversal}.
+	 */
+	protected int m_order;
+	
+	/**
+	 * A flag indicating that the current crawl must stop.
+	 */
+	protected boolean m_stopped;
+	
 	/**
 	 * The starting point of the crawl.
 	 */
@@ -56,52 +63,22 @@ public class Crawler
 		m_start = start;
 		m_allowForward = true;
 		m_allowBackward = true;
+		m_order = Traversal.BREADTH_FIRST;
+		m_stopped = false;
 	}
 	
 	/**
 	 * Visits every node in the graph from the specified starting point.
+	 * Each node is visited exactly once, unless the crawl is stopped by a
+	 * call to {@link #stop()}.
+	 * @return {@code true} if every node has been visited, {@code false} if
+	 * the crawl has been stopped
 	 */
-	public void crawl()
+	public boolean crawl()
 	{
-		Queue<Node> to_visit = new ArrayDeque<>();
-		Set<Node> visited = new HashSet<>();
-		to_visit.add(m_start);
-		while (!to_visit.isEmpty())
-		{
-			Node current = to_visit.remove();
-			visited.add(current);
-			visit(current);
-			if (m_allowForward)
-			{
-				for (int i = 0; i < current.getOutputArity(); i++)
-				{
-					Collection<Pin<? extends Node>> pins = current.getOutputLinks(i);
-					for (Pin<? extends Node> pin : pins)
-					{
-						Node n = pin.getNode();
-						if (!visited.contains(n) && !to_visit.contains(n))
-						{
-							to_visit.add(n);
-						}
-					}
-				}
-			}
-			if (m_allowBackward)
-			{
-				for (int i = 0; i < current.getInputArity(); i++)
-				{
-					Collection<Pin<? extends Node>> pins = current.getInputLinks(i);
-					for (Pin<? extends Node> pin : pins)
-					{
-						Node n = pin.getNode();
-						if (!visited.contains(n) && !to_visit.contains(n))
-						{
-							to_visit.add(n);
-						}
-					}
-				}
-			}
-		}
+		m_stopped = false;
+		Traversal t = new Traversal(m_order).forward(m_allowForward).backward(m_allowBackward);
+		return t.traverse(m_start, this);
 	}
 	
 	/**
@@ -114,6 +91,32 @@ public class Crawler
 		// Do nothing. Override.
 	}
 	
+	/**
+	 * Stops the current crawl. No other node is visited after the one being
+	 * visited when this method is called.
+	 */
+	public void stop()
+	{
+		m_stopped = true;
+	}
+	
+	@Override
+	public boolean previsit(/*@ non_null @*/ Node n)
+	{
+		if (m_stopped)
+		{
+			return false;
+		}
+		visit(n);
+		return !m_stopped;
+	}
+	
+	@Override
+	public void postvisit(/*@ non_null @*/ Node n)
+	{
+		// Do nothing. Override.
+	}
+	
 	/**
 	 * Sets if a crawler can traverse edges in the backward direction.
 	 * @param b Set to <tt>true</tt> to allow crawling backwards, <tt>false</tt>
@@ -137,4 +140,18 @@ public class Crawler
 		m_allowForward = b;
 		return this;
 	}
+	
+	/**
+	 * Sets the order in which the crawler visits nodes. The topological order
+	 * requires the crawler to go in a single direction.
+	 * @param order The order, which is one of {@link Traversal#BREADTH_FIRST}
+	 * (the default), {@link Traversal#DEPTH_FIRST} and
+	 * {@link Traversal#TOPOLOGICAL}
+	 * @return This crawler
+	 */
+	/*@ non_null @*/ public Crawler order(int order)
+	{
+		m_order = order;
+		return this;
+	}
 }
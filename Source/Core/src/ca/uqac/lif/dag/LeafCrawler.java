@@ -17,7 +17,6 @@
  */
 package ca.uqac.lif.dag;
 
-import java.util.HashSet;
 import java.util.Set;
 
 import ca.uqac.lif.petitpoucet.PartNode;
@@ -87,7 +86,7 @@ public abstract class LeafCrawler extends Crawler
 		public LeafFetcher(/*@ non_null @*/ Node start) 
 		{
 			super(start);
-			m_leaves = new HashSet<Node>();
+			m_leaves = Traversal.newVisitedSet();
 		}
 
 		@Override
@@ -21,7 +21,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -53,13 +53,17 @@ public class NestedNode extends Node
 	protected Map<Integer,Pin<? extends Node>> m_outputAssociations;
 
 	/**
-	 * Creates a new nested node from a tree of connected nodes.
+	 * Creates a new nested node from a tree of connected nodes. Only the
+	 * nodes that can be reached from the root by following output links are
+	 * included; nodes that merely point to a node of the tree, such as the
+	 * parents of a subtree shared with another graph, are left out.
 	 * @param root The root of the tree
 	 * @return A new nested node
 	 */
 	public static NestedNode createFromTree(Node root)
 	{
 		NestedNodeCrawler c = new NestedNodeCrawler(root);
+		c.allowBackward(false);
 		c.crawl();
 		List<Node> leaves = c.getLeaves();
 		int out_arity = leaves.size();
@@ -156,6 +160,15 @@ public class NestedNode extends Node
 		m_internalNodes.addAll(Arrays.asList(nodes));
 	}
 
+	/**
+	 * Gets the number of internal nodes of this nested node.
+	 * @return The number of nodes
+	 */
+	/*@ pure @*/ public int getNodeCount()
+	{
+		return m_internalNodes.size();
+	}
+
 	/**
 	 * Gets the nested node input to which the n-th input of an inner node
 	 * is associated with.
@@ -236,16 +249,12 @@ public class NestedNode extends Node
 	public class CopyCrawler extends Crawler
 	{
 		/**
-		 * A map associating original nodes to their corresponding copy.
+		 * A map associating original nodes to their corresponding copy. Nodes
+		 * are compared by identity, so that distinct nodes always get
+		 * distinct copies.
 		 */
 		/*@ non_null @*/ protected Map<Node,Node> m_copies;
 
-		/**
-		 * The set of nodes that have been expanded (i.e. their output links
-		 * have been visited).
-		 */
-		/*@ non_null @*/ protected Set<Node> m_expanded;
-
 		/**
 		 * A connector used to connect nodes.
 		 */
@@ -266,10 +275,9 @@ public class NestedNode extends Node
 		public CopyCrawler(/*@ non_null @*/ Node start, /*@ non_null @*/ NodeConnector connector, boolean with_state)
 		{
 			super(start);
-			m_copies = new HashMap<>();
+			m_copies = new IdentityHashMap<>(m_internalNodes.size());
 			m_connector = connector;
 			m_withState = with_state;
-			m_expanded = new HashSet<>(m_internalNodes.size());
 		}
 
 		/**
@@ -278,7 +286,23 @@ public class NestedNode extends Node
 		 */
 		public void copyInto(NestedNode nn)
 		{
-			nn.m_internalNodes.addAll(m_copies.values());
+			// Copies keep the order of the original nodes
+			Set<Node> added = Traversal.newVisitedSet();
+			for (Node n : m_internalNodes)
+			{
+				Node copy = m_copies.get(n);
+				if (copy != null && added.add(copy))
+				{
+					nn.m_internalNodes.add(copy);
+				}
+			}
+			for (Node copy : m_copies.values())
+			{
+				if (added.add(copy))
+				{
+					nn.m_internalNodes.add(copy);
+				}
+			}
 			for (Map.Entry<Integer,Pin<? extends Node>> e : m_inputAssociations.entrySet())
 			{
 				Pin<? extends Node> pin = e.getValue();
@@ -301,28 +325,33 @@ public class NestedNode extends Node
 		@Override
 		public void visit(/*@ non_null @*/ Node n)
 		{
-			m_copies.computeIfAbsent(n, k -> k.duplicate(m_withState));
+			// A node may have been copied already as the target of another node
+			Node copy = getOrCreateCopy(n);
 			for (int i = 0; i < n.getOutputArity(); i++)
 			{
 				List<Pin<? extends Node>> pins = n.getOutputLinks(i);
 				for (Pin<? extends Node> pin : pins)
 				{
-					Node target = pin.getNode();
-					Node target_copy = null;
-					if (!m_expanded.contains(target))
-					{
-						m_expanded.add(target);
-						target_copy = target.duplicate(m_withState);
-						m_copies.put(target, target_copy);
-					}
-					else
-					{
-						target_copy = m_copies.get(target);
-					}
-					m_connector.connectTo(m_copies.get(n), i, target_copy, pin.getIndex());
+					m_connector.connectTo(copy, i, getOrCreateCopy(pin.getNode()), pin.getIndex());
 				}
 			}
 		}
+
+		/**
+		 * Gets the copy of a node, creating it if it does not exist yet.
+		 * @param n The node
+		 * @return The copy
+		 */
+		/*@ non_null @*/ protected Node getOrCreateCopy(/*@ non_null @*/ Node n)
+		{
+			Node copy = m_copies.get(n);
+			if (copy == null)
+			{
+				copy = n.duplicate(m_withState);
+				m_copies.put(n, copy);
+			}
+			return copy;
+		}
 	}
 
 	/**
@@ -358,10 +387,8 @@ public class NestedNode extends Node
 		@Override
 		public void visit(/*@ non_null @*/ Node n)
 		{
-			if (!m_allNodes.contains(n))
-			{
-				m_allNodes.add(n);
-			}
+			// The crawler visits each node once; no need to check for duplicates
+			m_allNodes.add(n);
 			boolean is_leaf = true;
 			for (int i = 0; i < n.getOutputArity(); i++)
 			{
@@ -371,7 +398,7 @@ public class NestedNode extends Node
 					break;
 				}
 			}
-			if (is_leaf && !m_leaves.contains(n))
+			if (is_leaf)
 			{
 				m_leaves.add(n);
 			}
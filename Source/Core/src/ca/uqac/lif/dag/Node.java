@@ -17,33 +17,50 @@
  */
 package ca.uqac.lif.dag;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 
 import ca.uqac.lif.util.Duplicable;
 
 /**
  * Abstract entity having input and output pins that can be linked to pins of
  * of other nodes.
+ * <p>
+ * The links of each pin are stored in a compact list indexed by pin number,
+ * and the {@link Pin} objects designating the pins of the node itself are
+ * created once and reused, so that large graphs of small nodes do not pay
+ * for hash maps, boxed indices and repeated allocations.
  * 
  * @author Sylvain Hallé
  */
 public class Node implements Connectable, Duplicable
 {
 	/**
-	 * A map associating input pin indices with a list of output pins of other
-	 * nodes.
+	 * The lists of output pins of other nodes linked to each input pin of
+	 * this node, indexed by input pin.
 	 */
-	protected Map<Integer,List<Pin<? extends Node>>> m_inputs;
+	protected final PinList[] m_inputs;
 	
 	/**
-	 * A map associating output pin indices with a list of input pins of other
-	 * nodes.
+	 * The lists of input pins of other nodes linked to each output pin of
+	 * this node, indexed by output pin.
 	 */
-	protected Map<Integer,List<Pin<? extends Node>>> m_outputs;
+	protected final PinList[] m_outputs;
+	
+	/**
+	 * The input pins of this node, created the first time they are requested.
+	 */
+	private final Pin<?>[] m_inputPinCache;
+	
+	/**
+	 * The output pins of this node, created the first time they are
+	 * requested.
+	 */
+	private final Pin<?>[] m_outputPinCache;
 	
 	/**
 	 * Creates a new node.
@@ -53,37 +70,39 @@ public class Node implements Connectable, Duplicable
 	public Node(int in_arity, int out_arity)
 	{
 		super();
-		m_inputs = new HashMap<>(in_arity);
+		m_inputs = new PinList[in_arity];
 		for (int i = 0; i < in_arity; i++)
 		{
-			m_inputs.put(i, new ArrayList<>());
+			m_inputs[i] = new PinList();
 		}
-		m_outputs = new HashMap<>(out_arity);
+		m_outputs = new PinList[out_arity];
 		for (int i = 0; i < out_arity; i++)
 		{
-			m_outputs.put(i, new ArrayList<>());
+			m_outputs[i] = new PinList();
 		}
+		m_inputPinCache = new Pin<?>[in_arity];
+		m_outputPinCache = new Pin<?>[out_arity];
 	}
 	
 	@Override
 	/*@ pure @*/ public int getInputArity()
 	{
-		return m_inputs.size();
+		return m_inputs.length;
 	}
 	
 	@Override
 	/*@ pure @*/ public int getOutputArity()
 	{
-		return m_outputs.size();
+		return m_outputs.length;
 	}
 	
 	@Override
 	/*@ pure @*/ public int getInputNodeCount()
 	{
 		int total = 0;
-		for (int i = 0; i < getInputArity(); i++)
+		for (int i = 0; i < m_inputs.length; i++)
 		{
-			total += getInputLinks(i).size();
+			total += m_inputs[i].size();
 		}
 		return total;
 	}
@@ -92,9 +111,9 @@ public class Node implements Connectable, Duplicable
 	/*@ pure @*/ public int getOutputNodeCount()
 	{
 		int total = 0;
-		for (int i = 0; i < getOutputArity(); i++)
+		for (int i = 0; i < m_outputs.length; i++)
 		{
-			total += getOutputLinks(i).size();
+			total += m_outputs[i].size();
 		}
 		return total;
 	}
@@ -102,103 +121,123 @@ public class Node implements Connectable, Duplicable
 	@Override
 	/*@ pure non_null @*/ public Collection<Pin<? extends Node>> getInputLinks(int index)
 	{
-		if (index < 0 || index >= m_inputs.size())
+		if (index < 0 || index >= m_inputs.length)
 		{
 			throw new IndexOutOfBoundsException();
 		}
-		return m_inputs.get(index);
+		return m_inputs[index];
 	}
 	
 	@Override
 	/*@ pure non_null @*/ public List<Pin<? extends Node>> getOutputLinks(int index)
 	{
-		if (index < 0 || index >= m_outputs.size())
+		if (index < 0 || index >= m_outputs.length)
 		{
 			throw new IndexOutOfBoundsException();
 		}
-		return m_outputs.get(index);
+		return m_outputs[index];
 	}
 	
 	@Override
 	public void addToInput(int index, /*@ non_null @*/ Pin<? extends Node> pin)
 	{
-		if (index < 0 || index >= m_inputs.size())
+		if (index < 0 || index >= m_inputs.length)
 		{
 			throw new IndexOutOfBoundsException();
 		}
-		m_inputs.get(index).add(pin);
+		m_inputs[index].add(pin);
 	}
 	
 	@Override
 	public void setToInput(int index, /*@ non_null @*/ Pin<? extends Node> pin)
 	{
-		if (index < 0 || index >= m_inputs.size())
+		if (index < 0 || index >= m_inputs.length)
 		{
 			throw new IndexOutOfBoundsException();
 		}
-		m_inputs.get(index).clear();
-		m_inputs.get(index).add(pin);
+		m_inputs[index].clear();
+		m_inputs[index].add(pin);
 	}
 	
 	@Override
 	public void removeFromInput(int index, /*@ non_null @*/ Pin<? extends Node> pin)
 	{
-		if (index < 0 || index >= m_inputs.size())
+		if (index < 0 || index >= m_inputs.length)
 		{
 			throw new IndexOutOfBoundsException();
 		}
-		m_inputs.get(index).remove(pin);
+		m_inputs[index].remove(pin);
 	}
 	
 	@Override
 	public void addToOutput(int index, /*@ non_null @*/ Pin<? extends Node> pin)
 	{
-		if (index < 0 || index >= m_outputs.size())
+		if (index < 0 || index >= m_outputs.length)
 		{
 			throw new IndexOutOfBoundsException();
 		}
-		m_outputs.get(index).add(pin);
+		m_outputs[index].add(pin);
 	}
 	
 	@Override
 	/*@ non_null @*/ public void setToOutput(int index, /*@ non_null @*/ Pin<? extends Node> pin)
 	{
-		if (index < 0 || index >= m_outputs.size())
+		if (index < 0 || index >= m_outputs.length)
 		{
 			throw new IndexOutOfBoundsException();
 		}
-		m_outputs.get(index).clear();
-		m_outputs.get(index).add(pin);
+		m_outputs[index].clear();
+		m_outputs[index].add(pin);
 	}
 	
 	@Override
 	public void removeFromOutput(int index, /*@ non_null @*/ Pin<? extends Node> pin)
 	{
-		if (index < 0 || index >= m_outputs.size())
+		if (index < 0 || index >= m_outputs.length)
 		{
 			throw new IndexOutOfBoundsException();
 		}
-		m_outputs.get(index).remove(pin);
+		m_outputs[index].remove(pin);
 	}
 	
 	@Override
 	/*@ non_null @*/ public Pin<? extends Node> getInputPin(int index) throws IndexOutOfBoundsException
 	{
-		if (index < 0 || index >= m_inputs.size())
+		if (index < 0 || index >= m_inputs.length)
 		{
 			throw new IndexOutOfBoundsException();
 		}
-		return new Pin<>(this, index);
+		return getCachedPin(m_inputPinCache, index);
 	}
 	
 	@Override
 	/*@ non_null @*/ public Pin<? extends Node> getOutputPin(int index) throws IndexOutOfBoundsException
 	{
-		if (index < 0 || index >= m_outputs.size())
+		if (index < 0 || index >= m_outputs.length)
 		{
 			throw new IndexOutOfBoundsException();
 		}
-		return new Pin<>(this, index);
+		return getCachedPin(m_outputPinCache, index);
+	}
+	
+	/**
+	 * Gets a pin of this node from a cache, creating it if it is not there.
+	 * Two threads asking for the same pin at the same time may both create
+	 * it; this is harmless, since pins are immutable and compared by value.
+	 * @param cache The cache
+	 * @param index The index of the pin
+	 * @return The pin
+	 */
+	@SuppressWarnings("unchecked")
+	/*@ non_null @*/ private Pin<? extends Node> getCachedPin(/*@ non_null @*/ Pin<?>[] cache, int index)
+	{
+		Pin<? extends Node> pin = (Pin<? extends Node>) cache[index];
+		if (pin == null)
+		{
+			pin = new Pin<>(this, index);
+			cache[index] = pin;
+		}
+		return pin;
 	}
 	
 	@Override
@@ -225,4 +264,225 @@ public class Node implements Connectable, Duplicable
 	{
 		// Nothing to do
 	}
+	
+	/**
+	 * The list of pins linked to a pin of a node. It is backed by an array
+	 * holding exactly its pins, which starts as an array shared by all empty
+	 * lists, so that a pin with no link costs no more than the list object
+	 * itself.
+	 * <p>
+	 * The list is copy-on-write: each modification replaces the array by a
+	 * new one, and never alters an array that has been published. Threads
+	 * reading the links of a node can therefore do so without locking it,
+	 * even while another thread connects it, and always see a consistent
+	 * list: its iterators work on the array as it was when they were
+	 * created. Modifications are synchronized on the list. Since most pins
+	 * have one or two links, which are set once when a graph is built, the
+	 * cost of copying the array is negligible.
+	 */
+	protected static class PinList extends AbstractList<Pin<? extends Node>> implements RandomAccess
+	{
+		/**
+		 * The array shared by all lists that have never contained a pin.
+		 */
+		private static final Pin<?>[] EMPTY = new Pin<?>[0];
+		
+		/**
+		 * The pins of the list. This array is never modified once it is
+		 * assigned to this field.
+		 */
+		private volatile Pin<?>[] m_pins;
+		
+		/**
+		 * Creates a new empty list.
+		 */
+		public PinList()
+		{
+			super();
+			m_pins = EMPTY;
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public Pin<? extends Node> get(int index)
+		{
+			Pin<?>[] pins = m_pins;
+			if (index < 0 || index >= pins.length)
+			{
+				throw new IndexOutOfBoundsException();
+			}
+			return (Pin<? extends Node>) pins[index];
+		}
+		
+		@Override
+		public int size()
+		{
+			return m_pins.length;
+		}
+		
+		@Override
+		public Iterator<Pin<? extends Node>> iterator()
+		{
+			return new SnapshotIterator(m_pins);
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public synchronized Pin<? extends Node> set(int index, Pin<? extends Node> pin)
+		{
+			Pin<?>[] pins = m_pins;
+			if (index < 0 || index >= pins.length)
+			{
+				throw new IndexOutOfBoundsException();
+			}
+			Pin<? extends Node> old = (Pin<? extends Node>) pins[index];
+			Pin<?>[] new_pins = pins.clone();
+			new_pins[index] = pin;
+			m_pins = new_pins;
+			return old;
+		}
+		
+		@Override
+		public synchronized void add(int index, Pin<? extends Node> pin)
+		{
+			Pin<?>[] pins = m_pins;
+			if (index < 0 || index > pins.length)
+			{
+				throw new IndexOutOfBoundsException();
+			}
+			Pin<?>[] new_pins = new Pin<?>[pins.length + 1];
+			System.arraycopy(pins, 0, new_pins, 0, index);
+			new_pins[index] = pin;
+			System.arraycopy(pins, index, new_pins, index + 1, pins.length - index);
+			m_pins = new_pins;
+			modCount++;
+		}
+		
+		@SuppressWarnings("unchecked")
+		@Override
+		public synchronized Pin<? extends Node> remove(int index)
+		{
+			Pin<?>[] pins = m_pins;
+			if (index < 0 || index >= pins.length)
+			{
+				throw new IndexOutOfBoundsException();
+			}
+			Pin<? extends Node> old = (Pin<? extends Node>) pins[index];
+			if (pins.length == 1)
+			{
+				m_pins = EMPTY;
+			}
+			else
+			{
+				Pin<?>[] new_pins = new Pin<?>[pins.length - 1];
+				System.arraycopy(pins, 0, new_pins, 0, index);
+				System.arraycopy(pins, index + 1, new_pins, index, pins.length - index - 1);
+				m_pins = new_pins;
+			}
+			modCount++;
+			return old;
+		}
+		
+		@Override
+		public int indexOf(Object o)
+		{
+			return indexOf(m_pins, o);
+		}
+		
+		@Override
+		public boolean contains(Object o)
+		{
+			return indexOf(o) >= 0;
+		}
+		
+		@Override
+		public synchronized boolean remove(Object o)
+		{
+			int index = indexOf(o);
+			if (index < 0)
+			{
+				return false;
+			}
+			remove(index);
+			return true;
+		}
+		
+		@Override
+		public synchronized void clear()
+		{
+			if (m_pins.length > 0)
+			{
+				m_pins = EMPTY;
+				modCount++;
+			}
+		}
+		
+		/**
+		 * Finds the position of a pin in an array of pins.
+		 * @param pins The array
+		 * @param o The pin to look for
+		 * @return The index of the first occurrence of the pin, or -1 if it
+		 * does not occur in the array
+		 */
+		private static int indexOf(/*@ non_null @*/ Pin<?>[] pins, /*@ null @*/ Object o)
+		{
+			if (o == null)
+			{
+				return -1;
+			}
+			for (int i = 0; i < pins.length; i++)
+			{
+				if (o.equals(pins[i]))
+				{
+					return i;
+				}
+			}
+			return -1;
+		}
+		
+		/**
+		 * Iterator over the pins of a list at the moment the iterator was
+		 * created. It does not support removal.
+		 */
+		private static class SnapshotIterator implements Iterator<Pin<? extends Node>>
+		{
+			/**
+			 * The array of pins being iterated over.
+			 */
+			private final Pin<?>[] m_snapshot;
+			
+			/**
+			 * The index of the next pin to return.
+			 */
+			private int m_position;
+			
+			/**
+			 * Creates a new iterator.
+			 * @param snapshot The array of pins being iterated over
+			 */
+			public SnapshotIterator(/*@ non_null @*/ Pin<?>[] snapshot)
+			{
+				super();
+				m_snapshot = snapshot;
+				m_position = 0;
+			}
+			
+			@Override
+			public boolean hasNext()
+			{
+				return m_position < m_snapshot.length;
+			}
+			
+			@SuppressWarnings("unchecked")
+			@Override
+			public Pin<? extends Node> next()
+			{
+				if (m_position >= m_snapshot.length)
+				{
+					throw new NoSuchElementException();
+				}
+				return (Pin<? extends Node>) m_snapshot[m_position++];
+			}
+		}
+	}
 }
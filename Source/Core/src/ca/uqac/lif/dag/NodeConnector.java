@@ -78,13 +78,22 @@ public class NodeConnector
 	{
 		Pin<? extends Node> out_p1 = n1.getOutputPin(i1);
 		Pin<? extends Node> in_p2 = n2.getInputPin(i2);
-		if (!n1.getOutputLinks(i1).contains(in_p2))
+		// Each end is locked separately, so that nodes shared by graphs built in
+		// different threads can receive links concurrently; readers need no
+		// lock, as the lists of links are copy-on-write
+		synchronized (n1)
 		{
-			n1.addToOutput(i1, in_p2);
+			if (!n1.getOutputLinks(i1).contains(in_p2))
+			{
+				n1.addToOutput(i1, in_p2);
+			}
 		}
-		if (!n2.getInputLinks(i2).contains(out_p1))
+		synchronized (n2)
 		{
-			n2.addToInput(i2, out_p1);
+			if (!n2.getInputLinks(i2).contains(out_p1))
+			{
+				n2.addToInput(i2, out_p1);
+			}
 		}
 	}
 
@@ -0,0 +1,46 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.dag;
+
+/**
+ * Object notified of the nodes reached by a {@link Traversal}. Each node is
+ * first "previsited", when the traversal reaches it, and then
+ * "postvisited", when the traversal is done with it; what this means
+ * depends on the order of the traversal.
+ * 
+ * @author Sylvain Hallé
+ */
+public interface NodeVisitor
+{
+	/**
+	 * Called when the traversal reaches a node. This method is called exactly
+	 * once for every node reached by the traversal.
+	 * @param n The node
+	 * @return {@code true} to continue the traversal, {@code false} to stop it
+	 * immediately
+	 */
+	public boolean previsit(/*@ non_null @*/ Node n);
+
+	/**
+	 * Called when the traversal is done with a node. This method is called
+	 * exactly once for every node that has been previsited, unless the
+	 * traversal is stopped.
+	 * @param n The node
+	 */
+	public void postvisit(/*@ non_null @*/ Node n);
+}
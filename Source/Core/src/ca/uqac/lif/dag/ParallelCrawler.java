@@ -0,0 +1,430 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.dag;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Visits the nodes of a graph reachable from one or more starting points
+ * using the threads of a {@link ForkJoinPool}. Each task explores nodes
+ * depth-first from its own stack; when its stack grows large enough and
+ * the pool runs short of queued work, it hands half of it over to a new
+ * task, which idle threads can then steal. A node is claimed by the first
+ * task that adds it to a concurrent visited set, which compares nodes by
+ * identity, so that each node is visited exactly once.
+ * <p>
+ * Nodes are visited in no particular order, and the {@link NodeVisitor}
+ * receiving them is called from multiple threads at the same time; it must
+ * therefore be thread-safe, like the visitors provided in this class. A
+ * node is postvisited once the nodes linked to it have been claimed. As
+ * with a {@link Traversal}, returning {@code false} from
+ * {@link NodeVisitor#previsit(Node)} stops the crawl, although nodes that
+ * other threads are visiting at that moment may still be previsited. The
+ * graph must not be modified during the crawl.
+ * 
+ * @author Sylvain Hallé
+ */
+public class ParallelCrawler
+{
+	/**
+	 * The minimum number of nodes a task keeps on its stack before handing
+	 * half of them over to another task.
+	 */
+	protected static final int s_threshold = 64;
+
+	/**
+	 * The pool in which the crawl runs.
+	 */
+	/*@ non_null @*/ protected final ForkJoinPool m_pool;
+
+	/**
+	 * A flag that determines if the crawler follows the links of output pins.
+	 */
+	protected boolean m_forward;
+
+	/**
+	 * A flag that determines if the crawler follows the links of input pins.
+	 */
+	protected boolean m_backward;
+
+	/**
+	 * Creates a new crawler going forward.
+	 * @param pool The pool in which the crawl runs
+	 */
+	public ParallelCrawler(/*@ non_null @*/ ForkJoinPool pool)
+	{
+		super();
+		m_pool = pool;
+		m_forward = true;
+		m_backward = false;
+	}
+
+	/**
+	 * Sets if the crawler follows the links of output pins.
+	 * @param b Set to {@code true} to follow these links, {@code false}
+	 * otherwise
+	 * @return This crawler
+	 */
+	/*@ non_null @*/ public ParallelCrawler forward(boolean b)
+	{
+		m_forward = b;
+		return this;
+	}
+
+	/**
+	 * Sets if the crawler follows the links of input pins.
+	 * @param b Set to {@code true} to follow these links, {@code false}
+	 * otherwise
+	 * @return This crawler
+	 */
+	/*@ non_null @*/ public ParallelCrawler backward(boolean b)
+	{
+		m_backward = b;
+		return this;
+	}
+
+	/**
+	 * Visits the nodes reachable from a starting point.
+	 * @param start The starting point
+	 * @param v The visitor notified of each node
+	 * @return {@code true} if every reachable node has been visited,
+	 * {@code false} if the visitor stopped the crawl
+	 */
+	public boolean crawl(/*@ non_null @*/ Node start, /*@ non_null @*/ NodeVisitor v)
+	{
+		return crawl(Collections.singletonList(start), v);
+	}
+
+	/**
+	 * Visits the nodes reachable from multiple starting points. Nodes
+	 * reachable from more than one of them are visited only once.
+	 * @param starts The starting points
+	 * @param v The visitor notified of each node
+	 * @return {@code true} if every reachable node has been visited,
+	 * {@code false} if the visitor stopped the crawl
+	 */
+	public boolean crawl(/*@ non_null @*/ Collection<? extends Node> starts, /*@ non_null @*/ NodeVisitor v)
+	{
+		VisitedSet visited = new VisitedSet(4 * m_pool.getParallelism());
+		AtomicBoolean stopped = new AtomicBoolean(false);
+		ArrayDeque<Node> stack = new ArrayDeque<Node>();
+		for (Node n : starts)
+		{
+			if (visited.add(n))
+			{
+				stack.push(n);
+			}
+		}
+		m_pool.invoke(new CrawlTask(stack, visited, v, stopped));
+		return !stopped.get();
+	}
+
+	/**
+	 * Task visiting the nodes of its stack, and the nodes it claims from
+	 * them.
+	 */
+	protected class CrawlTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The nodes claimed by this task and not visited yet.
+		 */
+		/*@ non_null @*/ protected final ArrayDeque<Node> m_stack;
+
+		/**
+		 * The nodes claimed by any task.
+		 */
+		/*@ non_null @*/ protected final VisitedSet m_visited;
+
+		/**
+		 * The visitor notified of each node.
+		 */
+		/*@ non_null @*/ protected final NodeVisitor m_visitor;
+
+		/**
+		 * A flag indicating that the crawl must stop, shared by all tasks.
+		 */
+		/*@ non_null @*/ protected final AtomicBoolean m_stopped;
+
+		/**
+		 * Creates a new task.
+		 * @param stack The nodes claimed by this task and not visited yet
+		 * @param visited The nodes claimed by any task
+		 * @param visitor The visitor notified of each node
+		 * @param stopped A flag indicating that the crawl must stop
+		 */
+		public CrawlTask(/*@ non_null @*/ ArrayDeque<Node> stack, /*@ non_null @*/ VisitedSet visited, /*@ non_null @*/ NodeVisitor visitor, /*@ non_null @*/ AtomicBoolean stopped)
+		{
+			super();
+			m_stack = stack;
+			m_visited = visited;
+			m_visitor = visitor;
+			m_stopped = stopped;
+		}
+
+		@Override
+		protected void compute()
+		{
+			List<CrawlTask> forked = new ArrayList<CrawlTask>();
+			List<Node> neighbours = new ArrayList<Node>();
+			while (!m_stack.isEmpty() && !m_stopped.get())
+			{
+				Node n = m_stack.pop();
+				if (!m_visitor.previsit(n))
+				{
+					m_stopped.set(true);
+					break;
+				}
+				neighbours.clear();
+				Traversal.getNeighbours(n, m_forward, m_backward, neighbours);
+				for (Node m : neighbours)
+				{
+					if (m_visited.add(m))
+					{
+						m_stack.push(m);
+					}
+				}
+				m_visitor.postvisit(n);
+				if (m_stack.size() >= s_threshold && getSurplusQueuedTaskCount() < 2)
+				{
+					// Hand over the bottom half of the stack, the part this task would
+					// reach last
+					ArrayDeque<Node> half = new ArrayDeque<Node>();
+					for (int i = m_stack.size() / 2; i > 0; i--)
+					{
+						half.push(m_stack.removeLast());
+					}
+					CrawlTask t = new CrawlTask(half, m_visited, m_visitor, m_stopped);
+					t.fork();
+					forked.add(t);
+				}
+			}
+			for (CrawlTask t : forked)
+			{
+				t.join();
+			}
+		}
+	}
+
+	/**
+	 * A set of nodes that compares its elements by identity and can be
+	 * updated by multiple threads. It is split into a fixed number of
+	 * stripes, each locked separately, so that threads adding different
+	 * nodes rarely wait for each other.
+	 */
+	protected static class VisitedSet
+	{
+		/**
+		 * The stripes of the set.
+		 */
+		/*@ non_null @*/ protected final Map<Node,Boolean>[] m_stripes;
+
+		/**
+		 * Creates a new empty set.
+		 * @param min_stripes The minimum number of stripes; the actual number
+		 * is the next power of two
+		 */
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		public VisitedSet(int min_stripes)
+		{
+			super();
+			int size = Integer.highestOneBit(Math.max(1, min_stripes - 1)) << 1;
+			m_stripes = new Map[size];
+			for (int i = 0; i < size; i++)
+			{
+				m_stripes[i] = new IdentityHashMap<Node,Boolean>();
+			}
+		}
+
+		/**
+		 * Adds a node to the set.
+		 * @param n The node
+		 * @return {@code true} if the node was not already in the set,
+		 * {@code false} otherwise
+		 */
+		public boolean add(/*@ non_null @*/ Node n)
+		{
+			int h = System.identityHashCode(n);
+			Map<Node,Boolean> stripe = m_stripes[(h ^ (h >>> 16)) & (m_stripes.length - 1)];
+			synchronized (stripe)
+			{
+				return stripe.put(n, Boolean.TRUE) == null;
+			}
+		}
+	}
+
+	/**
+	 * A thread-safe visitor collecting the nodes that have no output link.
+	 */
+	public static class LeafCollector implements NodeVisitor
+	{
+		/**
+		 * The leaves found so far.
+		 */
+		/*@ non_null @*/ protected final ConcurrentLinkedQueue<Node> m_leaves;
+
+		/**
+		 * Creates a new leaf collector.
+		 */
+		public LeafCollector()
+		{
+			super();
+			m_leaves = new ConcurrentLinkedQueue<Node>();
+		}
+
+		@Override
+		public boolean previsit(/*@ non_null @*/ Node n)
+		{
+			for (int i = 0; i < n.getOutputArity(); i++)
+			{
+				if (!n.getOutputLinks(i).isEmpty())
+				{
+					return true;
+				}
+			}
+			m_leaves.add(n);
+			return true;
+		}
+
+		@Override
+		public void postvisit(/*@ non_null @*/ Node n)
+		{
+			// Nothing to do
+		}
+
+		/**
+		 * Gets the leaves found so far, in no particular order.
+		 * @return The list of leaves
+		 */
+		/*@ non_null @*/ public List<Node> getLeaves()
+		{
+			return new ArrayList<Node>(m_leaves);
+		}
+	}
+
+	/**
+	 * A thread-safe visitor counting the nodes it visits.
+	 */
+	public static class NodeCounter implements NodeVisitor
+	{
+		/**
+		 * The number of nodes visited so far.
+		 */
+		/*@ non_null @*/ protected final LongAdder m_count;
+
+		/**
+		 * Creates a new node counter.
+		 */
+		public NodeCounter()
+		{
+			super();
+			m_count = new LongAdder();
+		}
+
+		@Override
+		public boolean previsit(/*@ non_null @*/ Node n)
+		{
+			m_count.increment();
+			return true;
+		}
+
+		@Override
+		public void postvisit(/*@ non_null @*/ Node n)
+		{
+			// Nothing to do
+		}
+
+		/**
+		 * Gets the number of nodes visited so far.
+		 * @return The number of nodes
+		 */
+		/*@ pure @*/ public long getCount()
+		{
+			return m_count.sum();
+		}
+	}
+
+	/**
+	 * A thread-safe visitor looking for a node that satisfies a condition,
+	 * and stopping the crawl as soon as one is found.
+	 */
+	public static class NodeSearch implements NodeVisitor
+	{
+		/**
+		 * The condition to satisfy.
+		 */
+		/*@ non_null @*/ protected final Predicate<? super Node> m_condition;
+
+		/**
+		 * The first node found that satisfies the condition, if any.
+		 */
+		/*@ non_null @*/ protected final AtomicReference<Node> m_found;
+
+		/**
+		 * Creates a new node search.
+		 * @param condition The condition to satisfy, which must be thread-safe
+		 */
+		public NodeSearch(/*@ non_null @*/ Predicate<? super Node> condition)
+		{
+			super();
+			m_condition = condition;
+			m_found = new AtomicReference<Node>();
+		}
+
+		@Override
+		public boolean previsit(/*@ non_null @*/ Node n)
+		{
+			if (m_condition.test(n))
+			{
+				m_found.compareAndSet(null, n);
+				return false;
+			}
+			return true;
+		}
+
+		@Override
+		public void postvisit(/*@ non_null @*/ Node n)
+		{
+			// Nothing to do
+		}
+
+		/**
+		 * Gets the node found by the search.
+		 * @return The node, or {@code null} if no visited node satisfies the
+		 * condition
+		 */
+		/*@ pure null @*/ public Node getFound()
+		{
+			return m_found.get();
+		}
+	}
+}
@@ -0,0 +1,461 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.dag;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Visits the nodes of a graph reachable from one or more starting points,
+ * notifying a {@link NodeVisitor} of each of them. A traversal follows the
+ * links of each node in the order of its pins, and can go forward (from
+ * output pins to the nodes they are linked to), backward (from input pins),
+ * or both. Nodes are compared by identity: two distinct node objects are
+ * always visited separately, regardless of their {@code equals} method.
+ * <p>
+ * Three orders are available:
+ * <ul>
+ * <li>{@link #BREADTH_FIRST}: nodes are previsited by increasing distance
+ * from the starting points, and each node is postvisited once its
+ * neighbours have been queued;</li>
+ * <li>{@link #DEPTH_FIRST}: nodes are previsited in the order a recursive
+ * depth-first search would enter them, and postvisited once every node
+ * reachable through them has been; the traversal itself does not use
+ * recursion, and is therefore not limited by the depth of the graph;</li>
+ * <li>{@link #TOPOLOGICAL}: a node is previsited only after every node
+ * linked to it among the reachable nodes, and postvisited right after.
+ * This order requires the traversal to go in a single direction, and the
+ * reachable part of the graph to have no cycle.</li>
+ * </ul>
+ * In every order, the visitor can stop the traversal at any time by
+ * returning {@code false} from {@link NodeVisitor#previsit(Node)}.
+ * 
+ * @author Sylvain Hallé
+ */
+public class Traversal
+{
+	/**
+	 * The breadth-first order.
+	 */
+	public static final int BREADTH_FIRST = 0;
+
+	/**
+	 * The depth-first order.
+	 */
+	public static final int DEPTH_FIRST = 1;
+
+	/**
+	 * The topological order.
+	 */
+	public static final int TOPOLOGICAL = 2;
+
+	/**
+	 * The order of the traversal.
+	 */
+	protected final int m_order;
+
+	/**
+	 * A flag that determines if the traversal follows the links of output
+	 * pins.
+	 */
+	protected boolean m_forward;
+
+	/**
+	 * A flag that determines if the traversal follows the links of input
+	 * pins.
+	 */
+	protected boolean m_backward;
+
+	/**
+	 * Creates a new breadth-first traversal going forward.
+	 */
+	public Traversal()
+	{
+		this(BREADTH_FIRST);
+	}
+
+	/**
+	 * Creates a new traversal going forward.
+	 * @param order The order of the traversal, which is one of
+	 * {@link #BREADTH_FIRST}, {@link #DEPTH_FIRST} and {@link #TOPOLOGICAL}
+	 */
+	public Traversal(int order)
+	{
+		super();
+		if (order < BREADTH_FIRST || order > TOPOLOGICAL)
+		{
+			throw new IllegalArgumentException("Invalid traversal order: " + order);
+		}
+		m_order = order;
+		m_forward = true;
+		m_backward = false;
+	}
+
+	/**
+	 * Sets if the traversal follows the links of output pins.
+	 * @param b Set to {@code true} to follow these links, {@code false}
+	 * otherwise
+	 * @return This traversal
+	 */
+	/*@ non_null @*/ public Traversal forward(boolean b)
+	{
+		m_forward = b;
+		return this;
+	}
+
+	/**
+	 * Sets if the traversal follows the links of input pins.
+	 * @param b Set to {@code true} to follow these links, {@code false}
+	 * otherwise
+	 * @return This traversal
+	 */
+	/*@ non_null @*/ public Traversal backward(boolean b)
+	{
+		m_backward = b;
+		return this;
+	}
+
+	/**
+	 * Gets the order of the traversal.
+	 * @return The order
+	 */
+	/*@ pure @*/ public int getOrder()
+	{
+		return m_order;
+	}
+
+	/**
+	 * Visits the nodes reachable from a starting point.
+	 * @param start The starting point
+	 * @param v The visitor notified of each node
+	 * @return {@code true} if every reachable node has been visited,
+	 * {@code false} if the visitor stopped the traversal
+	 * @throws IllegalStateException If a topological traversal is asked to go
+	 * in both directions
+	 * @throws IllegalArgumentException If a topological traversal reaches a
+	 * cycle
+	 */
+	public boolean traverse(/*@ non_null @*/ Node start, /*@ non_null @*/ NodeVisitor v)
+	{
+		return traverse(Collections.singletonList(start), v);
+	}
+
+	/**
+	 * Visits the nodes reachable from multiple starting points. Nodes
+	 * reachable from more than one of them are visited only once.
+	 * @param starts The starting points
+	 * @param v The visitor notified of each node
+	 * @return {@code true} if every reachable node has been visited,
+	 * {@code false} if the visitor stopped the traversal
+	 * @throws IllegalStateException If a topological traversal is asked to go
+	 * in both directions
+	 * @throws IllegalArgumentException If a topological traversal reaches a
+	 * cycle
+	 */
+	public boolean traverse(/*@ non_null @*/ Collection<? extends Node> starts, /*@ non_null @*/ NodeVisitor v)
+	{
+		switch (m_order)
+		{
+		case DEPTH_FIRST:
+			return depthFirst(starts, v);
+		case TOPOLOGICAL:
+			return topological(starts, v);
+		default:
+			return breadthFirst(starts, v);
+		}
+	}
+
+	/**
+	 * Visits nodes in breadth-first order.
+	 * @param starts The starting points
+	 * @param v The visitor notified of each node
+	 * @return {@code true} if every reachable node has been visited,
+	 * {@code false} otherwise
+	 */
+	protected boolean breadthFirst(/*@ non_null @*/ Collection<? extends Node> starts, /*@ non_null @*/ NodeVisitor v)
+	{
+		Set<Node> seen = newVisitedSet();
+		Deque<Node> to_visit = new ArrayDeque<Node>();
+		for (Node n : starts)
+		{
+			if (seen.add(n))
+			{
+				to_visit.add(n);
+			}
+		}
+		List<Node> neighbours = new ArrayList<Node>();
+		while (!to_visit.isEmpty())
+		{
+			Node current = to_visit.remove();
+			if (!v.previsit(current))
+			{
+				return false;
+			}
+			neighbours.clear();
+			getNeighbours(current, neighbours);
+			for (Node n : neighbours)
+			{
+				if (seen.add(n))
+				{
+					to_visit.add(n);
+				}
+			}
+			v.postvisit(current);
+		}
+		return true;
+	}
+
+	/**
+	 * Visits nodes in depth-first order.
+	 * @param starts The starting points
+	 * @param v The visitor notified of each node
+	 * @return {@code true} if every reachable node has been visited,
+	 * {@code false} otherwise
+	 */
+	protected boolean depthFirst(/*@ non_null @*/ Collection<? extends Node> starts, /*@ non_null @*/ NodeVisitor v)
+	{
+		Set<Node> seen = newVisitedSet();
+		Deque<Frame> stack = new ArrayDeque<Frame>();
+		for (Node start : starts)
+		{
+			if (!seen.add(start))
+			{
+				continue;
+			}
+			if (!enter(start, v, stack))
+			{
+				return false;
+			}
+			while (!stack.isEmpty())
+			{
+				Frame f = stack.peek();
+				if (f.m_position < f.m_neighbours.size())
+				{
+					Node n = f.m_neighbours.get(f.m_position++);
+					if (seen.add(n) && !enter(n, v, stack))
+					{
+						return false;
+					}
+				}
+				else
+				{
+					stack.pop();
+					v.postvisit(f.m_node);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Previsits a node in a depth-first traversal, and pushes its frame on
+	 * the stack.
+	 * @param n The node
+	 * @param v The visitor notified of each node
+	 * @param stack The stack of frames
+	 * @return {@code true} if the traversal continues, {@code false}
+	 * otherwise
+	 */
+	protected boolean enter(/*@ non_null @*/ Node n, /*@ non_null @*/ NodeVisitor v, /*@ non_null @*/ Deque<Frame> stack)
+	{
+		if (!v.previsit(n))
+		{
+			return false;
+		}
+		Frame f = new Frame(n);
+		getNeighbours(n, f.m_neighbours);
+		stack.push(f);
+		return true;
+	}
+
+	/**
+	 * Visits nodes in topological order.
+	 * @param starts The starting points
+	 * @param v The visitor notified of each node
+	 * @return {@code true} if every reachable node has been visited,
+	 * {@code false} otherwise
+	 */
+	protected boolean topological(/*@ non_null @*/ Collection<? extends Node> starts, /*@ non_null @*/ NodeVisitor v)
+	{
+		if (m_forward && m_backward)
+		{
+			throw new IllegalStateException("A topological traversal must go in a single direction");
+		}
+		// First pass: count the links reaching each node
+		Map<Node,int[]> in_degrees = new IdentityHashMap<Node,int[]>();
+		Deque<Node> to_visit = new ArrayDeque<Node>();
+		List<Node> neighbours = new ArrayList<Node>();
+		for (Node n : starts)
+		{
+			if (!in_degrees.containsKey(n))
+			{
+				in_degrees.put(n, new int[1]);
+				to_visit.add(n);
+			}
+		}
+		List<Node> discovered = new ArrayList<Node>(to_visit);
+		while (!to_visit.isEmpty())
+		{
+			Node current = to_visit.remove();
+			neighbours.clear();
+			getNeighbours(current, neighbours);
+			for (Node n : neighbours)
+			{
+				int[] degree = in_degrees.get(n);
+				if (degree == null)
+				{
+					degree = new int[1];
+					in_degrees.put(n, degree);
+					to_visit.add(n);
+					discovered.add(n);
+				}
+				degree[0]++;
+			}
+		}
+		// Second pass: visit nodes once all the links reaching them are
+		for (Node n : discovered)
+		{
+			if (in_degrees.get(n)[0] == 0)
+			{
+				to_visit.add(n);
+			}
+		}
+		int visited = 0;
+		while (!to_visit.isEmpty())
+		{
+			Node current = to_visit.remove();
+			visited++;
+			if (!v.previsit(current))
+			{
+				return false;
+			}
+			neighbours.clear();
+			getNeighbours(current, neighbours);
+			for (Node n : neighbours)
+			{
+				if (--in_degrees.get(n)[0] == 0)
+				{
+					to_visit.add(n);
+				}
+			}
+			v.postvisit(current);
+		}
+		if (visited < discovered.size())
+		{
+			throw new IllegalArgumentException("The graph contains a cycle");
+		}
+		return true;
+	}
+
+	/**
+	 * Adds to a list the nodes linked to a node in the directions followed by
+	 * this traversal. The nodes are added in the order of the pins, output
+	 * pins first; a node linked through multiple pins appears multiple times.
+	 * @param n The node
+	 * @param out The list to which the nodes are added
+	 */
+	protected void getNeighbours(/*@ non_null @*/ Node n, /*@ non_null @*/ List<Node> out)
+	{
+		getNeighbours(n, m_forward, m_backward, out);
+	}
+
+	/**
+	 * Adds to a list the nodes linked to a node in the given directions. The
+	 * nodes are added in the order of the pins, output pins first; a node
+	 * linked through multiple pins appears multiple times.
+	 * @param n The node
+	 * @param forward Set to {@code true} to add the nodes linked to the
+	 * output pins
+	 * @param backward Set to {@code true} to add the nodes linked to the
+	 * input pins
+	 * @param out The list to which the nodes are added
+	 */
+	protected static void getNeighbours(/*@ non_null @*/ Node n, boolean forward, boolean backward, /*@ non_null @*/ List<Node> out)
+	{
+		if (forward)
+		{
+			for (int i = 0; i < n.getOutputArity(); i++)
+			{
+				for (Pin<? extends Node> pin : n.getOutputLinks(i))
+				{
+					out.add(pin.getNode());
+				}
+			}
+		}
+		if (backward)
+		{
+			for (int i = 0; i < n.getInputArity(); i++)
+			{
+				for (Pin<? extends Node> pin : n.getInputLinks(i))
+				{
+					out.add(pin.getNode());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates an empty set of nodes that compares its elements by identity.
+	 * @return The set
+	 */
+	/*@ non_null @*/ public static Set<Node> newVisitedSet()
+	{
+		return Collections.newSetFromMap(new IdentityHashMap<Node,Boolean>());
+	}
+
+	/**
+	 * A node on the stack of a depth-first traversal, along with the
+	 * neighbours that remain to be explored from it.
+	 */
+	protected static class Frame
+	{
+		/**
+		 * The node.
+		 */
+		/*@ non_null @*/ protected final Node m_node;
+
+		/**
+		 * The neighbours of the node.
+		 */
+		/*@ non_null @*/ protected final List<Node> m_neighbours;
+
+		/**
+		 * The position of the next neighbour to explore.
+		 */
+		protected int m_position;
+
+		/**
+		 * Creates a new frame.
+		 * @param n The node
+		 */
+		public Frame(/*@ non_null @*/ Node n)
+		{
+			super();
+			m_node = n;
+			m_neighbours = new ArrayList<Node>();
+			m_position = 0;
+		}
+	}
+}
@@ -17,7 +17,7 @@
  */
 package ca.uqac.lif.petitpoucet;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -25,16 +25,54 @@ import java.util.List;
  * of a "head" and a "tail". The head is a {@link Part} that points to a part
  * of an object. The tail is a sequence of parts that further refine that part
  * into a smaller part.
+ * <p>
+ * Composed parts are immutable: their hash code is computed once when they
+ * are created, and the static methods that produce them ({@link #compose},
+ * {@link #tail()}, {@link #subPart(int, int) subPart()} and
+ * {@link #replace(int, Part) replace()}) return instances that are
+ * canonicalized by the {@link PartInterner#getDefault() default interner},
+ * so that structurally equal parts obtained in this way are generally the
+ * same object.
+ * <p>
+ * Earlier versions had a method {@code add()} that appended a designator to
+ * a composed part in place. It has been removed, so that code relying on it
+ * no longer compiles instead of silently building the wrong part. To append
+ * a designator {@code d} to a part {@code p}, use {@code compose(p, d)},
+ * which returns a new part and leaves {@code p} unchanged.
+ * <p>
+ * Besides the array of its elements, a composed part keeps a packed
+ * encoding of them, made of the {@link TaggedPart#getTag() tag} and
+ * {@link TaggedPart#getCode() code} of each element (see {@link PartPath}).
+ * Methods such as {@link #indexOfTag(int)} and {@link #getCode(int)} read
+ * this encoding without going through the elements themselves.
  * @author Sylvain Hallé
  */
 public class ComposedPart implements Part
 {
 	/**
-	 * The list of designators representing the composition. The head of the
-	 * designator is the last element of the list, while the tail of the
-	 * designator is the sub-list excluding the last element.
+	 * The array of designators representing the composition. The head of the
+	 * designator is the last element of the array, while the tail of the
+	 * designator is the sub-array excluding the last element. This array is
+	 * never modified once the part is created.
 	 */
-	protected List<Part> m_designators;
+	/*@ non_null @*/ protected final Part[] m_designators;
+	
+	/**
+	 * The tags of the designators, in the same order as in
+	 * {@link #m_designators}.
+	 */
+	/*@ non_null @*/ protected final int[] m_tags;
+	
+	/**
+	 * The codes of the designators, in the same order as in
+	 * {@link #m_designators}.
+	 */
+	/*@ non_null @*/ protected final long[] m_codes;
+	
+	/**
+	 * The hash code of this part, computed once at creation time.
+	 */
+	protected final int m_hashCode;
 	
 	/**
 	 * Creates a flat composed designator out of a list of designators.
@@ -53,36 +91,24 @@ public class ComposedPart implements Part
 		{
 			return Part.nothing;
 		}
-		List<Part> l_designators = new ArrayList<>();
-		for (int i = 0; i < designators.length; i++)
-		{
-			if (designators[i] == null)
-			{
-				continue;
-			}
-			if (designators[i] instanceof ComposedPart)
-			{
-				l_designators.addAll(((ComposedPart) designators[i]).m_designators);
-			}
-			else
-			{
-				l_designators.add(designators[i]);
-			}
-		}
-		if (l_designators.isEmpty())
+		Part[] flat = flatten(designators);
+		if (flat.length == 0)
 		{
 			return Part.nothing;
 		}
-		if (l_designators.size() == 1)
+		if (flat.length == 1)
 		{
-			return l_designators.get(0);
+			return flat[0];
 		}
-		if (l_designators.contains(Part.nothing))
+		for (Part d : flat)
 		{
-			// Composing "nothing" with anything else is "nothing"
-			return Part.nothing;
+			if (Part.nothing.equals(d))
+			{
+				// Composing "nothing" with anything else is "nothing"
+				return Part.nothing;
+			}
 		}
-		return new ComposedPart(l_designators);
+		return intern(new ComposedPart(flat, hash(flat)));
 	}
 	
 	/**
@@ -92,16 +118,13 @@ public class ComposedPart implements Part
 	 */
 	public static Part compose(List<Part> designators)
 	{
-		Part[] parts = new Part[designators.size()];
-		for (int i = 0; i < parts.length; i++)
-		{
-			parts[i] = designators.get(i);
-		}
-		return compose(parts);
+		return compose(designators.toArray(new Part[designators.size()]));
 	}
 
 	/**
-	 * Creates a new composed designator
+	 * Creates a new composed designator. Contrary to
+	 * {@link #compose(Part...) compose()}, the resulting object is not
+	 * interned.
 	 * 
 	 * @param designators
 	 *          The list of designators representing the composition
@@ -109,15 +132,16 @@ public class ComposedPart implements Part
 	public ComposedPart(Part... designators)
 	{
 		super();
-		m_designators = new ArrayList<>(designators.length);
-		for (Part d : designators)
-		{
-			add(d);
-		}
+		m_designators = flatten(designators);
+		m_hashCode = hash(m_designators);
+		m_tags = new int[m_designators.length];
+		m_codes = new long[m_designators.length];
+		encode(m_designators, m_tags, m_codes);
 	}
 	
 	/**
-	 * Creates a new composed designator
+	 * Creates a new composed designator. Contrary to
+	 * {@link #compose(List) compose()}, the resulting object is not interned.
 	 * 
 	 * @param designators
 	 *          The list of designators representing the composition
@@ -125,36 +149,113 @@ public class ComposedPart implements Part
 	public ComposedPart(List<Part> designators)
 	{
 		super();
-		m_designators = new ArrayList<>(designators.size());
-		for (Part d : designators)
+		m_designators = flatten(designators.toArray(new Part[designators.size()]));
+		m_hashCode = hash(m_designators);
+		m_tags = new int[m_designators.length];
+		m_codes = new long[m_designators.length];
+		encode(m_designators, m_tags, m_codes);
+	}
+	
+	/**
+	 * Creates a new composed designator from an array that is already flat
+	 * and whose hash code is already known.
+	 * @param flat The array of designators, which is used as is and must not
+	 * be modified afterwards
+	 * @param hash_code The hash code of this array, as computed by
+	 * {@link #hash(Part[])}
+	 */
+	protected ComposedPart(/*@ non_null @*/ Part[] flat, int hash_code)
+	{
+		super();
+		m_designators = flat;
+		m_hashCode = hash_code;
+		m_tags = new int[flat.length];
+		m_codes = new long[flat.length];
+		encode(flat, m_tags, m_codes);
+	}
+	
+	/**
+	 * Fills the packed encoding of an array of designators.
+	 * @param designators The designators
+	 * @param tags The array where the tag of each designator is written
+	 * @param codes The array where the code of each designator is written
+	 */
+	protected static void encode(/*@ non_null @*/ Part[] designators, /*@ non_null @*/ int[] tags, /*@ non_null @*/ long[] codes)
+	{
+		for (int i = 0; i < designators.length; i++)
 		{
-			add(d);
+			if (designators[i] instanceof TaggedPart)
+			{
+				TaggedPart tp = (TaggedPart) designators[i];
+				tags[i] = tp.getTag();
+				codes[i] = tp.getCode();
+			}
 		}
 	}
-
+	
 	/**
-	 * Adds a new designator to the composition
-	 * 
-	 * @param d
-	 *          The designator to add. If null, the operation is simply ignored.
-	 * @return This composed designator
+	 * Flattens an array of designators, by removing null elements and
+	 * replacing each composed designator by its elements.
+	 * @param designators The designators
+	 * @return A new array containing the flattened designators
 	 */
-	public ComposedPart add(/* @ null @ */ Part d)
+	/*@ non_null @*/ protected static Part[] flatten(/*@ non_null @*/ Part[] designators)
 	{
-		if (d == null)
+		int size = 0;
+		for (Part d : designators)
 		{
-			return this;
+			if (d instanceof ComposedPart)
+			{
+				size += ((ComposedPart) d).m_designators.length;
+			}
+			else if (d != null)
+			{
+				size++;
+			}
 		}
-		if (d instanceof ComposedPart)
+		Part[] flat = new Part[size];
+		int pos = 0;
+		for (Part d : designators)
 		{
-			// Don't unnecessarily nest composed designators
-			m_designators.addAll(((ComposedPart) d).m_designators);
+			if (d instanceof ComposedPart)
+			{
+				// Don't unnecessarily nest composed designators
+				Part[] inner = ((ComposedPart) d).m_designators;
+				System.arraycopy(inner, 0, flat, pos, inner.length);
+				pos += inner.length;
+			}
+			else if (d != null)
+			{
+				flat[pos++] = d;
+			}
 		}
-		else
+		return flat;
+	}
+	
+	/**
+	 * Computes the hash code of a sequence of designators.
+	 * @param designators The designators
+	 * @return The hash code
+	 */
+	protected static int hash(/*@ non_null @*/ Part[] designators)
+	{
+		int h = PartHash.seed(ComposedPart.class);
+		for (Part d : designators)
 		{
-			m_designators.add(d);
+			h = PartHash.combine(h, d.hashCode());
 		}
-		return this;
+		return PartHash.finish(h, designators.length);
+	}
+	
+	/**
+	 * Returns the canonical instance of a composed part, as kept by the
+	 * default {@link PartInterner}.
+	 * @param p The part
+	 * @return The canonical instance
+	 */
+	/*@ non_null @*/ protected static ComposedPart intern(/*@ non_null @*/ ComposedPart p)
+	{
+		return PartInterner.getDefault().intern(p);
 	}
 
 	/**
@@ -164,19 +265,15 @@ public class ComposedPart implements Part
 	 */
 	public Part tail()
 	{
-		switch (m_designators.size())
+		switch (m_designators.length)
 		{
 		case 1:
 			return Part.all;
 		case 2:
-			return m_designators.get(0);
+			return m_designators[0];
 		default:
-			ComposedPart cd = new ComposedPart();
-			for (int i = 0; i < m_designators.size() - 1; i++)
-			{
-				cd.add(m_designators.get(i));
-			}
-			return cd;
+			Part[] parts = Arrays.copyOf(m_designators, m_designators.length - 1);
+			return intern(new ComposedPart(parts, hash(parts)));
 		}
 	}
 
@@ -187,11 +284,11 @@ public class ComposedPart implements Part
 	 */
 	/* @ pure null @ */ public Part head()
 	{
-		if (m_designators.isEmpty())
+		if (m_designators.length == 0)
 		{
 			return null;
 		}
-		return m_designators.get(m_designators.size() - 1);
+		return m_designators[m_designators.length - 1];
 	}
 	
 	/**
@@ -219,8 +316,132 @@ public class ComposedPart implements Part
 	 */
 	public Part subPart(int start_index, int end_index)
 	{
-		List<Part> sub_parts = m_designators.subList(start_index, end_index);
-		return ComposedPart.compose(sub_parts);
+		return ComposedPart.compose(Arrays.copyOfRange(m_designators, start_index, end_index));
+	}
+	
+	/**
+	 * Creates a new composed designator where the element at a given position
+	 * is replaced by another part. As with the constructor, a composed part
+	 * given as the replacement is flattened, and a null replacement simply
+	 * removes the element at this position. This object is not modified.
+	 * @param index The position of the element to replace
+	 * @param p The part to put at this position
+	 * @return The new designator
+	 */
+	/*@ non_null @*/ public ComposedPart replace(int index, /*@ null @*/ Part p)
+	{
+		Part[] parts = m_designators.clone();
+		parts[index] = p;
+		if (p == null || p instanceof ComposedPart)
+		{
+			parts = flatten(parts);
+		}
+		return intern(new ComposedPart(parts, hash(parts)));
+	}
+	
+	/**
+	 * Gets the position of the first designator of the composition that is an
+	 * instance of a given class.
+	 * @param c The class
+	 * @return The position, or -1 if no designator is an instance of this
+	 * class
+	 */
+	/*@ pure @*/ public int indexOf(/*@ non_null @*/ Class<?> c)
+	{
+		for (int i = 0; i < m_designators.length; i++)
+		{
+			if (c.isInstance(m_designators[i]))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Gets the position of the last designator of the composition that is an
+	 * instance of a given class.
+	 * @param c The class
+	 * @return The position, or -1 if no designator is an instance of this
+	 * class
+	 */
+	/*@ pure @*/ public int lastIndexOf(/*@ non_null @*/ Class<?> c)
+	{
+		for (int i = m_designators.length - 1; i >= 0; i--)
+		{
+			if (c.isInstance(m_designators[i]))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Gets the position of the first designator of the composition that has
+	 * a given tag.
+	 * @param tag The tag
+	 * @return The position, or -1 if no designator has this tag
+	 */
+	/*@ pure @*/ public int indexOfTag(int tag)
+	{
+		for (int i = 0; i < m_tags.length; i++)
+		{
+			if (m_tags[i] == tag)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Gets the position of the last designator of the composition that has
+	 * a given tag.
+	 * @param tag The tag
+	 * @return The position, or -1 if no designator has this tag
+	 */
+	/*@ pure @*/ public int lastIndexOfTag(int tag)
+	{
+		for (int i = m_tags.length - 1; i >= 0; i--)
+		{
+			if (m_tags[i] == tag)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Gets the tag of the designator at a given position in the composition.
+	 * @param index The position
+	 * @return The tag, or {@link PartPath#NO_TAG} if this designator is not a
+	 * {@link TaggedPart}
+	 */
+	/*@ pure @*/ public int getTag(int index)
+	{
+		return m_tags[index];
+	}
+	
+	/**
+	 * Gets the code of the designator at a given position in the
+	 * composition.
+	 * @param index The position
+	 * @return The code, or 0 if this designator is not a {@link TaggedPart}
+	 */
+	/*@ pure @*/ public long getCode(int index)
+	{
+		return m_codes[index];
+	}
+	
+	/**
+	 * Gets a copy of the designators of the composition.
+	 * @return A new array containing the designators
+	 */
+	/*@ non_null @*/ public Part[] toArray()
+	{
+		return m_designators.clone();
 	}
 	
 	/**
@@ -230,7 +451,7 @@ public class ComposedPart implements Part
 	 */
 	/*@ pure @*/  public Part get(int index)
 	{
-		return m_designators.get(index);
+		return m_designators[index];
 	}
 	
 	/**
@@ -239,7 +460,7 @@ public class ComposedPart implements Part
 	 */
 	/*@ pure @*/ public int size()
 	{
-		return m_designators.size();
+		return m_designators.length;
 	}
 
 	@Override
@@ -247,13 +468,13 @@ public class ComposedPart implements Part
 	{
 		StringBuilder out = new StringBuilder();
 		Part previous = null;
-		for (int i = 0; i < m_designators.size(); i++)
+		for (int i = 0; i < m_designators.length; i++)
 		{
 			if (i > 0 && (previous != null && !(previous instanceof All)))
 			{
 				out.append(" ∘ ");
 			}
-			previous = m_designators.get(i);
+			previous = m_designators[i];
 			out.append(previous);
 		}
 		return out.toString();
@@ -262,29 +483,36 @@ public class ComposedPart implements Part
 	@Override
 	public int hashCode()
 	{
-		int h = 0;
-		for (Part d : m_designators)
-		{
-			h += d.hashCode();
-		}
-		return h;
+		return m_hashCode;
 	}
 
 	@Override
 	public boolean equals(Object o)
 	{
+		if (o == this)
+		{
+			return true;
+		}
 		if (!(o instanceof ComposedPart))
 		{
 			return false;
 		}
 		ComposedPart cd = (ComposedPart) o;
-		if (cd.m_designators.size() != m_designators.size())
+		if (cd.m_hashCode != m_hashCode || cd.m_designators.length != m_designators.length)
 		{
 			return false;
 		}
-		for (int i = 0; i < m_designators.size(); i++)
+		for (int i = 0; i < m_designators.length; i++)
 		{
-			if (!m_designators.get(i).equals(cd.m_designators.get(i)))
+			if (m_tags[i] != PartPath.NO_TAG && m_tags[i] == cd.m_tags[i])
+			{
+				// Tagged parts are equal if and only if their codes are equal
+				if (m_codes[i] != cd.m_codes[i])
+				{
+					return false;
+				}
+			}
+			else if (!m_designators[i].equals(cd.m_designators[i]))
 			{
 				return false;
 			}
@@ -295,11 +523,11 @@ public class ComposedPart implements Part
 	@Override
 	public boolean appliesTo(Object o)
 	{
-		if (m_designators.isEmpty())
+		if (m_designators.length == 0)
 		{
 			return false;
 		}
-		Part d = m_designators.get(m_designators.size() - 1);
+		Part d = m_designators[m_designators.length - 1];
 		return d.appliesTo(o);
 	}
 }
@@ -0,0 +1,324 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ca.uqac.lif.dag.MathSet;
+import ca.uqac.lif.dag.Node;
+import ca.uqac.lif.dag.Pin;
+import ca.uqac.lif.petitpoucet.NodeFactory.ObjectPart;
+
+/**
+ * Converts a lineage graph into a set of clauses in disjunctive normal form,
+ * in the way described in {@link GraphUtilities#asDnf(Node)}. Contrary to a
+ * plain recursive conversion, the converter:
+ * <ul>
+ * <li>computes the clauses of each node of the graph only once, even if the
+ * node is reachable through multiple paths from the root, and visits the
+ * graph without recursion;</li>
+ * <li>optionally keeps only the <em>minimal</em> clauses of each node: a
+ * clause that contains all the parts of another clause of the same node is
+ * discarded as soon as it is produced, as it designates a larger set of
+ * parts for the same alternative;</li>
+ * <li>optionally stops producing clauses for a node once a maximum number
+ * of them has been reached.</li>
+ * </ul>
+ * When the maximum is reached somewhere in the graph, the conversion is
+ * said to be {@link #isTruncated() truncated}: every clause it returns is
+ * still a clause of the complete DNF (or, if minimization is enabled, a
+ * clause containing one), but some clauses may be missing.
+ * <p>
+ * A converter can be used to convert multiple graphs, one at a time.
+ * 
+ * @author Sylvain Hallé
+ */
+public class DnfConverter
+{
+	/**
+	 * A value for the maximum number of clauses indicating that there is no
+	 * maximum.
+	 */
+	public static final int UNBOUNDED = -1;
+
+	/**
+	 * Whether to keep only the minimal clauses of each node.
+	 */
+	protected final boolean m_minimize;
+
+	/**
+	 * The maximum number of clauses produced for a node, or
+	 * {@link #UNBOUNDED}.
+	 */
+	protected final int m_maxClauses;
+
+	/**
+	 * Whether the last conversion reached the maximum number of clauses.
+	 */
+	protected boolean m_truncated;
+
+	/**
+	 * Creates a new converter that keeps only minimal clauses and puts no
+	 * bound on their number.
+	 */
+	public DnfConverter()
+	{
+		this(true, UNBOUNDED);
+	}
+
+	/**
+	 * Creates a new converter.
+	 * @param minimize Set to {@code true} to keep only minimal clauses
+	 * @param max_clauses The maximum number of clauses produced for each node
+	 * of the graph, or {@link #UNBOUNDED}
+	 */
+	public DnfConverter(boolean minimize, int max_clauses)
+	{
+		super();
+		if (max_clauses == 0 || max_clauses < UNBOUNDED)
+		{
+			throw new IllegalArgumentException("Maximum number of clauses must be positive");
+		}
+		m_minimize = minimize;
+		m_maxClauses = max_clauses;
+		m_truncated = false;
+	}
+
+	/**
+	 * Converts a lineage graph into a set of clauses.
+	 * @param root The root of the lineage graph
+	 * @return The set of clauses
+	 * @throws IllegalArgumentException If the graph contains a cycle
+	 */
+	/*@ non_null @*/ public Set<Clause> convert(/*@ non_null @*/ Node root)
+	{
+		m_truncated = false;
+		List<Node> nodes = GraphUtilities.getTopologicalOrder(root);
+		Map<Node,Set<Clause>> clauses = new IdentityHashMap<Node,Set<Clause>>(nodes.size());
+		// Children come after their parents in the list
+		for (int i = nodes.size() - 1; i >= 0; i--)
+		{
+			Node n = nodes.get(i);
+			clauses.put(n, getClauses(n, clauses));
+		}
+		return clauses.get(root);
+	}
+
+	/**
+	 * Determines if the last conversion reached the maximum number of clauses
+	 * for some node, and therefore may be missing clauses.
+	 * @return {@code true} if the conversion was truncated, {@code false}
+	 * otherwise
+	 */
+	/*@ pure @*/ public boolean isTruncated()
+	{
+		return m_truncated;
+	}
+
+	/**
+	 * Converts a frozen lineage graph into a set of clauses. Since the nodes of
+	 * a {@link FrozenGraph} are numbered in topological order, the clauses of
+	 * each node are computed by a single sweep of the ids in decreasing order.
+	 * @param g The frozen graph
+	 * @param id The id of the node to convert
+	 * @return The set of clauses
+	 * @throws IndexOutOfBoundsException If the id does not designate a node
+	 * of the graph
+	 */
+	/*@ non_null @*/ public Set<Clause> convert(/*@ non_null @*/ FrozenGraph g, int id)
+	{
+		m_truncated = false;
+		int size = g.size();
+		// Only the descendants of the node need to be converted
+		BitSet needed = g.getDescendantSet(id);
+		needed.set(id);
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		Set<Clause>[] clauses = new Set[size];
+		List<Set<Clause>> children = new ArrayList<Set<Clause>>();
+		for (int n = needed.previousSetBit(size - 1); n >= id; n = needed.previousSetBit(n - 1))
+		{
+			int kind = g.getKind(n);
+			if (kind == FrozenGraph.LEAF)
+			{
+				Set<Clause> out = new MathSet<Clause>();
+				out.add(new Clause(new ObjectPart(g.getPart(n), g.getSubject(n))));
+				clauses[n] = out;
+				continue;
+			}
+			children.clear();
+			for (int i = g.getChildOffset(n); i < g.getChildOffset(n + 1); i++)
+			{
+				children.add(clauses[g.getChildAt(i)]);
+			}
+			clauses[n] = combine(kind == FrozenGraph.AND, children);
+		}
+		return clauses[id];
+	}
+
+	/**
+	 * Computes the clauses of a node, given the clauses of its children.
+	 * @param n The node
+	 * @param clauses A map associating nodes to their clauses, which contains
+	 * all the children of the node
+	 * @return The clauses of the node
+	 */
+	/*@ non_null @*/ protected Set<Clause> getClauses(/*@ non_null @*/ Node n, /*@ non_null @*/ Map<Node,Set<Clause>> clauses)
+	{
+		if (n instanceof PartNode && GraphUtilities.isLeaf(n))
+		{
+			// Leaf: a singleton clause
+			PartNode pn = (PartNode) n;
+			Set<Clause> out = new MathSet<Clause>();
+			out.add(new Clause(new ObjectPart(pn.getPart(), pn.getSubject())));
+			return out;
+		}
+		List<Set<Clause>> children = new ArrayList<Set<Clause>>();
+		for (int i = 0; i < n.getOutputArity(); i++)
+		{
+			for (Pin<? extends Node> pin : n.getOutputLinks(i))
+			{
+				children.add(clauses.get(pin.getNode()));
+			}
+		}
+		return combine(n instanceof AndNode, children);
+	}
+
+	/**
+	 * Computes the clauses of a node that is not a leaf, given the clauses of
+	 * each of its children.
+	 * @param conjunction Set to {@code true} if the node is a conjunction of
+	 * its children, {@code false} if it is a disjunction
+	 * @param children The sets of clauses of the children of the node
+	 * @return The clauses of the node
+	 */
+	/*@ non_null @*/ protected Set<Clause> combine(boolean conjunction, /*@ non_null @*/ List<Set<Clause>> children)
+	{
+		Set<Clause> out = new MathSet<Clause>();
+		if (conjunction)
+		{
+			if (children.isEmpty())
+			{
+				return out;
+			}
+			Set<Clause> distributed = children.get(0);
+			for (int i = 1; i < children.size(); i++)
+			{
+				distributed = distribute(distributed, children.get(i));
+			}
+			return distributed;
+		}
+		// Other nodes are disjunctions of their children
+		if (children.size() == 1)
+		{
+			return children.get(0);
+		}
+		for (Set<Clause> c_clauses : children)
+		{
+			for (Clause c : c_clauses)
+			{
+				if (!add(out, c))
+				{
+					return out;
+				}
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Distributes two sets of clauses, that is, computes the set of unions of
+	 * a clause of the first set and a clause of the second.
+	 * @param set1 The first set of clauses
+	 * @param set2 The second set of clauses
+	 * @return The distributed set of clauses
+	 */
+	/*@ non_null @*/ protected Set<Clause> distribute(/*@ non_null @*/ Set<Clause> set1, /*@ non_null @*/ Set<Clause> set2)
+	{
+		Set<Clause> out = new MathSet<Clause>();
+		for (Clause c1 : set1)
+		{
+			for (Clause c2 : set2)
+			{
+				Clause merged;
+				if (c1.size() >= c2.size() && c1.containsAll(c2))
+				{
+					merged = c1;
+				}
+				else if (c2.size() > c1.size() && c2.containsAll(c1))
+				{
+					merged = c2;
+				}
+				else
+				{
+					merged = c1.mergeWith(c2);
+				}
+				if (!add(out, merged))
+				{
+					return out;
+				}
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Adds a clause to a set of clauses. If minimization is enabled, the
+	 * clause is not added if the set contains a subset of it, and the
+	 * supersets of the clause are removed from the set.
+	 * @param set The set of clauses
+	 * @param c The clause to add
+	 * @return {@code false} if the clause could not be added because the set
+	 * has reached the maximum number of clauses, {@code true} otherwise
+	 */
+	protected boolean add(/*@ non_null @*/ Set<Clause> set, /*@ non_null @*/ Clause c)
+	{
+		if (m_minimize)
+		{
+			Iterator<Clause> it = set.iterator();
+			while (it.hasNext())
+			{
+				Clause in_set = it.next();
+				if (in_set.size() <= c.size())
+				{
+					if (in_set.size() == c.size() ? in_set.equals(c) : c.containsAll(in_set))
+					{
+						// The clause is subsumed by one already in the set
+						return true;
+					}
+				}
+				else if (in_set.containsAll(c))
+				{
+					it.remove();
+				}
+			}
+		}
+		if (m_maxClauses != UNBOUNDED && set.size() >= m_maxClauses)
+		{
+			m_truncated = true;
+			return false;
+		}
+		set.add(c);
+		return true;
+	}
+}
@@ -0,0 +1,602 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+
+import ca.uqac.lif.dag.Node;
+import ca.uqac.lif.dag.Pin;
+import ca.uqac.lif.petitpoucet.NodeFactory.ObjectPart;
+
+/**
+ * Enumerates the minimal clauses of a lineage graph in order of increasing
+ * size, without computing its complete disjunctive normal form. The clauses
+ * produced are those of {@link GraphUtilities#asMinimalDnf(Node)}, but they
+ * are found one at a time by a best-first search, so that a caller
+ * interested only in the smallest explanations can stop as soon as it has
+ * enough of them.
+ * <p>
+ * Each state of the search is a partial explanation: a set of leaves already
+ * chosen, and a set of disjunctive nodes (any node other than an
+ * {@link AndNode} having more than one child) for which no alternative has
+ * been chosen yet. Expanding a state chooses each alternative of one of
+ * these nodes in turn. States are explored in order of a lower bound on the
+ * size of the clauses they can lead to; a complete state is therefore never
+ * found before a smaller one. This bound is the largest of:
+ * <ul>
+ * <li>the size of the smallest clause of each pending node, computed once
+ * for every node of the graph;</li>
+ * <li>the number of leaves already chosen, plus the number of pending nodes
+ * that are known to have no leaf in common. Each of them needs at least one
+ * more leaf, since pending nodes that the chosen leaves already explain are
+ * dropped from the state.</li>
+ * </ul>
+ * Whether two nodes have leaves in common is determined exactly from the set
+ * of distinct leaves below each node.
+ * <p>
+ * Apart from this bound and the clauses already returned, the search only
+ * keeps the states of its frontier in memory; identical states reached by
+ * different choices are merged while they are in the frontier.
+ * 
+ * @author Sylvain Hallé
+ */
+public class ExplanationSearch implements Iterator<Clause>
+{
+	/**
+	 * The lower bound given to nodes that have no clause.
+	 */
+	protected static final int INFINITE = Integer.MAX_VALUE;
+
+	/**
+	 * The kind of a leaf node.
+	 */
+	protected static final int LEAF = 0;
+
+	/**
+	 * The kind of a conjunctive node.
+	 */
+	protected static final int AND = 1;
+
+	/**
+	 * The kind of any other node.
+	 */
+	protected static final int OR = 2;
+
+	/**
+	 * The kind of each node of the graph, indexed by node number.
+	 */
+	/*@ non_null @*/ protected final int[] m_kinds;
+
+	/**
+	 * The numbers of the children of each node.
+	 */
+	/*@ non_null @*/ protected final int[][] m_children;
+
+	/**
+	 * The object part designated by each leaf node, or null for other nodes.
+	 */
+	/*@ non_null @*/ protected final ObjectPart[] m_leaves;
+
+	/**
+	 * The lower bound on the size of the clauses of each node.
+	 */
+	/*@ non_null @*/ protected final int[] m_bounds;
+
+	/**
+	 * The leaves below each node. Each distinct object part is given a
+	 * number, and the bit of that number is set in the set of every node
+	 * having this part as a leaf; two nodes whose sets do not intersect have
+	 * no leaf in common.
+	 */
+	/*@ non_null @*/ protected final BitSet[] m_leafSets;
+
+	/**
+	 * The truth value of each node under the leaves of the state being
+	 * built, valid for the nodes whose stamp is {@link #m_stamp}.
+	 */
+	/*@ non_null @*/ protected final boolean[] m_values;
+
+	/**
+	 * The stamp of the last evaluation of each node.
+	 */
+	/*@ non_null @*/ protected final int[] m_stamps;
+
+	/**
+	 * The current evaluation stamp.
+	 */
+	protected int m_stamp;
+
+	/**
+	 * The states waiting to be expanded.
+	 */
+	/*@ non_null @*/ protected final PriorityQueue<State> m_frontier;
+
+	/**
+	 * The states currently in the frontier, used to merge identical states.
+	 */
+	/*@ non_null @*/ protected final Set<State> m_inFrontier;
+
+	/**
+	 * The clauses returned so far.
+	 */
+	/*@ non_null @*/ protected final List<Clause> m_found;
+
+	/**
+	 * The next clause to return, or null if it has not been found yet.
+	 */
+	/*@ null @*/ protected Clause m_next;
+
+	/**
+	 * A counter used to break ties between states in insertion order.
+	 */
+	protected long m_counter;
+
+	/**
+	 * Creates a new search over the clauses of a lineage graph.
+	 * @param root The root of the lineage graph
+	 * @throws IllegalArgumentException If the graph contains a cycle
+	 */
+	public ExplanationSearch(/*@ non_null @*/ Node root)
+	{
+		super();
+		List<Node> nodes = new ArrayList<Node>();
+		Map<Node,Integer> numbers = number(root, nodes);
+		int size = nodes.size();
+		m_kinds = new int[size];
+		m_children = new int[size][];
+		m_leaves = new ObjectPart[size];
+		m_bounds = new int[size];
+		m_leafSets = new BitSet[size];
+		m_values = new boolean[size];
+		m_stamps = new int[size];
+		m_stamp = 0;
+		Map<ObjectPart,Integer> leaf_numbers = new HashMap<ObjectPart,Integer>();
+		for (int i = 0; i < size; i++)
+		{
+			// Nodes are numbered in post-order: children come before parents
+			index(i, nodes.get(i), numbers, leaf_numbers);
+		}
+		m_frontier = new PriorityQueue<State>();
+		m_inFrontier = new HashSet<State>();
+		m_found = new ArrayList<Clause>();
+		m_next = null;
+		m_counter = 0;
+		offer(new Clause(), new int[0], size - 1, 0);
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		if (m_next != null)
+		{
+			return true;
+		}
+		while (!m_frontier.isEmpty())
+		{
+			State s = m_frontier.poll();
+			m_inFrontier.remove(s);
+			if (isSubsumed(s.m_clause))
+			{
+				// Can only lead to clauses that are not minimal
+				continue;
+			}
+			if (s.m_pending.length == 0)
+			{
+				m_found.add(s.m_clause);
+				m_next = s.m_clause;
+				return true;
+			}
+			expand(s);
+		}
+		return false;
+	}
+
+	@Override
+	/*@ non_null @*/ public Clause next()
+	{
+		if (!hasNext())
+		{
+			throw new NoSuchElementException();
+		}
+		Clause c = m_next;
+		m_next = null;
+		return c;
+	}
+
+	/**
+	 * Gets the number of states currently waiting to be expanded.
+	 * @return The number of states
+	 */
+	/*@ pure @*/ public int getFrontierSize()
+	{
+		return m_frontier.size();
+	}
+
+	/**
+	 * Numbers the nodes reachable from the root in reverse topological order,
+	 * so that children come before their parents and the root comes last.
+	 * @param root The root of the lineage graph
+	 * @param nodes A list to which the nodes are added in the order of their
+	 * numbers
+	 * @return A map associating each node to its number
+	 * @throws IllegalArgumentException If the graph contains a cycle
+	 */
+	/*@ non_null @*/ protected static Map<Node,Integer> number(/*@ non_null @*/ Node root, /*@ non_null @*/ List<Node> nodes)
+	{
+		List<Node> order = GraphUtilities.getTopologicalOrder(root);
+		Map<Node,Integer> numbers = new IdentityHashMap<Node,Integer>(order.size());
+		for (int i = order.size() - 1; i >= 0; i--)
+		{
+			Node n = order.get(i);
+			numbers.put(n, nodes.size());
+			nodes.add(n);
+		}
+		return numbers;
+	}
+
+	/**
+	 * Records the kind, the children, the lower bound and the leaves of a
+	 * node, whose children have already been recorded.
+	 * @param i The number of the node
+	 * @param n The node
+	 * @param numbers A map associating each node to its number
+	 * @param leaf_numbers A map associating each distinct object part seen so
+	 * far to a number
+	 */
+	protected void index(int i, /*@ non_null @*/ Node n, /*@ non_null @*/ Map<Node,Integer> numbers, /*@ non_null @*/ Map<ObjectPart,Integer> leaf_numbers)
+	{
+		if (n instanceof PartNode && GraphUtilities.isLeaf(n))
+		{
+			PartNode pn = (PartNode) n;
+			ObjectPart op = new ObjectPart(pn.getPart(), pn.getSubject());
+			Integer leaf_nb = leaf_numbers.get(op);
+			if (leaf_nb == null)
+			{
+				leaf_nb = leaf_numbers.size();
+				leaf_numbers.put(op, leaf_nb);
+			}
+			m_kinds[i] = LEAF;
+			m_children[i] = new int[0];
+			m_leaves[i] = op;
+			m_bounds[i] = 1;
+			m_leafSets[i] = new BitSet();
+			m_leafSets[i].set(leaf_nb);
+			return;
+		}
+		List<Integer> children = new ArrayList<Integer>();
+		for (int j = 0; j < n.getOutputArity(); j++)
+		{
+			for (Pin<? extends Node> pin : n.getOutputLinks(j))
+			{
+				children.add(numbers.get(pin.getNode()));
+			}
+		}
+		m_children[i] = new int[children.size()];
+		for (int j = 0; j < m_children[i].length; j++)
+		{
+			m_children[i][j] = children.get(j);
+		}
+		m_kinds[i] = n instanceof AndNode ? AND : OR;
+		m_leafSets[i] = new BitSet();
+		if (m_children[i].length == 0)
+		{
+			// No clause at all
+			m_bounds[i] = INFINITE;
+			return;
+		}
+		int bound = m_kinds[i] == AND ? 0 : INFINITE;
+		for (int c : m_children[i])
+		{
+			// The clauses of a conjunction are at least as large as those of
+			// each conjunct; leaves may be shared, so the sizes do not add up
+			bound = m_kinds[i] == AND ? Math.max(bound, m_bounds[c]) : Math.min(bound, m_bounds[c]);
+			m_leafSets[i].or(m_leafSets[c]);
+		}
+		m_bounds[i] = bound;
+	}
+
+	/**
+	 * Expands a state by choosing each alternative of one of its pending
+	 * nodes. The node with the fewest alternatives is chosen, in order to keep
+	 * the frontier small.
+	 * @param s The state
+	 */
+	protected void expand(/*@ non_null @*/ State s)
+	{
+		int chosen = 0;
+		for (int i = 1; i < s.m_pending.length; i++)
+		{
+			if (m_children[s.m_pending[i]].length < m_children[s.m_pending[chosen]].length)
+			{
+				chosen = i;
+			}
+		}
+		int[] others = new int[s.m_pending.length - 1];
+		System.arraycopy(s.m_pending, 0, others, 0, chosen);
+		System.arraycopy(s.m_pending, chosen + 1, others, chosen, others.length - chosen);
+		for (int child : m_children[s.m_pending[chosen]])
+		{
+			Clause c = new Clause();
+			c.addAll(s.m_clause);
+			offer(c, others, child, s.m_bound);
+		}
+	}
+
+	/**
+	 * Adds to the frontier the state obtained by adding a node to a partial
+	 * explanation. Leaves and conjunctions are resolved immediately, as well
+	 * as disjunctions having a single alternative; the remaining disjunctions
+	 * become pending, unless the leaves of the clause already explain them.
+	 * Nothing is added if the resulting state has no clause, or if an
+	 * identical state is already in the frontier.
+	 * @param clause The leaves of the partial explanation, which is modified
+	 * by this method
+	 * @param pending The pending nodes of the partial explanation
+	 * @param node The node to add
+	 * @param parent_bound The lower bound of the state being expanded, which
+	 * also holds for the new state
+	 */
+	protected void offer(/*@ non_null @*/ Clause clause, /*@ non_null @*/ int[] pending, int node, int parent_bound)
+	{
+		if (m_bounds[node] == INFINITE)
+		{
+			return;
+		}
+		TreeSet<Integer> disjunctions = new TreeSet<Integer>();
+		for (int p : pending)
+		{
+			disjunctions.add(p);
+		}
+		Deque<Integer> to_resolve = new ArrayDeque<Integer>();
+		to_resolve.push(node);
+		while (!to_resolve.isEmpty())
+		{
+			int n = to_resolve.pop();
+			switch (m_kinds[n])
+			{
+			case LEAF:
+				clause.add(m_leaves[n]);
+				break;
+			case AND:
+				for (int c : m_children[n])
+				{
+					to_resolve.push(c);
+				}
+				break;
+			default:
+				if (m_children[n].length == 1)
+				{
+					to_resolve.push(m_children[n][0]);
+				}
+				else
+				{
+					disjunctions.add(n);
+				}
+			}
+		}
+		// A disjunction already explained by the clause needs nothing more: any
+		// other alternative would only add parts
+		evaluate(disjunctions, clause);
+		Iterator<Integer> it = disjunctions.iterator();
+		while (it.hasNext())
+		{
+			if (m_values[it.next()])
+			{
+				it.remove();
+			}
+		}
+		int[] new_pending = new int[disjunctions.size()];
+		int i = 0;
+		for (int n : disjunctions)
+		{
+			new_pending[i++] = n;
+		}
+		int bound = Math.max(parent_bound, clause.size() + getDisjointCount(new_pending));
+		for (int n : new_pending)
+		{
+			bound = Math.max(bound, m_bounds[n]);
+		}
+		State s = new State(clause, new_pending, bound, m_counter++);
+		if (m_inFrontier.add(s))
+		{
+			m_frontier.add(s);
+		}
+	}
+
+	/**
+	 * Evaluates a set of nodes, and all the nodes below them, as Boolean
+	 * formulas where the leaves contained in a clause are true. The results
+	 * are written in {@link #m_values}.
+	 * @param nodes The numbers of the nodes to evaluate
+	 * @param clause The clause
+	 */
+	protected void evaluate(/*@ non_null @*/ Set<Integer> nodes, /*@ non_null @*/ Clause clause)
+	{
+		m_stamp++;
+		List<Integer> below = new ArrayList<Integer>();
+		Deque<Integer> to_visit = new ArrayDeque<Integer>(nodes);
+		while (!to_visit.isEmpty())
+		{
+			int n = to_visit.pop();
+			if (m_stamps[n] == m_stamp)
+			{
+				continue;
+			}
+			m_stamps[n] = m_stamp;
+			below.add(n);
+			for (int c : m_children[n])
+			{
+				to_visit.push(c);
+			}
+		}
+		// Children have smaller numbers than their parents
+		Collections.sort(below);
+		for (int n : below)
+		{
+			switch (m_kinds[n])
+			{
+			case LEAF:
+				m_values[n] = clause.contains(m_leaves[n]);
+				break;
+			case AND:
+				m_values[n] = m_children[n].length > 0;
+				for (int c : m_children[n])
+				{
+					m_values[n] &= m_values[c];
+				}
+				break;
+			default:
+				m_values[n] = false;
+				for (int c : m_children[n])
+				{
+					m_values[n] |= m_values[c];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Counts a set of nodes that have pairwise no leaf in common, chosen
+	 * greedily among a list of nodes.
+	 * @param nodes The numbers of the nodes
+	 * @return The number of nodes with disjoint leaves
+	 */
+	protected int getDisjointCount(/*@ non_null @*/ int[] nodes)
+	{
+		BitSet union = new BitSet();
+		int count = 0;
+		for (int n : nodes)
+		{
+			if (!union.intersects(m_leafSets[n]))
+			{
+				count++;
+				union.or(m_leafSets[n]);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Determines if a clause contains all the parts of a clause already
+	 * returned.
+	 * @param c The clause
+	 * @return {@code true} if the clause is subsumed, {@code false} otherwise
+	 */
+	protected boolean isSubsumed(/*@ non_null @*/ Clause c)
+	{
+		for (Clause found : m_found)
+		{
+			if (c.containsAll(found))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A partial explanation in the frontier of the search.
+	 */
+	protected static class State implements Comparable<State>
+	{
+		/**
+		 * The leaves chosen so far.
+		 */
+		/*@ non_null @*/ protected final Clause m_clause;
+
+		/**
+		 * The numbers of the disjunctions still to resolve, in increasing
+		 * order.
+		 */
+		/*@ non_null @*/ protected final int[] m_pending;
+
+		/**
+		 * A lower bound on the size of the clauses this state can lead to.
+		 */
+		protected final int m_bound;
+
+		/**
+		 * The order in which the state was created.
+		 */
+		protected final long m_order;
+
+		/**
+		 * Creates a new state.
+		 * @param clause The leaves chosen so far
+		 * @param pending The numbers of the disjunctions still to resolve
+		 * @param bound A lower bound on the size of the clauses this state can
+		 * lead to
+		 * @param order The order in which the state was created
+		 */
+		public State(/*@ non_null @*/ Clause clause, /*@ non_null @*/ int[] pending, int bound, long order)
+		{
+			super();
+			m_clause = clause;
+			m_pending = pending;
+			m_bound = bound;
+			m_order = order;
+		}
+
+		@Override
+		public int compareTo(State s)
+		{
+			if (m_bound != s.m_bound)
+			{
+				return Integer.compare(m_bound, s.m_bound);
+			}
+			if (m_pending.length != s.m_pending.length)
+			{
+				// Prefer states closer to completion
+				return Integer.compare(m_pending.length, s.m_pending.length);
+			}
+			return Long.compare(m_order, s.m_order);
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof State))
+			{
+				return false;
+			}
+			State s = (State) o;
+			return Arrays.equals(m_pending, s.m_pending) && m_clause.equals(s.m_clause);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return 31 * Arrays.hashCode(m_pending) + m_clause.hashCode();
+		}
+	}
+}
@@ -0,0 +1,460 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet;
+
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ca.uqac.lif.dag.Node;
+import ca.uqac.lif.dag.Pin;
+
+/**
+ * An immutable snapshot of a lineage graph, intended for graphs that are
+ * queried many times once they have been built. The nodes reachable from
+ * the root are numbered from 0 to {@link #size()}&nbsp;&minus;&nbsp;1 in
+ * topological order: the root has id 0, and every node has an id greater
+ * than that of its parents. The graph is then stored in a handful of
+ * arrays indexed by these ids:
+ * <ul>
+ * <li>the kind of each node ({@link #LEAF}, {@link #PART}, {@link #AND},
+ * {@link #OR} or {@link #OTHER}), and the part and subject of each
+ * {@link PartNode};</li>
+ * <li>the children of each node, in compressed sparse row form: the ids of
+ * the children of node <i>n</i> are the elements of a single array of
+ * children between offsets {@link #getChildOffset(int) getChildOffset}(<i>n</i>)
+ * (inclusive) and {@link #getChildOffset(int) getChildOffset}(<i>n</i>+1)
+ * (exclusive);</li>
+ * <li>the parents of each node, in the same form.</li>
+ * </ul>
+ * Compared to the object graph it is taken from, this representation holds
+ * no node, pin or list object, and traversing it amounts to scanning
+ * arrays of integers. Since children always have greater ids than their
+ * parents, the descendants of a node, the ancestors of a node and the DNF of
+ * the graph are all computed in a single sweep of the ids, without a stack
+ * or a visited set.
+ * <p>
+ * Changes made to the original graph after the snapshot is taken are not
+ * reflected in it.
+ * 
+ * @author Sylvain Hallé
+ * @see GraphUtilities#freeze(Node)
+ */
+public class FrozenGraph
+{
+	/**
+	 * The kind of a {@link PartNode} that has no children.
+	 */
+	public static final int LEAF = 0;
+
+	/**
+	 * The kind of a {@link PartNode} that has children.
+	 */
+	public static final int PART = 1;
+
+	/**
+	 * The kind of an {@link AndNode}.
+	 */
+	public static final int AND = 2;
+
+	/**
+	 * The kind of an {@link OrNode}.
+	 */
+	public static final int OR = 3;
+
+	/**
+	 * The kind of any other node.
+	 */
+	public static final int OTHER = 4;
+
+	/**
+	 * The kind of each node.
+	 */
+	/*@ non_null @*/ protected final byte[] m_kinds;
+
+	/**
+	 * The part of each node, or {@code null} for nodes that are not
+	 * {@link PartNode}s.
+	 */
+	/*@ non_null @*/ protected final Part[] m_parts;
+
+	/**
+	 * The subject of each node, or {@code null} for nodes that are not
+	 * {@link PartNode}s.
+	 */
+	/*@ non_null @*/ protected final Object[] m_subjects;
+
+	/**
+	 * The offset in {@link #m_children} of the first child of each node,
+	 * followed by the total number of children.
+	 */
+	/*@ non_null @*/ protected final int[] m_childOffsets;
+
+	/**
+	 * The ids of the children of all the nodes, grouped by parent.
+	 */
+	/*@ non_null @*/ protected final int[] m_children;
+
+	/**
+	 * The offset in {@link #m_parents} of the first parent of each node,
+	 * followed by the total number of parents.
+	 */
+	/*@ non_null @*/ protected final int[] m_parentOffsets;
+
+	/**
+	 * The ids of the parents of all the nodes, grouped by child.
+	 */
+	/*@ non_null @*/ protected final int[] m_parents;
+
+	/**
+	 * The ids of the leaves, in increasing order.
+	 */
+	/*@ non_null @*/ protected final int[] m_leaves;
+
+	/**
+	 * Takes a snapshot of a lineage graph.
+	 * @param root The root of the lineage graph
+	 * @throws IllegalArgumentException If the graph contains a cycle
+	 */
+	public FrozenGraph(/*@ non_null @*/ Node root)
+	{
+		super();
+		// Number the nodes in topological order
+		List<Node> nodes = GraphUtilities.getTopologicalOrder(root);
+		int size = nodes.size();
+		Map<Node,Integer> ids = new IdentityHashMap<Node,Integer>(size);
+		for (int id = 0; id < size; id++)
+		{
+			ids.put(nodes.get(id), id);
+		}
+		m_kinds = new byte[size];
+		m_parts = new Part[size];
+		m_subjects = new Object[size];
+		m_childOffsets = new int[size + 1];
+		int[] children = new int[size];
+		int[] parent_counts = new int[size + 1];
+		int num_edges = 0, num_leaves = 0;
+		for (int id = 0; id < size; id++)
+		{
+			Node n = nodes.get(id);
+			m_childOffsets[id] = num_edges;
+			for (int i = 0; i < n.getOutputArity(); i++)
+			{
+				for (Pin<? extends Node> pin : n.getOutputLinks(i))
+				{
+					int child = ids.get(pin.getNode());
+					if (num_edges == children.length)
+					{
+						int[] grown = new int[children.length * 2];
+						System.arraycopy(children, 0, grown, 0, num_edges);
+						children = grown;
+					}
+					children[num_edges++] = child;
+					parent_counts[child + 1]++;
+				}
+			}
+			boolean leaf = num_edges == m_childOffsets[id];
+			if (n instanceof PartNode)
+			{
+				PartNode pn = (PartNode) n;
+				m_parts[id] = pn.getPart();
+				m_subjects[id] = pn.getSubject();
+				m_kinds[id] = (byte) (leaf ? LEAF : PART);
+				if (leaf)
+				{
+					num_leaves++;
+				}
+			}
+			else if (n instanceof AndNode)
+			{
+				m_kinds[id] = AND;
+			}
+			else if (n instanceof OrNode)
+			{
+				m_kinds[id] = OR;
+			}
+			else
+			{
+				m_kinds[id] = OTHER;
+			}
+		}
+		m_childOffsets[size] = num_edges;
+		m_children = new int[num_edges];
+		System.arraycopy(children, 0, m_children, 0, num_edges);
+		// Build the reverse rows from the number of parents of each node
+		m_parentOffsets = parent_counts;
+		for (int id = 0; id < size; id++)
+		{
+			m_parentOffsets[id + 1] += m_parentOffsets[id];
+		}
+		m_parents = new int[num_edges];
+		int[] next = new int[size];
+		System.arraycopy(m_parentOffsets, 0, next, 0, size);
+		for (int id = 0; id < size; id++)
+		{
+			for (int i = m_childOffsets[id]; i < m_childOffsets[id + 1]; i++)
+			{
+				m_parents[next[m_children[i]]++] = id;
+			}
+		}
+		m_leaves = new int[num_leaves];
+		for (int id = 0, i = 0; id < size; id++)
+		{
+			if (m_kinds[id] == LEAF)
+			{
+				m_leaves[i++] = id;
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of nodes in the graph.
+	 * @return The number of nodes
+	 */
+	/*@ pure @*/ public int size()
+	{
+		return m_kinds.length;
+	}
+
+	/**
+	 * Gets the number of links between nodes in the graph.
+	 * @return The number of links
+	 */
+	/*@ pure @*/ public int getEdgeCount()
+	{
+		return m_children.length;
+	}
+
+	/**
+	 * Gets the kind of a node.
+	 * @param id The id of the node
+	 * @return The kind, which is one of {@link #LEAF}, {@link #PART},
+	 * {@link #AND}, {@link #OR} and {@link #OTHER}
+	 */
+	/*@ pure @*/ public int getKind(int id)
+	{
+		return m_kinds[id];
+	}
+
+	/**
+	 * Determines if a node is a leaf, that is, a {@link PartNode} without
+	 * children.
+	 * @param id The id of the node
+	 * @return {@code true} if the node is a leaf, {@code false} otherwise
+	 */
+	/*@ pure @*/ public boolean isLeaf(int id)
+	{
+		return m_kinds[id] == LEAF;
+	}
+
+	/**
+	 * Gets the part of a node.
+	 * @param id The id of the node
+	 * @return The part, or {@code null} if the node is not a {@link PartNode}
+	 */
+	/*@ pure null @*/ public Part getPart(int id)
+	{
+		return m_parts[id];
+	}
+
+	/**
+	 * Gets the subject of a node.
+	 * @param id The id of the node
+	 * @return The subject, or {@code null} if the node is not a
+	 * {@link PartNode}
+	 */
+	/*@ pure null @*/ public Object getSubject(int id)
+	{
+		return m_subjects[id];
+	}
+
+	/**
+	 * Gets the offset of the first child of a node in the array of children.
+	 * Together with {@link #getChildAt(int)}, this method allows the children
+	 * of a node to be scanned without creating an array.
+	 * @param id The id of the node, or {@link #size()} to get the total number
+	 * of children
+	 * @return The offset
+	 */
+	/*@ pure @*/ public int getChildOffset(int id)
+	{
+		return m_childOffsets[id];
+	}
+
+	/**
+	 * Gets the id of the child at some offset in the array of children.
+	 * @param offset The offset
+	 * @return The id of the child
+	 */
+	/*@ pure @*/ public int getChildAt(int offset)
+	{
+		return m_children[offset];
+	}
+
+	/**
+	 * Gets the number of children of a node.
+	 * @param id The id of the node
+	 * @return The number of children
+	 */
+	/*@ pure @*/ public int getChildCount(int id)
+	{
+		return m_childOffsets[id + 1] - m_childOffsets[id];
+	}
+
+	/**
+	 * Gets the ids of the children of a node, in the order of its pins.
+	 * @param id The id of the node
+	 * @return A new array containing the ids
+	 */
+	/*@ pure non_null @*/ public int[] getChildren(int id)
+	{
+		return copyRow(m_children, m_childOffsets, id);
+	}
+
+	/**
+	 * Gets the ids of the parents of a node, in increasing order.
+	 * @param id The id of the node
+	 * @return A new array containing the ids
+	 */
+	/*@ pure non_null @*/ public int[] getParents(int id)
+	{
+		return copyRow(m_parents, m_parentOffsets, id);
+	}
+
+	/**
+	 * Gets the ids of the leaves of the graph, in increasing order.
+	 * @return A new array containing the ids
+	 */
+	/*@ pure non_null @*/ public int[] getLeaves()
+	{
+		return m_leaves.clone();
+	}
+
+	/**
+	 * Gets the ids of the nodes reachable from a node, excluding the node
+	 * itself.
+	 * @param id The id of the node
+	 * @return A new array containing the ids, in increasing order
+	 */
+	/*@ pure non_null @*/ public int[] getDescendants(int id)
+	{
+		return getDescendantSet(id).stream().toArray();
+	}
+
+	/**
+	 * Gets the set of nodes reachable from a node, excluding the node itself.
+	 * @param id The id of the node
+	 * @return A new bit set in which the bits of the descendants are set
+	 */
+	/*@ pure non_null @*/ public BitSet getDescendantSet(int id)
+	{
+		checkId(id);
+		BitSet out = new BitSet(m_kinds.length);
+		// A node is only reached after all its parents
+		for (int n = id; n >= 0; n = out.nextSetBit(n + 1))
+		{
+			for (int i = m_childOffsets[n]; i < m_childOffsets[n + 1]; i++)
+			{
+				out.set(m_children[i]);
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Gets the ids of the nodes from which a node can be reached, excluding
+	 * the node itself.
+	 * @param id The id of the node
+	 * @return A new array containing the ids, in increasing order
+	 */
+	/*@ pure non_null @*/ public int[] getAncestors(int id)
+	{
+		return getAncestorSet(id).stream().toArray();
+	}
+
+	/**
+	 * Gets the set of nodes from which a node can be reached, excluding the
+	 * node itself.
+	 * @param id The id of the node
+	 * @return A new bit set in which the bits of the ancestors are set
+	 */
+	/*@ pure non_null @*/ public BitSet getAncestorSet(int id)
+	{
+		checkId(id);
+		BitSet out = new BitSet(id);
+		// A node is only reached after all its children
+		for (int n = id; n >= 0; n = out.previousSetBit(n - 1))
+		{
+			for (int i = m_parentOffsets[n]; i < m_parentOffsets[n + 1]; i++)
+			{
+				out.set(m_parents[i]);
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Converts the graph into a set of clauses, in the way described in
+	 * {@link GraphUtilities#asDnf(Node)}.
+	 * @return The set of clauses
+	 */
+	/*@ pure non_null @*/ public Set<Clause> asDnf()
+	{
+		return new DnfConverter(false, DnfConverter.UNBOUNDED).convert(this, 0);
+	}
+
+	/**
+	 * Converts the graph into a set of clauses, keeping only the minimal
+	 * ones, in the way described in {@link GraphUtilities#asMinimalDnf(Node)}.
+	 * @return The set of clauses
+	 */
+	/*@ pure non_null @*/ public Set<Clause> asMinimalDnf()
+	{
+		return new DnfConverter().convert(this, 0);
+	}
+
+	/**
+	 * Checks that a node id is valid.
+	 * @param id The id
+	 * @throws IndexOutOfBoundsException If the id does not designate a node
+	 * of the graph
+	 */
+	protected void checkId(int id)
+	{
+		if (id < 0 || id >= m_kinds.length)
+		{
+			throw new IndexOutOfBoundsException("No node with id " + id);
+		}
+	}
+
+	/**
+	 * Copies a row of a compressed sparse row structure.
+	 * @param values The values of all the rows
+	 * @param offsets The offset of the first value of each row
+	 * @param id The index of the row
+	 * @return A new array containing the values of the row
+	 */
+	/*@ non_null @*/ protected static int[] copyRow(/*@ non_null @*/ int[] values, /*@ non_null @*/ int[] offsets, int id)
+	{
+		int[] out = new int[offsets[id + 1] - offsets[id]];
+		System.arraycopy(values, offsets[id], out, 0, out.length);
+		return out;
+	}
+}
@@ -20,16 +20,21 @@ package ca.uqac.lif.petitpoucet;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import ca.uqac.lif.dag.FlatteningCrawler;
-import ca.uqac.lif.dag.MathSet;
 import ca.uqac.lif.dag.Node;
 import ca.uqac.lif.dag.NodeConnector;
+import ca.uqac.lif.dag.NodeVisitor;
+import ca.uqac.lif.dag.ParallelCrawler;
+import ca.uqac.lif.dag.ParallelCrawler.LeafCollector;
+import ca.uqac.lif.dag.ParallelCrawler.NodeCounter;
 import ca.uqac.lif.dag.Pin;
-import ca.uqac.lif.petitpoucet.NodeFactory.ObjectPart;
+import ca.uqac.lif.dag.Traversal;
 
 /**
  * Utility methods for transforming lineage graphs.
@@ -247,6 +252,38 @@ public class GraphUtilities
 		return true;
 	}
 
+	/**
+	 * Lists the nodes of a lineage graph in topological order: every node
+	 * comes before all its children. Going through the list backwards thus
+	 * handles the children of each node before the node itself, as the
+	 * conversions of a graph into another representation require. The graph
+	 * is visited without recursion, and each node appears once even if it is
+	 * reachable through multiple paths from the root.
+	 * @param root The root of the lineage graph
+	 * @return The list of nodes, starting with the root
+	 * @throws IllegalArgumentException If the graph contains a cycle
+	 * @see Traversal#TOPOLOGICAL
+	 */
+	/*@ non_null @*/ public static List<Node> getTopologicalOrder(/*@ non_null @*/ Node root)
+	{
+		final List<Node> nodes = new ArrayList<Node>();
+		new Traversal(Traversal.TOPOLOGICAL).traverse(root, new NodeVisitor() {
+			@Override
+			public boolean previsit(Node n)
+			{
+				nodes.add(n);
+				return true;
+			}
+
+			@Override
+			public void postvisit(Node n)
+			{
+				// Nothing to do
+			}
+		});
+		return nodes;
+	}
+
 	/**
 	 * Converts a lineage graph into a flattened set of clauses. This is best
 	 * explained by seeing the graph as a Boolean formula, with the leaves of
@@ -273,38 +310,94 @@ public class GraphUtilities
 	 */
 	/*@ non_null @*/ public static Set<Clause> asDnf(/*@ non_null @*/ Node root)
 	{
-		Set<Clause> clauses = new MathSet<Clause>();
-		if (root instanceof PartNode && isLeaf(root))
-		{
-			PartNode pn = (PartNode) root;
-			ObjectPart op = new ObjectPart(pn.getPart(), pn.getSubject());
-			// Leaf: create a singleton clause with it and return
-			Clause clause = new Clause();
-			clause.add(op);
-			clauses.add(clause);
-			return clauses;
-		}
-		// Non-leaf node: first recursively get set of clauses from each child
-		List<Set<Clause>> list_clauses = new ArrayList<Set<Clause>>();
-		for (int i = 0; i < root.getOutputArity(); i++)
-		{
-			List<Pin<? extends Node>> pins = root.getOutputLinks(i);
-			for (Pin<? extends Node> pin : pins)
-			{
-				Node child = pin.getNode();
-				list_clauses.add(asDnf(child));
-			}
-		}
-		if (root instanceof AndNode)
-		{
-			// And node: "distribute" clause lists
-			return Clause.distribute(list_clauses);
-		}
-		// Or node: merge all clause lists into one and return
-		for (Set<Clause> l_clauses : list_clauses)
-		{
-			clauses.addAll(l_clauses);
-		}
-		return clauses;
+		return new DnfConverter(false, DnfConverter.UNBOUNDED).convert(root);
+	}
+
+	/**
+	 * Converts a lineage graph into a set of clauses, keeping only the
+	 * minimal ones. The result is the same as that of {@link #asDnf(Node)},
+	 * from which every clause that contains all the parts of another clause
+	 * is removed. Non-minimal clauses are discarded as the graph is
+	 * converted, which avoids producing most of them in the first place.
+	 * @param root The root of the lineage graph
+	 * @return The set of clauses
+	 * @see DnfConverter
+	 */
+	/*@ non_null @*/ public static Set<Clause> asMinimalDnf(/*@ non_null @*/ Node root)
+	{
+		return new DnfConverter().convert(root);
+	}
+
+	/**
+	 * Converts a lineage graph into a set of minimal clauses, stopping once a
+	 * maximum number of clauses has been produced for a node of the graph.
+	 * Use a {@link DnfConverter} directly to know whether the result has been
+	 * truncated.
+	 * @param root The root of the lineage graph
+	 * @param max_clauses The maximum number of clauses
+	 * @return The set of clauses
+	 */
+	/*@ non_null @*/ public static Set<Clause> asMinimalDnf(/*@ non_null @*/ Node root, int max_clauses)
+	{
+		return new DnfConverter(true, max_clauses).convert(root);
+	}
+
+	/**
+	 * Enumerates the minimal clauses of a lineage graph in order of increasing
+	 * size. The clauses are those of {@link #asMinimalDnf(Node)}, but they are
+	 * computed only as the iterator is advanced, so that getting the few
+	 * smallest explanations of a graph does not require expanding its whole
+	 * DNF.
+	 * @param root The root of the lineage graph
+	 * @return An iterator over the clauses
+	 * @see ExplanationSearch
+	 */
+	/*@ non_null @*/ public static Iterator<Clause> minimalExplanations(/*@ non_null @*/ Node root)
+	{
+		return new ExplanationSearch(root);
+	}
+
+	/**
+	 * Takes an immutable snapshot of a lineage graph, in which nodes are
+	 * designated by integer ids and links are stored in arrays. The snapshot
+	 * takes less memory than the graph, and is faster to query repeatedly.
+	 * @param root The root of the lineage graph
+	 * @return The snapshot
+	 * @throws IllegalArgumentException If the graph contains a cycle
+	 * @see FrozenGraph
+	 */
+	/*@ non_null @*/ public static FrozenGraph freeze(/*@ non_null @*/ Node root)
+	{
+		return new FrozenGraph(root);
+	}
+
+	/**
+	 * Gets the leaves of a lineage graph, visiting the graph with the threads
+	 * of a pool.
+	 * @param root The root of the lineage graph
+	 * @param pool The pool in which the graph is visited
+	 * @return The leaves, in no particular order
+	 * @see ParallelCrawler
+	 */
+	/*@ non_null @*/ public static List<Node> getLeaves(/*@ non_null @*/ Node root, /*@ non_null @*/ ForkJoinPool pool)
+	{
+		LeafCollector collector = new LeafCollector();
+		new ParallelCrawler(pool).crawl(root, collector);
+		return collector.getLeaves();
+	}
+
+	/**
+	 * Counts the nodes of a lineage graph, visiting the graph with the threads
+	 * of a pool.
+	 * @param root The root of the lineage graph
+	 * @param pool The pool in which the graph is visited
+	 * @return The number of nodes
+	 * @see ParallelCrawler
+	 */
+	public static long countNodes(/*@ non_null @*/ Node root, /*@ non_null @*/ ForkJoinPool pool)
+	{
+		NodeCounter counter = new NodeCounter();
+		new ParallelCrawler(pool).crawl(root, counter);
+		return counter.getCount();
 	}
 }
@@ -17,28 +17,37 @@
  */
 package ca.uqac.lif.petitpoucet;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Provides lineage nodes in a local context. Objects that implement a
  * descendant of the {@link Queryable} interface should use a node factory to
  * create nodes, and not call their constructors directly.
+ * <p>
+ * The nodes and derived factories produced by a factory are kept in a
+ * {@link NodeStore}, which decides how long they are remembered, and
+ * whether the factory can be used by multiple threads at the same time. In
+ * the latter case, the same node instance is still returned for a given pair
+ * of part and object, regardless of the thread that asks for it. The
+ * factories derived from a factory use the same kind of store.
+ * <p>
+ * A factory is meant to be used for a session of queries whose lineage
+ * graphs can share nodes; {@link #close() closing} it at the end of this
+ * session releases all the nodes it remembers. This can be done with a
+ * try-with-resources statement.
  * @author Sylvain Hallé
  */
-public class NodeFactory
+public class NodeFactory implements AutoCloseable
 {
 	/**
-	 * A map associating object/part pairs to instances of {@link PartNode}. This
-	 * map is used to return the same node if the same object/part is requested
-	 * multiple times.
+	 * A store associating object/part pairs to instances of {@link PartNode}.
+	 * This store is used to return the same node if the same object/part is
+	 * requested multiple times.
 	 */
-	/*@ non_null @*/ protected Map<ObjectPart,PartNode> m_partNodes;
+	/*@ non_null @*/ protected final NodeStore<PartNode> m_partNodes;
 	
 	/**
-	 * A map associating part nodes to child factory instances.
+	 * A store associating part nodes to child factory instances.
 	 */
-	/*@ null @*/ protected Map<ObjectPart,NodeFactory> m_factories;
+	/*@ non_null @*/ protected final NodeStore<NodeFactory> m_factories;
 	
 	/**
 	 * Gets a new empty instance of a node factory.
@@ -53,10 +62,69 @@ public class NodeFactory
 	 * Creates a new node factory.
 	 */
 	protected NodeFactory()
+	{
+		this(false);
+	}
+	
+	/**
+	 * Creates a new node factory that keeps its nodes until it is closed.
+	 * @param thread_safe Set to {@code true} to create a factory that can be
+	 * used by multiple threads at the same time
+	 */
+	protected NodeFactory(boolean thread_safe)
+	{
+		this(NodeStore.<PartNode>unbounded(thread_safe));
+	}
+	
+	/**
+	 * Creates a new node factory.
+	 * @param store The store where the factory keeps its nodes. A new store of
+	 * the same kind is created for the derived factories.
+	 */
+	protected NodeFactory(/*@ non_null @*/ NodeStore<PartNode> store)
 	{
 		super();
-		m_partNodes = new HashMap<>();
-		m_factories = new HashMap<>();
+		m_partNodes = store;
+		m_factories = store.newStore();
+	}
+	
+	/**
+	 * Determines if the factory can be used by multiple threads at the same
+	 * time.
+	 * @return {@code true} if the factory is thread-safe, {@code false}
+	 * otherwise
+	 */
+	/*@ pure @*/ public boolean isThreadSafe()
+	{
+		return m_partNodes.isThreadSafe();
+	}
+	
+	/**
+	 * Gets the store where the factory keeps its part nodes. This store
+	 * provides statistics on the number of nodes that are kept, reused and
+	 * evicted.
+	 * @return The store
+	 */
+	/*@ pure non_null @*/ public NodeStore<PartNode> getNodeStore()
+	{
+		return m_partNodes;
+	}
+	
+	/**
+	 * Releases all the nodes and derived factories remembered by this
+	 * factory, and closes the derived factories. The factory can still be
+	 * used afterwards; it then behaves as if it were new, except that the
+	 * statistics of its store are kept.
+	 */
+	@Override
+	public void close()
+	{
+		for (NodeFactory f : m_factories.values())
+		{
+			f.close();
+		}
+		m_factories.clear();
+		m_partNodes.clear();
 	}
 	
 	/**
@@ -68,34 +136,31 @@ public class NodeFactory
 	 */
 	/*@ non_null @*/ public NodeFactory getFactory(Part p, Object subject)
 	{
-		ObjectPart op = new ObjectPart(p, subject);
-		if (m_factories.containsKey(op))
-		{
-			return m_factories.get(op);
-		}
-		NodeFactory new_factory = new NodeFactory();
-		m_factories.put(op, new_factory);
-		return new_factory;
+		return m_factories.get(new ObjectPart(p, subject), k -> newFactory());
+	}
+	
+	/**
+	 * Creates a new factory of the same kind as this one, to be used as a
+	 * derived factory.
+	 * @return The new factory
+	 */
+	/*@ non_null @*/ protected NodeFactory newFactory()
+	{
+		return new NodeFactory(m_partNodes.<PartNode>newStore());
 	}
 	
 	/**
 	 * Gets an instance of {@link PartNode} corresponding to a particular part
 	 * and subject. If the same part and subject are requested multiple times, the
-	 * factory reuses the same node instance on each successive call.
+	 * factory reuses the same node instance on each successive call, as long
+	 * as this node has not been evicted from its store.
 	 * @param p The part
 	 * @param subject The subject
 	 * @return The node instance
 	 */
 	public PartNode getPartNode(Part p, Object subject)
 	{
-		ObjectPart op = new ObjectPart(p, subject);
-		if (m_partNodes.containsKey(op))
-		{
-			return m_partNodes.get(op);
-		}
-		PartNode pn = new PartNode(p, subject);
-		m_partNodes.put(op, pn);
-		return pn;
+		return m_partNodes.get(new ObjectPart(p, subject), k -> new PartNode(p, subject));
 	}
 	
 	/**
@@ -140,15 +205,15 @@ public class NodeFactory
 	 */
 	public boolean hasNodeFor(Part p, Object o)
 	{
-		return m_partNodes.containsKey(new ObjectPart(p, o));
+		return m_partNodes.contains(new ObjectPart(p, o));
 	}
 	
 	/**
 	 * Class that uniquely defines an object part and a subject. Instances of
 	 * this class are used as keys by the node factory to uniquely identify
-	 * {@link PartNode}s.
+	 * {@link PartNode}s, and are the elements of a {@link Clause}.
 	 */
-	protected static class ObjectPart
+	public static class ObjectPart
 	{
 		/**
 		 * The object part.
@@ -172,10 +237,28 @@ public class NodeFactory
 			m_subject = subject;
 		}
 		
+		/**
+		 * Gets the object part.
+		 * @return The part
+		 */
+		/*@ pure non_null @*/ public Part getPart()
+		{
+			return m_part;
+		}
+		
+		/**
+		 * Gets the object.
+		 * @return The object
+		 */
+		/*@ pure non_null @*/ public Object getSubject()
+		{
+			return m_subject;
+		}
+		
 		@Override
 		public int hashCode()
 		{
-			return m_part.hashCode() + m_subject.hashCode();
+			return PartHash.hash(ObjectPart.class, m_part.hashCode(), m_subject.hashCode());
 		}
 		
 		@Override
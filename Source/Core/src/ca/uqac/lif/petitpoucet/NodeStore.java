@@ -0,0 +1,556 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Keeps the objects produced by a {@link NodeFactory}, so that the same
+ * instance is returned each time the same key is requested. A store
+ * decides how long its objects are kept:
+ * <ul>
+ * <li>an {@link #unbounded(boolean) unbounded} store keeps them until it is
+ * cleared;</li>
+ * <li>a {@link #bounded(int) bounded} store keeps at most a fixed number of
+ * them, and evicts the least recently used one when this number is
+ * exceeded;</li>
+ * <li>a {@link #weak() weak} store only keeps them as long as they are
+ * referenced elsewhere, such as by a lineage graph that is still in use.</li>
+ * </ul>
+ * When an object has been evicted, a request for the same key produces a
+ * new instance. The store counts the requests that found an existing
+ * object (hits), those that had to produce one (misses), and the objects
+ * that have been evicted.
+ * 
+ * @param <V> The type of the objects in the store
+ * @author Sylvain Hallé
+ */
+public abstract class NodeStore<V>
+{
+	/**
+	 * The number of requests that found an existing object.
+	 */
+	/*@ non_null @*/ protected final LongAdder m_hits;
+
+	/**
+	 * The number of requests that produced a new object.
+	 */
+	/*@ non_null @*/ protected final LongAdder m_misses;
+
+	/**
+	 * The number of objects evicted from the store.
+	 */
+	/*@ non_null @*/ protected final LongAdder m_evictions;
+
+	/**
+	 * Creates a store that keeps its objects until it is cleared.
+	 * @param <V> The type of the objects in the store
+	 * @param thread_safe Set to {@code true} to create a store that can be
+	 * used by multiple threads at the same time
+	 * @return The store
+	 */
+	/*@ non_null @*/ public static <V> NodeStore<V> unbounded(boolean thread_safe)
+	{
+		return new UnboundedStore<V>(thread_safe);
+	}
+
+	/**
+	 * Creates a store that keeps a maximum number of objects. The store is
+	 * thread-safe.
+	 * @param <V> The type of the objects in the store
+	 * @param capacity The maximum number of objects
+	 * @return The store
+	 */
+	/*@ non_null @*/ public static <V> NodeStore<V> bounded(int capacity)
+	{
+		return new BoundedStore<V>(capacity);
+	}
+
+	/**
+	 * Creates a store that keeps its objects as long as they are referenced
+	 * elsewhere. The store is thread-safe.
+	 * @param <V> The type of the objects in the store
+	 * @return The store
+	 */
+	/*@ non_null @*/ public static <V> NodeStore<V> weak()
+	{
+		return new WeakStore<V>();
+	}
+
+	/**
+	 * Creates a new empty store.
+	 */
+	protected NodeStore()
+	{
+		super();
+		m_hits = new LongAdder();
+		m_misses = new LongAdder();
+		m_evictions = new LongAdder();
+	}
+
+	/**
+	 * Gets the object associated to a key, producing it if the store does not
+	 * contain it.
+	 * @param key The key
+	 * @param creator A function producing the object from the key
+	 * @return The object
+	 */
+	/*@ non_null @*/ public abstract V get(/*@ non_null @*/ Object key, /*@ non_null @*/ Function<Object,? extends V> creator);
+
+	/**
+	 * Determines if the store contains an object for a key. Calling this
+	 * method does not count as a hit or a miss.
+	 * @param key The key
+	 * @return {@code true} if an object is present, {@code false} otherwise
+	 */
+	public abstract boolean contains(/*@ non_null @*/ Object key);
+
+	/**
+	 * Gets the number of objects in the store.
+	 * @return The number of objects
+	 */
+	public abstract int size();
+
+	/**
+	 * Gets the objects in the store.
+	 * @return A copy of the collection of objects
+	 */
+	/*@ non_null @*/ public abstract List<V> values();
+
+	/**
+	 * Gets the keys of the objects in the store.
+	 * @return A copy of the collection of keys
+	 */
+	/*@ non_null @*/ public abstract List<Object> keys();
+
+	/**
+	 * Removes all the objects from the store. The counters are not reset.
+	 */
+	public abstract void clear();
+
+	/**
+	 * Creates a new empty store that keeps its objects in the same way as
+	 * this one.
+	 * @param <W> The type of the objects in the new store
+	 * @return The new store
+	 */
+	/*@ non_null @*/ public abstract <W> NodeStore<W> newStore();
+
+	/**
+	 * Determines if the store can be used by multiple threads at the same
+	 * time.
+	 * @return {@code true} if the store is thread-safe, {@code false}
+	 * otherwise
+	 */
+	/*@ pure @*/ public abstract boolean isThreadSafe();
+
+	/**
+	 * Gets the number of requests that found an existing object.
+	 * @return The number of hits
+	 */
+	/*@ pure @*/ public long getHits()
+	{
+		return m_hits.sum();
+	}
+
+	/**
+	 * Gets the number of requests that produced a new object.
+	 * @return The number of misses
+	 */
+	/*@ pure @*/ public long getMisses()
+	{
+		return m_misses.sum();
+	}
+
+	/**
+	 * Gets the number of objects that have been evicted from the store.
+	 * Objects removed by a call to {@link #clear()} are not counted.
+	 * @return The number of evictions
+	 */
+	/*@ pure @*/ public long getEvictions()
+	{
+		return m_evictions.sum();
+	}
+
+	/**
+	 * A store keeping its objects until it is cleared.
+	 * @param <V> The type of the objects in the store
+	 */
+	protected static class UnboundedStore<V> extends NodeStore<V>
+	{
+		/**
+		 * The map associating keys to objects.
+		 */
+		/*@ non_null @*/ protected final Map<Object,V> m_map;
+
+		/**
+		 * A flag indicating whether the store is thread-safe.
+		 */
+		protected final boolean m_threadSafe;
+
+		/**
+		 * Creates a new empty store.
+		 * @param thread_safe Set to {@code true} to create a store that can be
+		 * used by multiple threads at the same time
+		 */
+		public UnboundedStore(boolean thread_safe)
+		{
+			super();
+			m_threadSafe = thread_safe;
+			m_map = thread_safe ? new ConcurrentHashMap<Object,V>() : new HashMap<Object,V>();
+		}
+
+		@Override
+		public V get(Object key, Function<Object,? extends V> creator)
+		{
+			V v = m_map.get(key);
+			if (v != null)
+			{
+				m_hits.increment();
+				return v;
+			}
+			// Other threads may ask for the same key at the same time; only the
+			// one whose creator is called counts a miss, the others count a hit
+			boolean[] created = new boolean[1];
+			v = m_map.computeIfAbsent(key, k -> {
+				created[0] = true;
+				return creator.apply(k);
+			});
+			if (created[0])
+			{
+				m_misses.increment();
+			}
+			else
+			{
+				m_hits.increment();
+			}
+			return v;
+		}
+
+		@Override
+		public boolean contains(Object key)
+		{
+			return m_map.containsKey(key);
+		}
+
+		@Override
+		public int size()
+		{
+			return m_map.size();
+		}
+
+		@Override
+		public List<V> values()
+		{
+			return new ArrayList<V>(m_map.values());
+		}
+
+		@Override
+		public List<Object> keys()
+		{
+			return new ArrayList<Object>(m_map.keySet());
+		}
+
+		@Override
+		public void clear()
+		{
+			m_map.clear();
+		}
+
+		@Override
+		public <W> UnboundedStore<W> newStore()
+		{
+			return new UnboundedStore<W>(m_threadSafe);
+		}
+
+		@Override
+		public boolean isThreadSafe()
+		{
+			return m_threadSafe;
+		}
+	}
+
+	/**
+	 * A store keeping a maximum number of objects, and evicting the least
+	 * recently used one when this number is exceeded.
+	 * @param <V> The type of the objects in the store
+	 */
+	protected static class BoundedStore<V> extends NodeStore<V>
+	{
+		/**
+		 * The map associating keys to objects, ordered from the least to the
+		 * most recently used.
+		 */
+		/*@ non_null @*/ protected final LinkedHashMap<Object,V> m_map;
+
+		/**
+		 * The maximum number of objects in the store.
+		 */
+		protected final int m_capacity;
+
+		/**
+		 * Creates a new empty store.
+		 * @param capacity The maximum number of objects in the store
+		 */
+		public BoundedStore(int capacity)
+		{
+			super();
+			if (capacity < 1)
+			{
+				throw new IllegalArgumentException("The capacity of a store must be positive");
+			}
+			m_capacity = capacity;
+			m_map = new LinkedHashMap<Object,V>(16, 0.75f, true)
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Object,V> eldest)
+				{
+					if (size() > m_capacity)
+					{
+						m_evictions.increment();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		@Override
+		public synchronized V get(Object key, Function<Object,? extends V> creator)
+		{
+			V v = m_map.get(key);
+			if (v != null)
+			{
+				m_hits.increment();
+				return v;
+			}
+			m_misses.increment();
+			v = creator.apply(key);
+			m_map.put(key, v);
+			return v;
+		}
+
+		@Override
+		public synchronized boolean contains(Object key)
+		{
+			return m_map.containsKey(key);
+		}
+
+		@Override
+		public synchronized int size()
+		{
+			return m_map.size();
+		}
+
+		@Override
+		public synchronized List<V> values()
+		{
+			return new ArrayList<V>(m_map.values());
+		}
+
+		@Override
+		public synchronized List<Object> keys()
+		{
+			return new ArrayList<Object>(m_map.keySet());
+		}
+
+		@Override
+		public synchronized void clear()
+		{
+			m_map.clear();
+		}
+
+		@Override
+		public <W> BoundedStore<W> newStore()
+		{
+			return new BoundedStore<W>(m_capacity);
+		}
+
+		@Override
+		public boolean isThreadSafe()
+		{
+			return true;
+		}
+	}
+
+	/**
+	 * A store keeping its objects through weak references. An object is
+	 * evicted once the garbage collector has found that it is no longer
+	 * referenced elsewhere.
+	 * @param <V> The type of the objects in the store
+	 */
+	protected static class WeakStore<V> extends NodeStore<V>
+	{
+		/**
+		 * The map associating keys to references to the objects.
+		 */
+		/*@ non_null @*/ protected final Map<Object,KeyedReference<V>> m_map;
+
+		/**
+		 * The queue where the garbage collector puts the references whose
+		 * object has been collected.
+		 */
+		/*@ non_null @*/ protected final ReferenceQueue<V> m_queue;
+
+		/**
+		 * Creates a new empty store.
+		 */
+		public WeakStore()
+		{
+			super();
+			m_map = new HashMap<Object,KeyedReference<V>>();
+			m_queue = new ReferenceQueue<V>();
+		}
+
+		@Override
+		public synchronized V get(Object key, Function<Object,? extends V> creator)
+		{
+			expunge();
+			KeyedReference<V> ref = m_map.get(key);
+			V v = ref == null ? null : ref.get();
+			if (v != null)
+			{
+				m_hits.increment();
+				return v;
+			}
+			m_misses.increment();
+			v = creator.apply(key);
+			m_map.put(key, new KeyedReference<V>(key, v, m_queue));
+			return v;
+		}
+
+		@Override
+		public synchronized boolean contains(Object key)
+		{
+			KeyedReference<V> ref = m_map.get(key);
+			return ref != null && ref.get() != null;
+		}
+
+		@Override
+		public synchronized int size()
+		{
+			expunge();
+			return m_map.size();
+		}
+
+		@Override
+		public synchronized List<V> values()
+		{
+			List<V> values = new ArrayList<V>(m_map.size());
+			for (KeyedReference<V> ref : m_map.values())
+			{
+				V v = ref.get();
+				if (v != null)
+				{
+					values.add(v);
+				}
+			}
+			return values;
+		}
+
+		@Override
+		public synchronized List<Object> keys()
+		{
+			List<Object> keys = new ArrayList<Object>(m_map.size());
+			for (KeyedReference<V> ref : m_map.values())
+			{
+				if (ref.get() != null)
+				{
+					keys.add(ref.m_key);
+				}
+			}
+			return keys;
+		}
+
+		@Override
+		public synchronized void clear()
+		{
+			m_map.clear();
+			while (m_queue.poll() != null)
+			{
+				// Discard references to objects already collected
+			}
+		}
+
+		@Override
+		public <W> WeakStore<W> newStore()
+		{
+			return new WeakStore<W>();
+		}
+
+		@Override
+		public boolean isThreadSafe()
+		{
+			return true;
+		}
+
+		/**
+		 * Removes the entries whose object has been collected.
+		 */
+		protected void expunge()
+		{
+			Object o;
+			while ((o = m_queue.poll()) != null)
+			{
+				KeyedReference<?> ref = (KeyedReference<?>) o;
+				// The entry may already have been replaced by a new object
+				if (m_map.get(ref.m_key) == ref)
+				{
+					m_map.remove(ref.m_key);
+					m_evictions.increment();
+				}
+			}
+		}
+	}
+
+	/**
+	 * A weak reference that remembers the key of the object it refers to.
+	 * @param <V> The type of the object
+	 */
+	protected static class KeyedReference<V> extends WeakReference<V>
+	{
+		/**
+		 * The key associated to the object.
+		 */
+		/*@ non_null @*/ protected final Object m_key;
+
+		/**
+		 * Creates a new reference.
+		 * @param key The key associated to the object
+		 * @param v The object
+		 * @param queue The queue where the reference is put once the object is
+		 * collected
+		 */
+		public KeyedReference(Object key, V v, ReferenceQueue<? super V> queue)
+		{
+			super(v, queue);
+			m_key = key;
+		}
+	}
+}
@@ -17,9 +17,6 @@
  */
 package ca.uqac.lif.petitpoucet;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * An object that designates a part of another object
  * 
@@ -109,7 +106,7 @@ public interface Part
 		@Override
 		public int hashCode()
 		{
-			return 321;
+			return PartHash.hash(All.class);
 		}
 
 		@Override
@@ -158,7 +155,7 @@ public interface Part
 		@Override
 		public int hashCode()
 		{
-			return 4567;
+			return PartHash.hash(Nothing.class);
 		}
 
 		@Override
@@ -205,7 +202,7 @@ public interface Part
 		@Override
 		public int hashCode()
 		{
-			return 321;
+			return PartHash.hash(Unknown.class);
 		}
 
 		@Override
@@ -247,7 +244,7 @@ public interface Part
 		@Override
 		public int hashCode()
 		{
-			return 321;
+			return PartHash.hash(Self.class);
 		}
 
 		@Override
@@ -273,27 +270,13 @@ public interface Part
 			if (from instanceof ComposedPart)
 			{
 				ComposedPart cd = (ComposedPart) from;
-				List<Part> desigs = new ArrayList<>();
-				boolean replaced = false;
-				for (int i = 0 ; i < cd.size(); i++)
-				{
-					Part in_d = cd.get(i);
-					if (in_d instanceof Self && !replaced)
-					{
-						desigs.add(to);
-						replaced = true;
-					}
-					else
-					{
-						desigs.add(in_d);
-					}
-				}
-				if (!replaced)
+				int index = cd.indexOf(Self.class);
+				if (index < 0)
 				{
 					// Return input object if no replacement was done
 					return from;
 				}
-				return new ComposedPart(desigs);
+				return cd.replace(index, to);
 			}
 			return from;
 		}
@@ -0,0 +1,139 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet;
+
+/**
+ * Functions used by the implementations of {@link Part} to compute their
+ * hash codes. Parts are used as keys in the hash tables of a
+ * {@link NodeFactory} and a {@link PartInterner}, and are compared in large
+ * numbers when explaining functions on large vectors; their hash codes must
+ * therefore be spread as evenly as possible. To this end:
+ * <ul>
+ * <li>each class of part starts from a different {@link #seed(Class) seed},
+ * so that parts of different classes with the same fields (such as the
+ * first input and the first element of a vector) do not collide;</li>
+ * <li>the values making up a hash code are {@link #combine(int, int)
+ * combined} in an order-sensitive way, so that a composed part and its
+ * reverse, or a range and its reverse, do not collide;</li>
+ * <li>the result is {@link #finish(int, int) mixed}, so that consecutive
+ * indices are scattered across the whole range of integers, and not only
+ * in their low bits.</li>
+ * </ul>
+ * The combination and mixing steps are those of the 32-bit MurmurHash3
+ * function.
+ * 
+ * @author Sylvain Hallé
+ */
+public final class PartHash
+{
+	/**
+	 * First multiplication constant of MurmurHash3.
+	 */
+	private static final int C1 = 0xcc9e2d51;
+
+	/**
+	 * Second multiplication constant of MurmurHash3.
+	 */
+	private static final int C2 = 0x1b873593;
+
+	/**
+	 * Private constructor, as this class is not meant to be instantiated.
+	 */
+	private PartHash()
+	{
+		super();
+	}
+
+	/**
+	 * Gets the initial hash value for parts of a given class.
+	 * @param c The class
+	 * @return The seed
+	 */
+	public static int seed(/*@ non_null @*/ Class<?> c)
+	{
+		// The name of a class, contrary to the class object, hashes to the same value on every run
+		return c.getName().hashCode();
+	}
+
+	/**
+	 * Combines a value into a hash. The result depends on the order in which
+	 * values are combined.
+	 * @param h The current hash
+	 * @param value The value to combine
+	 * @return The new hash
+	 */
+	public static int combine(int h, int value)
+	{
+		int k = value * C1;
+		k = Integer.rotateLeft(k, 15);
+		k *= C2;
+		h ^= k;
+		h = Integer.rotateLeft(h, 13);
+		return h * 5 + 0xe6546b64;
+	}
+
+	/**
+	 * Mixes the bits of a hash after all values have been combined.
+	 * @param h The current hash
+	 * @param count The number of values that have been combined
+	 * @return The final hash
+	 */
+	public static int finish(int h, int count)
+	{
+		h ^= count;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	/**
+	 * Computes the hash of a part of a given class that has no field.
+	 * @param c The class of the part
+	 * @return The hash
+	 */
+	public static int hash(/*@ non_null @*/ Class<?> c)
+	{
+		return finish(seed(c), 0);
+	}
+
+	/**
+	 * Computes the hash of a part of a given class that has a single field.
+	 * @param c The class of the part
+	 * @param value The hash of the field
+	 * @return The hash
+	 */
+	public static int hash(/*@ non_null @*/ Class<?> c, int value)
+	{
+		return finish(combine(seed(c), value), 1);
+	}
+
+	/**
+	 * Computes the hash of a part of a given class that has two fields.
+	 * @param c The class of the part
+	 * @param v1 The hash of the first field
+	 * @param v2 The hash of the second field
+	 * @return The hash
+	 */
+	public static int hash(/*@ non_null @*/ Class<?> c, int v1, int v2)
+	{
+		return finish(combine(combine(seed(c), v1), v2), 2);
+	}
+}
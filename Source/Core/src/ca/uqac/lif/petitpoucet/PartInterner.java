@@ -0,0 +1,216 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps a canonical instance of each part it is given, so that structurally
+ * equal parts can be represented by the same object. Interning a part
+ * returns the first instance equal to it that has been interned, or the part
+ * itself if there is none. Comparing interned parts therefore most often
+ * succeeds on the first (reference) check of their {@code equals} method,
+ * and the hash tables of a {@link NodeFactory} are looked up with keys whose
+ * hash code is already computed.
+ * <p>
+ * The interner only keeps weak references to its parts: a canonical
+ * instance that is no longer referenced anywhere else is eventually
+ * forgotten, and a later request for an equal part makes the latter the new
+ * canonical instance.
+ * <p>
+ * The interner is thread-safe. Its parts are spread by hash code across a
+ * number of independent stripes, each protected by its own lock, so that
+ * threads interning different parts seldom wait for each other.
+ * <p>
+ * Only immutable parts should be interned.
+ * 
+ * @author Sylvain Hallé
+ */
+public class PartInterner
+{
+	/**
+	 * The interner used by default by {@link ComposedPart}.
+	 */
+	/*@ non_null @*/ protected static final PartInterner s_default = new PartInterner();
+
+	/**
+	 * The default number of stripes of an interner.
+	 */
+	protected static final int DEFAULT_STRIPES = 16;
+
+	/**
+	 * The stripes of the interner. Each part is handled by the stripe at the
+	 * index given by its hash code.
+	 */
+	/*@ non_null @*/ protected final Stripe[] m_stripes;
+
+	/**
+	 * The number of requests that found an existing canonical instance.
+	 */
+	/*@ non_null @*/ protected final LongAdder m_hits;
+
+	/**
+	 * The number of requests that produced a new canonical instance.
+	 */
+	/*@ non_null @*/ protected final LongAdder m_misses;
+
+	/**
+	 * Gets the interner used by default by {@link ComposedPart}.
+	 * @return The interner
+	 */
+	/*@ pure non_null @*/ public static PartInterner getDefault()
+	{
+		return s_default;
+	}
+
+	/**
+	 * Creates a new empty interner with the default number of stripes.
+	 */
+	public PartInterner()
+	{
+		this(DEFAULT_STRIPES);
+	}
+
+	/**
+	 * Creates a new empty interner.
+	 * @param num_stripes The number of stripes of the interner, which is
+	 * rounded up to the next power of two
+	 */
+	public PartInterner(int num_stripes)
+	{
+		super();
+		int n = 1;
+		while (n < num_stripes)
+		{
+			n <<= 1;
+		}
+		m_stripes = new Stripe[n];
+		for (int i = 0; i < n; i++)
+		{
+			m_stripes[i] = new Stripe();
+		}
+		m_hits = new LongAdder();
+		m_misses = new LongAdder();
+	}
+
+	/**
+	 * Gets the canonical instance of a part.
+	 * @param <T> The type of the part
+	 * @param p The part
+	 * @return The canonical instance of this part, which is {@code p} itself
+	 * if no equal part of the same class is known to the interner
+	 */
+	@SuppressWarnings("unchecked")
+	/*@ non_null @*/ public <T extends Part> T intern(/*@ non_null @*/ T p)
+	{
+		Stripe stripe = getStripe(p);
+		synchronized (stripe)
+		{
+			WeakReference<Part> ref = stripe.m_parts.get(p);
+			Part q = ref == null ? null : ref.get();
+			if (q != null && q.getClass() == p.getClass())
+			{
+				m_hits.increment();
+				return (T) q;
+			}
+			m_misses.increment();
+			stripe.m_parts.put(p, new WeakReference<Part>(p));
+			return p;
+		}
+	}
+
+	/**
+	 * Gets the stripe that handles a part.
+	 * @param p The part
+	 * @return The stripe
+	 */
+	/*@ pure non_null @*/ protected Stripe getStripe(/*@ non_null @*/ Part p)
+	{
+		int h = p.hashCode();
+		// Spread the high bits, as the low ones select the stripe
+		h ^= (h >>> 16);
+		return m_stripes[h & (m_stripes.length - 1)];
+	}
+
+	/**
+	 * Gets the number of canonical instances currently known to the
+	 * interner. Instances that have been collected, but not yet removed,
+	 * may be included in this count.
+	 * @return The number of instances
+	 */
+	public int size()
+	{
+		int size = 0;
+		for (Stripe stripe : m_stripes)
+		{
+			synchronized (stripe)
+			{
+				size += stripe.m_parts.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Forgets all the canonical instances known to the interner.
+	 */
+	public void clear()
+	{
+		for (Stripe stripe : m_stripes)
+		{
+			synchronized (stripe)
+			{
+				stripe.m_parts.clear();
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of requests that found an existing canonical instance.
+	 * @return The number of hits
+	 */
+	public long getHits()
+	{
+		return m_hits.sum();
+	}
+
+	/**
+	 * Gets the number of requests that produced a new canonical instance.
+	 * @return The number of misses
+	 */
+	public long getMisses()
+	{
+		return m_misses.sum();
+	}
+
+	/**
+	 * A subset of the canonical instances known to the interner. Access to
+	 * a stripe is synchronized on the stripe itself.
+	 */
+	protected static class Stripe
+	{
+		/**
+		 * The map associating each part to a reference to its canonical
+		 * instance.
+		 */
+		/*@ non_null @*/ protected final Map<Part,WeakReference<Part>> m_parts = new WeakHashMap<Part,WeakReference<Part>>();
+	}
+}
@@ -0,0 +1,106 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Functions for the packed encoding of the parts in a {@link ComposedPart}.
+ * Each element of a composition is encoded by a tag and a code: for an
+ * element that is a {@link TaggedPart}, these are the values it returns;
+ * for any other element, the tag is {@link #NO_TAG} and the code is 0.
+ * 
+ * @author Sylvain Hallé
+ */
+public final class PartPath
+{
+	/**
+	 * The tag of the elements of a composition that are not instances of
+	 * {@link TaggedPart}.
+	 */
+	public static final int NO_TAG = 0;
+
+	/**
+	 * The last tag that has been given out.
+	 */
+	/*@ non_null @*/ private static final AtomicInteger s_lastTag = new AtomicInteger(NO_TAG);
+
+	/**
+	 * Private constructor, as this class is not meant to be instantiated.
+	 */
+	private PartPath()
+	{
+		super();
+	}
+
+	/**
+	 * Gets a new tag, distinct from all those given out so far. Each kind of
+	 * {@link TaggedPart} should call this method once, and keep the result
+	 * in a constant. Tags are only meaningful within a single run of the
+	 * program, and should not be persisted.
+	 * @return The tag
+	 */
+	public static int newTag()
+	{
+		return s_lastTag.incrementAndGet();
+	}
+
+	/**
+	 * Gets the tag of a part.
+	 * @param p The part
+	 * @return The tag of the part, or {@link #NO_TAG} if it is not a
+	 * {@link TaggedPart}
+	 */
+	public static int tagOf(/*@ non_null @*/ Part p)
+	{
+		return p instanceof TaggedPart ? ((TaggedPart) p).getTag() : NO_TAG;
+	}
+
+	/**
+	 * Packs two integers into a single code.
+	 * @param first The first integer
+	 * @param second The second integer
+	 * @return The code
+	 */
+	public static long pack(int first, int second)
+	{
+		return ((long) first << 32) | (second & 0xffffffffL);
+	}
+
+	/**
+	 * Gets the first of the two integers packed into a code by
+	 * {@link #pack(int, int)}.
+	 * @param code The code
+	 * @return The first integer
+	 */
+	public static int first(long code)
+	{
+		return (int) (code >>> 32);
+	}
+
+	/**
+	 * Gets the second of the two integers packed into a code by
+	 * {@link #pack(int, int)}.
+	 * @param code The code
+	 * @return The second integer
+	 */
+	public static int second(long code)
+	{
+		return (int) code;
+	}
+}
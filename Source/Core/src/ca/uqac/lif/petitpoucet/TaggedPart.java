@@ -0,0 +1,48 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet;
+
+/**
+ * A part whose content can be represented by a numerical tag identifying
+ * its kind, and a numerical code giving its parameters. For example, the
+ * part designating the <i>n</i>-th input of a function can be encoded by
+ * the tag given to all such parts, and by the number <i>n</i>. A
+ * {@link ComposedPart} keeps the tags and codes of the tagged parts it
+ * contains in packed arrays, so that looking for the first part of a given
+ * kind in a composition and reading its parameters only involve integer
+ * comparisons.
+ * <p>
+ * Two tagged parts with the same tag and the same code must be equal.
+ * Tags are obtained from {@link PartPath#newTag()}.
+ * 
+ * @author Sylvain Hallé
+ */
+public interface TaggedPart extends Part
+{
+	/**
+	 * Gets the tag identifying the kind of this part.
+	 * @return The tag, which is a positive number
+	 */
+	/*@ pure @*/ public int getTag();
+
+	/**
+	 * Gets the code giving the parameters of this part.
+	 * @return The code
+	 */
+	/*@ pure @*/ public long getCode();
+}
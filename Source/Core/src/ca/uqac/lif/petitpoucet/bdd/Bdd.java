@@ -0,0 +1,353 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.bdd;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ca.uqac.lif.petitpoucet.Clause;
+import ca.uqac.lif.petitpoucet.NodeFactory.ObjectPart;
+
+/**
+ * A Boolean function represented by a node of a {@link BddManager}. When
+ * the function is obtained from a lineage graph, its variables are the
+ * leaves of the graph, and its satisfying assignments are the sets of
+ * leaves that together explain the root.
+ * <p>
+ * All the queries of this class run in time proportional to the size of
+ * the diagram, which can be exponentially smaller than the disjunctive
+ * normal form of the same function.
+ * 
+ * @author Sylvain Hallé
+ */
+public class Bdd
+{
+	/**
+	 * The manager containing the nodes of this diagram.
+	 */
+	/*@ non_null @*/ protected final BddManager m_manager;
+
+	/**
+	 * The root node of this diagram.
+	 */
+	protected final int m_root;
+
+	/**
+	 * Creates a new diagram.
+	 * @param manager The manager containing the nodes of this diagram
+	 * @param root The root node of this diagram
+	 */
+	public Bdd(/*@ non_null @*/ BddManager manager, int root)
+	{
+		super();
+		m_manager = manager;
+		m_root = root;
+	}
+
+	/**
+	 * Gets the manager containing the nodes of this diagram.
+	 * @return The manager
+	 */
+	/*@ pure non_null @*/ public BddManager getManager()
+	{
+		return m_manager;
+	}
+
+	/**
+	 * Gets the root node of this diagram.
+	 * @return The root node
+	 */
+	/*@ pure @*/ public int getRoot()
+	{
+		return m_root;
+	}
+
+	/**
+	 * Determines if the function has at least one satisfying assignment.
+	 * @return {@code true} if the function is satisfiable, {@code false}
+	 * otherwise
+	 */
+	/*@ pure @*/ public boolean isSatisfiable()
+	{
+		return m_root != BddManager.FALSE;
+	}
+
+	/**
+	 * Counts the number of nodes reachable from the root, including the
+	 * terminal nodes.
+	 * @return The number of nodes
+	 */
+	/*@ pure @*/ public int size()
+	{
+		BitSet seen = new BitSet();
+		Deque<Integer> to_visit = new ArrayDeque<Integer>();
+		to_visit.push(m_root);
+		seen.set(m_root);
+		int count = 0;
+		while (!to_visit.isEmpty())
+		{
+			int n = to_visit.pop();
+			count++;
+			if (n <= BddManager.TRUE)
+			{
+				continue;
+			}
+			for (int child : new int[] {m_manager.getLow(n), m_manager.getHigh(n)})
+			{
+				if (!seen.get(child))
+				{
+					seen.set(child);
+					to_visit.push(child);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the satisfying assignments of the function, over all the
+	 * variables known to the manager.
+	 * @return The number of assignments
+	 */
+	/*@ pure non_null @*/ public BigInteger countModels()
+	{
+		int num_vars = m_manager.getVariableCount();
+		Map<Integer,BigInteger> counts = new HashMap<Integer,BigInteger>();
+		counts.put(BddManager.FALSE, BigInteger.ZERO);
+		counts.put(BddManager.TRUE, BigInteger.ONE);
+		for (int n : getPostOrder())
+		{
+			int var = m_manager.getVar(n);
+			int low = m_manager.getLow(n);
+			int high = m_manager.getHigh(n);
+			// Variables skipped on an edge can take any value
+			BigInteger low_count = counts.get(low).shiftLeft(level(low, num_vars) - var - 1);
+			BigInteger high_count = counts.get(high).shiftLeft(level(high, num_vars) - var - 1);
+			counts.put(n, low_count.add(high_count));
+		}
+		return counts.get(m_root).shiftLeft(level(m_root, num_vars));
+	}
+
+	/**
+	 * Gets the object parts that belong to every satisfying assignment of the
+	 * function; in other words, the leaves without which the root cannot be
+	 * explained.
+	 * @return The set of essential parts, in variable order; empty if the
+	 * function is unsatisfiable
+	 */
+	/*@ pure non_null @*/ public Set<ObjectPart> getEssentialParts()
+	{
+		Set<ObjectPart> parts = new LinkedHashSet<ObjectPart>();
+		if (m_root == BddManager.FALSE)
+		{
+			return parts;
+		}
+		BitSet essential = getEssential();
+		for (int i = essential.nextSetBit(0); i >= 0; i = essential.nextSetBit(i + 1))
+		{
+			parts.add(m_manager.getPart(i));
+		}
+		return parts;
+	}
+
+	/**
+	 * Determines if an object part belongs to every satisfying assignment of
+	 * the function.
+	 * @param p The object part
+	 * @return {@code true} if the part is essential, {@code false} otherwise
+	 */
+	/*@ pure @*/ public boolean isEssential(/*@ non_null @*/ ObjectPart p)
+	{
+		return getEssentialParts().contains(p);
+	}
+
+	/**
+	 * Computes the variables that are true on every path from the root, which
+	 * must not be {@link BddManager#FALSE}, to the {@link BddManager#TRUE}
+	 * terminal.
+	 * @return The set of variable indices
+	 */
+	protected BitSet getEssential()
+	{
+		Map<Integer,BitSet> essentials = new HashMap<Integer,BitSet>();
+		essentials.put(BddManager.TRUE, new BitSet());
+		for (int n : getPostOrder())
+		{
+			int low = m_manager.getLow(n);
+			int high = m_manager.getHigh(n);
+			// A reduced node never has two false children
+			BitSet via_high = null;
+			if (high != BddManager.FALSE)
+			{
+				via_high = (BitSet) essentials.get(high).clone();
+				via_high.set(m_manager.getVar(n));
+			}
+			BitSet result;
+			if (low == BddManager.FALSE)
+			{
+				result = via_high;
+			}
+			else
+			{
+				result = (BitSet) essentials.get(low).clone();
+				if (via_high != null)
+				{
+					result.and(via_high);
+				}
+			}
+			essentials.put(n, result);
+		}
+		return essentials.get(m_root);
+	}
+
+	/**
+	 * Gets a satisfying assignment of the function with the fewest true
+	 * variables; in other words, a smallest set of leaves that explains the
+	 * root.
+	 * @return The clause made of these leaves, or {@code null} if the function
+	 * is unsatisfiable
+	 */
+	/*@ pure null @*/ public Clause getMinimumExplanation()
+	{
+		if (m_root == BddManager.FALSE)
+		{
+			return null;
+		}
+		Map<Integer,Integer> costs = getCosts();
+		Clause c = new Clause();
+		int n = m_root;
+		while (n != BddManager.TRUE)
+		{
+			// Follow the cheapest edge, preferring the low one on ties
+			int low = m_manager.getLow(n);
+			int high = m_manager.getHigh(n);
+			if (costs.get(low) <= costs.get(high) + 1)
+			{
+				n = low;
+			}
+			else
+			{
+				c.add(m_manager.getPart(m_manager.getVar(n)));
+				n = high;
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Computes, for every node reachable from the root, the minimum number of
+	 * high edges on a path from this node to the {@link BddManager#TRUE}
+	 * terminal.
+	 * @return A map associating nodes to their cost, which is
+	 * {@link Integer#MAX_VALUE} / 2 if no such path exists
+	 */
+	protected Map<Integer,Integer> getCosts()
+	{
+		Map<Integer,Integer> costs = new HashMap<Integer,Integer>();
+		costs.put(BddManager.FALSE, Integer.MAX_VALUE / 2);
+		costs.put(BddManager.TRUE, 0);
+		for (int n : getPostOrder())
+		{
+			costs.put(n, Math.min(costs.get(m_manager.getLow(n)), costs.get(m_manager.getHigh(n)) + 1));
+		}
+		return costs;
+	}
+
+	/**
+	 * Lists the non-terminal nodes reachable from the root, each node coming
+	 * after its two children. The list is computed with an explicit stack,
+	 * so that queries on diagrams with many variables do not recurse once
+	 * per variable.
+	 * @return The list of nodes
+	 */
+	/*@ non_null @*/ protected List<Integer> getPostOrder()
+	{
+		List<Integer> order = new ArrayList<Integer>();
+		if (m_root <= BddManager.TRUE)
+		{
+			return order;
+		}
+		BitSet expanded = new BitSet();
+		BitSet done = new BitSet();
+		Deque<Integer> stack = new ArrayDeque<Integer>();
+		stack.push(m_root);
+		while (!stack.isEmpty())
+		{
+			int n = stack.peek();
+			if (done.get(n))
+			{
+				stack.pop();
+			}
+			else if (!expanded.get(n))
+			{
+				expanded.set(n);
+				for (int child : new int[] {m_manager.getHigh(n), m_manager.getLow(n)})
+				{
+					if (child > BddManager.TRUE && !done.get(child))
+					{
+						stack.push(child);
+					}
+				}
+			}
+			else
+			{
+				stack.pop();
+				done.set(n);
+				order.add(n);
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Gets the level of a node, which is its variable index, or the number of
+	 * variables for a terminal node.
+	 * @param n The node
+	 * @param num_vars The number of variables
+	 * @return The level
+	 */
+	protected int level(int n, int num_vars)
+	{
+		return n <= BddManager.TRUE ? num_vars : m_manager.getVar(n);
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (!(o instanceof Bdd))
+		{
+			return false;
+		}
+		Bdd b = (Bdd) o;
+		return b.m_manager == m_manager && b.m_root == m_root;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return m_root;
+	}
+}
@@ -0,0 +1,587 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.bdd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ca.uqac.lif.dag.Node;
+import ca.uqac.lif.dag.Pin;
+import ca.uqac.lif.petitpoucet.AndNode;
+import ca.uqac.lif.petitpoucet.GraphUtilities;
+import ca.uqac.lif.petitpoucet.NodeFactory.ObjectPart;
+import ca.uqac.lif.petitpoucet.PartNode;
+
+/**
+ * Creates and stores the nodes of reduced ordered binary decision diagrams
+ * (BDDs). The variables of these diagrams are {@link ObjectPart}s: each
+ * distinct object part is given a variable index the first time it is
+ * encountered, and variables are ordered by this index.
+ * <p>
+ * Nodes are designated by integers. The constants {@link #FALSE} and
+ * {@link #TRUE} designate the two terminal nodes; any other node has a
+ * variable, a "low" child (the function when the variable is false) and a
+ * "high" child (the function when the variable is true). The manager
+ * guarantees that two nodes with the same variable and children are the
+ * same node, so that two equivalent functions built by the same manager
+ * are designated by the same integer.
+ * <p>
+ * A lineage graph is turned into a BDD by {@link #compile(Node)}. The
+ * leaves of the graph become variables, {@link AndNode}s become
+ * conjunctions, and every other node becomes the disjunction of its
+ * children, as in {@link GraphUtilities#asDnf(Node)}. Since these graphs
+ * have no negation, the resulting functions are monotone: an assignment is
+ * a set of leaves taken together, and it satisfies the function if these
+ * leaves explain the root of the graph.
+ * <p>
+ * A manager is not thread-safe.
+ * 
+ * @author Sylvain Hallé
+ */
+public class BddManager
+{
+	/**
+	 * The terminal node representing the constant false.
+	 */
+	public static final int FALSE = 0;
+
+	/**
+	 * The terminal node representing the constant true.
+	 */
+	public static final int TRUE = 1;
+
+	/**
+	 * The variable index given to the terminal nodes, which comes after the
+	 * index of every variable.
+	 */
+	protected static final int TERMINAL = Integer.MAX_VALUE;
+
+	/**
+	 * The code of the conjunction operation in the computed table.
+	 */
+	protected static final int OP_AND = 0;
+
+	/**
+	 * The code of the disjunction operation in the computed table.
+	 */
+	protected static final int OP_OR = 1;
+
+	/**
+	 * The variable of each node.
+	 */
+	protected int[] m_var;
+
+	/**
+	 * The low child of each node.
+	 */
+	protected int[] m_low;
+
+	/**
+	 * The high child of each node.
+	 */
+	protected int[] m_high;
+
+	/**
+	 * The next node in the same bucket of the unique table.
+	 */
+	protected int[] m_next;
+
+	/**
+	 * The first node of each bucket of the unique table, or -1.
+	 */
+	protected int[] m_buckets;
+
+	/**
+	 * The number of nodes created so far, including the terminal nodes.
+	 */
+	protected int m_size;
+
+	/**
+	 * The computed table, caching the results of recent operations. Each
+	 * entry takes four consecutive cells: the operation, its two operands and
+	 * its result. The table is lossy: a new result overwrites whatever entry
+	 * occupies its cell.
+	 */
+	protected int[] m_cache;
+
+	/**
+	 * The variable index of each object part.
+	 */
+	/*@ non_null @*/ protected final Map<ObjectPart,Integer> m_variableIndex;
+
+	/**
+	 * The object part of each variable index.
+	 */
+	/*@ non_null @*/ protected final List<ObjectPart> m_variables;
+
+	/**
+	 * Creates a new empty manager.
+	 */
+	public BddManager()
+	{
+		super();
+		int capacity = 1 << 10;
+		m_var = new int[capacity];
+		m_low = new int[capacity];
+		m_high = new int[capacity];
+		m_next = new int[capacity];
+		m_buckets = new int[capacity];
+		Arrays.fill(m_buckets, -1);
+		m_cache = new int[4 * capacity];
+		Arrays.fill(m_cache, -1);
+		m_variableIndex = new HashMap<ObjectPart,Integer>();
+		m_variables = new ArrayList<ObjectPart>();
+		// Terminal nodes are their own children
+		m_var[FALSE] = TERMINAL;
+		m_var[TRUE] = TERMINAL;
+		m_high[TRUE] = TRUE;
+		m_low[TRUE] = TRUE;
+		m_size = 2;
+	}
+
+	/**
+	 * Compiles a lineage graph into a BDD. Each node of the graph is
+	 * converted only once, even if it can be reached through multiple paths
+	 * from the root.
+	 * @param root The root of the lineage graph
+	 * @return The BDD
+	 * @throws IllegalArgumentException If the graph contains a cycle
+	 */
+	/*@ non_null @*/ public Bdd compile(/*@ non_null @*/ Node root)
+	{
+		List<Node> nodes = GraphUtilities.getTopologicalOrder(root);
+		Map<Node,Integer> compiled = new IdentityHashMap<Node,Integer>(nodes.size());
+		// Children come after their parents in the list
+		for (int i = nodes.size() - 1; i >= 0; i--)
+		{
+			Node n = nodes.get(i);
+			compiled.put(n, compileNode(n, compiled));
+		}
+		return new Bdd(this, compiled.get(root));
+	}
+
+	/**
+	 * Compiles a single node of a lineage graph, whose children have already
+	 * been compiled.
+	 * <p>
+	 * The children are combined from the one with the highest top variable
+	 * down. When a child is combined with the result built so far, all the
+	 * variables of that result usually come after the top variable of the
+	 * child, so that the operation only walks the child and never copies the
+	 * result again. A conjunction of <i>n</i> leaves is thus compiled in
+	 * time linear in <i>n</i>.
+	 * @param n The node
+	 * @param compiled A map associating nodes to their BDD
+	 * @return The BDD of the node
+	 */
+	protected int compileNode(/*@ non_null @*/ Node n, /*@ non_null @*/ Map<Node,Integer> compiled)
+	{
+		if (n instanceof PartNode && GraphUtilities.isLeaf(n))
+		{
+			PartNode pn = (PartNode) n;
+			return getVariableNode(new ObjectPart(pn.getPart(), pn.getSubject()));
+		}
+		boolean conjunction = n instanceof AndNode;
+		List<Integer> children = new ArrayList<Integer>();
+		for (int i = 0; i < n.getOutputArity(); i++)
+		{
+			for (Pin<? extends Node> pin : n.getOutputLinks(i))
+			{
+				children.add(compiled.get(pin.getNode()));
+			}
+		}
+		if (children.isEmpty())
+		{
+			return FALSE;
+		}
+		children.sort((x, y) -> Integer.compare(m_var[y], m_var[x]));
+		int result = children.get(0);
+		for (int i = 1; i < children.size(); i++)
+		{
+			int child = children.get(i);
+			result = conjunction ? and(child, result) : or(child, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the variable index of an object part, creating a new variable if
+	 * the part has not been seen before.
+	 * @param p The object part
+	 * @return The variable index
+	 */
+	public int getVariable(/*@ non_null @*/ ObjectPart p)
+	{
+		Integer index = m_variableIndex.get(p);
+		if (index == null)
+		{
+			index = m_variables.size();
+			m_variableIndex.put(p, index);
+			m_variables.add(p);
+		}
+		return index;
+	}
+
+	/**
+	 * Gets the variable index of an object part, without creating it.
+	 * @param p The object part
+	 * @return The variable index, or -1 if the part is not a variable of
+	 * this manager
+	 */
+	/*@ pure @*/ public int findVariable(/*@ non_null @*/ ObjectPart p)
+	{
+		Integer index = m_variableIndex.get(p);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Gets the object part of a variable.
+	 * @param var The variable index
+	 * @return The object part
+	 */
+	/*@ pure non_null @*/ public ObjectPart getPart(int var)
+	{
+		return m_variables.get(var);
+	}
+
+	/**
+	 * Gets the number of variables of this manager.
+	 * @return The number of variables
+	 */
+	/*@ pure @*/ public int getVariableCount()
+	{
+		return m_variables.size();
+	}
+
+	/**
+	 * Gets the number of nodes created by this manager, including the two
+	 * terminal nodes.
+	 * @return The number of nodes
+	 */
+	/*@ pure @*/ public int getNodeCount()
+	{
+		return m_size;
+	}
+
+	/**
+	 * Gets the BDD node representing the function that is true exactly when
+	 * an object part is.
+	 * @param p The object part
+	 * @return The node
+	 */
+	public int getVariableNode(/*@ non_null @*/ ObjectPart p)
+	{
+		return makeNode(getVariable(p), FALSE, TRUE);
+	}
+
+	/**
+	 * Gets the variable index of a node.
+	 * @param node The node
+	 * @return The variable index, or {@link Integer#MAX_VALUE} for a terminal
+	 * node
+	 */
+	/*@ pure @*/ public int getVar(int node)
+	{
+		return m_var[node];
+	}
+
+	/**
+	 * Gets the low child of a node.
+	 * @param node The node
+	 * @return The child
+	 */
+	/*@ pure @*/ public int getLow(int node)
+	{
+		return m_low[node];
+	}
+
+	/**
+	 * Gets the high child of a node.
+	 * @param node The node
+	 * @return The child
+	 */
+	/*@ pure @*/ public int getHigh(int node)
+	{
+		return m_high[node];
+	}
+
+	/**
+	 * Computes the conjunction of two functions.
+	 * @param a The first function
+	 * @param b The second function
+	 * @return The conjunction
+	 */
+	public int and(int a, int b)
+	{
+		int result = shortcut(OP_AND, a, b);
+		return result >= 0 ? result : apply(OP_AND, a, b);
+	}
+
+	/**
+	 * Computes the disjunction of two functions.
+	 * @param a The first function
+	 * @param b The second function
+	 * @return The disjunction
+	 */
+	public int or(int a, int b)
+	{
+		int result = shortcut(OP_OR, a, b);
+		return result >= 0 ? result : apply(OP_OR, a, b);
+	}
+
+	/**
+	 * Gets the result of a binary operation when it can be determined without
+	 * looking at the variables of its operands.
+	 * @param op The operation
+	 * @param a The first function
+	 * @param b The second function
+	 * @return The result, or -1 if the operation must be applied
+	 */
+	protected static int shortcut(int op, int a, int b)
+	{
+		if (op == OP_AND)
+		{
+			if (a == FALSE || b == FALSE)
+			{
+				return FALSE;
+			}
+			if (a == TRUE || a == b)
+			{
+				return b;
+			}
+			if (b == TRUE)
+			{
+				return a;
+			}
+			return -1;
+		}
+		if (a == TRUE || b == TRUE)
+		{
+			return TRUE;
+		}
+		if (a == FALSE || a == b)
+		{
+			return b;
+		}
+		if (b == FALSE)
+		{
+			return a;
+		}
+		return -1;
+	}
+
+	/**
+	 * Applies a binary operation to two non-terminal functions.
+	 * <p>
+	 * The recursive descent on the children of the operands is performed
+	 * with an explicit stack, whose depth is bounded by the number of
+	 * variables; diagrams with many thousands of variables can therefore be
+	 * combined without exhausting the call stack. Each frame of the stack
+	 * takes three cells: the two operands, and the number of children whose
+	 * result has been requested so far.
+	 * @param op The operation
+	 * @param a The first function
+	 * @param b The second function
+	 * @return The result
+	 */
+	protected int apply(int op, int a, int b)
+	{
+		int[] frames = new int[3 * 16];
+		int[] values = new int[16];
+		int num_frames = 0;
+		int num_values = 0;
+		frames[0] = a;
+		frames[1] = b;
+		frames[2] = 0;
+		num_frames = 1;
+		while (num_frames > 0)
+		{
+			int top = 3 * (num_frames - 1);
+			int x = frames[top];
+			int y = frames[top + 1];
+			int stage = frames[top + 2];
+			int var = Math.min(m_var[x], m_var[y]);
+			if (stage == 0)
+			{
+				int result = shortcut(op, x, y);
+				if (result < 0)
+				{
+					result = getCached(op, x, y);
+				}
+				if (result >= 0)
+				{
+					num_frames--;
+					if (num_values == values.length)
+					{
+						values = Arrays.copyOf(values, 2 * values.length);
+					}
+					values[num_values++] = result;
+					continue;
+				}
+			}
+			if (stage < 2)
+			{
+				// Request the low child (stage 0) or the high child (stage 1)
+				frames[top + 2] = stage + 1;
+				int x_child = m_var[x] == var ? (stage == 0 ? m_low[x] : m_high[x]) : x;
+				int y_child = m_var[y] == var ? (stage == 0 ? m_low[y] : m_high[y]) : y;
+				if (3 * (num_frames + 1) > frames.length)
+				{
+					frames = Arrays.copyOf(frames, 2 * frames.length);
+				}
+				frames[3 * num_frames] = x_child;
+				frames[3 * num_frames + 1] = y_child;
+				frames[3 * num_frames + 2] = 0;
+				num_frames++;
+				continue;
+			}
+			int high = values[--num_values];
+			int low = values[--num_values];
+			int result = makeNode(var, low, high);
+			putCached(op, x, y, result);
+			num_frames--;
+			values[num_values++] = result;
+		}
+		return values[0];
+	}
+
+	/**
+	 * Looks up the result of an operation in the computed table.
+	 * @param op The operation
+	 * @param a The first function
+	 * @param b The second function
+	 * @return The result, or -1 if it is not in the table
+	 */
+	protected int getCached(int op, int a, int b)
+	{
+		if (a > b)
+		{
+			// Both operations are commutative
+			int t = a;
+			a = b;
+			b = t;
+		}
+		int slot = 4 * ((hash(op, a, b) & 0x7fffffff) % (m_cache.length / 4));
+		if (m_cache[slot] == op && m_cache[slot + 1] == a && m_cache[slot + 2] == b)
+		{
+			return m_cache[slot + 3];
+		}
+		return -1;
+	}
+
+	/**
+	 * Stores the result of an operation in the computed table.
+	 * @param op The operation
+	 * @param a The first function
+	 * @param b The second function
+	 * @param result The result
+	 */
+	protected void putCached(int op, int a, int b, int result)
+	{
+		if (a > b)
+		{
+			int t = a;
+			a = b;
+			b = t;
+		}
+		int slot = 4 * ((hash(op, a, b) & 0x7fffffff) % (m_cache.length / 4));
+		m_cache[slot] = op;
+		m_cache[slot + 1] = a;
+		m_cache[slot + 2] = b;
+		m_cache[slot + 3] = result;
+	}
+
+	/**
+	 * Gets the node with a given variable and children, creating it if it
+	 * does not exist.
+	 * @param var The variable
+	 * @param low The low child
+	 * @param high The high child
+	 * @return The node
+	 */
+	protected int makeNode(int var, int low, int high)
+	{
+		if (low == high)
+		{
+			// Redundant test
+			return low;
+		}
+		int bucket = (hash(var, low, high) & 0x7fffffff) % m_buckets.length;
+		for (int n = m_buckets[bucket]; n >= 0; n = m_next[n])
+		{
+			if (m_var[n] == var && m_low[n] == low && m_high[n] == high)
+			{
+				return n;
+			}
+		}
+		if (m_size == m_var.length)
+		{
+			grow();
+			bucket = (hash(var, low, high) & 0x7fffffff) % m_buckets.length;
+		}
+		int n = m_size++;
+		m_var[n] = var;
+		m_low[n] = low;
+		m_high[n] = high;
+		m_next[n] = m_buckets[bucket];
+		m_buckets[bucket] = n;
+		return n;
+	}
+
+	/**
+	 * Doubles the capacity of the node arrays, the unique table and the
+	 * computed table.
+	 */
+	protected void grow()
+	{
+		int capacity = m_var.length * 2;
+		m_var = Arrays.copyOf(m_var, capacity);
+		m_low = Arrays.copyOf(m_low, capacity);
+		m_high = Arrays.copyOf(m_high, capacity);
+		m_next = Arrays.copyOf(m_next, capacity);
+		m_buckets = new int[capacity];
+		Arrays.fill(m_buckets, -1);
+		for (int n = 2; n < m_size; n++)
+		{
+			int bucket = (hash(m_var[n], m_low[n], m_high[n]) & 0x7fffffff) % capacity;
+			m_next[n] = m_buckets[bucket];
+			m_buckets[bucket] = n;
+		}
+		m_cache = new int[4 * capacity];
+		Arrays.fill(m_cache, -1);
+	}
+
+	/**
+	 * Computes a hash of three integers.
+	 * @param x The first integer
+	 * @param y The second integer
+	 * @param z The third integer
+	 * @return The hash
+	 */
+	protected static int hash(int x, int y, int z)
+	{
+		int h = x * 0x9e3779b1;
+		h = (h ^ y) * 0x85ebca6b;
+		h = (h ^ z) * 0xc2b2ae35;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,68 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.dag;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link Node}.
+ */
+public class NodeTest
+{
+	@Test
+	public void testLinks1()
+	{
+		Node n0 = new Node(0, 1), n1 = new Node(1, 0), n2 = new Node(1, 0), n3 = new Node(1, 0);
+		NodeConnector.connect(n0, 0, n1, 0);
+		NodeConnector.connect(n0, 0, n2, 0);
+		NodeConnector.connect(n0, 0, n2, 0);
+		List<Pin<? extends Node>> links = n0.getOutputLinks(0);
+		assertEquals(2, links.size());
+		assertSame(n1, links.get(0).getNode());
+		assertSame(n2, links.get(1).getNode());
+		// An iterator is not affected by the links added or removed after it
+		Iterator<Pin<? extends Node>> it = links.iterator();
+		NodeConnector.connect(n0, 0, n3, 0);
+		NodeConnector.disconnect(n0, 0, n1, 0);
+		assertSame(n1, it.next().getNode());
+		assertSame(n2, it.next().getNode());
+		assertFalse(it.hasNext());
+		assertEquals(2, links.size());
+		assertSame(n2, links.get(0).getNode());
+		assertSame(n3, links.get(1).getNode());
+		assertEquals(0, n1.getInputLinks(0).size());
+	}
+
+	@Test
+	public void testLinks2()
+	{
+		Node n0 = new Node(0, 1), n1 = new Node(1, 0), n2 = new Node(1, 0);
+		NodeConnector.connect(n0, 0, n1, 0);
+		n0.setToOutput(0, n2.getInputPin(0));
+		assertEquals(1, n0.getOutputLinks(0).size());
+		assertSame(n2, n0.getOutputLinks(0).get(0).getNode());
+		n0.removeFromOutput(0, n2.getInputPin(0));
+		assertTrue(n0.getOutputLinks(0).isEmpty());
+		assertFalse(n0.getOutputLinks(0).iterator().hasNext());
+	}
+}
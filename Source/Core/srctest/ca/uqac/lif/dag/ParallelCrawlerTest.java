@@ -0,0 +1,165 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.dag;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import ca.uqac.lif.dag.ParallelCrawler.LeafCollector;
+import ca.uqac.lif.dag.ParallelCrawler.NodeCounter;
+import ca.uqac.lif.dag.ParallelCrawler.NodeSearch;
+
+/**
+ * Unit tests for {@link ParallelCrawler}.
+ */
+public class ParallelCrawlerTest
+{
+	@Test
+	public void testCount1()
+	{
+		ForkJoinPool pool = new ForkJoinPool(4);
+		// A root with 10000 children, each pair of which shares a child
+		Node root = new Node(1, 1);
+		Node shared = null;
+		for (int i = 0; i < 10000; i++)
+		{
+			Node child = new Node(1, 1);
+			NodeConnector.connect(root, 0, child, 0);
+			if (i % 2 == 0)
+			{
+				shared = new Node(1, 1);
+			}
+			NodeConnector.connect(child, 0, shared, 0);
+		}
+		NodeCounter counter = new NodeCounter();
+		assertTrue(new ParallelCrawler(pool).crawl(root, counter));
+		assertEquals(15001, counter.getCount());
+		LeafCollector collector = new LeafCollector();
+		new ParallelCrawler(pool).crawl(root, collector);
+		assertEquals(5000, collector.getLeaves().size());
+		pool.shutdown();
+	}
+
+	@Test
+	public void testCount2()
+	{
+		ForkJoinPool pool = new ForkJoinPool(4);
+		// A long chain does not overflow the stack
+		Node first = new Node(1, 1);
+		Node last = first;
+		for (int i = 0; i < 100000; i++)
+		{
+			Node n = new Node(1, 1);
+			NodeConnector.connect(last, 0, n, 0);
+			last = n;
+		}
+		NodeCounter counter = new NodeCounter();
+		new ParallelCrawler(pool).crawl(first, counter);
+		assertEquals(100001, counter.getCount());
+		counter = new NodeCounter();
+		new ParallelCrawler(pool).forward(false).backward(true).crawl(last, counter);
+		assertEquals(100001, counter.getCount());
+		pool.shutdown();
+	}
+
+	@Test
+	public void testRandom1()
+	{
+		ForkJoinPool pool = new ForkJoinPool(4);
+		// Each node is visited exactly once, as in a sequential traversal
+		Random r = new Random(0);
+		List<Node> nodes = new ArrayList<Node>();
+		for (int i = 0; i < 5000; i++)
+		{
+			Node n = new Node(1, 1);
+			if (!nodes.isEmpty())
+			{
+				for (int j = 0; j < 3; j++)
+				{
+					NodeConnector.connect(nodes.get(r.nextInt(nodes.size())), 0, n, 0);
+				}
+			}
+			nodes.add(n);
+		}
+		Set<Node> visited = ConcurrentHashMap.newKeySet();
+		AtomicBoolean duplicate = new AtomicBoolean(false);
+		NodeVisitor v = new NodeVisitor()
+		{
+			@Override
+			public boolean previsit(Node n)
+			{
+				if (!visited.add(n))
+				{
+					duplicate.set(true);
+				}
+				return true;
+			}
+
+			@Override
+			public void postvisit(Node n)
+			{
+				// Nothing to do
+			}
+		};
+		new ParallelCrawler(pool).crawl(nodes.get(0), v);
+		assertFalse(duplicate.get());
+		NodeCounter counter = new NodeCounter();
+		Crawler c = new Crawler(nodes.get(0))
+		{
+			@Override
+			public void visit(Node n)
+			{
+				counter.previsit(n);
+				assertTrue(visited.contains(n));
+			}
+		};
+		c.allowBackward(false).crawl();
+		assertEquals(visited.size(), counter.getCount());
+		pool.shutdown();
+	}
+
+	@Test
+	public void testSearch1()
+	{
+		ForkJoinPool pool = new ForkJoinPool(4);
+		Node root = new Node(1, 1);
+		List<Node> children = new ArrayList<Node>();
+		for (int i = 0; i < 1000; i++)
+		{
+			Node child = new LabelledNode(i);
+			NodeConnector.connect(root, 0, child, 0);
+			children.add(child);
+		}
+		NodeSearch search = new NodeSearch(n -> n instanceof LabelledNode && ((Integer) ((LabelledNode) n).getLabel()) == 567);
+		assertFalse(new ParallelCrawler(pool).crawl(root, search));
+		assertSame(children.get(567), search.getFound());
+		search = new NodeSearch(n -> n instanceof LabelledNode && ((Integer) ((LabelledNode) n).getLabel()) < 0);
+		assertTrue(new ParallelCrawler(pool).crawl(root, search));
+		assertNull(search.getFound());
+		pool.shutdown();
+	}
+}
@@ -0,0 +1,230 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.dag;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link Traversal} and {@link Crawler}.
+ */
+public class TraversalTest
+{
+	@Test
+	public void testBreadthFirst1()
+	{
+		Node[] g = getDiamond();
+		RecordingVisitor v = new RecordingVisitor(-1);
+		assertTrue(new Traversal(Traversal.BREADTH_FIRST).traverse(g[0], v));
+		assertEquals(Arrays.asList(g[0], g[1], g[2], g[3]), v.m_pre);
+		assertEquals(v.m_pre, v.m_post);
+	}
+
+	@Test
+	public void testDepthFirst1()
+	{
+		Node[] g = getDiamond();
+		RecordingVisitor v = new RecordingVisitor(-1);
+		assertTrue(new Traversal(Traversal.DEPTH_FIRST).traverse(g[0], v));
+		assertEquals(Arrays.asList(g[0], g[1], g[3], g[2]), v.m_pre);
+		assertEquals(Arrays.asList(g[3], g[1], g[2], g[0]), v.m_post);
+	}
+
+	@Test
+	public void testDepthFirst2()
+	{
+		// A long chain does not overflow the stack
+		Node first = new Node(1, 1);
+		Node last = first;
+		for (int i = 0; i < 100000; i++)
+		{
+			Node n = new Node(1, 1);
+			NodeConnector.connect(last, 0, n, 0);
+			last = n;
+		}
+		RecordingVisitor v = new RecordingVisitor(-1);
+		assertTrue(new Traversal(Traversal.DEPTH_FIRST).traverse(first, v));
+		assertEquals(100001, v.m_pre.size());
+		assertSame(last, v.m_post.get(0));
+	}
+
+	@Test
+	public void testBackward1()
+	{
+		Node[] g = getDiamond();
+		RecordingVisitor v = new RecordingVisitor(-1);
+		new Traversal().forward(false).backward(true).traverse(g[3], v);
+		assertEquals(Arrays.asList(g[3], g[1], g[2], g[0]), v.m_pre);
+	}
+
+	@Test
+	public void testTopological1()
+	{
+		// a -> b, a -> c, c -> b: b must come after c
+		Node a = new Node(1, 1), b = new Node(1, 1), c = new Node(1, 1);
+		NodeConnector.connect(a, 0, b, 0);
+		NodeConnector.connect(a, 0, c, 0);
+		NodeConnector.connect(c, 0, b, 0);
+		RecordingVisitor v = new RecordingVisitor(-1);
+		assertTrue(new Traversal(Traversal.TOPOLOGICAL).traverse(a, v));
+		assertEquals(Arrays.asList(a, c, b), v.m_pre);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTopologicalCycle()
+	{
+		Node a = new Node(1, 1), b = new Node(1, 1);
+		NodeConnector.connect(a, 0, b, 0);
+		NodeConnector.connect(b, 0, a, 0);
+		new Traversal(Traversal.TOPOLOGICAL).traverse(a, new RecordingVisitor(-1));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testTopologicalBothWays()
+	{
+		Node[] g = getDiamond();
+		new Traversal(Traversal.TOPOLOGICAL).backward(true).traverse(g[0], new RecordingVisitor(-1));
+	}
+
+	@Test
+	public void testStop1()
+	{
+		Node[] g = getDiamond();
+		for (int order = Traversal.BREADTH_FIRST; order <= Traversal.TOPOLOGICAL; order++)
+		{
+			RecordingVisitor v = new RecordingVisitor(2);
+			assertFalse(new Traversal(order).traverse(g[0], v));
+			assertEquals(2, v.m_pre.size());
+		}
+	}
+
+	@Test
+	public void testIdentity1()
+	{
+		// Nodes that are equal but distinct are visited separately
+		Node a = new Node(1, 1);
+		Node b = new EqualNode(), c = new EqualNode();
+		NodeConnector.connect(a, 0, b, 0);
+		NodeConnector.connect(b, 0, c, 0);
+		RecordingVisitor v = new RecordingVisitor(-1);
+		new Traversal().traverse(a, v);
+		assertEquals(3, v.m_pre.size());
+	}
+
+	@Test
+	public void testCrawlerStop1()
+	{
+		Node[] g = getDiamond();
+		List<Node> visited = new ArrayList<Node>();
+		Crawler c = new Crawler(g[0])
+		{
+			@Override
+			public void visit(Node n)
+			{
+				visited.add(n);
+				if (n == g[1])
+				{
+					stop();
+				}
+			}
+		};
+		assertFalse(c.order(Traversal.DEPTH_FIRST).crawl());
+		assertEquals(Arrays.asList(g[0], g[1]), visited);
+		visited.clear();
+		assertFalse(c.order(Traversal.BREADTH_FIRST).crawl());
+		assertEquals(Arrays.asList(g[0], g[1]), visited);
+	}
+
+	/**
+	 * Creates a diamond-shaped graph: a -> b, a -> c, b -> d, c -> d.
+	 * @return The nodes a, b, c and d
+	 */
+	protected static Node[] getDiamond()
+	{
+		Node[] g = new Node[4];
+		for (int i = 0; i < g.length; i++)
+		{
+			g[i] = new Node(1, 1);
+		}
+		NodeConnector.connect(g[0], 0, g[1], 0);
+		NodeConnector.connect(g[0], 0, g[2], 0);
+		NodeConnector.connect(g[1], 0, g[3], 0);
+		NodeConnector.connect(g[2], 0, g[3], 0);
+		return g;
+	}
+
+	/**
+	 * A visitor recording the nodes it visits, and optionally stopping after
+	 * a given number of them.
+	 */
+	protected static class RecordingVisitor implements NodeVisitor
+	{
+		protected final List<Node> m_pre = new ArrayList<Node>();
+
+		protected final List<Node> m_post = new ArrayList<Node>();
+
+		protected final int m_limit;
+
+		public RecordingVisitor(int limit)
+		{
+			super();
+			m_limit = limit;
+		}
+
+		@Override
+		public boolean previsit(Node n)
+		{
+			m_pre.add(n);
+			return m_pre.size() != m_limit;
+		}
+
+		@Override
+		public void postvisit(Node n)
+		{
+			m_post.add(n);
+		}
+	}
+
+	/**
+	 * A node equal to every other node of the same class.
+	 */
+	protected static class EqualNode extends Node
+	{
+		public EqualNode()
+		{
+			super(1, 1);
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			return o instanceof EqualNode;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return 0;
+		}
+	}
+}
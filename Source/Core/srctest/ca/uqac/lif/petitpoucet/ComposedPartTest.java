@@ -48,6 +48,74 @@ public class ComposedPartTest
 		assertEquals(new DummyPart(0), p.tail());
 	}
 	
+	@Test
+	public void test4()
+	{
+		// Parts are reused, as dummy parts are not hashed by their content
+		Part p0 = new DummyPart(0), p1 = new DummyPart(1), p2 = new DummyPart(2);
+		Part p = ComposedPart.compose(p0, p1, p2);
+		assertSame(p, ComposedPart.compose(p0, ComposedPart.compose(p1, p2)));
+		assertSame(ComposedPart.compose(p0, p1), p.tail());
+		assertSame(ComposedPart.compose(p1, p2), ((ComposedPart) p).subPart(1, 3));
+	}
+	
+	@Test
+	public void test5()
+	{
+		Part p0 = new DummyPart(0), p1 = new DummyPart(1), p2 = new DummyPart(2), p3 = new DummyPart(3);
+		ComposedPart cp = (ComposedPart) ComposedPart.compose(p0, p1, p2);
+		ComposedPart r = cp.replace(1, p3);
+		assertSame(ComposedPart.compose(p0, p3, p2), r);
+		assertEquals(ComposedPart.compose(p0, p3, p2).hashCode(), r.hashCode());
+		assertEquals(p1, cp.get(1));
+		r = cp.replace(1, ComposedPart.compose(p3, p3));
+		assertEquals(4, r.size());
+		assertSame(ComposedPart.compose(p0, p3, p3, p2), r);
+		r = cp.replace(1, null);
+		assertEquals(2, r.size());
+		assertEquals(ComposedPart.compose(p0, p2), r);
+	}
+	
+	@Test
+	public void test6()
+	{
+		Part p0 = new DummyPart(0), p1 = new DummyPart(1);
+		Part[] parts = new Part[] {p0, p1};
+		ComposedPart cp = new ComposedPart(parts);
+		parts[1] = p0;
+		assertEquals(p1, cp.get(1));
+		cp.toArray()[1] = p0;
+		assertEquals(p1, cp.get(1));
+		assertEquals(1, cp.indexOf(DummyPart.class) + cp.lastIndexOf(DummyPart.class));
+		assertEquals(-1, cp.indexOf(Part.All.class));
+		// The constructor does not intern, but equality is preserved
+		assertNotSame(ComposedPart.compose(p0, p1), cp);
+		assertEquals(ComposedPart.compose(p0, p1), cp);
+	}
+	
+	@Test
+	public void test7()
+	{
+		assertNotEquals(Part.all.hashCode(), Part.self.hashCode());
+		assertNotEquals(Part.all.hashCode(), Part.unknown.hashCode());
+		assertNotEquals(Part.self.hashCode(), Part.unknown.hashCode());
+		assertNotEquals(Part.nothing.hashCode(), Part.unknown.hashCode());
+		assertNotEquals(ComposedPart.compose(Part.self, Part.all).hashCode(), ComposedPart.compose(Part.all, Part.self).hashCode());
+		assertEquals(PartHash.combine(PartHash.combine(0, 1), 2), PartHash.combine(PartHash.combine(0, 1), 2));
+		assertNotEquals(PartHash.combine(PartHash.combine(0, 1), 2), PartHash.combine(PartHash.combine(0, 2), 1));
+	}
+	
+	@Test
+	public void test8()
+	{
+		// Appending to a part returns a new part and leaves the original unchanged
+		Part p0 = new DummyPart(0), p1 = new DummyPart(1), p2 = new DummyPart(2);
+		ComposedPart cp = (ComposedPart) ComposedPart.compose(p0, p1);
+		assertSame(ComposedPart.compose(p0, p1, p2), ComposedPart.compose(cp, p2));
+		assertSame(ComposedPart.compose(p0, p1, p2, p0), ComposedPart.compose(cp, ComposedPart.compose(p2, p0)));
+		assertEquals(2, cp.size());
+	}
+	
 	protected static class DummyPart implements Part
 	{
 		protected int m_x;
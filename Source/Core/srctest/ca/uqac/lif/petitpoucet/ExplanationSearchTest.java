@@ -0,0 +1,176 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet;
+
+import static ca.uqac.lif.petitpoucet.LineageTestUtilities.getAnd;
+import static ca.uqac.lif.petitpoucet.LineageTestUtilities.getClause;
+import static ca.uqac.lif.petitpoucet.LineageTestUtilities.getNode;
+import static ca.uqac.lif.petitpoucet.LineageTestUtilities.getRandomGraph;
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import ca.uqac.lif.dag.Node;
+
+/**
+ * Unit tests for {@link ExplanationSearch}.
+ */
+public class ExplanationSearchTest
+{
+	@Test
+	public void testLeaf1()
+	{
+		NodeFactory factory = NodeFactory.getFactory();
+		Iterator<Clause> it = GraphUtilities.minimalExplanations(getNode(factory, "A"));
+		assertTrue(it.hasNext());
+		assertEquals(getClause("A"), it.next());
+		assertFalse(it.hasNext());
+	}
+
+	@Test
+	public void testEmpty1()
+	{
+		NodeFactory factory = NodeFactory.getFactory();
+		OrNode or = factory.getOrNode();
+		or.addChild(factory.getAndNode());
+		assertFalse(GraphUtilities.minimalExplanations(or).hasNext());
+	}
+
+	@Test
+	public void testOrder1()
+	{
+		// (A & B & C) | D | (A & B) | (A & E & B)
+		NodeFactory factory = NodeFactory.getFactory();
+		OrNode or = factory.getOrNode();
+		or.addChild(getAnd(factory, "A", "B", "C"));
+		or.addChild(getNode(factory, "D"));
+		or.addChild(getAnd(factory, "A", "B"));
+		or.addChild(getAnd(factory, "A", "E", "B"));
+		Iterator<Clause> it = GraphUtilities.minimalExplanations(or);
+		assertEquals(getClause("D"), it.next());
+		assertEquals(getClause("A", "B"), it.next());
+		assertFalse(it.hasNext());
+	}
+
+	@Test
+	public void testDiamonds1()
+	{
+		// 2^60 paths, but a single clause and a small frontier
+		NodeFactory factory = NodeFactory.getFactory();
+		Node top = getNode(factory, "bottom");
+		for (int i = 0; i < 60; i++)
+		{
+			PartNode left = getNode(factory, "l" + i);
+			PartNode right = getNode(factory, "r" + i);
+			left.addChild(top);
+			right.addChild(top);
+			OrNode or = factory.getOrNode();
+			or.addChild(left);
+			or.addChild(right);
+			top = or;
+		}
+		ExplanationSearch search = new ExplanationSearch(top);
+		assertEquals(getClause("bottom"), search.next());
+		assertFalse(search.hasNext());
+		assertEquals(0, search.getFrontierSize());
+	}
+
+	@Test
+	public void testFirst1()
+	{
+		// A product of 30 disjunctions has 2^30 clauses; only get the first ones
+		NodeFactory factory = NodeFactory.getFactory();
+		AndNode and = factory.getAndNode();
+		for (int i = 0; i < 30; i++)
+		{
+			OrNode or = factory.getOrNode();
+			or.addChild(getNode(factory, "x" + i));
+			or.addChild(getAnd(factory, "y" + i, "z" + i));
+			and.addChild(or);
+		}
+		ExplanationSearch search = new ExplanationSearch(and);
+		Clause first = search.next();
+		assertEquals(30, first.size());
+		for (int i = 0; i < 10; i++)
+		{
+			assertEquals(31, search.next().size());
+		}
+		assertTrue(search.getFrontierSize() < 1000);
+	}
+
+	@Test
+	public void testManyLeaves1()
+	{
+		// More distinct leaves than bits in a machine word or two: unrelated
+		// disjunctions must still be recognized as disjoint
+		int n = 400;
+		NodeFactory factory = NodeFactory.getFactory();
+		AndNode and = factory.getAndNode();
+		for (int i = 0; i < n; i++)
+		{
+			OrNode or = factory.getOrNode();
+			or.addChild(getNode(factory, "x" + i));
+			or.addChild(getNode(factory, "y" + i));
+			and.addChild(or);
+		}
+		ExplanationSearch search = new ExplanationSearch(and);
+		assertEquals(n, search.next().size());
+		assertEquals(n, search.next().size());
+		// The frontier stays linear in the number of disjunctions
+		assertTrue(search.getFrontierSize() <= 2 * n);
+	}
+
+	@Test
+	public void testRandom1()
+	{
+		// Same clauses as the minimal DNF, in increasing size
+		Random r = new Random(0);
+		for (int round = 0; round < 50; round++)
+		{
+			NodeFactory factory = NodeFactory.getFactory();
+			Node root = getRandomGraph(factory, r, 4);
+			Set<Clause> found = new HashSet<Clause>();
+			int last_size = 0;
+			Iterator<Clause> it = GraphUtilities.minimalExplanations(root);
+			while (it.hasNext())
+			{
+				Clause c = it.next();
+				assertTrue(c.size() >= last_size);
+				last_size = c.size();
+				assertTrue(found.add(c));
+			}
+			assertEquals(new HashSet<Clause>(GraphUtilities.asMinimalDnf(root)), found);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCycle1()
+	{
+		NodeFactory factory = NodeFactory.getFactory();
+		OrNode or1 = factory.getOrNode();
+		OrNode or2 = factory.getOrNode();
+		or1.addChild(or2);
+		or2.addChild(or1);
+		new ExplanationSearch(or1);
+	}
+}
@@ -0,0 +1,183 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet;
+
+import static ca.uqac.lif.petitpoucet.LineageTestUtilities.getAnd;
+import static ca.uqac.lif.petitpoucet.LineageTestUtilities.getClause;
+import static ca.uqac.lif.petitpoucet.LineageTestUtilities.getNode;
+import static ca.uqac.lif.petitpoucet.LineageTestUtilities.getRandomGraph;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import ca.uqac.lif.dag.LeafCrawler.LeafFetcher;
+import ca.uqac.lif.dag.Node;
+
+/**
+ * Unit tests for {@link FrozenGraph}.
+ */
+public class FrozenGraphTest
+{
+	@Test
+	public void testLeaf1()
+	{
+		NodeFactory factory = NodeFactory.getFactory();
+		FrozenGraph g = GraphUtilities.freeze(getNode(factory, "A"));
+		assertEquals(1, g.size());
+		assertEquals(0, g.getEdgeCount());
+		assertEquals(FrozenGraph.LEAF, g.getKind(0));
+		assertEquals(Part.all, g.getPart(0));
+		assertEquals("A", g.getSubject(0));
+		assertArrayEquals(new int[] {0}, g.getLeaves());
+		assertEquals(0, g.getDescendants(0).length);
+		assertEquals(0, g.getAncestors(0).length);
+		assertEquals(getClause("A"), g.asDnf().iterator().next());
+	}
+
+	@Test
+	public void testStructure1()
+	{
+		// A diamond: or -> (and, B) -> C, with and -> A
+		NodeFactory factory = NodeFactory.getFactory();
+		OrNode or = factory.getOrNode();
+		AndNode and = getAnd(factory, "A");
+		PartNode b = getNode(factory, "B");
+		PartNode c = getNode(factory, "C");
+		or.addChild(and);
+		or.addChild(b);
+		and.addChild(c);
+		b.addChild(c);
+		FrozenGraph g = GraphUtilities.freeze(or);
+		assertEquals(5, g.size());
+		assertEquals(5, g.getEdgeCount());
+		assertEquals(FrozenGraph.OR, g.getKind(0));
+		assertNull(g.getPart(0));
+		int[] children = g.getChildren(0);
+		assertEquals(2, children.length);
+		int id_and = children[0], id_b = children[1];
+		assertEquals(FrozenGraph.AND, g.getKind(id_and));
+		assertEquals(FrozenGraph.PART, g.getKind(id_b));
+		assertEquals("B", g.getSubject(id_b));
+		// Children have greater ids than their parents
+		for (int n = 0; n < g.size(); n++)
+		{
+			assertEquals(g.getChildCount(n), g.getChildren(n).length);
+			for (int child : g.getChildren(n))
+			{
+				assertTrue(child > n);
+				assertTrue(contains(g.getParents(child), n));
+			}
+		}
+		int[] leaves = g.getLeaves();
+		assertEquals(2, leaves.length);
+		int id_c = g.getChildren(id_b)[0];
+		assertArrayEquals(new int[] {id_and, id_b}, g.getParents(id_c));
+		assertArrayEquals(new int[] {0, id_and, id_b}, sorted(g.getAncestors(id_c)));
+		assertEquals(4, g.getDescendants(0).length);
+		assertArrayEquals(new int[] {id_c}, g.getDescendants(id_b));
+		assertEquals(3, g.getDescendantSet(id_and).cardinality() + 1);
+	}
+
+	@Test
+	public void testDnf1()
+	{
+		// (A & B) | (C & (D | E))
+		NodeFactory factory = NodeFactory.getFactory();
+		OrNode or = factory.getOrNode();
+		or.addChild(getAnd(factory, "A", "B"));
+		AndNode and = getAnd(factory, "C");
+		OrNode or2 = factory.getOrNode();
+		or2.addChild(getNode(factory, "D"));
+		or2.addChild(getNode(factory, "E"));
+		and.addChild(or2);
+		or.addChild(and);
+		Set<Clause> expected = new HashSet<Clause>();
+		expected.add(getClause("A", "B"));
+		expected.add(getClause("C", "D"));
+		expected.add(getClause("C", "E"));
+		FrozenGraph g = GraphUtilities.freeze(or);
+		assertEquals(expected, new HashSet<Clause>(g.asDnf()));
+		Set<Clause> sub = new DnfConverter().convert(g, g.getChildren(0)[1]);
+		assertEquals(2, sub.size());
+	}
+
+	@Test
+	public void testRandom1()
+	{
+		// Same clauses, leaves and reachable nodes as the object graph
+		Random r = new Random(0);
+		for (int round = 0; round < 50; round++)
+		{
+			NodeFactory factory = NodeFactory.getFactory();
+			Node root = getRandomGraph(factory, r, 5);
+			FrozenGraph g = GraphUtilities.freeze(root);
+			assertEquals(new HashSet<Clause>(GraphUtilities.asDnf(root)), new HashSet<Clause>(g.asDnf()));
+			assertEquals(new HashSet<Clause>(GraphUtilities.asMinimalDnf(root)), new HashSet<Clause>(g.asMinimalDnf()));
+			LeafFetcher fetcher = new LeafFetcher(root);
+			fetcher.crawl();
+			assertEquals(fetcher.getLeaves().size(), g.getLeaves().length);
+			assertEquals(g.size() - 1, g.getDescendants(0).length);
+			for (int leaf : g.getLeaves())
+			{
+				assertTrue(leaf == 0 || contains(g.getAncestors(leaf), 0));
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCycle1()
+	{
+		NodeFactory factory = NodeFactory.getFactory();
+		OrNode or1 = factory.getOrNode();
+		OrNode or2 = factory.getOrNode();
+		or1.addChild(or2);
+		or2.addChild(or1);
+		GraphUtilities.freeze(or1);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testInvalidId1()
+	{
+		NodeFactory factory = NodeFactory.getFactory();
+		GraphUtilities.freeze(getNode(factory, "A")).getDescendants(1);
+	}
+
+	protected static boolean contains(int[] ids, int id)
+	{
+		for (int x : ids)
+		{
+			if (x == id)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	protected static int[] sorted(int[] ids)
+	{
+		int[] out = ids.clone();
+		Arrays.sort(out);
+		return out;
+	}
+}
@@ -521,6 +521,90 @@ public class GraphUtilitiesTest
 		assertTrue(clauses.contains(getClause(PART_C, PART_D, PART_G)));
 	}
 
+	@Test
+	public void testDnf3()
+	{
+		NodeFactory factory = NodeFactory.getFactory();
+		OrNode or = factory.getOrNode();
+		or.addChild(getNode(factory, PART_A));
+		{
+			AndNode and = factory.getAndNode();
+			and.addChild(getNode(factory, PART_A));
+			and.addChild(getNode(factory, PART_B));
+			or.addChild(and);
+		}
+		{
+			AndNode and = factory.getAndNode();
+			and.addChild(getNode(factory, PART_C));
+			and.addChild(getNode(factory, PART_D));
+			or.addChild(and);
+		}
+		assertEquals(3, GraphUtilities.asDnf(or).size());
+		Set<Clause> clauses = GraphUtilities.asMinimalDnf(or);
+		assertEquals(2, clauses.size());
+		assertTrue(clauses.contains(getClause(PART_A)));
+		assertTrue(clauses.contains(getClause(PART_C, PART_D)));
+	}
+
+	@Test
+	public void testDnf4()
+	{
+		// A chain of "diamonds" has 2^n paths, but its DNF has a single clause
+		NodeFactory factory = NodeFactory.getFactory();
+		PartNode bottom = getNode(factory, PART_A);
+		Node top = bottom;
+		for (int i = 0; i < 40; i++)
+		{
+			PartNode left = getNode(factory, new TestPart("l" + i));
+			PartNode right = getNode(factory, new TestPart("r" + i));
+			left.addChild(top);
+			right.addChild(top);
+			OrNode or = factory.getOrNode();
+			or.addChild(left);
+			or.addChild(right);
+			top = or;
+		}
+		Set<Clause> clauses = GraphUtilities.asDnf(top);
+		assertEquals(1, clauses.size());
+		assertTrue(clauses.contains(getClause(PART_A)));
+		assertEquals(clauses, GraphUtilities.asMinimalDnf(top));
+	}
+
+	@Test
+	public void testDnf5()
+	{
+		NodeFactory factory = NodeFactory.getFactory();
+		AndNode and = factory.getAndNode();
+		for (int i = 0; i < 3; i++)
+		{
+			OrNode or = factory.getOrNode();
+			or.addChild(getNode(factory, new TestPart("x" + i)));
+			or.addChild(getNode(factory, new TestPart("y" + i)));
+			and.addChild(or);
+		}
+		DnfConverter converter = new DnfConverter(true, 5);
+		Set<Clause> clauses = converter.convert(and);
+		assertEquals(5, clauses.size());
+		assertTrue(converter.isTruncated());
+		Set<Clause> all = GraphUtilities.asDnf(and);
+		assertEquals(8, all.size());
+		assertTrue(all.containsAll(clauses));
+		converter = new DnfConverter(true, 8);
+		assertEquals(all, converter.convert(and));
+		assertFalse(converter.isTruncated());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDnfCycle()
+	{
+		NodeFactory factory = NodeFactory.getFactory();
+		OrNode or1 = factory.getOrNode();
+		OrNode or2 = factory.getOrNode();
+		or1.addChild(or2);
+		or2.addChild(or1);
+		GraphUtilities.asDnf(or1);
+	}
+
 	/**
 	 * Asserts that two nodes are <em>distinct</em> labelled nodes with the
 	 * same label.
@@ -0,0 +1,114 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ca.uqac.lif.dag.LabelledNode;
+import ca.uqac.lif.dag.Node;
+import ca.uqac.lif.petitpoucet.NodeFactory.ObjectPart;
+
+/**
+ * Builds small lineage graphs whose leaves are the parts {@link Part#all}
+ * of objects designated by their name.
+ */
+public class LineageTestUtilities
+{
+	@Test
+	public void dummyTest()
+	{
+		// Do nothing
+	}
+
+	/**
+	 * Creates a conjunction of leaves.
+	 * @param factory The factory used to create the nodes
+	 * @param names The names of the objects of the leaves
+	 * @return The conjunction
+	 */
+	public static AndNode getAnd(NodeFactory factory, String ... names)
+	{
+		AndNode and = factory.getAndNode();
+		for (String name : names)
+		{
+			and.addChild(getNode(factory, name));
+		}
+		return and;
+	}
+
+	/**
+	 * Creates a leaf.
+	 * @param factory The factory used to create the node
+	 * @param name The name of the object of the leaf
+	 * @return The leaf
+	 */
+	public static PartNode getNode(NodeFactory factory, String name)
+	{
+		return factory.getPartNode(Part.all, name);
+	}
+
+	/**
+	 * Gets the object part designated by a leaf.
+	 * @param name The name of the object of the leaf
+	 * @return The object part
+	 */
+	public static ObjectPart getPart(String name)
+	{
+		return new ObjectPart(Part.all, name);
+	}
+
+	/**
+	 * Creates a clause out of the object parts designated by leaves.
+	 * @param names The names of the objects of the leaves
+	 * @return The clause
+	 */
+	public static Clause getClause(String ... names)
+	{
+		Clause c = new Clause();
+		for (String name : names)
+		{
+			c.add(getPart(name));
+		}
+		return c;
+	}
+
+	/**
+	 * Creates a random tree of conjunctions and disjunctions, whose leaves
+	 * designate six distinct objects.
+	 * @param factory The factory used to create the nodes
+	 * @param r The source of randomness
+	 * @param depth The maximum depth of the tree
+	 * @return The root of the tree
+	 */
+	public static Node getRandomGraph(NodeFactory factory, Random r, int depth)
+	{
+		if (depth == 0 || r.nextInt(4) == 0)
+		{
+			return getNode(factory, "" + (char) ('A' + r.nextInt(6)));
+		}
+		LabelledNode n = r.nextBoolean() ? factory.getAndNode() : factory.getOrNode();
+		int arity = 1 + r.nextInt(3);
+		for (int i = 0; i < arity; i++)
+		{
+			n.addChild(getRandomGraph(factory, r, depth - 1));
+		}
+		return n;
+	}
+}
@@ -0,0 +1,113 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import ca.uqac.lif.petitpoucet.ComposedPartTest.DummyPart;
+
+/**
+ * Unit tests for {@link NodeStore} and its use by {@link NodeFactory}.
+ */
+public class NodeStoreTest
+{
+	// Parts are reused, as dummy parts are not hashed by their content
+	protected static final Part P0 = new DummyPart(0);
+
+	protected static final Part P1 = new DummyPart(1);
+
+	protected static final Part P2 = new DummyPart(2);
+
+	@Test
+	public void testUnbounded1()
+	{
+		NodeFactory f = NodeFactory.getFactory();
+		PartNode pn1 = f.getPartNode(P0, "foo");
+		PartNode pn2 = f.getPartNode(P0, "foo");
+		PartNode pn3 = f.getPartNode(P1, "foo");
+		assertSame(pn1, pn2);
+		assertNotSame(pn1, pn3);
+		NodeStore<PartNode> store = f.getNodeStore();
+		assertEquals(2, store.size());
+		assertEquals(1, store.getHits());
+		assertEquals(2, store.getMisses());
+		assertFalse(f.isThreadSafe());
+	}
+
+	@Test
+	public void testBounded1()
+	{
+		NodeFactory f = new NodeFactory(NodeStore.<PartNode>bounded(2));
+		assertTrue(f.isThreadSafe());
+		PartNode pn0 = f.getPartNode(P0, "foo");
+		f.getPartNode(P1, "foo");
+		// Using node 0 makes node 1 the least recently used
+		assertSame(pn0, f.getPartNode(P0, "foo"));
+		f.getPartNode(P2, "foo");
+		NodeStore<PartNode> store = f.getNodeStore();
+		assertEquals(2, store.size());
+		assertEquals(1, store.getEvictions());
+		assertTrue(f.hasNodeFor(P0, "foo"));
+		assertFalse(f.hasNodeFor(P1, "foo"));
+		assertTrue(f.hasNodeFor(P2, "foo"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBounded2()
+	{
+		NodeStore.bounded(0);
+	}
+
+	@Test
+	public void testWeak1() throws InterruptedException
+	{
+		NodeFactory f = new NodeFactory(NodeStore.<PartNode>weak());
+		PartNode kept = f.getPartNode(P0, "foo");
+		f.getPartNode(P1, "foo");
+		NodeStore<PartNode> store = f.getNodeStore();
+		for (int i = 0; i < 50 && store.size() > 1; i++)
+		{
+			System.gc();
+			Thread.sleep(10);
+		}
+		// Only the node still referenced is kept
+		assertEquals(1, store.size());
+		assertEquals(1, store.getEvictions());
+		assertSame(kept, f.getPartNode(P0, "foo"));
+		assertFalse(f.hasNodeFor(P1, "foo"));
+	}
+
+	@Test
+	public void testClose1()
+	{
+		NodeFactory f;
+		try (NodeFactory g = NodeFactory.getFactory())
+		{
+			f = g;
+			g.getPartNode(P0, "foo");
+			NodeFactory child = g.getFactory(P0, "foo");
+			assertSame(child, g.getFactory(P0, "foo"));
+			child.getPartNode(P1, "bar");
+			assertEquals(1, child.getNodeStore().size());
+		}
+		assertEquals(0, f.getNodeStore().size());
+		assertFalse(f.hasNodeFor(P0, "foo"));
+	}
+}
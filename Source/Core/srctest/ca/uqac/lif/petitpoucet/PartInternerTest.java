@@ -0,0 +1,134 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import ca.uqac.lif.petitpoucet.ComposedPartTest.DummyPart;
+
+/**
+ * Unit tests for {@link PartInterner}.
+ */
+public class PartInternerTest
+{
+	@Test
+	public void testIntern1()
+	{
+		PartInterner in = new PartInterner();
+		Part p0 = new DummyPart(0), p1 = new DummyPart(1);
+		ComposedPart cp1 = new ComposedPart(p0, p1);
+		ComposedPart cp2 = new ComposedPart(p0, p1);
+		assertNotSame(cp1, cp2);
+		assertSame(cp1, in.intern(cp1));
+		assertSame(cp1, in.intern(cp2));
+		assertEquals(1, in.size());
+		assertEquals(1, in.getHits());
+		assertEquals(1, in.getMisses());
+		in.clear();
+		assertEquals(0, in.size());
+		assertSame(cp2, in.intern(cp2));
+	}
+
+	@Test
+	public void testWeak1() throws InterruptedException
+	{
+		PartInterner in = new PartInterner();
+		Part p0 = new DummyPart(0), p1 = new DummyPart(1);
+		ComposedPart kept = in.intern(new ComposedPart(p0, p1));
+		in.intern(new ComposedPart(p1, p0));
+		for (int i = 0; i < 50 && in.size() > 1; i++)
+		{
+			System.gc();
+			Thread.sleep(10);
+		}
+		// Only the part still referenced is kept
+		assertEquals(1, in.size());
+		assertSame(kept, in.intern(new ComposedPart(p0, p1)));
+	}
+
+	@Test
+	public void testStripes1()
+	{
+		PartInterner in = new PartInterner(3);
+		assertEquals(4, in.m_stripes.length);
+		// The parts are kept reachable, so that none of them is collected
+		Part[] atoms = new Part[21];
+		for (int i = 0; i <= 20; i++)
+		{
+			atoms[i] = new DummyPart(i);
+		}
+		List<Part> parts = new ArrayList<Part>();
+		for (int i = 0; i < 20; i++)
+		{
+			parts.add(in.intern(new ComposedPart(atoms[i], atoms[i + 1])));
+		}
+		assertEquals(20, in.size());
+		assertEquals(20, in.getMisses());
+		for (int i = 0; i < 20; i++)
+		{
+			assertSame(parts.get(i), in.intern(new ComposedPart(atoms[i], atoms[i + 1])));
+		}
+		in.clear();
+		assertEquals(0, in.size());
+	}
+
+	@Test
+	public void testConcurrent1() throws InterruptedException
+	{
+		PartInterner in = new PartInterner();
+		int num_threads = 4, num_parts = 200;
+		// DummyPart does not override hashCode, so all threads share its instances
+		Part[] atoms = new Part[num_parts + 1];
+		for (int i = 0; i <= num_parts; i++)
+		{
+			atoms[i] = new DummyPart(i);
+		}
+		Part[][] results = new Part[num_threads][num_parts];
+		Thread[] threads = new Thread[num_threads];
+		for (int t = 0; t < num_threads; t++)
+		{
+			Part[] res = results[t];
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < num_parts; i++)
+				{
+					res[i] = in.intern(new ComposedPart(atoms[i], atoms[i + 1]));
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread t : threads)
+		{
+			t.join();
+		}
+		// All the threads get the same canonical instance of each part
+		for (int t = 1; t < num_threads; t++)
+		{
+			for (int i = 0; i < num_parts; i++)
+			{
+				assertSame(results[0][i], results[t][i]);
+			}
+		}
+		assertEquals(num_parts, in.getMisses());
+		assertEquals((num_threads - 1) * num_parts, in.getHits());
+	}
+}
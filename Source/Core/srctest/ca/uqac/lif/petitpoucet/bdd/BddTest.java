@@ -0,0 +1,230 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.bdd;
+
+import static ca.uqac.lif.petitpoucet.LineageTestUtilities.getAnd;
+import static ca.uqac.lif.petitpoucet.LineageTestUtilities.getClause;
+import static ca.uqac.lif.petitpoucet.LineageTestUtilities.getNode;
+import static ca.uqac.lif.petitpoucet.LineageTestUtilities.getPart;
+import static org.junit.Assert.*;
+
+import java.math.BigInteger;
+import java.util.Set;
+
+import org.junit.Test;
+
+import ca.uqac.lif.dag.Node;
+import ca.uqac.lif.petitpoucet.AndNode;
+import ca.uqac.lif.petitpoucet.Clause;
+import ca.uqac.lif.petitpoucet.GraphUtilities;
+import ca.uqac.lif.petitpoucet.NodeFactory;
+import ca.uqac.lif.petitpoucet.NodeFactory.ObjectPart;
+import ca.uqac.lif.petitpoucet.OrNode;
+import ca.uqac.lif.petitpoucet.PartNode;
+
+/**
+ * Unit tests for {@link BddManager} and {@link Bdd}.
+ */
+public class BddTest
+{
+	@Test
+	public void testVariable1()
+	{
+		NodeFactory factory = NodeFactory.getFactory();
+		BddManager manager = new BddManager();
+		Bdd bdd = manager.compile(getNode(factory, "A"));
+		assertTrue(bdd.isSatisfiable());
+		assertEquals(1, manager.getVariableCount());
+		assertEquals(BigInteger.ONE, bdd.countModels());
+		assertEquals(3, bdd.size());
+		assertEquals(getClause("A"), bdd.getMinimumExplanation());
+		assertTrue(bdd.isEssential(getPart("A")));
+	}
+
+	@Test
+	public void testEmpty1()
+	{
+		NodeFactory factory = NodeFactory.getFactory();
+		BddManager manager = new BddManager();
+		Bdd bdd = manager.compile(factory.getAndNode());
+		assertFalse(bdd.isSatisfiable());
+		assertEquals(BigInteger.ZERO, bdd.countModels());
+		assertNull(bdd.getMinimumExplanation());
+		assertTrue(bdd.getEssentialParts().isEmpty());
+	}
+
+	@Test
+	public void testCanonical1()
+	{
+		// (A & B) | (B & A) and B & A are the same function
+		NodeFactory factory = NodeFactory.getFactory();
+		BddManager manager = new BddManager();
+		OrNode or = factory.getOrNode();
+		or.addChild(getAnd(factory, "A", "B"));
+		or.addChild(getAnd(factory, "B", "A"));
+		Bdd bdd1 = manager.compile(or);
+		Bdd bdd2 = manager.compile(getAnd(factory, "B", "A"));
+		assertEquals(bdd1, bdd2);
+		assertEquals(BigInteger.ONE, bdd1.countModels());
+	}
+
+	@Test
+	public void testExplanation1()
+	{
+		// (A & B & F & G) | (C & D & E & F & G)
+		NodeFactory factory = NodeFactory.getFactory();
+		BddManager manager = new BddManager();
+		Node root = getFormula(factory);
+		Bdd bdd = manager.compile(root);
+		assertEquals(7, manager.getVariableCount());
+		// 2^3 assignments of C, D, E with A & B, plus 3 with C & D & E only
+		assertEquals(BigInteger.valueOf(11), bdd.countModels());
+		Set<ObjectPart> essential = bdd.getEssentialParts();
+		assertEquals(2, essential.size());
+		assertTrue(essential.contains(getPart("F")));
+		assertTrue(essential.contains(getPart("G")));
+		assertFalse(bdd.isEssential(getPart("A")));
+		assertFalse(bdd.isEssential(getPart("C")));
+		Clause c = bdd.getMinimumExplanation();
+		assertEquals(getClause("A", "B", "F", "G"), c);
+		// The minimum explanation is also the smallest clause of the DNF
+		Set<Clause> dnf = GraphUtilities.asMinimalDnf(root);
+		assertEquals(2, dnf.size());
+		assertTrue(dnf.contains(c));
+	}
+
+	@Test
+	public void testDiamonds1()
+	{
+		// A chain of diamonds has 2^n paths, but a small diagram
+		NodeFactory factory = NodeFactory.getFactory();
+		BddManager manager = new BddManager();
+		Node top = getNode(factory, "bottom");
+		for (int i = 0; i < 60; i++)
+		{
+			PartNode left = getNode(factory, "l" + i);
+			PartNode right = getNode(factory, "r" + i);
+			left.addChild(top);
+			right.addChild(top);
+			OrNode or = factory.getOrNode();
+			or.addChild(left);
+			or.addChild(right);
+			top = or;
+		}
+		Bdd bdd = manager.compile(top);
+		assertEquals(1, manager.getVariableCount());
+		assertEquals(3, bdd.size());
+		assertEquals(getClause("bottom"), bdd.getMinimumExplanation());
+	}
+
+	@Test
+	public void testGrow1()
+	{
+		// Enough variables to force the manager to resize its tables
+		NodeFactory factory = NodeFactory.getFactory();
+		BddManager manager = new BddManager();
+		OrNode or = factory.getOrNode();
+		for (int i = 0; i < 600; i++)
+		{
+			or.addChild(getAnd(factory, "x" + i, "y" + i));
+		}
+		Bdd bdd = manager.compile(or);
+		assertEquals(1200, manager.getVariableCount());
+		assertTrue(manager.getNodeCount() > 1 << 10);
+		assertEquals(2, bdd.getMinimumExplanation().size());
+		assertTrue(bdd.getEssentialParts().isEmpty());
+		// 4^600 - 3^600 assignments make at least one pair true
+		BigInteger four = BigInteger.valueOf(4).pow(600);
+		BigInteger three = BigInteger.valueOf(3).pow(600);
+		assertEquals(four.subtract(three), bdd.countModels());
+	}
+
+	@Test
+	public void testLargeConjunction1()
+	{
+		// The lineage of a sum over a long vector: one AND of many leaves
+		int n = 20000;
+		NodeFactory factory = NodeFactory.getFactory();
+		BddManager manager = new BddManager();
+		AndNode and = factory.getAndNode();
+		for (int i = 0; i < n; i++)
+		{
+			and.addChild(getNode(factory, "x" + i));
+		}
+		Bdd bdd = manager.compile(and);
+		assertEquals(n, manager.getVariableCount());
+		assertEquals(n + 2, bdd.size());
+		// Compilation does not copy the conjunction built so far
+		assertTrue(manager.getNodeCount() <= 2 * n + 2);
+		assertEquals(BigInteger.ONE, bdd.countModels());
+		assertEquals(n, bdd.getEssentialParts().size());
+		assertEquals(n, bdd.getMinimumExplanation().size());
+	}
+
+	@Test
+	public void testLargeDisjunction1()
+	{
+		int n = 20000;
+		NodeFactory factory = NodeFactory.getFactory();
+		BddManager manager = new BddManager();
+		OrNode or = factory.getOrNode();
+		for (int i = 0; i < n; i++)
+		{
+			or.addChild(getNode(factory, "x" + i));
+		}
+		Bdd bdd = manager.compile(or);
+		assertEquals(n + 2, bdd.size());
+		assertTrue(manager.getNodeCount() <= 2 * n + 2);
+		assertEquals(BigInteger.ONE.shiftLeft(n).subtract(BigInteger.ONE), bdd.countModels());
+		assertTrue(bdd.getEssentialParts().isEmpty());
+		assertEquals(1, bdd.getMinimumExplanation().size());
+	}
+
+	@Test
+	public void testCycle1()
+	{
+		NodeFactory factory = NodeFactory.getFactory();
+		OrNode or1 = factory.getOrNode();
+		OrNode or2 = factory.getOrNode();
+		or1.addChild(or2);
+		or2.addChild(or1);
+		try
+		{
+			new BddManager().compile(or1);
+			fail("Expected an exception");
+		}
+		catch (IllegalArgumentException e)
+		{
+			// Expected
+		}
+	}
+
+	/**
+	 * Builds the lineage graph of the formula
+	 * (A &and; B &and; F &and; G) &or; (C &and; D &and; E &and; F &and; G).
+	 * @param factory The factory used to create the nodes
+	 * @return The root of the graph
+	 */
+	protected static Node getFormula(NodeFactory factory)
+	{
+		OrNode or = factory.getOrNode();
+		or.addChild(getAnd(factory, "A", "B", "F", "G"));
+		or.addChild(getAnd(factory, "C", "D", "E", "F", "G"));
+		return or;
+	}
+}
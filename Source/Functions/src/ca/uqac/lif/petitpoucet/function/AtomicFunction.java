@@ -19,7 +19,10 @@ package ca.uqac.lif.petitpoucet.function;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import ca.uqac.lif.dag.LabelledNode;
 import ca.uqac.lif.dag.Node;
@@ -56,6 +59,19 @@ public abstract class AtomicFunction extends Node implements Function, Duplicabl
 	 * corresponds to the function's output arity.
 	 */
 	protected AtomicFunctionOutputPin[] m_outputPins;
+	
+	/**
+	 * A flag indicating that the function only computes its output values,
+	 * without recording what is needed to explain them.
+	 */
+	protected boolean m_valuesOnly;
+	
+	/**
+	 * A flag indicating that the last evaluation of the function took place
+	 * in "values only" mode, and that the function therefore holds nothing
+	 * to explain its outputs.
+	 */
+	protected boolean m_noLineage;
 
 	/**
 	 * Creates a new atomic function.
@@ -66,6 +82,8 @@ public abstract class AtomicFunction extends Node implements Function, Duplicabl
 	{
 		super(in_arity, out_arity);
 		m_context = new HashMap<>();
+		m_valuesOnly = false;
+		m_noLineage = false;
 		m_inputPins = new AtomicFunctionInputPin[in_arity];
 		for (int i = 0; i < in_arity; i++)
 		{
@@ -100,15 +118,30 @@ public abstract class AtomicFunction extends Node implements Function, Duplicabl
 	protected void copyInto(AtomicFunction f, boolean with_state)
 	{
 		super.copyInto(f, with_state);
+		f.m_valuesOnly = m_valuesOnly;
 		if (with_state)
 		{
 			f.m_context.putAll(m_context);
+			f.m_noLineage = m_noLineage;
 		}
 	}
 	
+	@Override
+	public void setValuesOnly(boolean b)
+	{
+		m_valuesOnly = b;
+	}
+	
+	@Override
+	/*@ pure @*/ public boolean isValuesOnly()
+	{
+		return m_valuesOnly;
+	}
+	
 	@Override
 	public void reset()
 	{
+		m_noLineage = false;
 		for (int i = 0; i < m_inputPins.length; i++)
 		{
 			m_inputPins[i].reset();
@@ -122,7 +155,7 @@ public abstract class AtomicFunction extends Node implements Function, Duplicabl
 	@Override
 	/*@ non_null @*/ public AtomicFunctionInputPin getInputPin(int index) throws IndexOutOfBoundsException
 	{
-		if (index < 0 || index >= m_inputs.size())
+		if (index < 0 || index >= getInputArity())
 		{
 			throw new IndexOutOfBoundsException();
 		}
@@ -132,7 +165,7 @@ public abstract class AtomicFunction extends Node implements Function, Duplicabl
 	@Override
 	/*@ non_null @*/ public AtomicFunctionOutputPin getOutputPin(int index) throws IndexOutOfBoundsException
 	{
-		if (index < 0 || index >= m_outputs.size())
+		if (index < 0 || index >= getOutputArity())
 		{
 			throw new IndexOutOfBoundsException();
 		}
@@ -164,15 +197,64 @@ public abstract class AtomicFunction extends Node implements Function, Duplicabl
 		return out;
 	}
 	
+	@Override
+	/*@ non_null @*/ public Iterator<Object[]> evaluateBatch(/*@ non_null @*/ Iterator<Object[]> inputs, /*@ null @*/ List<Function> instances)
+	{
+		return new AtomicFunctionBatchIterator(inputs, instances);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @throws NoLineageException If the last evaluation of the function took
+	 * place in "values only" mode
+	 */
 	@Override
 	/*@ non_null @*/ public final PartNode getExplanation(Part part)
 	{
+		checkLineage();
 		return getExplanation(part, RelationNodeFactory.getFactory());
 	}
 	
+	@Override
+	/*@ non_null @*/ public final List<PartNode> getExplanations(List<Part> parts)
+	{
+		return getExplanations(parts, new RelationNodeFactory(true), ForkJoinPool.commonPool());
+	}
+	
+	@Override
+	/*@ non_null @*/ public List<PartNode> getExplanations(List<Part> parts, RelationNodeFactory factory, ForkJoinPool pool)
+	{
+		checkLineage();
+		return ParallelExplanation.explain(this, parts, factory, pool);
+	}
+	
+	/**
+	 * Checks that the last evaluation of the function can be explained.
+	 * @throws NoLineageException If this evaluation took place in "values
+	 * only" mode
+	 */
+	/*@ pure @*/ protected void checkLineage() throws NoLineageException
+	{
+		if (m_noLineage)
+		{
+			throw new NoLineageException(this);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * By default, each output of the function depends on all of its inputs.
+	 * Descendants that override this method should start by calling
+	 * {@link #checkLineage()}; when the function is part of a circuit, the
+	 * circuit makes this check before asking for the explanation.
+	 * @throws NoLineageException If the last evaluation of the function took
+	 * place in "values only" mode
+	 */
 	@Override
 	/*@ non_null @*/ public PartNode getExplanation(Part part, RelationNodeFactory factory)
 	{
+		checkLineage();
 		PartNode root = factory.getPartNode(part, this);
 		int index = NthOutput.mentionedOutput(part);
 		if (index >= 0)
@@ -211,8 +293,68 @@ public abstract class AtomicFunction extends Node implements Function, Duplicabl
 	 */
 	protected abstract Object[] getValue(Object ... inputs) throws InvalidNumberOfArgumentsException;
 
+	/**
+	 * Iterator evaluating the function on successive input tuples. Functions
+	 * that use the default output pins are evaluated by calling
+	 * {@link AtomicFunction#getValue(Object...) getValue()} directly; the
+	 * others are evaluated by querying their output pins.
+	 */
+	protected class AtomicFunctionBatchIterator extends BatchIterator
+	{
+		/**
+		 * A flag indicating if the function can be evaluated by calling
+		 * {@link AtomicFunction#getValue(Object...) getValue()} directly.
+		 */
+		protected final boolean m_direct;
+		
+		/**
+		 * Creates a new batch iterator.
+		 * @param inputs The iterator over input tuples
+		 * @param instances A list where a stateful copy of the function is
+		 * added for each evaluated tuple; null if the state of each evaluation
+		 * is not kept
+		 */
+		public AtomicFunctionBatchIterator(/*@ non_null @*/ Iterator<Object[]> inputs, /*@ null @*/ List<Function> instances)
+		{
+			super(AtomicFunction.this, inputs, instances);
+			m_direct = EvaluationPlan.isDirect(AtomicFunction.this);
+		}
+		
+		@Override
+		protected void evaluate(Object[] inputs, Object[] outputs)
+		{
+			reset();
+			for (int i = 0; i < inputs.length; i++)
+			{
+				m_inputPins[i].setValue(inputs[i]);
+			}
+			if (m_direct)
+			{
+				Object[] outs = getValue(inputs);
+				for (int i = 0; i < outputs.length; i++)
+				{
+					m_outputPins[i].setValue(outs[i]);
+					outputs[i] = outs[i];
+				}
+			}
+			else
+			{
+				for (int i = 0; i < outputs.length; i++)
+				{
+					outputs[i] = m_outputPins[i].getValue();
+				}
+			}
+		}
+	}
+
 	public class AtomicFunctionInputPin extends FunctionPin<AtomicFunction>
 	{
+		/**
+		 * The exception thrown by the function that should have produced the
+		 * value of this pin, or null if there is none.
+		 */
+		/*@ null @*/ protected RuntimeException m_failure;
+		
 		/**
 		 * Creates a new input pin.
 		 * @param index The index of the input
@@ -220,6 +362,26 @@ public abstract class AtomicFunction extends Node implements Function, Duplicabl
 		public AtomicFunctionInputPin(int index)
 		{
 			super(AtomicFunction.this, index);
+			m_failure = null;
+		}
+		
+		/**
+		 * Marks the value of this pin as unavailable, because the function that
+		 * should have produced it failed. A request for the value of the pin
+		 * then throws the same exception, instead of reading the value from
+		 * the pins this pin is connected to.
+		 * @param e The exception thrown by the function
+		 */
+		public void setFailure(/*@ non_null @*/ RuntimeException e)
+		{
+			m_failure = e;
+		}
+		
+		@Override
+		public void reset()
+		{
+			super.reset();
+			m_failure = null;
 		}
 
 		/**
@@ -232,6 +394,10 @@ public abstract class AtomicFunction extends Node implements Function, Duplicabl
 			{
 				return m_value;
 			}
+			if (m_failure != null)
+			{
+				throw m_failure;
+			}
 			Collection<Pin<? extends Node>> pins = getInputLinks(m_index);
 			if (getInputArity() == 0)
 			{
@@ -299,6 +465,14 @@ public abstract class AtomicFunction extends Node implements Function, Duplicabl
 			return m_value;
 		}
 		
+		@Override
+		public void setValue(Object v)
+		{
+			// Every evaluation of the function ends by setting its outputs
+			super.setValue(v);
+			m_noLineage = m_valuesOnly;
+		}
+		
 		@Override
 		public AtomicFunctionOutputPin duplicate(boolean with_state)
 		{
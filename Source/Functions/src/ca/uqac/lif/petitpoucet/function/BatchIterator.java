@@ -0,0 +1,148 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An iterator that evaluates a function on input tuples produced by another
+ * iterator. This class is used by the implementations of
+ * {@link Function#evaluateBatch(Iterator, List) evaluateBatch()}. The same
+ * output array is returned on every call to {@link #next()}; descendants of
+ * this class only need to implement the evaluation of a single tuple, by
+ * writing its results into this array. When the state of each evaluation
+ * must be kept, each tuple is instead evaluated on a fresh copy of the
+ * function, in the same way as {@link ca.uqac.lif.petitpoucet.function.vector.VectorApply
+ * VectorApply} does for each element of its input vector.
+ * 
+ * @author Sylvain Hallé
+ */
+public abstract class BatchIterator implements Iterator<Object[]>
+{
+	/**
+	 * The function to evaluate.
+	 */
+	/*@ non_null @*/ protected final Function m_function;
+	
+	/**
+	 * The iterator over input tuples.
+	 */
+	/*@ non_null @*/ protected final Iterator<Object[]> m_inputs;
+	
+	/**
+	 * The array in which output values are written, and which is returned
+	 * on every call to {@link #next()}.
+	 */
+	/*@ non_null @*/ protected final Object[] m_outputs;
+	
+	/**
+	 * The expected size of each input tuple.
+	 */
+	protected final int m_inArity;
+	
+	/**
+	 * A list where a stateful copy of the function is added for each
+	 * evaluated tuple. Null if the state of each evaluation is not kept.
+	 */
+	/*@ null @*/ protected final List<Function> m_instances;
+	
+	/**
+	 * Drains a batch iterator into a list of output tuples. Since a batch
+	 * iterator reuses the same output array, each tuple is copied.
+	 * @param it The iterator
+	 * @param size The expected number of tuples, used to size the list
+	 * @return The list of output tuples
+	 */
+	/*@ non_null @*/ public static List<Object[]> toList(/*@ non_null @*/ Iterator<Object[]> it, int size)
+	{
+		List<Object[]> list = new ArrayList<Object[]>(size);
+		while (it.hasNext())
+		{
+			list.add(it.next().clone());
+		}
+		return list;
+	}
+	
+	/**
+	 * Creates a new batch iterator.
+	 * @param f The function to evaluate
+	 * @param inputs The iterator over input tuples
+	 * @param instances A list where a stateful copy of the function is added
+	 * for each evaluated tuple; null if the state of each evaluation is not
+	 * kept
+	 */
+	public BatchIterator(/*@ non_null @*/ Function f, /*@ non_null @*/ Iterator<Object[]> inputs, /*@ null @*/ List<Function> instances)
+	{
+		super();
+		m_function = f;
+		m_inputs = inputs;
+		m_inArity = f.getInputArity();
+		m_outputs = new Object[f.getOutputArity()];
+		m_instances = instances;
+	}
+	
+	@Override
+	public boolean hasNext()
+	{
+		return m_inputs.hasNext();
+	}
+	
+	@Override
+	public Object[] next()
+	{
+		Object[] inputs = m_inputs.next();
+		if (inputs.length != m_inArity)
+		{
+			throw new InvalidNumberOfArgumentsException();
+		}
+		if (m_instances != null)
+		{
+			m_instances.add(evaluateInstance(inputs, m_outputs));
+		}
+		else
+		{
+			evaluate(inputs, m_outputs);
+		}
+		return m_outputs;
+	}
+	
+	/**
+	 * Evaluates the function itself on an input tuple.
+	 * @param inputs The input tuple
+	 * @param outputs The array where the output values must be written
+	 */
+	protected abstract void evaluate(/*@ non_null @*/ Object[] inputs, /*@ non_null @*/ Object[] outputs);
+	
+	/**
+	 * Evaluates a fresh copy of the function on an input tuple. This copy
+	 * holds the state of the evaluation, and is not affected by the
+	 * evaluation of the following tuples.
+	 * @param inputs The input tuple
+	 * @param outputs The array where the output values must be written
+	 * @return The copy of the function
+	 */
+	/*@ non_null @*/ protected Function evaluateInstance(/*@ non_null @*/ Object[] inputs, /*@ non_null @*/ Object[] outputs)
+	{
+		Function f = m_function.duplicate(false);
+		Object[] outs = f.evaluateArray(inputs);
+		System.arraycopy(outs, 0, outputs, 0, outputs.length);
+		return f;
+	}
+}
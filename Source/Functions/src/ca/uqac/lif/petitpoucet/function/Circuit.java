@@ -18,12 +18,17 @@
 package ca.uqac.lif.petitpoucet.function;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import ca.uqac.lif.dag.NestedNode;
 import ca.uqac.lif.dag.Node;
@@ -63,6 +68,24 @@ public class Circuit extends NestedNode implements Function, Duplicable, Explana
 	 * A name that can be given to the circuit.
 	 */
 	/*@ null @*/ protected String m_name;
+	
+	/**
+	 * A flag indicating that the circuit only computes its output values,
+	 * without recording what is needed to explain them.
+	 */
+	protected boolean m_valuesOnly;
+
+	/**
+	 * The explanations produced by the functions of the circuit since its
+	 * last evaluation.
+	 */
+	/*@ non_null @*/ protected final ExplanationCache m_explanationCache;
+
+	/**
+	 * The counters describing the work done to develop the explanations
+	 * asked from the circuit.
+	 */
+	/*@ non_null @*/ protected final ExplanationStatistics m_explanationStatistics;
 
 	/**
 	 * Creates a new empty circuit instance.
@@ -75,6 +98,8 @@ public class Circuit extends NestedNode implements Function, Duplicable, Explana
 	public Circuit(int in_arity, int out_arity, String name)
 	{
 		super(in_arity, out_arity);
+		m_explanationCache = new ExplanationCache();
+		m_explanationStatistics = new ExplanationStatistics();
 		m_name = name;
 		m_inputPins = new CircuitInputPin[in_arity];
 		for (int i = 0; i < in_arity; i++)
@@ -119,16 +144,32 @@ public class Circuit extends NestedNode implements Function, Duplicable, Explana
 
 	@Override
 	public PartNode getExplanation(Part part, RelationNodeFactory factory)
+	{
+		return getExplanation(part, factory, null);
+	}
+	
+	/**
+	 * Produces an explanation graph for a given part, based on the state of
+	 * an evaluation of the circuit.
+	 * @param part The part used as the starting point of the explanation
+	 * @param factory The factory that provides nodes
+	 * @param context The context holding the state of the evaluation to
+	 * explain; null to use the state of the circuit itself
+	 * @return The root of the explanation graph
+	 * @throws NoLineageException If a function that takes part in the
+	 * explanation was last evaluated in "values only" mode
+	 */
+	/*@ non_null @*/ protected PartNode getExplanation(Part part, RelationNodeFactory factory, /*@ null @*/ EvaluationContext context)
 	{
 		int input_nb = NthInput.mentionedInput(part);
 		if (input_nb >= 0 && input_nb < getInputArity())
 		{
-			return explainInput(input_nb, part, factory);
+			return explainInput(input_nb, part, factory, context);
 		}
 		int output_nb = NthOutput.mentionedOutput(part);
 		if (output_nb >= 0 && output_nb < getOutputArity())
 		{
-			return explainOutput(output_nb, part, factory);
+			return explainOutput(output_nb, part, factory, context);
 		}
 		// Nothing to do
 		return factory.getPartNode(part, this);
@@ -140,15 +181,17 @@ public class Circuit extends NestedNode implements Function, Duplicable, Explana
 	 * @param input_nb The number of the output pin
 	 * @param part The part of the input to explain
 	 * @param factory A factory to generate explainability nodes
+	 * @param context The context holding the state of the evaluation to
+	 * explain; null to use the state of the circuit itself
 	 * @return The root of the generated tree
 	 */
-	/*@ non_null @*/ protected PartNode explainInput(int input_nb, Part part, RelationNodeFactory factory)
+	/*@ non_null @*/ protected PartNode explainInput(int input_nb, Part part, RelationNodeFactory factory, /*@ null @*/ EvaluationContext context)
 	{
 		PartNode root = factory.getPartNode(part, this);
 		Pin<? extends Node> start_pin = m_inputAssociations.get(input_nb);
 		Part start_part = NthInput.replaceInBy(part, new NthInput(start_pin.getIndex()));
 		RelationNodeFactory in_factory = factory.getFactory(part, this);
-		NestedNode sub_node = developToOutput(start_part, start_pin.getNode(), in_factory);
+		NestedNode sub_node = developToOutput(start_part, start_pin.getNode(), in_factory, context, getCache(context), getStatistics(context));
 		if (sub_node == null)
 		{
 			// No explanation for the inner circuit
@@ -171,7 +214,7 @@ public class Circuit extends NestedNode implements Function, Duplicable, Explana
 				// No input mentioned
 				continue;
 			}
-			int circuit_output = getNestedOutput((Node) pn.getSubject(), mentioned_output);
+			int circuit_output = getNestedOutput(getOriginal(context, (Node) pn.getSubject()), mentioned_output);
 			if (circuit_output >= 0)
 			{
 				PartNode leaf = factory.getPartNode(NthOutput.replaceOutBy(pn.getPart(), new NthOutput(circuit_output)), this);
@@ -187,15 +230,17 @@ public class Circuit extends NestedNode implements Function, Duplicable, Explana
 	 * @param output_nb The number of the output pin
 	 * @param part The part of the output to explain
 	 * @param factory A factory to generate explainability nodes
+	 * @param context The context holding the state of the evaluation to
+	 * explain; null to use the state of the circuit itself
 	 * @return The root of the generated tree
 	 */
-	/*@ non_null @*/ protected PartNode explainOutput(int output_nb, Part part, RelationNodeFactory factory)
+	/*@ non_null @*/ protected PartNode explainOutput(int output_nb, Part part, RelationNodeFactory factory, /*@ null @*/ EvaluationContext context)
 	{
 		PartNode root = factory.getPartNode(part, this);
 		Pin<? extends Node> start_pin = m_outputAssociations.get(output_nb);
 		Part start_part = NthOutput.replaceOutBy(part, new NthOutput(start_pin.getIndex()));
 		RelationNodeFactory in_factory = factory.getFactory(part, this);
-		NestedNode sub_node = developToInput(start_part, start_pin.getNode(), in_factory);
+		NestedNode sub_node = developToInput(start_part, start_pin.getNode(), in_factory, context, getCache(context), getStatistics(context));
 		if (sub_node == null)
 		{
 			// No explanation for the inner circuit
@@ -221,7 +266,7 @@ public class Circuit extends NestedNode implements Function, Duplicable, Explana
 			Object o_subject = pn.getSubject();
 			if (o_subject instanceof Node)
 			{
-				int circuit_input = getNestedInput((Node) pn.getSubject(), mentioned_input);
+				int circuit_input = getNestedInput(getOriginal(context, (Node) pn.getSubject()), mentioned_input);
 				if (circuit_input >= 0)
 				{
 					PartNode leaf = factory.getPartNode(NthInput.replaceInBy(pn.getPart(), new NthInput(circuit_input)), this);
@@ -254,68 +299,46 @@ public class Circuit extends NestedNode implements Function, Duplicable, Explana
 	 */
 	protected static NestedNode developToInput(Part start, Node subject, RelationNodeFactory factory)
 	{
-		Queue<PartNode> to_explore = new ArrayDeque<>();
-		Set<PartNode> explored = new HashSet<>();
-		PartNode root = null;
-		if (subject instanceof ExplanationQueryable)
-		{
-			root = ((ExplanationQueryable) subject).getExplanation(start, factory);
-			to_explore.add(root);
-		}
-		while (!to_explore.isEmpty())
-		{
-			PartNode current = to_explore.remove();
-			explored.add(current);
-			NestedNodeCrawler c = new NestedNodeCrawler(current);
-			c.crawl();
-			for (Node n : c.getLeaves())
-			{
-				if (!(n instanceof PartNode) || explored.contains(n))
-				{
-					continue;
-				}
-				PartNode pn = (PartNode) n;
-				Part current_part = pn.getPart();					
-				int num_input = NthInput.mentionedInput(current_part);
-				if (num_input < 0)
-				{
-					continue;
-				}
-				// This node mentions the input of a function; what is this input connected to?
-				Object o_subject = pn.getSubject();
-				if (!(o_subject instanceof Node))
-				{
-					continue;
-				}
-				Node current_subject = (Node) o_subject;
-				Pin<? extends Node> pin = getPin(current_subject.getInputLinks(num_input));
-				if (pin == null)
-				{
-					continue;
-				}
-				Node upstream_subject = pin.getNode();
-				if (!(upstream_subject instanceof ExplanationQueryable))
-				{
-					continue;
-				}
-				// Get explanation for this function's output
-				Part upstream_part = NthInput.replaceInByOut(current_part, pin.getIndex());
-				PartNode upstream_node = factory.getPartNode(upstream_part, upstream_subject);
-				if (to_explore.contains(upstream_node) || explored.contains(upstream_node))
-				{
-					continue;
-				}
-				PartNode upstream_root = ((ExplanationQueryable) upstream_subject).getExplanation(upstream_part, factory);
-				pn.addChild(upstream_root);
-				to_explore.add(upstream_root);
-			}
-		}
-		if (root == null)
-		{
-			return null;	
-		}
-		// All nodes explored; create nested node
-		return NestedNode.createFromTree(root);
+		return developToInput(start, subject, factory, null);
+	}
+	
+	/**
+	 * Same as {@link #developToInput(Part, Node, RelationNodeFactory)}, but
+	 * explains the state of an evaluation held by a context. The connections
+	 * between functions are read from the circuit, while explanations are
+	 * requested from the copies of these functions owned by the context.
+	 * @param start The <em>output</em> part to explain, used as a starting point
+	 * @param subject The inner function that must provide the explanation
+	 * @param factory A factory used to obtain part nodes
+	 * @param context The context holding the state of the evaluation to
+	 * explain; null to use the state of the circuit itself
+	 * @return The nested node containing the explanation graph of the entire
+	 * circuit. 
+	 */
+	protected static NestedNode developToInput(Part start, Node subject, RelationNodeFactory factory, /*@ null @*/ EvaluationContext context)
+	{
+		return developToInput(start, subject, factory, context, null, new ExplanationStatistics());
+	}
+
+	/**
+	 * Same as {@link #developToInput(Part, Node, RelationNodeFactory, EvaluationContext)},
+	 * but reuses the explanations found in a cache. When the explanation of
+	 * a part of a function is already in the cache, a copy of the existing
+	 * graph is grafted instead of being developed again; the explanations developed
+	 * by this call are added to the cache once they are complete.
+	 * @param start The <em>output</em> part to explain, used as a starting point
+	 * @param subject The inner function that must provide the explanation
+	 * @param factory A factory used to obtain part nodes
+	 * @param context The context holding the state of the evaluation to
+	 * explain; null to use the state of the circuit itself
+	 * @param cache The cache of explanations; null to use no cache
+	 * @param stats The counters updated with the work done by this call
+	 * @return The nested node containing the explanation graph of the entire
+	 * circuit. 
+	 */
+	protected static NestedNode developToInput(Part start, Node subject, RelationNodeFactory factory, /*@ null @*/ EvaluationContext context, /*@ null @*/ ExplanationCache cache, /*@ non_null @*/ ExplanationStatistics stats)
+	{
+		return develop(start, subject, factory, context, cache, stats, true);
 	}
 	
 	/**
@@ -340,65 +363,358 @@ public class Circuit extends NestedNode implements Function, Duplicable, Explana
 	 */
 	protected static NestedNode developToOutput(Part start, Node subject, RelationNodeFactory factory)
 	{
+		return developToOutput(start, subject, factory, null);
+	}
+	
+	/**
+	 * Same as {@link #developToOutput(Part, Node, RelationNodeFactory)}, but
+	 * explains the state of an evaluation held by a context. The connections
+	 * between functions are read from the circuit, while explanations are
+	 * requested from the copies of these functions owned by the context.
+	 * @param start The <em>input</em> part to explain, used as a starting point
+	 * @param subject The inner function that must provide the explanation
+	 * @param factory A factory used to obtain part nodes
+	 * @param context The context holding the state of the evaluation to
+	 * explain; null to use the state of the circuit itself
+	 * @return The nested node containing the explanation graph of the entire
+	 * circuit. 
+	 */
+	protected static NestedNode developToOutput(Part start, Node subject, RelationNodeFactory factory, /*@ null @*/ EvaluationContext context)
+	{
+		return developToOutput(start, subject, factory, context, null, new ExplanationStatistics());
+	}
+
+	/**
+	 * Same as {@link #developToOutput(Part, Node, RelationNodeFactory, EvaluationContext)},
+	 * but reuses the explanations found in a cache, in the same way as
+	 * {@link #developToInput(Part, Node, RelationNodeFactory, EvaluationContext, ExplanationCache, ExplanationStatistics)}.
+	 * @param start The <em>input</em> part to explain, used as a starting point
+	 * @param subject The inner function that must provide the explanation
+	 * @param factory A factory used to obtain part nodes
+	 * @param context The context holding the state of the evaluation to
+	 * explain; null to use the state of the circuit itself
+	 * @param cache The cache of explanations; null to use no cache
+	 * @param stats The counters updated with the work done by this call
+	 * @return The nested node containing the explanation graph of the entire
+	 * circuit. 
+	 */
+	protected static NestedNode developToOutput(Part start, Node subject, RelationNodeFactory factory, /*@ null @*/ EvaluationContext context, /*@ null @*/ ExplanationCache cache, /*@ non_null @*/ ExplanationStatistics stats)
+	{
+		return develop(start, subject, factory, context, cache, stats, false);
+	}
+
+	/**
+	 * Develops the explanation graph of a circuit, starting from a part of
+	 * one of its inner functions. The method keeps a worklist of the roots
+	 * of explanations that remain to be examined, and a map associating each
+	 * pair made of a part and a function to the root of its explanation.
+	 * When a root is taken from the worklist, only the nodes of its graph
+	 * that have not been examined before are searched for leaves. Each leaf
+	 * mentioning a pin of its function is connected to the explanation of the
+	 * function linked to this pin, which is requested only the first time
+	 * the pair is encountered. Every node is therefore examined once, and the
+	 * work done is proportional to the size of the resulting graph.
+	 * @param start The part to explain, used as a starting point
+	 * @param subject The inner function that must provide the explanation
+	 * @param factory A factory used to obtain part nodes
+	 * @param context The context holding the state of the evaluation to
+	 * explain; null to use the state of the circuit itself
+	 * @param cache The cache of explanations; null to use no cache
+	 * @param stats The counters updated with the work done by this call,
+	 * once it is complete
+	 * @param to_input Set to true to follow the links from the inputs of
+	 * functions to the outputs of upstream functions, false to follow the
+	 * links from their outputs to the inputs of downstream functions
+	 * @return The nested node containing the explanation graph of the entire
+	 * circuit, or null if the subject cannot be queried for an explanation
+	 */
+	protected static NestedNode develop(Part start, Node subject, RelationNodeFactory factory, /*@ null @*/ EvaluationContext context, /*@ null @*/ ExplanationCache cache, /*@ non_null @*/ ExplanationStatistics stats, boolean to_input)
+	{
+		subject = getInstance(context, subject);
+		if (!(subject instanceof ExplanationQueryable))
+		{
+			return null;
+		}
+		// Counters local to this call, which may run alongside others
+		ExplanationStatistics local = new ExplanationStatistics();
+		local.m_queries++;
 		Queue<PartNode> to_explore = new ArrayDeque<>();
-		Set<PartNode> explored = new HashSet<>();
-		PartNode root = null;
-		if (subject instanceof ExplanationQueryable)
+		Map<PartNode,PartNode> roots = new HashMap<>();
+		Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<Node,Boolean>());
+		List<PartNode> developed = new ArrayList<>();
+		PartNode root = getCached(cache, start, subject);
+		if (root == null)
 		{
-			root = ((ExplanationQueryable) subject).getExplanation(start, factory);
+			root = explain(subject, start, factory);
+			roots.put(root, root);
 			to_explore.add(root);
+			developed.add(root);
+			local.m_developed++;
 		}
 		while (!to_explore.isEmpty())
 		{
 			PartNode current = to_explore.remove();
-			explored.add(current);
-			NestedNodeCrawler c = new NestedNodeCrawler(current);
-			c.crawl();
-			for (Node n : c.getLeaves())
+			for (PartNode pn : getNewLeaves(current, visited, local))
 			{
-				if (!(n instanceof PartNode) || explored.contains(n))
+				Object o_subject = pn.getSubject();
+				if (!(o_subject instanceof Node))
 				{
 					continue;
 				}
-				PartNode pn = (PartNode) n;
-				Part current_part = pn.getPart();					
-				int num_output = NthOutput.mentionedOutput(current_part);
-				if (num_output < 0)
+				// Does this node mention a pin of its function, and what is this pin connected to?
+				Part current_part = pn.getPart();
+				int num_pin = to_input ? NthInput.mentionedInput(current_part) : NthOutput.mentionedOutput(current_part);
+				if (num_pin < 0)
 				{
 					continue;
 				}
-				// This node mentions the input of a function; what is this output connected to?
-				Node current_subject = (Node) pn.getSubject();
-				Pin<? extends Node> pin = getPin(current_subject.getOutputLinks(num_output));
+				Node current_subject = getOriginal(context, (Node) o_subject);
+				Pin<? extends Node> pin = getPin(to_input ? current_subject.getInputLinks(num_pin) : current_subject.getOutputLinks(num_pin));
 				if (pin == null)
 				{
 					continue;
 				}
-				Node downstream_subject = pin.getNode();
-				if (!(downstream_subject instanceof ExplanationQueryable))
+				Node next_subject = getInstance(context, pin.getNode());
+				if (!(next_subject instanceof ExplanationQueryable))
 				{
 					continue;
 				}
-				// Get explanation for this function's input
-				Part downstream_part = NthOutput.replaceOutByIn(current_part, pin.getIndex());
-				PartNode downstream_node = factory.getPartNode(downstream_part, downstream_subject);
-				if (to_explore.contains(downstream_node) || explored.contains(downstream_node))
+				Part next_part = to_input ? NthInput.replaceInByOut(current_part, pin.getIndex()) : NthOutput.replaceOutByIn(current_part, pin.getIndex());
+				PartNode key = factory.getPartNode(next_part, next_subject);
+				PartNode next_root = roots.get(key);
+				if (next_root == null)
 				{
-					continue;
+					next_root = getCached(cache, next_part, next_subject);
+					if (next_root == null)
+					{
+						next_root = explain(next_subject, next_part, factory);
+						to_explore.add(next_root);
+						developed.add(next_root);
+						local.m_developed++;
+					}
+					roots.put(key, next_root);
 				}
-				PartNode downstream_root = ((ExplanationQueryable) downstream_subject).getExplanation(downstream_part, factory);
-				pn.addChild(downstream_root);
-				to_explore.add(downstream_root);
+				// Reached from several leaves, the explanation is shared instead of developed again
+				pn.addChild(next_root);
+				local.m_linked++;
 			}
 		}
-		if (root == null)
-		{
-			return null;	
-		}
+		putAll(cache, developed);
+		stats.add(local);
 		// All nodes explored; create nested node
 		return NestedNode.createFromTree(root);
 	}
 
+	/**
+	 * Finds the leaves of the part of a graph that is reachable from a node
+	 * without going through nodes that have already been examined. The nodes
+	 * reached are marked as examined, so that successive calls never visit
+	 * the same node twice.
+	 * @param start The node to start from
+	 * @param visited The set of nodes already examined, which is updated by
+	 * the call
+	 * @param stats The counters updated with the number of nodes examined
+	 * @return The list of leaves that are part nodes
+	 */
+	/*@ non_null @*/ protected static List<PartNode> getNewLeaves(/*@ non_null @*/ Node start, /*@ non_null @*/ Set<Node> visited, /*@ non_null @*/ ExplanationStatistics stats)
+	{
+		List<PartNode> leaves = new ArrayList<>();
+		if (!visited.add(start))
+		{
+			return leaves;
+		}
+		Queue<Node> to_visit = new ArrayDeque<>();
+		to_visit.add(start);
+		while (!to_visit.isEmpty())
+		{
+			Node current = to_visit.remove();
+			stats.m_visited++;
+			boolean is_leaf = true;
+			for (int i = 0; i < current.getOutputArity(); i++)
+			{
+				for (Pin<? extends Node> pin : current.getOutputLinks(i))
+				{
+					is_leaf = false;
+					Node n = pin.getNode();
+					if (visited.add(n))
+					{
+						to_visit.add(n);
+					}
+				}
+			}
+			if (is_leaf && current instanceof PartNode)
+			{
+				leaves.add((PartNode) current);
+			}
+		}
+		return leaves;
+	}
+
+	/**
+	 * Gets a copy of an explanation found in a cache. The graph in the cache
+	 * is never linked to the graph of another query: attaching it directly
+	 * would add a parent to its root on every hit, and would make the
+	 * explanations returned to different callers share their nodes.
+	 * @param cache The cache; null to use no cache
+	 * @param p The part to explain
+	 * @param subject The subject of the explanation
+	 * @return The root of a copy of the explanation, or null if the cache
+	 * has none
+	 */
+	/*@ null @*/ protected static PartNode getCached(/*@ null @*/ ExplanationCache cache, /*@ non_null @*/ Part p, /*@ non_null @*/ Object subject)
+	{
+		if (cache == null)
+		{
+			return null;
+		}
+		PartNode root = cache.get(p, subject);
+		return root == null ? null : copyTree(root);
+	}
+
+	/**
+	 * Copies the nodes reachable from a root by following output links,
+	 * connecting the copies in the same way as the originals. Only the links
+	 * of output pins are followed, so that the parents of the root are not
+	 * copied, and the original nodes are left unchanged.
+	 * @param root The root
+	 * @return The copy of the root
+	 */
+	/*@ non_null @*/ protected static PartNode copyTree(/*@ non_null @*/ PartNode root)
+	{
+		Map<Node,Node> copies = new IdentityHashMap<>();
+		Queue<Node> to_visit = new ArrayDeque<>();
+		copies.put(root, root.duplicate(false));
+		to_visit.add(root);
+		while (!to_visit.isEmpty())
+		{
+			Node n = to_visit.remove();
+			Node copy = copies.get(n);
+			for (int i = 0; i < n.getOutputArity(); i++)
+			{
+				for (Pin<? extends Node> pin : n.getOutputLinks(i))
+				{
+					Node child = pin.getNode();
+					Node child_copy = copies.get(child);
+					if (child_copy == null)
+					{
+						child_copy = child.duplicate(false);
+						copies.put(child, child_copy);
+						to_visit.add(child);
+					}
+					NodeConnector.connect(copy, i, child_copy, pin.getIndex());
+				}
+			}
+		}
+		return (PartNode) copies.get(root);
+	}
+
+	/**
+	 * Adds explanations that have been fully developed to a cache.
+	 * @param cache The cache; null to do nothing
+	 * @param roots The roots of the explanations
+	 */
+	protected static void putAll(/*@ null @*/ ExplanationCache cache, /*@ non_null @*/ List<PartNode> roots)
+	{
+		if (cache == null)
+		{
+			return;
+		}
+		for (PartNode pn : roots)
+		{
+			cache.put(pn.getPart(), pn.getSubject(), pn);
+		}
+	}
+
+	/**
+	 * Gets the cache holding the explanations produced by an evaluation of
+	 * the circuit.
+	 * @param context The context holding the state of the evaluation;
+	 * null for the state of the circuit itself
+	 * @return The cache
+	 */
+	/*@ non_null @*/ protected ExplanationCache getCache(/*@ null @*/ EvaluationContext context)
+	{
+		return context == null ? m_explanationCache : context.m_cache;
+	}
+
+	/**
+	 * Gets the cache holding the explanations produced by the functions of
+	 * the circuit since its last evaluation. Explanations asked from the
+	 * circuit reuse the graphs it contains; it is emptied when the circuit is
+	 * reset or receives new input values.
+	 * @return The cache
+	 */
+	/*@ pure non_null @*/ public ExplanationCache getExplanationCache()
+	{
+		return m_explanationCache;
+	}
+
+	/**
+	 * Gets the counters updated by the explanations asked from the circuit.
+	 * @param context The context holding the state of the evaluation;
+	 * null for the state of the circuit itself
+	 * @return The counters
+	 */
+	/*@ non_null @*/ protected ExplanationStatistics getStatistics(/*@ null @*/ EvaluationContext context)
+	{
+		return context == null ? m_explanationStatistics : context.m_statistics;
+	}
+
+	/**
+	 * Gets the counters describing the work done to develop the explanations
+	 * asked from the circuit. These counters accumulate until they are
+	 * cleared explicitly.
+	 * @return The counters
+	 */
+	/*@ pure non_null @*/ public ExplanationStatistics getExplanationStatistics()
+	{
+		return m_explanationStatistics;
+	}
+
+	/**
+	 * Requests the explanation of a part from a function of the circuit.
+	 * @param subject The function, which must be explanation queryable
+	 * @param part The part to explain
+	 * @param factory A factory used to obtain part nodes
+	 * @return The root of the explanation
+	 * @throws NoLineageException If the function was last evaluated in
+	 * "values only" mode
+	 */
+	/*@ non_null @*/ protected static PartNode explain(/*@ non_null @*/ Node subject, /*@ non_null @*/ Part part, /*@ non_null @*/ RelationNodeFactory factory)
+	{
+		if (subject instanceof AtomicFunction)
+		{
+			// Checked here, as the function may override getExplanation
+			((AtomicFunction) subject).checkLineage();
+		}
+		return ((ExplanationQueryable) subject).getExplanation(part, factory);
+	}
+	
+	/**
+	 * Gets the node that holds the state of a function of the circuit.
+	 * @param context The context holding the state of the evaluation; null
+	 * if this state is held by the circuit itself
+	 * @param n The function of the circuit
+	 * @return The node holding its state
+	 */
+	/*@ non_null @*/ protected static Node getInstance(/*@ null @*/ EvaluationContext context, /*@ non_null @*/ Node n)
+	{
+		return context == null ? n : context.getInstance(n);
+	}
+	
+	/**
+	 * Gets the function of the circuit corresponding to a node holding its
+	 * state.
+	 * @param context The context holding the state of the evaluation; null
+	 * if this state is held by the circuit itself
+	 * @param n The node holding the state of the function
+	 * @return The function of the circuit
+	 */
+	/*@ non_null @*/ protected static Node getOriginal(/*@ null @*/ EvaluationContext context, /*@ non_null @*/ Node n)
+	{
+		return context == null ? n : context.getOriginal(n);
+	}
+	
 	/**
 	 * Extracts the first pin obtained from a collection. The main purpose of
 	 * this method is to obtain the only element of a collection which we know
@@ -453,9 +769,57 @@ public class Circuit extends NestedNode implements Function, Duplicable, Explana
 		return out;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The circuit is compiled once into an {@link EvaluationPlan}, which is
+	 * then used for every input tuple, along with the same array of
+	 * intermediate values. As a result, the circuit does not need to be reset
+	 * between two tuples. When the state of each evaluation must be kept,
+	 * each tuple is rather evaluated on a fresh copy of the circuit.
+	 */
+	@Override
+	/*@ non_null @*/ public Iterator<Object[]> evaluateBatch(/*@ non_null @*/ Iterator<Object[]> inputs, /*@ null @*/ List<Function> instances)
+	{
+		if (instances != null)
+		{
+			return new CircuitBatchIterator(inputs, instances, null);
+		}
+		return new CircuitBatchIterator(inputs, null, compile());
+	}
+
+	/**
+	 * Creates a new context to evaluate and explain this circuit, without
+	 * modifying the circuit itself. Each thread that uses the circuit can
+	 * obtain its own context.
+	 * @return The context
+	 * @throws FunctionException If the circuit is not properly connected, or
+	 * if its functions form a cycle
+	 * @see EvaluationContext
+	 */
+	/*@ non_null @*/ public EvaluationContext newContext() throws FunctionException
+	{
+		return new EvaluationContext(compile());
+	}
+
+	/**
+	 * Compiles the circuit into an evaluation plan. The plan evaluates the
+	 * functions of the circuit in a single loop, instead of recursively
+	 * pulling values from the outputs of the circuit.
+	 * @return The evaluation plan
+	 * @throws FunctionException If the circuit is not properly connected, or
+	 * if its functions form a cycle
+	 * @see EvaluationPlan
+	 */
+	/*@ non_null @*/ public EvaluationPlan compile() throws FunctionException
+	{
+		return new EvaluationPlan(this);
+	}
+
 	@Override
 	public void reset()
 	{
+		m_explanationCache.clear();
 		for (Node n : m_internalNodes)
 		{
 			if (n instanceof Function)
@@ -491,12 +855,38 @@ public class Circuit extends NestedNode implements Function, Duplicable, Explana
 	{
 		super.copyInto(c, with_state);
 		c.m_name = m_name;
+		c.m_valuesOnly = m_valuesOnly;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The mode is also set on every function inside the circuit; functions
+	 * added to the circuit afterwards keep their own mode.
+	 */
+	@Override
+	public void setValuesOnly(boolean b)
+	{
+		m_valuesOnly = b;
+		for (Node n : m_internalNodes)
+		{
+			if (n instanceof Function)
+			{
+				((Function) n).setValuesOnly(b);
+			}
+		}
+	}
+	
+	@Override
+	/*@ pure @*/ public boolean isValuesOnly()
+	{
+		return m_valuesOnly;
 	}
 	
 	@Override
 	/*@ non_null @*/ public CircuitInputPin getInputPin(int index) throws IndexOutOfBoundsException
 	{
-		if (index < 0 || index >= m_inputs.size())
+		if (index < 0 || index >= getInputArity())
 		{
 			throw new IndexOutOfBoundsException();
 		}
@@ -506,7 +896,7 @@ public class Circuit extends NestedNode implements Function, Duplicable, Explana
 	@Override
 	/*@ non_null @*/ public CircuitOutputPin getOutputPin(int index) throws IndexOutOfBoundsException
 	{
-		if (index < 0 || index >= m_outputs.size())
+		if (index < 0 || index >= getOutputArity())
 		{
 			throw new IndexOutOfBoundsException();
 		}
@@ -519,6 +909,25 @@ public class Circuit extends NestedNode implements Function, Duplicable, Explana
 		return getExplanation(part, RelationNodeFactory.getFactory());
 	}
 	
+	@Override
+	public List<PartNode> getExplanations(List<Part> parts)
+	{
+		return getExplanations(parts, new RelationNodeFactory(true), ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The functions of the circuit are shared by all the explanations, which
+	 * reuse the graphs developed by each other through the
+	 * {@link #getExplanationCache() explanation cache} of the circuit.
+	 */
+	@Override
+	public List<PartNode> getExplanations(List<Part> parts, RelationNodeFactory factory, ForkJoinPool pool)
+	{
+		return ParallelExplanation.explain(this, parts, factory, pool);
+	}
+	
 	@Override
 	public String toString()
 	{
@@ -529,6 +938,47 @@ public class Circuit extends NestedNode implements Function, Duplicable, Explana
 		return m_name;
 	}
 	
+	/**
+	 * Iterator evaluating the circuit on successive input tuples by means of
+	 * an evaluation plan.
+	 */
+	protected class CircuitBatchIterator extends BatchIterator
+	{
+		/**
+		 * The plan used to evaluate the circuit. Null if each tuple is
+		 * evaluated on a fresh copy of the circuit.
+		 */
+		/*@ null @*/ protected final EvaluationPlan m_plan;
+		
+		/**
+		 * The array of intermediate values used by the plan, which is reused
+		 * for each tuple.
+		 */
+		/*@ null @*/ protected final Object[] m_slots;
+		
+		/**
+		 * Creates a new batch iterator.
+		 * @param inputs The iterator over input tuples
+		 * @param instances A list where a stateful copy of the circuit is
+		 * added for each evaluated tuple; null if the state of each evaluation
+		 * is not kept
+		 * @param plan The plan used to evaluate the circuit; null if each tuple
+		 * is evaluated on a fresh copy of the circuit
+		 */
+		public CircuitBatchIterator(/*@ non_null @*/ Iterator<Object[]> inputs, /*@ null @*/ List<Function> instances, /*@ null @*/ EvaluationPlan plan)
+		{
+			super(Circuit.this, inputs, instances);
+			m_plan = plan;
+			m_slots = plan == null ? null : new Object[plan.m_numSlots];
+		}
+		
+		@Override
+		protected void evaluate(Object[] inputs, Object[] outputs)
+		{
+			m_plan.evaluateInto(inputs, m_slots, outputs);
+		}
+	}
+	
 	public class CircuitInputPin extends FunctionPin<Circuit>
 	{
 		/**
@@ -548,6 +998,7 @@ public class Circuit extends NestedNode implements Function, Duplicable, Explana
 			{
 				((FunctionPin<?>) pin).setValue(o);
 			}
+			m_explanationCache.clear();
 			m_value = o;
 			m_evaluated = true;
 		}
@@ -612,6 +1063,7 @@ public class Circuit extends NestedNode implements Function, Duplicable, Explana
 			{
 				return m_value;
 			}
+			m_explanationCache.clear();
 			Object[] ins = new Object[getInputArity()];
 			for (int i = 0; i < m_inputPins.length; i++)
 			{
@@ -57,6 +57,7 @@ public class Constant extends AtomicFunction
 	@Override
 	public PartNode getExplanation(Part part, RelationNodeFactory factory)
 	{
+		checkLineage();
 		PartNode root = factory.getPartNode(part, this);
 		int index = NthOutput.mentionedOutput(part);
 		if (index >= 0)
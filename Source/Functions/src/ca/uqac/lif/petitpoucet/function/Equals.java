@@ -147,6 +147,7 @@ public class Equals extends AtomicFunction
 	@Override
 	public PartNode getExplanation(Part p, RelationNodeFactory factory)
 	{
+		checkLineage();
 		if (m_lastEqualsEvaluation == null || !(m_lastEqualsEvaluation instanceof ExplanationQueryable))
 		{
 			return super.getExplanation(p, factory);
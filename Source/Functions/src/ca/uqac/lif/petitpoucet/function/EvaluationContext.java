@@ -0,0 +1,282 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import ca.uqac.lif.dag.Node;
+import ca.uqac.lif.petitpoucet.Part;
+import ca.uqac.lif.petitpoucet.PartNode;
+
+/**
+ * The state of the evaluation of a circuit, kept separate from the circuit
+ * itself. A context is obtained from an {@link EvaluationPlan}, or by
+ * calling {@link Circuit#newContext()}; it evaluates the circuit in the same
+ * way as the plan, but stores all the values it computes, as well as the
+ * state needed to explain them, in objects that it owns.
+ * <p>
+ * Since the state of a function is held in its pins and fields, the context
+ * achieves this by evaluating private copies of the functions of the circuit,
+ * obtained by calling {@link Function#duplicate(boolean) duplicate(false)}
+ * once when the context is created. These copies are not connected to
+ * each other; the values are passed from one to the next according to the
+ * plan, and the connections between functions are always read from the
+ * original circuit. As a result, the circuit and its plan are never modified
+ * by a context, and multiple threads can each evaluate and explain the same
+ * circuit through their own context. Creating a context is not free: it
+ * costs about as much as duplicating the circuit, except that the copies
+ * are not connected and the plan is shared. A context should therefore be
+ * created once per thread and reused for many evaluations, as in the
+ * following:
+ * <pre>
+ * EvaluationPlan plan = circuit.compile();
+ * // In each thread
+ * EvaluationContext context = new EvaluationContext(plan);
+ * Object[] out = context.evaluate(x, y);
+ * PartNode root = context.getExplanation(NthOutput.FIRST);
+ * </pre>
+ * When a function fails, the functions that depend on its value fail with
+ * the same exception, as in the evaluation of the circuit itself.
+ * <p>
+ * A context can be reused for any number of evaluations; the explanations it
+ * produces always refer to the last of them. Between two evaluations, the
+ * explanations developed for the functions of the circuit are kept in an
+ * {@link ExplanationCache} and reused by later queries. However, a single context must
+ * not be used by multiple threads at the same time.
+ * <p>
+ * In the explanation graphs produced by a context, the part nodes that refer
+ * to the circuit itself have the circuit as their subject, while those that
+ * refer to functions inside the circuit have the copies of these functions
+ * owned by the context as their subject.
+ * 
+ * @author Sylvain Hallé
+ */
+public class EvaluationContext implements ExplanationQueryable
+{
+	/**
+	 * The plan used to evaluate the circuit.
+	 */
+	/*@ non_null @*/ protected final EvaluationPlan m_plan;
+
+	/**
+	 * The copy of each function of the plan owned by this context, in the
+	 * same order as in the plan.
+	 */
+	/*@ non_null @*/ protected final Function[] m_instances;
+
+	/**
+	 * For each copy that is itself a circuit, the plan compiled from this
+	 * copy. The other elements of the array are null.
+	 */
+	/*@ non_null @*/ protected final EvaluationPlan[] m_nested;
+
+	/**
+	 * An association between each function of the circuit and its copy.
+	 */
+	/*@ non_null @*/ protected final Map<Node,Node> m_toInstance;
+
+	/**
+	 * An association between each copy and the function of the circuit it
+	 * has been obtained from.
+	 */
+	/*@ non_null @*/ protected final Map<Node,Node> m_toOriginal;
+
+	/**
+	 * The array of slots where the values computed by the plan are written.
+	 */
+	/*@ non_null @*/ protected final Object[] m_slots;
+
+	/**
+	 * The explanations produced by the copies of the functions since the
+	 * last evaluation.
+	 */
+	/*@ non_null @*/ protected final ExplanationCache m_cache;
+
+	/**
+	 * The counters describing the work done to develop the explanations
+	 * asked from this context.
+	 */
+	/*@ non_null @*/ protected final ExplanationStatistics m_statistics;
+
+	/**
+	 * Creates a new evaluation context for a plan.
+	 * @param plan The plan
+	 */
+	public EvaluationContext(/*@ non_null @*/ EvaluationPlan plan)
+	{
+		super();
+		m_plan = plan;
+		int size = plan.m_functions.length;
+		m_instances = new Function[size];
+		m_nested = new EvaluationPlan[size];
+		m_toInstance = new IdentityHashMap<Node,Node>(size);
+		m_toOriginal = new IdentityHashMap<Node,Node>(size);
+		for (int k = 0; k < size; k++)
+		{
+			Function f = plan.m_functions[k];
+			Function instance = f.duplicate(false);
+			m_instances[k] = instance;
+			if (plan.m_nested[k] != null)
+			{
+				m_nested[k] = ((Circuit) instance).compile();
+			}
+			m_toInstance.put((Node) f, (Node) instance);
+			m_toOriginal.put((Node) instance, (Node) f);
+		}
+		m_slots = new Object[plan.m_numSlots];
+		m_cache = new ExplanationCache();
+		m_statistics = new ExplanationStatistics();
+	}
+
+	/**
+	 * Gets the circuit evaluated by this context.
+	 * @return The circuit
+	 */
+	/*@ pure non_null @*/ public Circuit getCircuit()
+	{
+		return m_plan.m_circuit;
+	}
+
+	/**
+	 * Gets the counters describing the work done to develop the explanations
+	 * asked from this context.
+	 * @return The counters
+	 */
+	/*@ pure non_null @*/ public ExplanationStatistics getExplanationStatistics()
+	{
+		return m_statistics;
+	}
+
+	/**
+	 * Evaluates the circuit on a list of input arguments.
+	 * @param inputs The input arguments
+	 * @return The output values of the circuit
+	 */
+	/*@ non_null @*/ public Object[] evaluate(Object ... inputs)
+	{
+		return evaluateArray(inputs);
+	}
+
+	/**
+	 * Evaluates the circuit on an array of input arguments.
+	 * @param inputs The input arguments
+	 * @return The output values of the circuit
+	 * @throws InvalidNumberOfArgumentsException If the size of the input array
+	 * is not equal to the input arity of the circuit
+	 */
+	/*@ non_null @*/ public Object[] evaluateArray(/*@ non_null @*/ Object[] inputs)
+	{
+		return evaluateArray(inputs, null);
+	}
+
+	/**
+	 * Evaluates the circuit on a list of input arguments, by evaluating
+	 * independent branches of the circuit concurrently.
+	 * @param pool The pool in which the functions of the circuit are
+	 * evaluated
+	 * @param inputs The input arguments
+	 * @return The output values of the circuit
+	 * @see ParallelSchedule
+	 */
+	/*@ non_null @*/ public Object[] evaluateParallel(/*@ non_null @*/ ForkJoinPool pool, Object ... inputs)
+	{
+		return evaluateArray(inputs, pool);
+	}
+
+	/**
+	 * Evaluates the circuit on an array of input arguments.
+	 * @param inputs The input arguments
+	 * @param pool The pool in which the functions are evaluated in parallel;
+	 * null to evaluate them sequentially in the current thread
+	 * @return The output values of the circuit
+	 * @throws InvalidNumberOfArgumentsException If the size of the input array
+	 * is not equal to the input arity of the circuit
+	 */
+	/*@ non_null @*/ protected Object[] evaluateArray(/*@ non_null @*/ Object[] inputs, /*@ null @*/ ForkJoinPool pool)
+	{
+		if (inputs.length != m_plan.m_associatedInputs.length)
+		{
+			throw new InvalidNumberOfArgumentsException();
+		}
+		m_cache.clear();
+		System.arraycopy(inputs, 0, m_slots, 0, inputs.length);
+		m_plan.evaluateAll(m_instances, m_nested, m_slots, pool);
+		Object[] out = new Object[m_plan.m_outputSlots.length];
+		for (int i = 0; i < out.length; i++)
+		{
+			Object o = m_slots[m_plan.m_outputSlots[i]];
+			if (o instanceof EvaluationPlan.Failure)
+			{
+				throw ((EvaluationPlan.Failure) o).m_exception;
+			}
+			out[i] = o;
+		}
+		return out;
+	}
+
+	@Override
+	/*@ non_null @*/ public PartNode getExplanation(/*@ non_null @*/ Part part)
+	{
+		return getExplanation(part, new RelationNodeFactory());
+	}
+
+	@Override
+	/*@ non_null @*/ public PartNode getExplanation(/*@ non_null @*/ Part part, /*@ non_null @*/ RelationNodeFactory factory)
+	{
+		return m_plan.m_circuit.getExplanation(part, factory, this);
+	}
+
+	@Override
+	/*@ non_null @*/ public List<PartNode> getExplanations(/*@ non_null @*/ List<Part> parts)
+	{
+		return getExplanations(parts, new RelationNodeFactory(true), ForkJoinPool.commonPool());
+	}
+
+	@Override
+	/*@ non_null @*/ public List<PartNode> getExplanations(/*@ non_null @*/ List<Part> parts, /*@ non_null @*/ RelationNodeFactory factory, /*@ non_null @*/ ForkJoinPool pool)
+	{
+		return ParallelExplanation.explain(this, parts, factory, pool);
+	}
+
+	/**
+	 * Gets the copy of a function of the circuit owned by this context.
+	 * @param n The function of the circuit
+	 * @return The copy, or the function itself if it is not evaluated by the
+	 * plan
+	 */
+	/*@ pure non_null @*/ protected Node getInstance(/*@ non_null @*/ Node n)
+	{
+		Node instance = m_toInstance.get(n);
+		return instance == null ? n : instance;
+	}
+
+	/**
+	 * Gets the function of the circuit from which a copy has been obtained.
+	 * @param n The copy
+	 * @return The function of the circuit, or the node itself if it is not
+	 * a copy owned by this context
+	 */
+	/*@ pure non_null @*/ protected Node getOriginal(/*@ non_null @*/ Node n)
+	{
+		Node original = m_toOriginal.get(n);
+		return original == null ? n : original;
+	}
+}
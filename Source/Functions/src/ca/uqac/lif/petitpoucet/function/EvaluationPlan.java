@@ -0,0 +1,630 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import ca.uqac.lif.dag.Node;
+import ca.uqac.lif.dag.Pin;
+import ca.uqac.lif.petitpoucet.function.AtomicFunction.AtomicFunctionInputPin;
+import ca.uqac.lif.petitpoucet.function.AtomicFunction.AtomicFunctionOutputPin;
+
+/**
+ * A compiled form of a {@link Circuit} that evaluates its inner functions
+ * without recursion. The plan is obtained by calling
+ * {@link Circuit#compile()}; at this moment, the functions of the circuit
+ * that contribute to its outputs are sorted in topological order, and each
+ * input and output pin is assigned a "slot" in an array. Evaluating the plan
+ * then amounts to a single loop over these functions, where each one reads
+ * its arguments from the slots of its inputs and writes its result in the
+ * slots of its outputs.
+ * <p>
+ * Evaluating a circuit through its plan produces the same output as calling
+ * {@link Circuit#evaluate(Object...) evaluate()} on the circuit itself. The
+ * functions of the circuit are also left in the same state, meaning that the
+ * explanation of a result can be requested from the circuit afterwards, in
+ * the same way as after a regular evaluation. However, a plan does not
+ * suffer from the depth limit of the recursive evaluation, as the depth of
+ * the call stack no longer depends on the length of the chains of functions
+ * in the circuit. In addition, each function is reset by the plan right before
+ * being evaluated, so that the circuit does not need to be reset between two
+ * calls to {@link #evaluate(Object...) evaluate()}.
+ * <p>
+ * A few functions evaluate their inputs lazily through custom output pins;
+ * this is the case, for example, of fail-fast Boolean connectives and of
+ * {@link ca.uqac.lif.petitpoucet.function.booleans.IfThenElse IfThenElse}.
+ * These functions, as well as any function that is not an
+ * {@link AtomicFunction}, are evaluated by querying their output pins, as in
+ * the recursive evaluation. Since the values of their input pins have already
+ * been computed at this point, this query does not recurse further.
+ * Similarly, a function that throws an exception does not interrupt the
+ * evaluation of the plan; the exception is only thrown if the circuit
+ * actually requires the value of that function to compute its output.
+ * <p>
+ * A plan evaluates the functions of the circuit itself, and can therefore
+ * not be used by multiple threads at the same time. Each thread can rather
+ * obtain its own {@link EvaluationContext} from the same plan.
+ * <p>
+ * The plan is a snapshot of the structure of the circuit at the moment it is
+ * compiled. If functions are added to the circuit or connected differently
+ * afterwards, the circuit must be compiled again.
+ * 
+ * @author Sylvain Hallé
+ */
+public class EvaluationPlan
+{
+	/**
+	 * The circuit from which the plan has been compiled.
+	 */
+	/*@ non_null @*/ protected final Circuit m_circuit;
+
+	/**
+	 * The functions of the circuit, sorted in topological order.
+	 */
+	/*@ non_null @*/ protected final Function[] m_functions;
+
+	/**
+	 * For each function, the slot from which each of its input arguments is
+	 * read.
+	 */
+	/*@ non_null @*/ protected final int[][] m_inputSlots;
+
+	/**
+	 * For each function, the slot where its first output value is written.
+	 * The remaining output values are written in the slots that immediately
+	 * follow.
+	 */
+	/*@ non_null @*/ protected final int[] m_outputOffsets;
+
+	/**
+	 * For each function, a flag indicating if it can be evaluated by calling
+	 * {@link AtomicFunction#getValue(Object...) getValue()} directly, or if
+	 * its output pins must be queried.
+	 */
+	/*@ non_null @*/ protected final boolean[] m_direct;
+
+	/**
+	 * For each function that is itself a circuit, the plan compiled from this
+	 * circuit. The other elements of the array are null.
+	 */
+	/*@ non_null @*/ protected final EvaluationPlan[] m_nested;
+
+	/**
+	 * The slot from which each output of the circuit is read.
+	 */
+	/*@ non_null @*/ protected final int[] m_outputSlots;
+
+	/**
+	 * The inner pins associated to each input of the circuit.
+	 */
+	/*@ non_null @*/ protected final FunctionPin<?>[] m_associatedInputs;
+
+	/**
+	 * The total number of slots used by the plan.
+	 */
+	protected final int m_numSlots;
+
+	/**
+	 * The schedule used to evaluate the plan in parallel. It is only created
+	 * the first time it is needed.
+	 */
+	/*@ null @*/ protected volatile ParallelSchedule m_schedule;
+
+	/**
+	 * Compiles an evaluation plan out of a circuit.
+	 * @param c The circuit
+	 * @throws FunctionException If the circuit is not properly connected, or
+	 * if its functions form a cycle
+	 */
+	public EvaluationPlan(/*@ non_null @*/ Circuit c) throws FunctionException
+	{
+		super();
+		m_circuit = c;
+		int in_arity = c.getInputArity();
+		m_associatedInputs = new FunctionPin<?>[in_arity];
+		for (int i = 0; i < in_arity; i++)
+		{
+			Pin<? extends Node> pin = c.getAssociatedInput(i);
+			if (!(pin instanceof FunctionPin))
+			{
+				throw new FunctionException("Invalid circuit");
+			}
+			m_associatedInputs[i] = (FunctionPin<?>) pin;
+		}
+		List<Node> sorted = sort(c);
+		int num_functions = sorted.size();
+		m_functions = new Function[num_functions];
+		m_inputSlots = new int[num_functions][];
+		m_outputOffsets = new int[num_functions];
+		m_direct = new boolean[num_functions];
+		m_nested = new EvaluationPlan[num_functions];
+		Map<Node,Integer> positions = new IdentityHashMap<Node,Integer>();
+		int slot = in_arity;
+		for (int k = 0; k < num_functions; k++)
+		{
+			Node n = sorted.get(k);
+			positions.put(n, k);
+			m_functions[k] = (Function) n;
+			m_outputOffsets[k] = slot;
+			slot += n.getOutputArity();
+			m_direct[k] = isDirect(n);
+			if (n instanceof Circuit)
+			{
+				m_nested[k] = ((Circuit) n).compile();
+			}
+		}
+		m_numSlots = slot;
+		for (int k = 0; k < num_functions; k++)
+		{
+			Node n = sorted.get(k);
+			m_inputSlots[k] = new int[n.getInputArity()];
+			for (int i = 0; i < n.getInputArity(); i++)
+			{
+				int circuit_input = getCircuitInput(n, i);
+				if (circuit_input >= 0)
+				{
+					m_inputSlots[k][i] = circuit_input;
+					continue;
+				}
+				Pin<? extends Node> pin = getUpstreamPin(n, i);
+				m_inputSlots[k][i] = m_outputOffsets[positions.get(pin.getNode())] + pin.getIndex();
+			}
+		}
+		m_outputSlots = new int[c.getOutputArity()];
+		for (int i = 0; i < m_outputSlots.length; i++)
+		{
+			Pin<? extends Node> pin = c.getAssociatedOutput(i);
+			m_outputSlots[i] = m_outputOffsets[positions.get(pin.getNode())] + pin.getIndex();
+		}
+	}
+
+	/**
+	 * Gets the circuit from which this plan has been compiled.
+	 * @return The circuit
+	 */
+	/*@ pure non_null @*/ public Circuit getCircuit()
+	{
+		return m_circuit;
+	}
+
+	/**
+	 * Gets the number of functions evaluated by this plan. Functions of the
+	 * circuit that do not contribute to any of its outputs are not included
+	 * in the plan.
+	 * @return The number of functions
+	 */
+	/*@ pure @*/ public int getSize()
+	{
+		return m_functions.length;
+	}
+
+	/**
+	 * Evaluates the circuit on a list of input arguments.
+	 * @param inputs The input arguments
+	 * @return The output values of the circuit
+	 */
+	/*@ non_null @*/ public Object[] evaluate(Object ... inputs)
+	{
+		return evaluateArray(inputs);
+	}
+
+	/**
+	 * Evaluates the circuit on an array of input arguments.
+	 * @param inputs The input arguments
+	 * @return The output values of the circuit
+	 */
+	/*@ non_null @*/ public Object[] evaluateArray(/*@ non_null @*/ Object[] inputs)
+	{
+		Object[] out = new Object[m_outputSlots.length];
+		evaluateInto(inputs, new Object[m_numSlots], out);
+		return out;
+	}
+
+	/**
+	 * Evaluates the circuit on a list of input arguments, by evaluating
+	 * independent branches of the circuit concurrently.
+	 * @param pool The pool in which the functions of the circuit are
+	 * evaluated
+	 * @param inputs The input arguments
+	 * @return The output values of the circuit
+	 * @see ParallelSchedule
+	 */
+	/*@ non_null @*/ public Object[] evaluateParallel(/*@ non_null @*/ ForkJoinPool pool, Object ... inputs)
+	{
+		Object[] out = new Object[m_outputSlots.length];
+		evaluateInto(inputs, new Object[m_numSlots], out, pool);
+		return out;
+	}
+
+	/**
+	 * Evaluates the circuit on an array of input arguments, using arrays
+	 * provided by the caller to store intermediate and output values. This
+	 * makes it possible to reuse the same arrays for multiple evaluations.
+	 * @param inputs The input arguments
+	 * @param slots An array of size {@link #m_numSlots} where intermediate
+	 * values are written. Since every slot is overwritten, the array does not
+	 * need to be cleared between two evaluations.
+	 * @param out An array where output values are written
+	 * @throws InvalidNumberOfArgumentsException If the size of the input array
+	 * is not equal to the input arity of the circuit
+	 */
+	protected void evaluateInto(/*@ non_null @*/ Object[] inputs, /*@ non_null @*/ Object[] slots, /*@ non_null @*/ Object[] out)
+	{
+		evaluateInto(inputs, slots, out, null);
+	}
+
+	/**
+	 * Evaluates the circuit on an array of input arguments, using arrays
+	 * provided by the caller to store intermediate and output values.
+	 * @param inputs The input arguments
+	 * @param slots An array of size {@link #m_numSlots} where intermediate
+	 * values are written
+	 * @param out An array where output values are written
+	 * @param pool The pool in which the functions are evaluated in parallel;
+	 * null to evaluate them sequentially in the current thread
+	 * @throws InvalidNumberOfArgumentsException If the size of the input array
+	 * is not equal to the input arity of the circuit
+	 */
+	protected void evaluateInto(/*@ non_null @*/ Object[] inputs, /*@ non_null @*/ Object[] slots, /*@ non_null @*/ Object[] out, /*@ null @*/ ForkJoinPool pool)
+	{
+		if (inputs.length != m_associatedInputs.length)
+		{
+			throw new InvalidNumberOfArgumentsException();
+		}
+		for (int i = 0; i < inputs.length; i++)
+		{
+			slots[i] = inputs[i];
+			m_associatedInputs[i].setValue(inputs[i]);
+			m_circuit.m_inputPins[i].setValue(inputs[i]);
+		}
+		evaluateAll(m_functions, m_nested, slots, pool);
+		for (int i = 0; i < out.length; i++)
+		{
+			Object o = slots[m_outputSlots[i]];
+			if (o instanceof Failure)
+			{
+				throw ((Failure) o).m_exception;
+			}
+			out[i] = o;
+			m_circuit.m_outputPins[i].setValue(o);
+		}
+	}
+
+	/**
+	 * Evaluates all the functions of the plan.
+	 * @param functions The function to evaluate at each position of the plan
+	 * @param nested For each function that is a circuit, the plan used to
+	 * evaluate it
+	 * @param slots The array of slots, where the inputs of the circuit have
+	 * already been written
+	 * @param pool The pool in which the functions are evaluated in parallel;
+	 * null to evaluate them sequentially in the current thread
+	 */
+	protected void evaluateAll(/*@ non_null @*/ Function[] functions, /*@ non_null @*/ EvaluationPlan[] nested, /*@ non_null @*/ Object[] slots, /*@ null @*/ ForkJoinPool pool)
+	{
+		if (pool != null)
+		{
+			getSchedule().evaluate(pool, functions, nested, slots);
+			return;
+		}
+		for (int k = 0; k < functions.length; k++)
+		{
+			evaluateFunction(k, functions[k], nested[k], slots);
+		}
+	}
+
+	/**
+	 * Gets the schedule used to evaluate the plan in parallel, and creates it
+	 * if it does not exist yet.
+	 * @return The schedule
+	 */
+	/*@ non_null @*/ protected ParallelSchedule getSchedule()
+	{
+		ParallelSchedule schedule = m_schedule;
+		if (schedule == null)
+		{
+			// Two threads may create a schedule at the same time, but both are
+			// identical, so the first one does not need to be kept
+			schedule = new ParallelSchedule(this);
+			m_schedule = schedule;
+		}
+		return schedule;
+	}
+
+	/**
+	 * Evaluates a single function of the plan.
+	 * @param k The position of the function in the plan
+	 * @param f The function to evaluate at this position. This is either the
+	 * function of the circuit itself, or a copy of it owned by an
+	 * {@link EvaluationContext}.
+	 * @param nested If the function is a circuit, the plan used to evaluate
+	 * it; null otherwise
+	 * @param slots The array of slots
+	 */
+	protected void evaluateFunction(int k, /*@ non_null @*/ Function f, /*@ null @*/ EvaluationPlan nested, /*@ non_null @*/ Object[] slots)
+	{
+		int[] in_slots = m_inputSlots[k];
+		int offset = m_outputOffsets[k];
+		int out_arity = f.getOutputArity();
+		if (!m_direct[k] && nested == null)
+		{
+			// Query the output pins, after giving the input pins the values
+			// already computed; inputs whose upstream function failed throw the
+			// same exception, only if the function needs them
+			f.reset();
+			for (int i = 0; i < in_slots.length; i++)
+			{
+				Object o = slots[in_slots[i]];
+				Pin<?> pin = f.getInputPin(i);
+				if (!(o instanceof Failure))
+				{
+					((FunctionPin<?>) pin).setValue(o);
+				}
+				else if (pin instanceof AtomicFunctionInputPin)
+				{
+					((AtomicFunctionInputPin) pin).setFailure(((Failure) o).m_exception);
+				}
+			}
+			for (int j = 0; j < out_arity; j++)
+			{
+				try
+				{
+					slots[offset + j] = ((FunctionPin<?>) f.getOutputPin(j)).getValue();
+				}
+				catch (RuntimeException e)
+				{
+					fail(slots, offset, out_arity, e);
+					return;
+				}
+			}
+			return;
+		}
+		Object[] ins = new Object[in_slots.length];
+		for (int i = 0; i < ins.length; i++)
+		{
+			Object o = slots[in_slots[i]];
+			if (o instanceof Failure)
+			{
+				fail(slots, offset, out_arity, ((Failure) o).m_exception);
+				return;
+			}
+			ins[i] = o;
+		}
+		Object[] outs;
+		try
+		{
+			if (nested != null)
+			{
+				outs = nested.evaluateArray(ins);
+			}
+			else
+			{
+				AtomicFunction af = (AtomicFunction) f;
+				af.reset();
+				for (int i = 0; i < ins.length; i++)
+				{
+					af.m_inputPins[i].setValue(ins[i]);
+				}
+				outs = af.getValue(ins);
+				for (int j = 0; j < out_arity; j++)
+				{
+					af.m_outputPins[j].setValue(outs[j]);
+				}
+			}
+		}
+		catch (RuntimeException e)
+		{
+			fail(slots, offset, out_arity, e);
+			return;
+		}
+		System.arraycopy(outs, 0, slots, offset, out_arity);
+	}
+
+	/**
+	 * Marks all the output slots of a function as failed.
+	 * @param slots The array of slots
+	 * @param offset The first output slot of the function
+	 * @param out_arity The output arity of the function
+	 * @param e The exception thrown when evaluating the function
+	 */
+	protected static void fail(Object[] slots, int offset, int out_arity, RuntimeException e)
+	{
+		Failure f = new Failure(e);
+		for (int j = 0; j < out_arity; j++)
+		{
+			slots[offset + j] = f;
+		}
+	}
+
+	/**
+	 * Determines if a function can be evaluated by calling its
+	 * {@link AtomicFunction#getValue(Object...) getValue()} method directly.
+	 * This is the case of atomic functions that use the default output pins;
+	 * functions that define their own output pins may evaluate their inputs
+	 * differently.
+	 * @param n The function
+	 * @return {@code true} if the function can be evaluated directly,
+	 * {@code false} otherwise
+	 */
+	protected static boolean isDirect(Node n)
+	{
+		if (!(n instanceof AtomicFunction))
+		{
+			return false;
+		}
+		AtomicFunction af = (AtomicFunction) n;
+		for (AtomicFunctionOutputPin pin : af.m_outputPins)
+		{
+			if (pin.getClass() != AtomicFunctionOutputPin.class)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Sorts the functions of a circuit that contribute to its outputs in
+	 * topological order. The order is the same as the one in which the
+	 * functions are evaluated by the recursive evaluation of the circuit: the
+	 * inputs of a function are visited in the order of their index, starting
+	 * from the first output of the circuit. The traversal uses an explicit
+	 * stack, so that it can handle chains of functions of any length.
+	 * @param c The circuit
+	 * @return The sorted list of functions
+	 * @throws FunctionException If the circuit is not properly connected, or
+	 * if its functions form a cycle
+	 */
+	/*@ non_null @*/ protected List<Node> sort(/*@ non_null @*/ Circuit c) throws FunctionException
+	{
+		List<Node> sorted = new ArrayList<Node>();
+		// 0 = on the stack, 1 = sorted
+		Map<Node,Integer> status = new IdentityHashMap<Node,Integer>();
+		List<Node> stack_nodes = new ArrayList<Node>();
+		List<Integer> stack_inputs = new ArrayList<Integer>();
+		for (int i = 0; i < c.getOutputArity(); i++)
+		{
+			Pin<? extends Node> pin = c.getAssociatedOutput(i);
+			if (!(pin instanceof FunctionPin))
+			{
+				throw new FunctionException("Invalid circuit");
+			}
+			push(pin.getNode(), status, stack_nodes, stack_inputs);
+			while (!stack_nodes.isEmpty())
+			{
+				int top = stack_nodes.size() - 1;
+				Node n = stack_nodes.get(top);
+				int next_input = stack_inputs.get(top);
+				if (next_input == n.getInputArity())
+				{
+					stack_nodes.remove(top);
+					stack_inputs.remove(top);
+					status.put(n, 1);
+					sorted.add(n);
+					continue;
+				}
+				stack_inputs.set(top, next_input + 1);
+				if (getCircuitInput(n, next_input) >= 0)
+				{
+					continue;
+				}
+				Node upstream = getUpstreamPin(n, next_input).getNode();
+				Integer s = status.get(upstream);
+				if (s == null)
+				{
+					push(upstream, status, stack_nodes, stack_inputs);
+				}
+				else if (s == 0)
+				{
+					throw new FunctionException("The circuit contains a cycle");
+				}
+			}
+		}
+		return sorted;
+	}
+
+	/**
+	 * Pushes a function on the stack used by {@link #sort(Circuit)}.
+	 * @param n The function
+	 * @param status The map keeping the status of each function
+	 * @param stack_nodes The stack of functions
+	 * @param stack_inputs The stack containing the index of the next input
+	 * to visit for each function
+	 */
+	protected static void push(Node n, Map<Node,Integer> status, List<Node> stack_nodes, List<Integer> stack_inputs)
+	{
+		if (status.containsKey(n))
+		{
+			return;
+		}
+		if (!(n instanceof Function))
+		{
+			throw new FunctionException("Invalid circuit");
+		}
+		status.put(n, 0);
+		stack_nodes.add(n);
+		stack_inputs.add(0);
+	}
+
+	/**
+	 * Gets the input of the circuit that is associated to an input pin of one
+	 * of its functions.
+	 * @param n The function
+	 * @param index The index of the input pin of the function
+	 * @return The index of the input of the circuit, or -1 if this pin is not
+	 * associated to an input of the circuit
+	 */
+	protected int getCircuitInput(Node n, int index)
+	{
+		for (int i = 0; i < m_associatedInputs.length; i++)
+		{
+			FunctionPin<?> pin = m_associatedInputs[i];
+			if (pin.getNode() == n && pin.getIndex() == index)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the output pin of a function that is connected to an input pin of
+	 * another function.
+	 * @param n The function
+	 * @param index The index of the input pin of the function
+	 * @return The upstream pin
+	 * @throws FunctionException If the input pin is not connected to anything
+	 */
+	/*@ non_null @*/ protected static Pin<? extends Node> getUpstreamPin(Node n, int index) throws FunctionException
+	{
+		for (Pin<? extends Node> pin : n.getInputLinks(index))
+		{
+			if (pin instanceof FunctionPin)
+			{
+				return pin;
+			}
+		}
+		throw new FunctionException("Cannot get value");
+	}
+
+	/**
+	 * Marker placed in the slots of a function whose evaluation has thrown an
+	 * exception.
+	 */
+	protected static class Failure
+	{
+		/**
+		 * The exception thrown by the function.
+		 */
+		/*@ non_null @*/ protected final RuntimeException m_exception;
+
+		/**
+		 * Creates a new failure marker.
+		 * @param e The exception thrown by the function
+		 */
+		public Failure(/*@ non_null @*/ RuntimeException e)
+		{
+			super();
+			m_exception = e;
+		}
+	}
+}
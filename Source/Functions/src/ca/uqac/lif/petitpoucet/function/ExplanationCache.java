@@ -0,0 +1,154 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import ca.uqac.lif.petitpoucet.Part;
+import ca.uqac.lif.petitpoucet.PartNode;
+
+/**
+ * Keeps the explanations produced by the functions of a circuit, so that
+ * they can be reused by later queries on the same evaluation. Each entry
+ * associates a part and a subject to the root of the explanation of this
+ * part, once this explanation has been developed up to the inputs (or
+ * outputs) of the circuit. A query that reaches the same part of the same
+ * subject can then graft a copy of this graph instead of asking the subject
+ * for its explanation again, and developing it once more. The graph in the
+ * cache itself is never linked to the graph of another query.
+ * <p>
+ * Subjects are compared by identity, and parts by equality. The entries are
+ * only valid for the evaluation during which they have been produced; the
+ * owner of the cache must {@link #clear() clear} it whenever the functions
+ * are reset or evaluated again.
+ * <p>
+ * The methods of the cache are synchronized, so that the explanations of
+ * multiple parts can be computed by different threads at the same time.
+ * 
+ * @author Sylvain Hallé
+ */
+public class ExplanationCache
+{
+	/**
+	 * The explanations, indexed by subject and then by part.
+	 */
+	/*@ non_null @*/ protected final Map<Object,Map<Part,PartNode>> m_roots;
+
+	/**
+	 * The number of queries that found an explanation in the cache.
+	 */
+	protected long m_hits;
+
+	/**
+	 * The number of queries that did not find an explanation in the cache.
+	 */
+	protected long m_misses;
+
+	/**
+	 * Creates a new empty cache.
+	 */
+	public ExplanationCache()
+	{
+		super();
+		m_roots = new IdentityHashMap<Object,Map<Part,PartNode>>();
+		m_hits = 0;
+		m_misses = 0;
+	}
+
+	/**
+	 * Gets the explanation of a part of a subject.
+	 * @param p The part
+	 * @param subject The subject
+	 * @return The root of the explanation, or null if the cache has none
+	 */
+	/*@ null @*/ public synchronized PartNode get(/*@ non_null @*/ Part p, /*@ non_null @*/ Object subject)
+	{
+		Map<Part,PartNode> parts = m_roots.get(subject);
+		PartNode root = parts == null ? null : parts.get(p);
+		if (root == null)
+		{
+			m_misses++;
+		}
+		else
+		{
+			m_hits++;
+		}
+		return root;
+	}
+
+	/**
+	 * Adds the explanation of a part of a subject to the cache.
+	 * @param p The part
+	 * @param subject The subject
+	 * @param root The root of the explanation
+	 */
+	public synchronized void put(/*@ non_null @*/ Part p, /*@ non_null @*/ Object subject, /*@ non_null @*/ PartNode root)
+	{
+		Map<Part,PartNode> parts = m_roots.get(subject);
+		if (parts == null)
+		{
+			parts = new HashMap<Part,PartNode>();
+			m_roots.put(subject, parts);
+		}
+		parts.put(p, root);
+	}
+
+	/**
+	 * Removes all the explanations from the cache.
+	 */
+	public synchronized void clear()
+	{
+		m_roots.clear();
+	}
+
+	/**
+	 * Gets the number of explanations in the cache.
+	 * @return The number of explanations
+	 */
+	/*@ pure @*/ public synchronized int size()
+	{
+		int size = 0;
+		for (Map<Part,PartNode> parts : m_roots.values())
+		{
+			size += parts.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Gets the number of queries that found an explanation in the cache
+	 * since it has been created.
+	 * @return The number of hits
+	 */
+	/*@ pure @*/ public synchronized long getHits()
+	{
+		return m_hits;
+	}
+
+	/**
+	 * Gets the number of queries that did not find an explanation in the
+	 * cache since it has been created.
+	 * @return The number of misses
+	 */
+	/*@ pure @*/ public synchronized long getMisses()
+	{
+		return m_misses;
+	}
+}
@@ -17,6 +17,9 @@
  */
 package ca.uqac.lif.petitpoucet.function;
 
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import ca.uqac.lif.petitpoucet.Part;
 import ca.uqac.lif.petitpoucet.PartNode;
 import ca.uqac.lif.petitpoucet.Queryable;
@@ -51,4 +54,33 @@ public interface ExplanationQueryable extends Queryable
 	 * the explanation.
 	 */
 	/*@ non_null @*/ public PartNode getExplanation(/*@ non_null @*/ Part part, /*@ non_null @*/ RelationNodeFactory factory);
+	
+	/**
+	 * Produces the explanation graphs for multiple parts. The graphs are
+	 * computed concurrently in the common pool, using a new thread-safe node
+	 * factory shared by all of them.
+	 * @param parts The parts used as the starting points of the explanations
+	 * @return The roots of the explanation graphs, in the same order as the
+	 * list of parts
+	 * @see ParallelExplanation
+	 */
+	/*@ non_null @*/ public List<PartNode> getExplanations(/*@ non_null @*/ List<Part> parts);
+	
+	/**
+	 * Produces the explanation graphs for multiple parts, using nodes provided
+	 * by a given factory. The graphs are computed concurrently, and share the
+	 * part nodes that refer to the same part of the same object, as long as
+	 * they are explained in the same direction. Each graph is the same as the
+	 * one returned by {@link #getExplanation(Part, RelationNodeFactory)} for
+	 * its part.
+	 * @param parts The parts used as the starting points of the explanations
+	 * @param factory The factory that provides nodes, which must be
+	 * thread-safe
+	 * @param pool The pool in which the explanations are computed
+	 * @return The roots of the explanation graphs, in the same order as the
+	 * list of parts
+	 * @throws IllegalArgumentException If the factory is not thread-safe
+	 * @see ParallelExplanation
+	 */
+	/*@ non_null @*/ public List<PartNode> getExplanations(/*@ non_null @*/ List<Part> parts, /*@ non_null @*/ RelationNodeFactory factory, /*@ non_null @*/ ForkJoinPool pool);
 }
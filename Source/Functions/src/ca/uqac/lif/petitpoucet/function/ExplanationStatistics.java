@@ -0,0 +1,133 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function;
+
+/**
+ * Counters describing the work done by a circuit to develop the
+ * explanation graphs of its inner functions. These counters accumulate
+ * over successive queries until they are cleared; they make it possible to
+ * check that the cost of an explanation grows linearly with the size of
+ * the circuit.
+ * <p>
+ * The methods of this class are synchronized, so that the counters can be
+ * shared by explanations computed by different threads.
+ * @author Sylvain Hallé
+ */
+public class ExplanationStatistics
+{
+	/**
+	 * The number of explanation queries asked to the circuit.
+	 */
+	protected long m_queries;
+
+	/**
+	 * The number of pairs made of a part and a function whose explanation
+	 * has been requested.
+	 */
+	protected long m_developed;
+
+	/**
+	 * The number of graph nodes examined in search of leaves to develop.
+	 */
+	protected long m_visited;
+
+	/**
+	 * The number of leaves that have been connected to the explanation of
+	 * another function.
+	 */
+	protected long m_linked;
+
+	/**
+	 * Creates a new empty set of counters.
+	 */
+	public ExplanationStatistics()
+	{
+		super();
+		clear();
+	}
+
+	/**
+	 * Resets all the counters to zero.
+	 */
+	public synchronized void clear()
+	{
+		m_queries = 0;
+		m_developed = 0;
+		m_visited = 0;
+		m_linked = 0;
+	}
+
+	/**
+	 * Adds the values of other counters to these counters.
+	 * @param stats The other counters
+	 */
+	public synchronized void add(/*@ non_null @*/ ExplanationStatistics stats)
+	{
+		m_queries += stats.m_queries;
+		m_developed += stats.m_developed;
+		m_visited += stats.m_visited;
+		m_linked += stats.m_linked;
+	}
+
+	/**
+	 * Gets the number of explanation queries asked to the circuit.
+	 * @return The number of queries
+	 */
+	/*@ pure @*/ public synchronized long getQueries()
+	{
+		return m_queries;
+	}
+
+	/**
+	 * Gets the number of pairs made of a part and a function whose
+	 * explanation has been requested. Each such pair is developed at most
+	 * once per query.
+	 * @return The number of pairs
+	 */
+	/*@ pure @*/ public synchronized long getDevelopedParts()
+	{
+		return m_developed;
+	}
+
+	/**
+	 * Gets the number of graph nodes examined in search of leaves to
+	 * develop. Each node of the explanation graph is examined at most once
+	 * per query.
+	 * @return The number of nodes
+	 */
+	/*@ pure @*/ public synchronized long getVisitedNodes()
+	{
+		return m_visited;
+	}
+
+	/**
+	 * Gets the number of leaves that have been connected to the explanation
+	 * of another function.
+	 * @return The number of leaves
+	 */
+	/*@ pure @*/ public synchronized long getLinkedLeaves()
+	{
+		return m_linked;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return "queries: " + m_queries + ", developed: " + m_developed + ", visited: " + m_visited + ", linked: " + m_linked;
+	}
+}
@@ -17,6 +17,9 @@
  */
 package ca.uqac.lif.petitpoucet.function;
 
+import java.util.Iterator;
+import java.util.List;
+
 import ca.uqac.lif.dag.Connectable;
 import ca.uqac.lif.util.Duplicable;
 
@@ -46,6 +49,119 @@ public interface Function extends Connectable, Contextualizable, Duplicable
 	 */
 	/*@ non_null @*/ public Object[] evaluateArray(/*@ non_null @*/ Object[] inputs);
 	
+	/**
+	 * Evaluates a function on each input tuple of a list. This produces the
+	 * same outputs as successive calls to {@link #evaluateArray(Object[])
+	 * evaluateArray()} and {@link #reset()}, but the setup of the evaluation is
+	 * only done once for the whole list. After the call, the state of the
+	 * function is the one resulting from the evaluation of the last tuple,
+	 * unless copies of the function are kept with
+	 * {@link #evaluateBatch(List, List)}.
+	 * @param inputs The list of input tuples. The size of each array must be
+	 * equal to the function's input arity.
+	 * @return The list of output tuples, in the same order as the inputs
+	 */
+	/*@ non_null @*/ public default List<Object[]> evaluateBatch(/*@ non_null @*/ List<Object[]> inputs)
+	{
+		return evaluateBatch(inputs, null);
+	}
+	
+	/**
+	 * Evaluates a function on each input tuple of a list, and optionally
+	 * keeps the state of the evaluation of each tuple.
+	 * @param inputs The list of input tuples. The size of each array must be
+	 * equal to the function's input arity.
+	 * @param instances If not null, a stateful copy of the function is added
+	 * to this list for each input tuple. The explanation of the outputs
+	 * produced for the <i>i</i>-th tuple can later be requested from the
+	 * <i>i</i>-th copy. Each tuple is then evaluated on its copy, and the
+	 * state of the function itself is left unchanged.
+	 * @return The list of output tuples, in the same order as the inputs
+	 */
+	/*@ non_null @*/ public default List<Object[]> evaluateBatch(/*@ non_null @*/ List<Object[]> inputs, /*@ null @*/ List<Function> instances)
+	{
+		return BatchIterator.toList(evaluateBatch(inputs.iterator(), instances), inputs.size());
+	}
+	
+	/**
+	 * Lazily evaluates a function on each input tuple produced by an iterator.
+	 * The evaluation of a tuple takes place when the corresponding output is
+	 * requested from the returned iterator. In order to avoid allocating one
+	 * array per tuple, the iterator returns the same array on every call to
+	 * {@link Iterator#next() next()}, overwriting its contents; an output tuple
+	 * that must be kept must therefore be copied by the caller.
+	 * @param inputs An iterator over input tuples. The size of each array must
+	 * be equal to the function's input arity.
+	 * @return An iterator over the output tuples
+	 */
+	/*@ non_null @*/ public default Iterator<Object[]> evaluateBatch(/*@ non_null @*/ Iterator<Object[]> inputs)
+	{
+		return evaluateBatch(inputs, null);
+	}
+	
+	/**
+	 * Lazily evaluates a function on each input tuple produced by an iterator,
+	 * and optionally keeps the state of the evaluation of each tuple.
+	 * By default, each tuple is evaluated by a call to {@link #reset()}
+	 * followed by a call to {@link #evaluateArray(Object[]) evaluateArray()};
+	 * implementations can do better by setting up the evaluation only once.
+	 * @param inputs An iterator over input tuples. The size of each array must
+	 * be equal to the function's input arity.
+	 * @param instances If not null, a stateful copy of the function is added
+	 * to this list for each input tuple that is evaluated. Each tuple is then
+	 * evaluated on its copy, and the state of the function itself is left
+	 * unchanged.
+	 * @return An iterator over the output tuples
+	 * @see #evaluateBatch(Iterator)
+	 */
+	/*@ non_null @*/ public default Iterator<Object[]> evaluateBatch(/*@ non_null @*/ Iterator<Object[]> inputs, /*@ null @*/ List<Function> instances)
+	{
+		return new BatchIterator(this, inputs, instances)
+		{
+			@Override
+			protected void evaluate(Object[] in, Object[] out)
+			{
+				m_function.reset();
+				Object[] outs = m_function.evaluateArray(in);
+				System.arraycopy(outs, 0, out, 0, out.length);
+			}
+		};
+	}
+	
+	/**
+	 * Sets whether the function only computes its output values. In this
+	 * "values only" mode, the function skips all the bookkeeping it normally
+	 * performs to be able to explain its output afterwards, such as recording
+	 * witnesses, mappings or instances of inner functions. A request for an
+	 * explanation of an evaluation that took place in this mode throws a
+	 * {@link NoLineageException}. Changing the mode does not affect the
+	 * evaluation that has already taken place: the function can still be
+	 * explained if the mode is turned on after a normal evaluation, and
+	 * cannot be until it is evaluated again if the mode is turned off after
+	 * an evaluation in this mode.
+	 * <p>
+	 * The mode is only a hint: by default, the call is ignored and the
+	 * function keeps recording everything it needs to explain its output.
+	 * @param b Set to {@code true} to enable the mode, {@code false} to
+	 * disable it
+	 */
+	public default void setValuesOnly(boolean b)
+	{
+		// Not supported by default
+	}
+	
+	/**
+	 * Determines if the function is in "values only" mode.
+	 * @return {@code true} if the function only computes its output values,
+	 * {@code false} otherwise; the default implementation always returns
+	 * {@code false}
+	 * @see #setValuesOnly(boolean)
+	 */
+	/*@ pure @*/ public default boolean isValuesOnly()
+	{
+		return false;
+	}
+	
 	/**
 	 * Resets the state of the function to that of a fresh instance of the
 	 * class.
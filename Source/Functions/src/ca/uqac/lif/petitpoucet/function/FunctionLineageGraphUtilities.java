@@ -19,9 +19,12 @@ package ca.uqac.lif.petitpoucet.function;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import ca.uqac.lif.dag.Node;
 import ca.uqac.lif.dag.NodeConnector;
+import ca.uqac.lif.dag.ParallelCrawler;
+import ca.uqac.lif.dag.ParallelCrawler.NodeSearch;
 import ca.uqac.lif.dag.Pin;
 import ca.uqac.lif.petitpoucet.AndNode;
 import ca.uqac.lif.petitpoucet.GraphUtilities;
@@ -79,6 +82,25 @@ public class FunctionLineageGraphUtilities
 		return out;
 	}
 
+	/**
+	 * Determines if a lineage graph depends on an input of a function, that
+	 * is, if one of its leaves designates a part of this input. The graph is
+	 * visited with the threads of a pool, and the visit stops as soon as such
+	 * a leaf is found.
+	 * @param root The root of the lineage graph
+	 * @param index The index of the input
+	 * @param pool The pool in which the graph is visited
+	 * @return {@code true} if the graph depends on the input, {@code false}
+	 * otherwise
+	 * @see ParallelCrawler
+	 */
+	public static boolean dependsOnInput(/*@ non_null @*/ Node root, int index, /*@ non_null @*/ ForkJoinPool pool)
+	{
+		NodeSearch search = new NodeSearch(n -> n instanceof PartNode && GraphUtilities.isLeaf(n) && NthInput.mentionedInput(((PartNode) n).getPart()) == index);
+		new ParallelCrawler(pool).crawl(root, search);
+		return search.getFound() != null;
+	}
+
 	/**
 	 * Cuts a node from its parents if it is a leaf corresponding to a constant.
 	 * @param n The current node
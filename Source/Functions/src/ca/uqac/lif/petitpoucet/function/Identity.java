@@ -63,6 +63,7 @@ public class Identity extends AtomicFunction
 	@Override
 	public PartNode getExplanation(Part d, RelationNodeFactory f)
 	{
+		checkLineage();
 		PartNode root = f.getPartNode(d, this);
 		int mentioned_output = NthOutput.mentionedOutput(d);
 		if (mentioned_output < 0 || mentioned_output > getInputArity())
@@ -17,17 +17,22 @@
  */
 package ca.uqac.lif.petitpoucet.function;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import ca.uqac.lif.petitpoucet.ComposedPart;
 import ca.uqac.lif.petitpoucet.Part;
+import ca.uqac.lif.petitpoucet.PartHash;
+import ca.uqac.lif.petitpoucet.PartPath;
+import ca.uqac.lif.petitpoucet.TaggedPart;
 
 /**
  * Designator related to the n-th input of a function.
  */
-public class NthInput implements Part
+public class NthInput implements TaggedPart
 {
+	/**
+	 * The tag shared by all "n-th input" designators.
+	 */
+	public static final int TAG = PartPath.newTag();
+	
 	/**
 	 * A static reference to an instance of "first input"
 	 */
@@ -67,6 +72,22 @@ public class NthInput implements Part
 		return m_index;
 	}
 	
+	@Override
+	public int getTag()
+	{
+		return TAG;
+	}
+	
+	/**
+	 * Gets the code of this part, which is the index of the input.
+	 * @return The code
+	 */
+	@Override
+	public long getCode()
+	{
+		return m_index;
+	}
+	
 	@Override
 	public boolean appliesTo(Object o)
 	{
@@ -94,7 +115,7 @@ public class NthInput implements Part
 	@Override
 	public int hashCode()
 	{
-		return m_index;
+		return PartHash.hash(NthInput.class, m_index);
 	}
 	
 	@Override
@@ -121,13 +142,10 @@ public class NthInput implements Part
 		if (d instanceof ComposedPart)
 		{
 			ComposedPart cd = (ComposedPart) d;
-			for (int i = 0; i < cd.size(); i++)
+			int i = cd.indexOfTag(TAG);
+			if (i >= 0)
 			{
-				Part p = cd.get(i);
-				if (p instanceof NthInput)
-				{
-					return ((NthInput) p).getIndex();
-				}
+				return (int) cd.getCode(i);
 			}
 		}
 		return -1;
@@ -163,27 +181,13 @@ public class NthInput implements Part
 		if (from instanceof ComposedPart)
 		{
 			ComposedPart cd = (ComposedPart) from;
-			List<Part> desigs = new ArrayList<>();
-			boolean replaced = false;
-			for (int i = 0 ; i < cd.size(); i++)
-			{
-				Part in_d = cd.get(i);
-				if (in_d instanceof NthInput && !replaced)
-				{
-					desigs.add(to);
-					replaced = true;
-				}
-				else
-				{
-					desigs.add(in_d);
-				}
-			}
-			if (!replaced)
+			int index = cd.indexOfTag(TAG);
+			if (index < 0)
 			{
 				// Return input object if no replacement was done
 				return from;
 			}
-			return new ComposedPart(desigs);
+			return cd.replace(index, to);
 		}
 		return from;
 	}
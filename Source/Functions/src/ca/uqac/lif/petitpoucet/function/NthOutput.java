@@ -17,17 +17,22 @@
  */
 package ca.uqac.lif.petitpoucet.function;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import ca.uqac.lif.petitpoucet.ComposedPart;
 import ca.uqac.lif.petitpoucet.Part;
+import ca.uqac.lif.petitpoucet.PartHash;
+import ca.uqac.lif.petitpoucet.PartPath;
+import ca.uqac.lif.petitpoucet.TaggedPart;
 
 /**
  * Designator related to the n-th output of a function.
  */
-public class NthOutput implements Part
+public class NthOutput implements TaggedPart
 {
+	/**
+	 * The tag shared by all "n-th output" designators.
+	 */
+	public static final int TAG = PartPath.newTag();
+	
 	/**
 	 * A static reference to an instance of "first output"
 	 */
@@ -61,6 +66,22 @@ public class NthOutput implements Part
 	{
 		return m_index;
 	}
+	
+	@Override
+	public int getTag()
+	{
+		return TAG;
+	}
+	
+	/**
+	 * Gets the code of this part, which is the index of the output.
+	 * @return The code
+	 */
+	@Override
+	public long getCode()
+	{
+		return m_index;
+	}
 
 	@Override
 	public boolean appliesTo(Object o)
@@ -89,7 +110,7 @@ public class NthOutput implements Part
 	@Override
 	public int hashCode()
 	{
-		return m_index;
+		return PartHash.hash(NthOutput.class, m_index);
 	}
 
 	@Override
@@ -132,27 +153,20 @@ public class NthOutput implements Part
 		if (from instanceof ComposedPart)
 		{
 			ComposedPart cd = (ComposedPart) from;
-			List<Part> desigs = new ArrayList<>();
-			boolean replaced = false;
-			for (int i = 0 ; i < cd.size(); i++)
-			{
-				Part in_d = cd.get(i);
-				if (in_d instanceof NthOutput && !replaced)
-				{
-					desigs.add(to);
-					replaced = true;
-				}
-				else
-				{
-					desigs.add(in_d);
-				}
-			}
-			if (!replaced)
+			int index = cd.indexOfTag(TAG);
+			if (index < 0)
 			{
 				// Return input object if no replacement was done
 				return from;
 			}
-			return ComposedPart.compose(desigs);
+			if (to == null || Part.nothing.equals(to))
+			{
+				// The result must be simplified
+				Part[] desigs = cd.toArray();
+				desigs[index] = to;
+				return ComposedPart.compose(desigs);
+			}
+			return cd.replace(index, to);
 		}
 		return from;
 	}
@@ -171,13 +185,10 @@ public class NthOutput implements Part
 		if (d instanceof ComposedPart)
 		{
 			ComposedPart cd = (ComposedPart) d;
-			for (int i = 0; i < cd.size(); i++)
+			int i = cd.indexOfTag(TAG);
+			if (i >= 0)
 			{
-				Part p = cd.get(i);
-				if (p instanceof NthOutput)
-				{
-					return ((NthOutput) p).getIndex();
-				}
+				return (int) cd.getCode(i);
 			}
 		}
 		return -1;
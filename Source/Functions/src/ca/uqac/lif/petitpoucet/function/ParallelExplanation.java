@@ -0,0 +1,216 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import ca.uqac.lif.petitpoucet.Part;
+import ca.uqac.lif.petitpoucet.PartNode;
+
+/**
+ * Computes the explanations of multiple parts of the same object as tasks
+ * of a {@link ForkJoinPool}. The list of parts is split recursively into
+ * halves until each task is left with a small enough range of parts, whose
+ * explanations it computes sequentially.
+ * <p>
+ * All the explanations are built with the same node factory, which must be
+ * {@link ca.uqac.lif.petitpoucet.NodeFactory#isThreadSafe() thread-safe}.
+ * Hence, a part node that occurs in the explanation of more than one part,
+ * such as a part of an input on which several outputs depend, is the same
+ * instance in all the resulting graphs. A part that occurs more than once
+ * in the list is only explained once.
+ * <p>
+ * Parts of an input are explained "forward", in terms of parts of the
+ * output, while parts of an output are explained "backward". A node
+ * developed in one direction has children that make no sense in the other:
+ * for instance, a part of an input of a circuit is the root of a forward
+ * explanation, but a leaf of a backward one. The parts of the inputs are
+ * therefore explained with a separate factory derived from the one that is
+ * given, so that nodes are only shared between explanations in the same
+ * direction, and the explanation of each part is the same as if it were
+ * requested alone.
+ * 
+ * @author Sylvain Hallé
+ */
+public class ParallelExplanation
+{
+	/**
+	 * The minimum number of parts explained by a task in a single thread,
+	 * below which the range of parts is no longer split.
+	 */
+	protected static final int s_threshold = 4;
+
+	/**
+	 * The object used as a key to derive, from the factory given to
+	 * {@link #explain(ExplanationQueryable, List, RelationNodeFactory, ForkJoinPool) explain()},
+	 * the factory used for the explanations of parts of an input.
+	 */
+	/*@ non_null @*/ protected static final Object s_forward = new Object();
+
+	/**
+	 * Private constructor, to prevent instantiation.
+	 */
+	private ParallelExplanation()
+	{
+		super();
+	}
+
+	/**
+	 * Computes the explanations of multiple parts of an object.
+	 * @param subject The object to ask for explanations
+	 * @param parts The parts to explain
+	 * @param factory The factory providing the nodes of all the explanations
+	 * @param pool The pool in which the explanations are computed
+	 * @return The list of the roots of the explanations, in the same order as
+	 * the list of parts
+	 * @throws IllegalArgumentException If the factory is not thread-safe
+	 */
+	/*@ non_null @*/ public static List<PartNode> explain(/*@ non_null @*/ ExplanationQueryable subject, /*@ non_null @*/ List<Part> parts, /*@ non_null @*/ RelationNodeFactory factory, /*@ non_null @*/ ForkJoinPool pool)
+	{
+		if (!factory.isThreadSafe())
+		{
+			throw new IllegalArgumentException("The node factory must be thread-safe");
+		}
+		Map<Part,Integer> positions = new HashMap<Part,Integer>(parts.size());
+		List<Part> distinct = new ArrayList<Part>(parts.size());
+		int[] indices = new int[parts.size()];
+		for (int i = 0; i < indices.length; i++)
+		{
+			Part p = parts.get(i);
+			Integer pos = positions.get(p);
+			if (pos == null)
+			{
+				pos = distinct.size();
+				positions.put(p, pos);
+				distinct.add(p);
+			}
+			indices[i] = pos;
+		}
+		PartNode[] roots = new PartNode[distinct.size()];
+		RelationNodeFactory forward = factory.getFactory(Part.all, s_forward);
+		int threshold = Math.max(s_threshold, roots.length / (4 * pool.getParallelism()));
+		pool.invoke(new ExplanationTask(subject, distinct, factory, forward, roots, 0, roots.length, threshold));
+		List<PartNode> out = new ArrayList<PartNode>(indices.length);
+		for (int index : indices)
+		{
+			out.add(roots[index]);
+		}
+		return out;
+	}
+
+	/**
+	 * Task computing the explanations of a range of parts, splitting this
+	 * range in two if it is too large.
+	 */
+	protected static class ExplanationTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The object to ask for explanations.
+		 */
+		/*@ non_null @*/ protected final ExplanationQueryable m_subject;
+
+		/**
+		 * The parts to explain.
+		 */
+		/*@ non_null @*/ protected final List<Part> m_parts;
+
+		/**
+		 * The factory providing the nodes of the explanations of parts of an
+		 * output.
+		 */
+		/*@ non_null @*/ protected final RelationNodeFactory m_factory;
+
+		/**
+		 * The factory providing the nodes of the explanations of parts of an
+		 * input.
+		 */
+		/*@ non_null @*/ protected final RelationNodeFactory m_forward;
+
+		/**
+		 * The array where the root of the explanation of each part is written.
+		 */
+		/*@ non_null @*/ protected final PartNode[] m_roots;
+
+		/**
+		 * The index of the first part explained by this task.
+		 */
+		protected final int m_from;
+
+		/**
+		 * The index after the last part explained by this task.
+		 */
+		protected final int m_to;
+
+		/**
+		 * The number of parts below which the range is no longer split.
+		 */
+		protected final int m_threshold;
+
+		/**
+		 * Creates a new task.
+		 * @param subject The object to ask for explanations
+		 * @param parts The parts to explain
+		 * @param factory The factory providing the nodes of the explanations of
+		 * parts of an output
+		 * @param forward The factory providing the nodes of the explanations of
+		 * parts of an input
+		 * @param roots The array where the root of the explanation of each part
+		 * is written
+		 * @param from The index of the first part explained by this task
+		 * @param to The index after the last part explained by this task
+		 * @param threshold The number of parts below which the range is no
+		 * longer split
+		 */
+		public ExplanationTask(ExplanationQueryable subject, List<Part> parts, RelationNodeFactory factory, RelationNodeFactory forward, PartNode[] roots, int from, int to, int threshold)
+		{
+			super();
+			m_subject = subject;
+			m_parts = parts;
+			m_factory = factory;
+			m_forward = forward;
+			m_roots = roots;
+			m_from = from;
+			m_to = to;
+			m_threshold = threshold;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (m_to - m_from <= m_threshold)
+			{
+				for (int i = m_from; i < m_to; i++)
+				{
+					Part p = m_parts.get(i);
+					m_roots[i] = m_subject.getExplanation(p, NthInput.mentionedInput(p) >= 0 ? m_forward : m_factory);
+				}
+				return;
+			}
+			int middle = (m_from + m_to) >>> 1;
+			invokeAll(new ExplanationTask(m_subject, m_parts, m_factory, m_forward, m_roots, m_from, middle, m_threshold),
+					new ExplanationTask(m_subject, m_parts, m_factory, m_forward, m_roots, middle, m_to, m_threshold));
+		}
+	}
+}
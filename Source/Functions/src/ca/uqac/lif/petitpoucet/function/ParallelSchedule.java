@@ -0,0 +1,279 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Evaluates the functions of an {@link EvaluationPlan} as tasks of a
+ * {@link ForkJoinPool}. A function is evaluated as soon as all the functions
+ * that produce its inputs have been evaluated. Therefore, the independent
+ * branches of a circuit that feed different input pins of the same function
+ * are evaluated concurrently, and joined when this function is evaluated.
+ * <p>
+ * To limit the overhead of this scheduling, a task that completes a function
+ * does not fork a new task for every function that becomes ready as a
+ * result: it keeps the first one for itself, and only forks tasks for the
+ * others. A chain of functions is hence evaluated by a single task, and new
+ * tasks are only created where the circuit actually branches. Parallel
+ * evaluation is worthwhile when these branches contain expensive functions,
+ * such as reflective calls or operations on large vectors; for circuits made
+ * of many cheap functions, the sequential evaluation of the plan remains
+ * faster.
+ * <p>
+ * A schedule only depends on the structure of the plan, and can be shared by
+ * multiple evaluations running at the same time.
+ * 
+ * @author Sylvain Hallé
+ */
+public class ParallelSchedule
+{
+	/**
+	 * The plan evaluated by this schedule.
+	 */
+	/*@ non_null @*/ protected final EvaluationPlan m_plan;
+
+	/**
+	 * For each function of the plan, the position of the functions that
+	 * consume at least one of its outputs. Each consumer occurs only once.
+	 */
+	/*@ non_null @*/ protected final int[][] m_consumers;
+
+	/**
+	 * For each function of the plan, the number of distinct functions that
+	 * produce its inputs.
+	 */
+	/*@ non_null @*/ protected final int[] m_producers;
+
+	/**
+	 * The position of the functions that do not depend on any other function.
+	 */
+	/*@ non_null @*/ protected final int[] m_sources;
+
+	/**
+	 * Creates a new schedule for an evaluation plan.
+	 * @param plan The plan
+	 */
+	public ParallelSchedule(/*@ non_null @*/ EvaluationPlan plan)
+	{
+		super();
+		m_plan = plan;
+		int size = plan.m_functions.length;
+		// The function that writes in each slot; -1 for the inputs of the circuit
+		int[] owners = new int[plan.m_numSlots];
+		for (int i = 0; i < plan.m_associatedInputs.length; i++)
+		{
+			owners[i] = -1;
+		}
+		for (int k = 0; k < size; k++)
+		{
+			for (int j = 0; j < plan.m_functions[k].getOutputArity(); j++)
+			{
+				owners[plan.m_outputOffsets[k] + j] = k;
+			}
+		}
+		List<List<Integer>> consumers = new ArrayList<List<Integer>>(size);
+		for (int k = 0; k < size; k++)
+		{
+			consumers.add(new ArrayList<Integer>(1));
+		}
+		m_producers = new int[size];
+		List<Integer> sources = new ArrayList<Integer>();
+		for (int k = 0; k < size; k++)
+		{
+			for (int slot : plan.m_inputSlots[k])
+			{
+				int owner = owners[slot];
+				if (owner < 0)
+				{
+					continue;
+				}
+				List<Integer> list = consumers.get(owner);
+				// Functions are added in increasing order, so a duplicate can only
+				// be the last element of the list
+				if (list.isEmpty() || list.get(list.size() - 1) != k)
+				{
+					list.add(k);
+					m_producers[k]++;
+				}
+			}
+			if (m_producers[k] == 0)
+			{
+				sources.add(k);
+			}
+		}
+		m_consumers = new int[size][];
+		for (int k = 0; k < size; k++)
+		{
+			m_consumers[k] = toArray(consumers.get(k));
+		}
+		m_sources = toArray(sources);
+	}
+
+	/**
+	 * Evaluates the functions of the plan.
+	 * @param pool The pool in which the functions are evaluated
+	 * @param functions The function to evaluate at each position of the plan
+	 * @param nested For each function that is a circuit, the plan used to
+	 * evaluate it
+	 * @param slots The array of slots, where the inputs of the circuit have
+	 * already been written
+	 */
+	protected void evaluate(/*@ non_null @*/ ForkJoinPool pool, /*@ non_null @*/ Function[] functions, /*@ non_null @*/ EvaluationPlan[] nested, /*@ non_null @*/ Object[] slots)
+	{
+		pool.invoke(new RootTask(functions, nested, slots, new AtomicIntegerArray(m_producers)));
+	}
+
+	/**
+	 * Converts a list of integers into an array.
+	 * @param list The list
+	 * @return The array
+	 */
+	/*@ non_null @*/ protected static int[] toArray(/*@ non_null @*/ List<Integer> list)
+	{
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++)
+		{
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+
+	/**
+	 * Task that starts the evaluation of the functions that do not depend on
+	 * any other function, and completes when all the functions of the plan
+	 * have been evaluated.
+	 */
+	protected class RootTask extends CountedCompleter<Void>
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The function to evaluate at each position of the plan.
+		 */
+		/*@ non_null @*/ protected final Function[] m_functions;
+
+		/**
+		 * For each function that is a circuit, the plan used to evaluate it.
+		 */
+		/*@ non_null @*/ protected final EvaluationPlan[] m_nested;
+
+		/**
+		 * The array of slots.
+		 */
+		/*@ non_null @*/ protected final Object[] m_slots;
+
+		/**
+		 * For each function, the number of its producers that remain to be
+		 * evaluated.
+		 */
+		/*@ non_null @*/ protected final AtomicIntegerArray m_pending;
+
+		/**
+		 * Creates a new root task.
+		 * @param functions The function to evaluate at each position of the plan
+		 * @param nested For each function that is a circuit, the plan used to
+		 * evaluate it
+		 * @param slots The array of slots
+		 * @param pending For each function, the number of its producers that
+		 * remain to be evaluated
+		 */
+		public RootTask(Function[] functions, EvaluationPlan[] nested, Object[] slots, AtomicIntegerArray pending)
+		{
+			super();
+			m_functions = functions;
+			m_nested = nested;
+			m_slots = slots;
+			m_pending = pending;
+		}
+
+		@Override
+		public void compute()
+		{
+			for (int k : m_sources)
+			{
+				addToPendingCount(1);
+				new StepTask(this, k).fork();
+			}
+			tryComplete();
+		}
+	}
+
+	/**
+	 * Task that evaluates a function of the plan, and then the functions that
+	 * become ready as a result.
+	 */
+	protected class StepTask extends CountedCompleter<Void>
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The root task, which holds the state of the evaluation.
+		 */
+		/*@ non_null @*/ protected final RootTask m_root;
+
+		/**
+		 * The position of the first function to evaluate.
+		 */
+		protected final int m_step;
+
+		/**
+		 * Creates a new step task.
+		 * @param parent The task that completes when this task completes
+		 * @param k The position of the first function to evaluate
+		 */
+		public StepTask(/*@ non_null @*/ CountedCompleter<?> parent, int k)
+		{
+			super(parent);
+			m_root = (RootTask) getRoot();
+			m_step = k;
+		}
+
+		@Override
+		public void compute()
+		{
+			int k = m_step;
+			while (k >= 0)
+			{
+				m_plan.evaluateFunction(k, m_root.m_functions[k], m_root.m_nested[k], m_root.m_slots);
+				int next = -1;
+				for (int c : m_consumers[k])
+				{
+					if (m_root.m_pending.decrementAndGet(c) == 0)
+					{
+						if (next < 0)
+						{
+							next = c;
+						}
+						else
+						{
+							addToPendingCount(1);
+							new StepTask(this, c).fork();
+						}
+					}
+				}
+				k = next;
+			}
+			tryComplete();
+		}
+	}
+}
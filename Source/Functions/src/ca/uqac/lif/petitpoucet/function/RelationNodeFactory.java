@@ -17,42 +17,185 @@
  */
 package ca.uqac.lif.petitpoucet.function;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+
 import ca.uqac.lif.petitpoucet.NodeFactory;
+import ca.uqac.lif.petitpoucet.NodeStore;
 import ca.uqac.lif.petitpoucet.Part;
+import ca.uqac.lif.petitpoucet.PartNode;
 
 /**
  * A {@link NodeFactory} that produces instances of {@link RelationNode} when
  * asked for an {@link AndNode}.
+ * <p>
+ * Functions asked for an explanation without being given a factory use the
+ * one returned by {@link #getFactory()}. By default, this is a single
+ * thread-safe instance that only remembers the nodes of lineage graphs that
+ * are still referenced elsewhere. A thread can instead
+ * {@link #open() open} a factory as the scope of a session of queries, in
+ * which case explanations asked by this thread use this factory until it is
+ * closed:
+ * <pre>
+ * try (RelationNodeFactory f = RelationNodeFactory.openScope())
+ * {
+ *   PartNode root = function.getExplanation(part);
+ *   ...
+ * }
+ * </pre>
+ * Closing the factory releases all the nodes it has produced.
  * 
  * @author Sylvain Hallé
  */
 public class RelationNodeFactory extends NodeFactory
 {
 	/**
-	 * A single instance of the node factory.
+	 * A single instance of the node factory, used when no scope is open.
+	 */
+	protected static final RelationNodeFactory s_factory = new RelationNodeFactory(NodeStore.<PartNode>weak());
+	
+	/**
+	 * The factories opened as scopes by each thread, the most recent first.
 	 */
-	protected static final RelationNodeFactory s_factory = new RelationNodeFactory();
+	protected static final ThreadLocal<Deque<RelationNodeFactory>> s_scopes = new ThreadLocal<Deque<RelationNodeFactory>>();
+
+	/**
+	 * The thread that has opened this factory as a scope, or null if the
+	 * factory is not open.
+	 */
+	/*@ null @*/ protected volatile Thread m_owner;
 	
 	/**
-	 * Gets a default instance of the node factory.
+	 * Gets a default instance of the node factory. This is the factory of the
+	 * innermost scope opened by the current thread, if any, and a single
+	 * shared instance otherwise.
 	 * @return The factory
 	 */
 	public static RelationNodeFactory getFactory()
 	{
-		return s_factory;
+		Deque<RelationNodeFactory> scopes = s_scopes.get();
+		if (scopes == null || scopes.isEmpty())
+		{
+			return s_factory;
+		}
+		return scopes.peek();
+	}
+	
+	/**
+	 * Creates a new thread-safe factory and opens it as a scope for the
+	 * current thread.
+	 * @return The factory
+	 * @see #open()
+	 */
+	/*@ non_null @*/ public static RelationNodeFactory openScope()
+	{
+		return new RelationNodeFactory(true).open();
+	}
+	
+	/**
+	 * Creates a new node factory.
+	 */
+	public RelationNodeFactory()
+	{
+		this(false);
+	}
+	
+	/**
+	 * Creates a new node factory.
+	 * @param thread_safe Set to {@code true} to create a factory that can be
+	 * used by multiple threads at the same time, such as the threads that
+	 * compute the explanations of
+	 * {@link ExplanationQueryable#getExplanations(java.util.List, RelationNodeFactory, java.util.concurrent.ForkJoinPool)}
+	 */
+	public RelationNodeFactory(boolean thread_safe)
+	{
+		super(thread_safe);
+	}
+	
+	/**
+	 * Creates a new node factory.
+	 * @param store The store where the factory keeps its nodes, which
+	 * determines when they are evicted
+	 */
+	public RelationNodeFactory(/*@ non_null @*/ NodeStore<PartNode> store)
+	{
+		super(store);
+	}
+	
+	/**
+	 * Opens this factory as a scope for the current thread. Until the factory
+	 * is closed, it is returned by {@link #getFactory()} in this thread.
+	 * Scopes can be nested.
+	 * @return This factory
+	 * @throws IllegalStateException If the factory is already open as a
+	 * scope in another thread
+	 */
+	/*@ non_null @*/ public RelationNodeFactory open()
+	{
+		checkOwner();
+		m_owner = Thread.currentThread();
+		Deque<RelationNodeFactory> scopes = s_scopes.get();
+		if (scopes == null)
+		{
+			scopes = new ArrayDeque<RelationNodeFactory>();
+			s_scopes.set(scopes);
+		}
+		scopes.push(this);
+		return this;
 	}
 	
+	/**
+	 * Releases all the nodes remembered by this factory and, if it has been
+	 * opened as a scope, closes this scope. A scope can only be closed by the
+	 * thread that has opened it, since it is in this thread that the factory
+	 * is returned by {@link #getFactory()}.
+	 * @throws IllegalStateException If the factory is open as a scope in
+	 * another thread
+	 */
 	@Override
-	public RelationNodeFactory getFactory(Part p, Object subject)
+	public void close()
 	{
-		ObjectPart op = new ObjectPart(p, subject);
-		if (m_factories.containsKey(op))
+		checkOwner();
+		super.close();
+		if (m_owner == null)
 		{
-			return (RelationNodeFactory) m_factories.get(op);
+			return;
 		}
-		RelationNodeFactory new_factory = new RelationNodeFactory();
-		m_factories.put(op, new_factory);
-		return new_factory;
+		m_owner = null;
+		// The scope may have been opened more than once
+		Deque<RelationNodeFactory> scopes = s_scopes.get();
+		scopes.removeIf(f -> f == this);
+		if (scopes.isEmpty())
+		{
+			s_scopes.remove();
+		}
+	}
+
+	/**
+	 * Checks that this factory is not open as a scope in a thread other than
+	 * the current one.
+	 * @throws IllegalStateException If the factory is open as a scope in
+	 * another thread
+	 */
+	protected void checkOwner()
+	{
+		Thread owner = m_owner;
+		if (owner != null && owner != Thread.currentThread())
+		{
+			throw new IllegalStateException("The scope is open in another thread");
+		}
+	}
+	
+	@Override
+	public RelationNodeFactory getFactory(Part p, Object subject)
+	{
+		return (RelationNodeFactory) super.getFactory(p, subject);
+	}
+	
+	@Override
+	protected RelationNodeFactory newFactory()
+	{
+		return new RelationNodeFactory(m_partNodes.<PartNode>newStore());
 	}
 	
 	@Override
@@ -53,10 +53,20 @@ public class AllObjects extends BooleanObjectQuantifier
 		return f.getOrNode();
 	}
 
+	@Override
+	public AllObjects lazy(boolean lazy)
+	{
+		super.lazy(lazy);
+		return this;
+	}
+
 	@Override
 	public AtomicFunction duplicate(boolean with_state)
 	{
-		return new AllObjects(m_condition);
+		AllObjects q = new AllObjects(m_condition);
+		q.m_lazy = m_lazy;
+		q.m_valuesOnly = m_valuesOnly;
+		return q;
 	}
 
 	@Override
@@ -74,6 +74,7 @@ public abstract class BooleanConnective extends AtomicFunction
 	@Override
 	public PartNode getExplanation(Part d, RelationNodeFactory factory)
 	{
+		checkLineage();
 		PartNode root = factory.getPartNode(d, this);
 		int output_nb = NthOutput.mentionedOutput(d);
 		if (output_nb != 0)
@@ -67,6 +67,7 @@ public abstract class BooleanObjectQuantifier extends ObjectQuantifier
 	@Override
 	public PartNode getExplanation(Part p, RelationNodeFactory f)
 	{
+		checkLineage();
 		PartNode root = f.getPartNode(p, this);
 		if (m_conditions.isEmpty())
 		{
@@ -84,7 +85,7 @@ public abstract class BooleanObjectQuantifier extends ObjectQuantifier
 		{
 			System.out.println("Condition " + i);
 			FunctionIndex fi = m_conditions.get(i);
-			Function func = fi.m_function;
+			Function func = getCondition(fi.m_index, fi.m_function);
 			RelationNodeFactory sub_factory = f.getFactory(p, func);
 			PartNode sub_root = ((ExplanationQueryable) func).getExplanation(p, sub_factory);
 			to_add.addChild(sub_root);
@@ -158,9 +159,10 @@ public abstract class BooleanObjectQuantifier extends ObjectQuantifier
 	protected static class FunctionIndex
 	{
 		/**
-		 * The function evaluated on an object.
+		 * The function evaluated on an object; null if the quantifier is in
+		 * lazy mode.
 		 */
-		/*@ non_null @*/ protected final Function m_function;
+		/*@ null @*/ protected final Function m_function;
 		
 		/**
 		 * The index of the object.
@@ -171,9 +173,10 @@ public abstract class BooleanObjectQuantifier extends ObjectQuantifier
 		 * Creates a new function index.
 		 * @param index The position of the element in the input on which the
 		 * condition was evaluated
-		 * @param f The function evaluated on an object
+		 * @param f The function evaluated on an object; null if the quantifier
+		 * is in lazy mode
 		 */
-		public FunctionIndex(int index, /*@ non_null @*/ Function f)
+		public FunctionIndex(int index, /*@ null @*/ Function f)
 		{
 			super();
 			m_index = index;
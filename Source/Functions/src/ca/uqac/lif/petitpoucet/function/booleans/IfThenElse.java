@@ -78,6 +78,7 @@ public class IfThenElse extends AtomicFunction
 	@Override
 	public PartNode getExplanation(Part d, RelationNodeFactory factory)
 	{
+		checkLineage();
 		PartNode root = factory.getPartNode(d, this);
 		int out_index = NthOutput.mentionedOutput(d);
 		if (out_index == 0)
@@ -53,10 +53,20 @@ public class SomeObject extends BooleanObjectQuantifier
 		return f.getOrNode();
 	}
 
+	@Override
+	public SomeObject lazy(boolean lazy)
+	{
+		super.lazy(lazy);
+		return this;
+	}
+
 	@Override
 	public AtomicFunction duplicate(boolean with_state)
 	{
-		return new SomeObject(m_condition);
+		SomeObject q = new SomeObject(m_condition);
+		q.m_lazy = m_lazy;
+		q.m_valuesOnly = m_valuesOnly;
+		return q;
 	}
 
 	@Override
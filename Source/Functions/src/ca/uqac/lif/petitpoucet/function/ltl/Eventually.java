@@ -45,6 +45,7 @@ public class Eventually extends UnaryOperator
 	@Override
 	public PartNode getExplanation(Part d, RelationNodeFactory factory)
 	{
+		checkLineage();
 		return getExplanation(d, factory, true);
 	}
 
@@ -45,6 +45,7 @@ public class Globally extends UnaryOperator
 	@Override
 	public PartNode getExplanation(Part d, RelationNodeFactory factory)
 	{
+		checkLineage();
 		return getExplanation(d, factory, false);
 	}
 
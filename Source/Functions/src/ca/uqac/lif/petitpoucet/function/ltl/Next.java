@@ -73,6 +73,7 @@ public class Next extends AtomicFunction
 	@Override
 	public PartNode getExplanation(Part d, RelationNodeFactory factory)
 	{
+		checkLineage();
 		PartNode root = factory.getPartNode(d, this);
 		int out_pos = NthOutput.mentionedOutput(d);
 		if (out_pos != 0)
@@ -140,7 +140,10 @@ public abstract class UnaryOperator extends AtomicFunction
 			boolean b = (Boolean) o;
 			if (b == witness_value)
 			{
-				m_witnesses.add(i);
+				if (!m_valuesOnly)
+				{
+					m_witnesses.add(i);
+				}
 				for (int j = last_witness + 1; j <= i; j++)
 				{
 					out_list.add(witness_value);
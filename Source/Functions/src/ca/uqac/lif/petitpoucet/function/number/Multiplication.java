@@ -118,6 +118,7 @@ public class Multiplication extends AtomicFunction implements ExplanationQueryab
 	@Override
 	public PartNode getExplanation(Part part, RelationNodeFactory factory)
 	{
+		checkLineage();
 		PartNode root = factory.getPartNode(part, this);
 		int num_nulls = countNulls();
 		if (num_nulls == 0)
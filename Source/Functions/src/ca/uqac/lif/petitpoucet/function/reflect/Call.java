@@ -97,6 +97,7 @@ public class Call extends AtomicFunction
 	@Override
 	public PartNode getExplanation(Part p, RelationNodeFactory f)
 	{
+		checkLineage();
 		PartNode root = f.getPartNode(p, this);
 		Part new_p = NthOutput.replaceOutBy(p, ComposedPart.compose(m_part, NthInput.FIRST));
 		root.addChild(f.getPartNode(new_p, this));
@@ -18,6 +18,7 @@
 package ca.uqac.lif.petitpoucet.function.reflect;
 
 import ca.uqac.lif.petitpoucet.Part;
+import ca.uqac.lif.petitpoucet.PartHash;
 
 /**
  * Part that designates a member field of some object.
@@ -77,7 +78,7 @@ public class Field implements Part, Comparable<Field>
 	@Override
 	public int hashCode()
 	{
-		return m_name.hashCode();
+		return PartHash.hash(Field.class, m_name.hashCode());
 	}
 	
 	@Override
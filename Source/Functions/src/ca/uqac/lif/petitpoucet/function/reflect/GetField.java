@@ -99,6 +99,7 @@ public class GetField extends AtomicFunction
 	@Override
 	public PartNode getExplanation(Part p, RelationNodeFactory factory)
 	{
+		checkLineage();
 		PartNode root = factory.getPartNode(p, this);
 		if (NthOutput.mentionedOutput(p) != 0)
 		{
@@ -18,6 +18,7 @@
 package ca.uqac.lif.petitpoucet.function.reflect;
 
 import ca.uqac.lif.petitpoucet.Part;
+import ca.uqac.lif.petitpoucet.PartHash;
 
 /**
  * Part designating the return value produced by a call to a method on a Java
@@ -69,7 +70,7 @@ public class ReturnValue implements Part
 	@Override
 	public int hashCode()
 	{
-		return m_methodName.hashCode();
+		return PartHash.hash(ReturnValue.class, m_methodName.hashCode());
 	}
 	
 	@Override
@@ -58,8 +58,10 @@ public class Contains extends AtomicFunction
 	public Contains duplicate(boolean with_state)
 	{
 		Contains c = new Contains();
+		c.m_valuesOnly = m_valuesOnly;
 		if (with_state)
 		{
+			c.m_noLineage = m_noLineage;
 			c.m_matches.addAll(m_matches);
 		}
 		return c;
@@ -77,6 +79,10 @@ public class Contains extends AtomicFunction
 		String needle = (String) inputs[1];
 		Pattern pat = Pattern.compile(needle);
 		Matcher mat = pat.matcher(haystack);
+		if (m_valuesOnly)
+		{
+			return new Object[] {mat.find()};
+		}
 		while (mat.find())
 		{
 			m_matches.add(new Range(mat.start(), mat.end()));
@@ -87,6 +93,7 @@ public class Contains extends AtomicFunction
 	@Override
 	public PartNode getExplanation(Part p, RelationNodeFactory factory)
 	{
+		checkLineage();
 		PartNode root = factory.getPartNode(p, this);
 		if (m_matches.isEmpty())
 		{
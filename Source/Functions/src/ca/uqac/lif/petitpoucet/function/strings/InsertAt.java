@@ -55,14 +55,14 @@ public class InsertAt extends StringMappingFunction
 		if (insertion_point > 0)
 		{
 			out.append(s.substring(0, insertion_point));
-			m_mapping.add(new Range(0, insertion_point - 1), new Range(0, insertion_point - 1));
+			addMapping(new Range(0, insertion_point - 1), new Range(0, insertion_point - 1));
 		}
 		out.append(m_toInsert);
 		if (insertion_point < s.length())
 		{
 			int remaining = s.length() - insertion_point;
 			out.append(s.substring(insertion_point));
-			m_mapping.add(new Range(insertion_point, insertion_point + remaining - 1), new Range(insertion_point + inserted_length, insertion_point + inserted_length + remaining - 1));
+			addMapping(new Range(insertion_point, insertion_point + remaining - 1), new Range(insertion_point + inserted_length, insertion_point + inserted_length + remaining - 1));
 		}
 		return out.toString();
 	}
@@ -17,6 +17,8 @@
  */
 package ca.uqac.lif.petitpoucet.function.strings;
 
+import ca.uqac.lif.petitpoucet.PartHash;
+
 /**
  * A position in the string, expressed in terms of lines and columns.
  * Contrary to a linear index, a Position displays lines and
@@ -85,7 +87,7 @@ public class Position implements Comparable<Position>
 	@Override
 	public int hashCode()
 	{
-		return m_line * m_column;
+		return PartHash.hash(Position.class, m_line, m_column);
 	}
 
 	@Override
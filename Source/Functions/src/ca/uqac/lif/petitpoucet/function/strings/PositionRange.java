@@ -18,6 +18,7 @@
 package ca.uqac.lif.petitpoucet.function.strings;
 
 import ca.uqac.lif.petitpoucet.Part;
+import ca.uqac.lif.petitpoucet.PartHash;
 
 /**
  * An interval of characters in a string represented by a start and end
@@ -95,7 +96,7 @@ public class PositionRange implements Part, Comparable<PositionRange>
 	@Override
 	public int hashCode()
 	{
-		return m_end.hashCode() + m_start.hashCode();
+		return PartHash.hash(PositionRange.class, m_start.hashCode(), m_end.hashCode());
 	}
 	
 	@Override
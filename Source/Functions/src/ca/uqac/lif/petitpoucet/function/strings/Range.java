@@ -17,19 +17,23 @@
  */
 package ca.uqac.lif.petitpoucet.function.strings;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import ca.uqac.lif.petitpoucet.ComposedPart;
 import ca.uqac.lif.petitpoucet.Part;
+import ca.uqac.lif.petitpoucet.PartHash;
+import ca.uqac.lif.petitpoucet.PartPath;
+import ca.uqac.lif.petitpoucet.TaggedPart;
 import ca.uqac.lif.petitpoucet.function.NthInput;
 
 /**
  * Part representing a contiguous sequence of characters in a string.
  * @author Sylvain Hallé
  */
-public class Range implements Part, Comparable<Range>
+public class Range implements TaggedPart, Comparable<Range>
 {
+	/**
+	 * The tag shared by all range designators.
+	 */
+	public static final int TAG = PartPath.newTag();
 	
 	public static Range rangeOf(String word, String s)
 	{
@@ -81,6 +85,23 @@ public class Range implements Part, Comparable<Range>
 		return m_endIndex;
 	}
 	
+	@Override
+	public int getTag()
+	{
+		return TAG;
+	}
+	
+	/**
+	 * Gets the code of this part, which is made of its start and end positions packed with
+	 * {@link PartPath#pack(int, int)}.
+	 * @return The code
+	 */
+	@Override
+	public long getCode()
+	{
+		return PartPath.pack(m_startIndex, m_endIndex);
+	}
+	
 	/**
 	 * Gets the length of the range.
 	 * @return The length
@@ -158,7 +179,7 @@ public class Range implements Part, Comparable<Range>
 	@Override
 	public int hashCode()
 	{
-		return m_startIndex + m_endIndex;
+		return PartHash.hash(Range.class, m_startIndex, m_endIndex);
 	}
 	
 	@Override
@@ -205,13 +226,10 @@ public class Range implements Part, Comparable<Range>
 		else if (d instanceof ComposedPart)
 		{
 			ComposedPart cd = (ComposedPart) d;
-			for (int i = cd.size() - 1; i >= 0; i--)
+			int i = cd.indexOfTag(TAG);
+			if (i >= 0)
 			{
-				Part in_d = cd.get(i);
-				if (in_d instanceof Range)
-				{
-					r = (Range) in_d;
-				}
+				r = (Range) cd.get(i);
 			}
 		}
 		return r;
@@ -226,23 +244,17 @@ public class Range implements Part, Comparable<Range>
 	 */
 	public static Part removeRange(Part d)
 	{
-		List<Part> parts = new ArrayList<>();
-		boolean removed = false;
-		if (d instanceof ComposedPart)
+		if (!(d instanceof ComposedPart))
 		{
-			ComposedPart cd = (ComposedPart) d;
-			for (int i = cd.size() - 1; i >= 0; i--)
-			{
-				Part in_d = cd.get(i);
-				if (in_d instanceof Range && !removed)
-				{
-					removed = true;
-				}
-				else
-				{
-					parts.add(0, in_d);
-				}
-			}
+			return Part.nothing;
+		}
+		ComposedPart cd = (ComposedPart) d;
+		Part[] parts = cd.toArray();
+		int index = cd.lastIndexOfTag(TAG);
+		if (index >= 0)
+		{
+			// Null elements are ignored by compose
+			parts[index] = null;
 		}
 		return ComposedPart.compose(parts);
 	}
@@ -264,27 +276,13 @@ public class Range implements Part, Comparable<Range>
 		if (from instanceof ComposedPart)
 		{
 			ComposedPart cd = (ComposedPart) from;
-			List<Part> desigs = new ArrayList<>();
-			boolean replaced = false;
-			for (int i = 0 ; i < cd.size(); i++)
-			{
-				Part in_d = cd.get(i);
-				if (in_d instanceof Range && !replaced)
-				{
-					desigs.add(to);
-					replaced = true;
-				}
-				else
-				{
-					desigs.add(in_d);
-				}
-			}
-			if (!replaced)
+			int index = cd.indexOfTag(TAG);
+			if (index < 0)
 			{
 				// Return input object if no replacement was done
 				return from;
 			}
-			return new ComposedPart(desigs);
+			return cd.replace(index, to);
 		}
 		return from;
 	}
@@ -39,13 +39,13 @@ public class Remove extends RangeStringMappingFunction
 		StringBuilder out = new StringBuilder();
 		if (start > 0)
 		{
-			m_mapping.add(new Range(0, start - 1), new Range(0, start - 1));
+			addMapping(new Range(0, start - 1), new Range(0, start - 1));
 			out.append(s.substring(0, start));
 		}
 		if (end < s.length())
 		{
 			int remaining = s.length() - end - 1;
-			m_mapping.add(new Range(end, end + remaining), new Range(start, start + remaining));
+			addMapping(new Range(end, end + remaining), new Range(start, start + remaining));
 			out.append(s.substring(end));
 		}
 		return out.toString();
@@ -74,7 +74,7 @@ public class RemoveLine extends StringMappingFunction
 		}
 		if (line != m_lineNb)
 		{
-			m_mapping.add(new Range(0, s.length() - 1), new Range(0, s.length() - 1));
+			addMapping(new Range(0, s.length() - 1), new Range(0, s.length() - 1));
 			return s;
 		}
 		int next_pos = s.indexOf(CRLF, pos);
@@ -91,13 +91,13 @@ public class RemoveLine extends StringMappingFunction
 			{
 				start--;
 			}
-			m_mapping.add(new Range(0, start - 1), new Range(0, start - 1));
+			addMapping(new Range(0, start - 1), new Range(0, start - 1));
 			out.append(s.substring(0, start));
 		}
 		if (end < s.length())
 		{
 			int remaining = s.length() - end - 1;
-			m_mapping.add(new Range(end, end + remaining), new Range(start, start + remaining));
+			addMapping(new Range(end, end + remaining), new Range(start, start + remaining));
 			out.append(s.substring(end));
 		}
 		return out.toString();
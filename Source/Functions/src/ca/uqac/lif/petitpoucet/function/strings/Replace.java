@@ -94,7 +94,7 @@ public class Replace extends StringMappingFunction
 			if (index > pos)
 			{
 				output.append(input.substring(pos, index));
-				m_mapping.add(new Range(pos, index - 1), new Range(out_len, out_len + (index - pos) - 1));
+				addMapping(new Range(pos, index - 1), new Range(out_len, out_len + (index - pos) - 1));
 				out_len += index - pos;
 			}
 			String matched = mat.group();
@@ -106,7 +106,7 @@ public class Replace extends StringMappingFunction
 				if (match_start > last_pos)
 				{
 					output.append(m_to.substring(last_pos, match_start));
-					m_mapping.add(new Range(mat.start(), mat.start() + mat.group().length() - 1), new Range(out_len, out_len + match_start - last_pos - 1), false);
+					addMapping(new Range(mat.start(), mat.start() + mat.group().length() - 1), new Range(out_len, out_len + match_start - last_pos - 1), false);
 					out_len += match_start - last_pos;
 				}
 				int group_nb = Integer.parseInt(cg_mat.group(1));
@@ -114,7 +114,7 @@ public class Replace extends StringMappingFunction
 				{
 					output.append(mat.group(group_nb));
 					int output_end = out_len + mat.group(group_nb).length() - 1;
-					m_mapping.add(new Range(mat.start(group_nb), mat.start(group_nb) + mat.group(group_nb).length() - 1), new Range(out_len, output_end));
+					addMapping(new Range(mat.start(group_nb), mat.start(group_nb) + mat.group(group_nb).length() - 1), new Range(out_len, output_end));
 					out_len += mat.group(group_nb).length();					
 				}
 				last_pos = cg_mat.end();
@@ -122,7 +122,7 @@ public class Replace extends StringMappingFunction
 			if (last_pos < m_to.length())
 			{
 				output.append(m_to.substring(last_pos));
-				m_mapping.add(new Range(mat.start(), mat.start() + mat.group().length() - 1), new Range(out_len, out_len + m_to.length() - last_pos - 1), false);
+				addMapping(new Range(mat.start(), mat.start() + mat.group().length() - 1), new Range(out_len, out_len + m_to.length() - last_pos - 1), false);
 				out_len += m_to.length() - last_pos;
 			}
 			if (matched.length() == 0)
@@ -138,9 +138,12 @@ public class Replace extends StringMappingFunction
 		{
 			int remaining = input.length() - pos;
 			output.append(input.substring(pos));
-			m_mapping.add(new Range(pos, pos + remaining - 1), new Range(out_len, out_len + remaining - 1));
+			addMapping(new Range(pos, pos + remaining - 1), new Range(out_len, out_len + remaining - 1));
+		}
+		if (!m_valuesOnly)
+		{
+			m_mapping.sort();
 		}
-		m_mapping.sort();
 		return output.toString();
 	}
 
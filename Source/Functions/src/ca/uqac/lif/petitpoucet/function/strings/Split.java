@@ -76,22 +76,29 @@ public class Split extends AtomicFunction
 		{
 			String part = parts[i];
 			out_parts.add(part);
-			m_offsets.add(pos);
+			if (!m_valuesOnly)
+			{
+				m_offsets.add(pos);
+			}
 			pos += part.length();
 			if (i < parts.length - 1)
 			{
 				pos += m_regex.length();
 			}
 		}
-		m_offsets.add(pos);
-		m_parts.clear();
-		m_parts.addAll(out_parts);
+		if (!m_valuesOnly)
+		{
+			m_offsets.add(pos);
+			m_parts.clear();
+			m_parts.addAll(out_parts);
+		}
 		return new Object[] {out_parts};
 	}
 	
 	@Override
 	public PartNode getExplanation(Part d, RelationNodeFactory factory)
 	{
+		checkLineage();
 		PartNode root = factory.getPartNode(d, this);
 		if (NthOutput.mentionedOutput(d) != 0)
 		{
@@ -101,7 +108,7 @@ public class Split extends AtomicFunction
 		if (pos < 0)
 		{
 			// No specific element
-			return super.getExplanation(d);
+			return super.getExplanation(d, factory);
 		}
 		Part new_p = replaceNthOutputByRange(d, new Range(m_offsets.get(pos), m_offsets.get(pos) + m_parts.get(pos).length() - 1));
 		root.addChild(factory.getPartNode(new_p, this));
@@ -126,6 +133,14 @@ public class Split extends AtomicFunction
 		}
 	}
 	
+	@Override
+	public void reset()
+	{
+		super.reset();
+		m_offsets.clear();
+		m_parts.clear();
+	}
+	
 	@Override
 	public String toString()
 	{
@@ -145,20 +160,15 @@ public class Split extends AtomicFunction
 		{
 			return d; // Nothing to do
 		}
-		ComposedPart cd = (ComposedPart) d;
-		List<Part> desigs = new ArrayList<>();
-		for (int i = 0; i < cd.size(); i++)
-		{
-			desigs.add(cd.get(i));
-		}
-		for (int i = desigs.size() - 1; i >= 1; i--)
+		Part[] desigs = ((ComposedPart) d).toArray();
+		for (int i = desigs.length - 1; i >= 1; i--)
 		{
-			if (desigs.get(i) instanceof NthOutput && desigs.get(i - 1) instanceof NthElement)
+			if (desigs[i] instanceof NthOutput && desigs[i - 1] instanceof NthElement)
 			{
-				desigs.set(i, NthInput.FIRST);
-				desigs.set(i - 1, r);
+				desigs[i] = NthInput.FIRST;
+				desigs[i - 1] = r;
 			}
 		}
-		return new ComposedPart(desigs);
+		return ComposedPart.compose(desigs);
 	}
 }
@@ -150,6 +150,7 @@ public class StringEquals extends AtomicFunction
 	@Override
 	public PartNode getExplanation(Part p, RelationNodeFactory factory)
 	{
+		checkLineage();
 		int num_ranges = 0;
 		if (m_differentRanges != null)
 		{
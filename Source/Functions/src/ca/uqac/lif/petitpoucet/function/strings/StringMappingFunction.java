@@ -96,6 +96,35 @@ public class StringMappingFunction extends AtomicFunction
 		return m_mapping;
 	}
 	
+	/**
+	 * Adds a pair of associated ranges to the mapping of the function. Nothing
+	 * is recorded if the function is in "values only" mode.
+	 * @param from The input range
+	 * @param to The output range
+	 */
+	protected void addMapping(Range from, Range to)
+	{
+		if (!m_valuesOnly)
+		{
+			m_mapping.add(from, to);
+		}
+	}
+	
+	/**
+	 * Adds a pair of associated ranges to the mapping of the function. Nothing
+	 * is recorded if the function is in "values only" mode.
+	 * @param from The input range
+	 * @param to The output range
+	 * @param bijective Whether the pair is declared as bijective or not
+	 */
+	protected void addMapping(Range from, Range to, boolean bijective)
+	{
+		if (!m_valuesOnly)
+		{
+			m_mapping.add(from, to, bijective);
+		}
+	}
+	
 	@Override
 	protected Object[] getValue(Object... inputs) throws InvalidNumberOfArgumentsException
 	{
@@ -116,6 +145,7 @@ public class StringMappingFunction extends AtomicFunction
 	@Override
 	/*@ non_null @*/ public PartNode getExplanation(Part part, RelationNodeFactory factory)
 	{
+		checkLineage();
 		if (NthInput.mentionedInput(part) == 0)
 		{
 			return explainInput(part, factory);
@@ -36,7 +36,7 @@ public class Substring extends RangeStringMappingFunction
 	@Override
 	protected String applyOnRange(String s, int start, int end)
 	{
-		m_mapping.add(new Range(start, end - 1), new Range(0, end - start - 1));
+		addMapping(new Range(start, end - 1), new Range(0, end - start - 1));
 		return s.substring(start, end);
 	}
 	
@@ -68,6 +68,7 @@ public class AsList extends AtomicFunction
 	@Override
 	public PartNode getExplanation(Part p, RelationNodeFactory f)
 	{
+		checkLineage();
 		PartNode root = f.getPartNode(p, this);
 		int out_index = NthOutput.mentionedOutput(p);
 		if (out_index != 0)
@@ -119,18 +120,13 @@ public class AsList extends AtomicFunction
 		{
 			return d; // Nothing to do
 		}
-		ComposedPart cd = (ComposedPart) d;
-		List<Part> desigs = new ArrayList<>();
-		for (int i = 0; i < cd.size(); i++)
+		Part[] desigs = ((ComposedPart) d).toArray();
+		for (int i = desigs.length - 1; i >= 1; i--)
 		{
-			desigs.add(cd.get(i));
-		}
-		for (int i = desigs.size() - 1; i >= 1; i--)
-		{
-			if (desigs.get(i) instanceof NthOutput && desigs.get(i - 1) instanceof NthElement)
+			if (desigs[i] instanceof NthOutput && desigs[i - 1] instanceof NthElement)
 			{
-				int in_index = ((NthOutput) desigs.get(i)).getIndex();
-				desigs.set(i, new NthInput(in_index));
+				int in_index = ((NthOutput) desigs[i]).getIndex();
+				desigs[i] = new NthInput(in_index);
 			}
 		}
 		return ComposedPart.compose(desigs);
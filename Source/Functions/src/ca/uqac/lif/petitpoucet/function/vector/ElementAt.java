@@ -60,6 +60,7 @@ public class ElementAt extends VectorFunction
 	@Override
 	public PartNode getExplanation(Part d, RelationNodeFactory factory)
 	{
+		checkLineage();
 		PartNode root = factory.getPartNode(d, this);
 		int output_index = NthOutput.mentionedOutput(d);
 		if (output_index != 0)
@@ -18,7 +18,9 @@
 package ca.uqac.lif.petitpoucet.function.vector;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import ca.uqac.lif.dag.LabelledNode;
 import ca.uqac.lif.petitpoucet.ComposedPart;
@@ -34,6 +36,12 @@ import ca.uqac.lif.petitpoucet.function.RelationNodeFactory;
 
 /**
  * Filters the elements of a list based on the Boolean values of another.
+ * <p>
+ * If one of the inputs is a stream (see
+ * {@link VectorFunction#isStream(Object)}), the output of the function is an
+ * iterator that reads both inputs as its own elements are requested. Only
+ * the position of each element that is kept is recorded, so that the output
+ * can be explained in the same way as for lists.
  * @author Sylvain Hallé
  */
 public class Filter extends AtomicFunction
@@ -57,6 +65,16 @@ public class Filter extends AtomicFunction
 	protected Object[] getValue(Object... inputs) throws InvalidNumberOfArgumentsException
 	{
 		m_positions.clear();
+		if (VectorFunction.isStream(inputs[0]) || VectorFunction.isStream(inputs[1]))
+		{
+			Iterator<?> it1 = VectorFunction.toIterator(inputs[0]);
+			Iterator<?> it2 = VectorFunction.toIterator(inputs[1]);
+			if (it1 == null || it2 == null)
+			{
+				throw new InvalidArgumentTypeException("Expected a list");
+			}
+			return new Object[] {new FilterIterator(it1, it2)};
+		}
 		if (!(inputs[0] instanceof List) || !(inputs[1] instanceof List))
 		{
 			throw new InvalidArgumentTypeException("Expected a list");
@@ -78,7 +96,10 @@ public class Filter extends AtomicFunction
 			if (Boolean.TRUE.equals(o2))
 			{
 				out_list.add(list1.get(i));
-				m_positions.add(i);
+				if (!m_valuesOnly)
+				{
+					m_positions.add(i);
+				}
 			}
 		}
 		return new Object[] {out_list};
@@ -117,6 +138,7 @@ public class Filter extends AtomicFunction
 	@Override
 	public PartNode getExplanation(Part d, RelationNodeFactory factory)
 	{
+		checkLineage();
 		PartNode root = factory.getPartNode(d, this);
 		int output_nb = NthOutput.mentionedOutput(d);
 		if (output_nb != 0)
@@ -152,6 +174,100 @@ public class Filter extends AtomicFunction
 		return root;
 	}
 	
+	/**
+	 * Iterator over the elements of a stream for which the corresponding
+	 * element of another stream is true.
+	 */
+	protected class FilterIterator implements Iterator<Object>
+	{
+		/**
+		 * The iterator over the elements to filter.
+		 */
+		/*@ non_null @*/ private final Iterator<?> m_elements;
+
+		/**
+		 * The iterator over the Boolean values deciding which elements are kept.
+		 */
+		/*@ non_null @*/ private final Iterator<?> m_conditions;
+
+		/**
+		 * The position in the input of the next element to read.
+		 */
+		private int m_position;
+
+		/**
+		 * The next element to return, if {@link #m_hasNext} is true.
+		 */
+		/*@ null @*/ private Object m_next;
+
+		/**
+		 * A flag indicating if the next element to return has been read.
+		 */
+		private boolean m_hasNext;
+
+		/**
+		 * Creates a new iterator.
+		 * @param elements The iterator over the elements to filter
+		 * @param conditions The iterator over the Boolean values deciding which
+		 * elements are kept
+		 */
+		public FilterIterator(/*@ non_null @*/ Iterator<?> elements, /*@ non_null @*/ Iterator<?> conditions)
+		{
+			super();
+			m_elements = elements;
+			m_conditions = conditions;
+			m_position = 0;
+			m_next = null;
+			m_hasNext = false;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			while (!m_hasNext && m_elements.hasNext())
+			{
+				if (!m_conditions.hasNext())
+				{
+					throw new InvalidArgumentException("Lists must be the same size");
+				}
+				Object o1 = m_elements.next();
+				Object o2 = m_conditions.next();
+				if (!(o2 instanceof Boolean))
+				{
+					throw new InvalidArgumentTypeException("Second list must contain Booleans");
+				}
+				if (Boolean.TRUE.equals(o2))
+				{
+					m_next = o1;
+					m_hasNext = true;
+					if (!m_valuesOnly)
+					{
+						m_positions.add(m_position);
+					}
+				}
+				m_position++;
+			}
+			if (!m_hasNext && m_conditions.hasNext())
+			{
+				throw new InvalidArgumentException("Lists must be the same size");
+			}
+			return m_hasNext;
+		}
+
+		@Override
+		public Object next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			Object o = m_next;
+			m_next = null;
+			m_hasNext = false;
+			return o;
+		}
+	}
+
 	/**
 	 * Appends to a node the explanation for the i-th element of the output. In
 	 * the case of the filter, the i-th output element is related to the j-th
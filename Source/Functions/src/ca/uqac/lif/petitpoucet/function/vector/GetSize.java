@@ -56,6 +56,7 @@ public class GetSize extends VectorFunction
 	@Override
 	public PartNode getExplanation(Part p, RelationNodeFactory f)
 	{
+		checkLineage();
 		PartNode root = f.getPartNode(p, this);
 		if (NthOutput.mentionedOutput(p) != 0)
 		{
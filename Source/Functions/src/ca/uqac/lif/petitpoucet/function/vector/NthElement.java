@@ -17,19 +17,26 @@
  */
 package ca.uqac.lif.petitpoucet.function.vector;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import ca.uqac.lif.petitpoucet.ComposedPart;
 import ca.uqac.lif.petitpoucet.Part;
+import ca.uqac.lif.petitpoucet.PartHash;
+import ca.uqac.lif.petitpoucet.PartPath;
+import ca.uqac.lif.petitpoucet.TaggedPart;
 import ca.uqac.lif.petitpoucet.function.NthInput;
 import ca.uqac.lif.petitpoucet.function.NthOutput;
 
 /**
  * Designator related to the n-th element of a vector.
  */
-public class NthElement implements Part
+public class NthElement implements TaggedPart
 {
+	/**
+	 * The tag shared by all "n-th element" designators.
+	 */
+	public static final int TAG = PartPath.newTag();
+	
 	/**
 	 * The index of the element inside the vector.
 	 */
@@ -54,6 +61,22 @@ public class NthElement implements Part
 		return m_index;
 	}
 	
+	@Override
+	public int getTag()
+	{
+		return TAG;
+	}
+	
+	/**
+	 * Gets the code of this part, which is the index of the element.
+	 * @return The code
+	 */
+	@Override
+	public long getCode()
+	{
+		return m_index;
+	}
+	
 	@Override
 	public boolean appliesTo(Object o)
 	{
@@ -81,7 +104,7 @@ public class NthElement implements Part
 	@Override
 	public int hashCode()
 	{
-		return m_index;
+		return PartHash.hash(NthElement.class, m_index);
 	}
 	
 	@Override
@@ -107,21 +130,16 @@ public class NthElement implements Part
 		{
 			return d; // Nothing to do
 		}
-		ComposedPart cd = (ComposedPart) d;
-		List<Part> desigs = new ArrayList<>();
-		for (int i = 0; i < cd.size(); i++)
-		{
-			desigs.add(cd.get(i));
-		}
-		for (int i = desigs.size() - 1; i >= 1; i--)
+		Part[] desigs = ((ComposedPart) d).toArray();
+		for (int i = desigs.length - 1; i >= 1; i--)
 		{
-			if (desigs.get(i) instanceof NthOutput && desigs.get(i - 1) instanceof NthElement)
+			if (desigs[i] instanceof NthOutput && desigs[i - 1] instanceof NthElement)
 			{
-				desigs.set(i, NthInput.FIRST);
-				desigs.set(i - 1, new NthElement(index));
+				desigs[i] = NthInput.FIRST;
+				desigs[i - 1] = new NthElement(index);
 			}
 		}
-		return new ComposedPart(desigs);
+		return ComposedPart.compose(desigs);
 	}
 	
 	/**
@@ -133,20 +151,15 @@ public class NthElement implements Part
 	 */
 	public static int mentionedElement(Part d)
 	{
-		int index = -1;
 		if (d instanceof ComposedPart)
 		{
 			ComposedPart cd = (ComposedPart) d;
-			for (int i = cd.size() - 1; i >= 0; i--)
+			int i = cd.lastIndexOfTag(TAG);
+			if (i >= 0)
 			{
-				Part in_d = cd.get(i);
-				if (in_d instanceof NthElement)
-				{
-					index = ((NthElement) in_d).getIndex();
-					break;
-				}
+				return (int) cd.getCode(i);
 			}
 		}
-		return index;
+		return -1;
 	}
 }
\ No newline at end of file
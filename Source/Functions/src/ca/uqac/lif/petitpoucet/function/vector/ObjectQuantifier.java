@@ -27,6 +27,12 @@ import ca.uqac.lif.petitpoucet.function.InvalidNumberOfArgumentsException;
 /**
  * An abstract function that evaluates another 1:1 function on each element of
  * a list, and calculates an aggregation over the output values.
+ * <p>
+ * In <em>lazy</em> mode, the instances of the condition evaluated on each
+ * element are not passed to {@link #aggregate(Function[], Object[])
+ * aggregate()}; only the input list is kept, and the instance for a given
+ * element is rebuilt on demand by {@link #getCondition(int, Function)
+ * getCondition()}.
  * @author Sylvain Hallé
  *
  */
@@ -37,10 +43,68 @@ public abstract class ObjectQuantifier extends AtomicFunction
 	 */
 	/*@ non_null @*/ protected final Function m_condition;
 
+	/**
+	 * A flag indicating if the instances of the condition are rebuilt on
+	 * demand instead of being kept.
+	 */
+	protected boolean m_lazy;
+
+	/**
+	 * The input list of the last evaluation, kept only in lazy mode.
+	 */
+	/*@ null @*/ protected List<?> m_lastList;
+
 	public ObjectQuantifier(Function condition)
 	{
 		super(1, 1);
 		m_condition = condition;
+		m_lazy = false;
+		m_lastList = null;
+	}
+
+	/**
+	 * Sets whether the instances of the condition are rebuilt on demand
+	 * instead of being kept.
+	 * @param lazy Set to {@code true} to rebuild instances on demand,
+	 * {@code false} to keep them
+	 * @return This function
+	 */
+	/*@ non_null @*/ public ObjectQuantifier lazy(boolean lazy)
+	{
+		m_lazy = lazy;
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The mode is also set on the condition, and hence on all the instances
+	 * of the condition created afterwards.
+	 */
+	@Override
+	public void setValuesOnly(boolean b)
+	{
+		super.setValuesOnly(b);
+		m_condition.setValuesOnly(b);
+	}
+
+	/**
+	 * Gets the instance of the condition evaluated on a given element of the
+	 * last input list.
+	 * @param index The position of the element
+	 * @param f The instance passed to {@link #aggregate(Function[], Object[])
+	 * aggregate()} for this element; null in lazy mode
+	 * @return The instance
+	 */
+	/*@ non_null @*/ protected Function getCondition(int index, /*@ null @*/ Function f)
+	{
+		if (f != null)
+		{
+			return f;
+		}
+		Function f_o = m_condition.duplicate(false);
+		f_o.evaluate(m_lastList.get(index));
+		return f_o;
 	}
 
 	@Override
@@ -57,17 +121,29 @@ public abstract class ObjectQuantifier extends AtomicFunction
 		{
 			Object o = list.get(i);
 			Function f_o = m_condition.duplicate(false);
-			conditions[i] = f_o;
+			if (!m_lazy && !m_valuesOnly)
+			{
+				conditions[i] = f_o;
+			}
 			values[i] = f_o.evaluate(o)[0];
 		}
+		m_lastList = m_lazy && !m_valuesOnly ? list : null;
 		return aggregate(conditions, values);
 	}
 
+	@Override
+	public void reset()
+	{
+		super.reset();
+		m_lastList = null;
+	}
+
 	/**
 	 * Aggregates the values obtained by evaluating the condition on each element
 	 * of the input.
 	 * @param conditions The function instances corresponding to the evaluation
-	 * of the condition on each element
+	 * of the condition on each element. In lazy mode, the elements of this
+	 * array are null.
 	 * @param values The output value of the condition on each element
 	 * @return The aggregated value that should be returned by the function
 	 */
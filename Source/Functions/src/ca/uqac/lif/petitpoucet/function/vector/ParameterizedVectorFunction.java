@@ -31,6 +31,22 @@ import ca.uqac.lif.petitpoucet.function.RelationNodeFactory;
  * A function that applies another function repeatedly on elements of an input
  * vector. The two notable descendants of this class are {@link VectorApply}
  * and {@link Window}.
+ * <p>
+ * By default, the function keeps the instance of the inner function used for
+ * each application, so that it can later explain each element of its output.
+ * In <em>lazy</em> mode, these instances are discarded after use; when an
+ * explanation mentions a specific element, the instance for this element is
+ * rebuilt by evaluating a fresh copy of the inner function again on the
+ * corresponding input. This trades some computation at explanation time for
+ * a memory footprint that no longer grows with the size of the input.
+ * <p>
+ * Descendants can also be given streams of elements as their input, in
+ * which case their output is an iterator that applies the inner function as
+ * its elements are requested. The instances of the inner function are kept
+ * as in the case of lists, unless the function is lazy. Since the elements
+ * of a stream are not kept, a lazy function cannot rebuild these instances
+ * afterwards; an element of its output is then explained by the elements of
+ * the input it was computed from, without going into the inner function.
  * 
  * @author Sylvain Hallé
  */
@@ -47,13 +63,81 @@ public abstract class ParameterizedVectorFunction extends VectorOutputFunction
 	 */
 	/*@ non_null @*/ protected List<Function> m_lastInstances;
 
+	/**
+	 * A flag indicating if the instances of the inner function are rebuilt
+	 * on demand instead of being kept.
+	 */
+	protected boolean m_lazy;
+
 	protected ParameterizedVectorFunction(/*@ non_null @*/ Function f)
 	{
 		super(f.getInputArity());
 		m_function = f;
 		m_lastInstances = new ArrayList<>();
+		m_lazy = false;
+	}
+
+	/**
+	 * Sets whether the instances of the inner function are rebuilt on demand
+	 * instead of being kept.
+	 * @param lazy Set to {@code true} to rebuild instances on demand,
+	 * {@code false} to keep them
+	 * @return This function
+	 */
+	/*@ non_null @*/ public ParameterizedVectorFunction lazy(boolean lazy)
+	{
+		m_lazy = lazy;
+		return this;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The mode is also set on the inner function, and hence on all the
+	 * instances of this function created afterwards.
+	 */
+	@Override
+	public void setValuesOnly(boolean b)
+	{
+		super.setValuesOnly(b);
+		m_function.setValuesOnly(b);
+	}
+
+	/**
+	 * Gets the instance of the inner function used for a given application
+	 * on the last input vector.
+	 * @param elem_index The index of the function instance
+	 * @return The instance
+	 */
+	/*@ non_null @*/ protected Function getInstance(int elem_index)
+	{
+		if (m_lazy)
+		{
+			return rebuildInstance(elem_index);
+		}
+		return m_lastInstances.get(elem_index);
+	}
+
+	/**
+	 * Determines if the instance of the inner function used for each
+	 * application on the last input vector can be obtained. This is not the
+	 * case for a lazy function whose last inputs were streams.
+	 * @return {@code true} if the instances can be obtained, {@code false}
+	 * otherwise
+	 */
+	protected boolean hasInstances()
+	{
+		return !m_lazy || !m_streamed;
+	}
+
+	/**
+	 * Creates a new instance of the inner function, in the same state as the
+	 * one used for a given application on the last input vector.
+	 * @param elem_index The index of the function instance
+	 * @return The instance
+	 */
+	/*@ non_null @*/ protected abstract Function rebuildInstance(int elem_index);
+
 	/**
 	 * Produces a {@link NestedNode} containing the explanation tree for the
 	 * evaluation of a given instance of the inner function.
@@ -64,7 +148,7 @@ public abstract class ParameterizedVectorFunction extends VectorOutputFunction
 	 */
 	/*@ null @*/ protected NestedNode getSubNode(Part p, int elem_index, RelationNodeFactory factory)
 	{
-		Function f = m_lastInstances.get(elem_index);
+		Function f = getInstance(elem_index);
 		if (!(f instanceof ExplanationQueryable))
 		{
 			// Cannot explain
@@ -85,6 +169,7 @@ public abstract class ParameterizedVectorFunction extends VectorOutputFunction
 	protected void copyInto(ParameterizedVectorFunction pvf, boolean with_state)
 	{
 		super.copyInto(pvf, with_state);
+		pvf.m_lazy = m_lazy;
 		if (with_state)
 		{
 			for (Function f : m_lastInstances)
@@ -0,0 +1,295 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function.vector;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * A read-only view of an array of primitive numbers as a list. The vector
+ * does not copy the array it wraps; its elements can be read without boxing
+ * through {@link #getFloat(int)}, {@link #getLong(int)} and
+ * {@link #getDouble(int)}. Since it is also a {@link java.util.List}, a
+ * primitive vector can be passed to any function of this package, and its
+ * elements are designated by {@link NthElement} like those of any other
+ * list. Only the generic {@link #get(int)} boxes the value it returns.
+ * <p>
+ * The vector reflects any later change made to the underlying array.
+ * @author Sylvain Hallé
+ */
+public abstract class PrimitiveVector extends AbstractList<Number> implements RandomAccess
+{
+	/**
+	 * Creates a vector wrapping an array of ints.
+	 * @param array The array
+	 * @return The vector
+	 */
+	/*@ non_null @*/ public static PrimitiveVector wrap(/*@ non_null @*/ int ... array)
+	{
+		return new IntVector(array);
+	}
+
+	/**
+	 * Creates a vector wrapping an array of longs.
+	 * @param array The array
+	 * @return The vector
+	 */
+	/*@ non_null @*/ public static PrimitiveVector wrap(/*@ non_null @*/ long ... array)
+	{
+		return new LongVector(array);
+	}
+
+	/**
+	 * Creates a vector wrapping an array of doubles.
+	 * @param array The array
+	 * @return The vector
+	 */
+	/*@ non_null @*/ public static PrimitiveVector wrap(/*@ non_null @*/ double ... array)
+	{
+		return new DoubleVector(array);
+	}
+
+	/**
+	 * Wraps an object into a vector, if it is an array of ints, longs or
+	 * doubles.
+	 * @param o The object
+	 * @return The vector, or {@code null} if the object is not one of these
+	 * arrays
+	 */
+	/*@ null @*/ public static PrimitiveVector wrap(/*@ null @*/ Object o)
+	{
+		if (o instanceof PrimitiveVector)
+		{
+			return (PrimitiveVector) o;
+		}
+		if (o instanceof int[])
+		{
+			return new IntVector((int[]) o);
+		}
+		if (o instanceof long[])
+		{
+			return new LongVector((long[]) o);
+		}
+		if (o instanceof double[])
+		{
+			return new DoubleVector((double[]) o);
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the element at a given position, converted to a float as
+	 * {@link Number#floatValue()} would.
+	 * @param index The position
+	 * @return The value
+	 */
+	public abstract float getFloat(int index);
+
+	/**
+	 * Gets the element at a given position, converted to a long as
+	 * {@link Number#longValue()} would.
+	 * @param index The position
+	 * @return The value
+	 */
+	public abstract long getLong(int index);
+
+	/**
+	 * Gets the element at a given position, converted to a double as
+	 * {@link Number#doubleValue()} would.
+	 * @param index The position
+	 * @return The value
+	 */
+	public abstract double getDouble(int index);
+
+	/**
+	 * Gets the array wrapped by this vector.
+	 * @return The array; this is not a copy
+	 */
+	/*@ pure non_null @*/ public abstract Object getArray();
+
+	/**
+	 * A vector of ints.
+	 */
+	protected static class IntVector extends PrimitiveVector
+	{
+		/**
+		 * The wrapped array.
+		 */
+		/*@ non_null @*/ private final int[] m_array;
+
+		/**
+		 * Creates a new vector.
+		 * @param array The wrapped array
+		 */
+		public IntVector(/*@ non_null @*/ int[] array)
+		{
+			super();
+			m_array = array;
+		}
+
+		@Override
+		public Integer get(int index)
+		{
+			return m_array[index];
+		}
+
+		@Override
+		public int size()
+		{
+			return m_array.length;
+		}
+
+		@Override
+		public float getFloat(int index)
+		{
+			return m_array[index];
+		}
+
+		@Override
+		public long getLong(int index)
+		{
+			return m_array[index];
+		}
+
+		@Override
+		public double getDouble(int index)
+		{
+			return m_array[index];
+		}
+
+		@Override
+		public int[] getArray()
+		{
+			return m_array;
+		}
+	}
+
+	/**
+	 * A vector of longs.
+	 */
+	protected static class LongVector extends PrimitiveVector
+	{
+		/**
+		 * The wrapped array.
+		 */
+		/*@ non_null @*/ private final long[] m_array;
+
+		/**
+		 * Creates a new vector.
+		 * @param array The wrapped array
+		 */
+		public LongVector(/*@ non_null @*/ long[] array)
+		{
+			super();
+			m_array = array;
+		}
+
+		@Override
+		public Long get(int index)
+		{
+			return m_array[index];
+		}
+
+		@Override
+		public int size()
+		{
+			return m_array.length;
+		}
+
+		@Override
+		public float getFloat(int index)
+		{
+			return m_array[index];
+		}
+
+		@Override
+		public long getLong(int index)
+		{
+			return m_array[index];
+		}
+
+		@Override
+		public double getDouble(int index)
+		{
+			return m_array[index];
+		}
+
+		@Override
+		public long[] getArray()
+		{
+			return m_array;
+		}
+	}
+
+	/**
+	 * A vector of doubles.
+	 */
+	protected static class DoubleVector extends PrimitiveVector
+	{
+		/**
+		 * The wrapped array.
+		 */
+		/*@ non_null @*/ private final double[] m_array;
+
+		/**
+		 * Creates a new vector.
+		 * @param array The wrapped array
+		 */
+		public DoubleVector(/*@ non_null @*/ double[] array)
+		{
+			super();
+			m_array = array;
+		}
+
+		@Override
+		public Double get(int index)
+		{
+			return m_array[index];
+		}
+
+		@Override
+		public int size()
+		{
+			return m_array.length;
+		}
+
+		@Override
+		public float getFloat(int index)
+		{
+			return (float) m_array[index];
+		}
+
+		@Override
+		public long getLong(int index)
+		{
+			return (long) m_array[index];
+		}
+
+		@Override
+		public double getDouble(int index)
+		{
+			return m_array[index];
+		}
+
+		@Override
+		public double[] getArray()
+		{
+			return m_array;
+		}
+	}
+}
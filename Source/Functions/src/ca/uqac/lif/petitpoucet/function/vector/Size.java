@@ -20,6 +20,7 @@ package ca.uqac.lif.petitpoucet.function.vector;
 import java.util.List;
 
 import ca.uqac.lif.petitpoucet.Part;
+import ca.uqac.lif.petitpoucet.PartHash;
 
 /**
  * Designator related to the size of a vector.
@@ -66,7 +67,7 @@ public class Size implements Part
 	@Override
 	public int hashCode()
 	{
-		return 0;
+		return PartHash.hash(Size.class);
 	}
 	
 	@Override
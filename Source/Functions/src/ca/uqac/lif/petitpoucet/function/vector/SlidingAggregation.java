@@ -0,0 +1,417 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function.vector;
+
+import ca.uqac.lif.petitpoucet.function.Function;
+import ca.uqac.lif.petitpoucet.function.InvalidArgumentTypeException;
+
+/**
+ * Maintains the value of an associative aggregation function over a window
+ * of elements that slides over a vector. Elements enter the window at one
+ * end and leave it at the other; each of these operations, as well as
+ * getting the value of the aggregation over the current window, takes
+ * constant amortized time. This is done with two stacks: elements are pushed
+ * on a "back" stack that keeps the aggregation of all its elements, and are
+ * removed from a "front" stack in which each entry keeps the aggregation of
+ * itself and all the entries below it. When the front stack is empty, the
+ * back stack is moved into it.
+ * <p>
+ * Since the operator is not required to have an inverse, the same mechanism
+ * works for sums, products and Boolean connectives. Instances are obtained
+ * from {@link #forFunction(Function, int)}; the static methods
+ * {@link #supports(Function)} and {@link #isAbsorbing(Function, Object)}
+ * answer questions about a function without allocating an aggregation.
+ * 
+ * @author Sylvain Hallé
+ */
+public abstract class SlidingAggregation
+{
+	/**
+	 * The elements of the back stack.
+	 */
+	/*@ non_null @*/ private final float[] m_back;
+
+	/**
+	 * The number of elements in the back stack.
+	 */
+	private int m_backSize;
+
+	/**
+	 * The aggregation of all the elements of the back stack.
+	 */
+	private float m_backValue;
+
+	/**
+	 * The aggregations kept in each entry of the front stack.
+	 */
+	/*@ non_null @*/ private final float[] m_front;
+
+	/**
+	 * The number of elements in the front stack.
+	 */
+	private int m_frontSize;
+
+	/**
+	 * Gets a sliding aggregation computing the same value as a function.
+	 * @param f The function
+	 * @param width The maximum number of elements in the window
+	 * @return The aggregation, or null if the function is not one of
+	 * {@link VectorSum}, {@link VectorProduct}, {@link VectorAnd} and
+	 * {@link VectorOr}
+	 */
+	/*@ null @*/ public static SlidingAggregation forFunction(/*@ non_null @*/ Function f, int width)
+	{
+		if (f.getClass() == VectorSum.class)
+		{
+			return new Sum(width);
+		}
+		if (f.getClass() == VectorProduct.class)
+		{
+			return new Product(width);
+		}
+		if (f.getClass() == VectorAnd.class)
+		{
+			return new And(width);
+		}
+		if (f.getClass() == VectorOr.class)
+		{
+			return new Or(width);
+		}
+		return null;
+	}
+
+	/**
+	 * Determines if a sliding aggregation can compute the same value as a
+	 * function.
+	 * @param f The function
+	 * @return {@code true} if {@link #forFunction(Function, int)} returns an
+	 * aggregation for this function, {@code false} otherwise
+	 */
+	/*@ pure @*/ public static boolean supports(/*@ non_null @*/ Function f)
+	{
+		Class<?> c = f.getClass();
+		return c == VectorSum.class || c == VectorProduct.class || c == VectorAnd.class || c == VectorOr.class;
+	}
+
+	/**
+	 * Determines if an element alone decides the value of the aggregation
+	 * computed by a function, regardless of the other elements of the window.
+	 * Such elements are the ones used by the original function to explain its
+	 * output: a zero in a product, false in a conjunction and true in a
+	 * disjunction. A sum has no such element.
+	 * @param f The function
+	 * @param o The element
+	 * @return {@code true} if the element is absorbing, {@code false}
+	 * otherwise
+	 */
+	/*@ pure @*/ public static boolean isAbsorbing(/*@ non_null @*/ Function f, /*@ null @*/ Object o)
+	{
+		Class<?> c = f.getClass();
+		if (c == VectorProduct.class)
+		{
+			return o instanceof Number && ((Number) o).floatValue() == 0;
+		}
+		if (c == VectorAnd.class)
+		{
+			return Boolean.FALSE.equals(o);
+		}
+		if (c == VectorOr.class)
+		{
+			return Boolean.TRUE.equals(o);
+		}
+		return false;
+	}
+
+	/**
+	 * Creates a new empty sliding aggregation.
+	 * @param width The maximum number of elements in the window
+	 */
+	protected SlidingAggregation(int width)
+	{
+		super();
+		m_back = new float[Math.max(0, width)];
+		m_front = new float[Math.max(0, width)];
+		clear();
+	}
+
+	/**
+	 * Removes all the elements of the window.
+	 */
+	public void clear()
+	{
+		m_backSize = 0;
+		m_frontSize = 0;
+		m_backValue = identity();
+	}
+
+	/**
+	 * Adds an element at the end of the window.
+	 * @param o The element
+	 */
+	public void push(Object o)
+	{
+		float v = toFloat(o);
+		m_back[m_backSize++] = v;
+		m_backValue = combine(m_backValue, v);
+	}
+
+	/**
+	 * Removes the element at the start of the window.
+	 */
+	public void pop()
+	{
+		if (m_frontSize == 0)
+		{
+			float value = identity();
+			for (int i = m_backSize - 1; i >= 0; i--)
+			{
+				value = combine(m_back[i], value);
+				m_front[m_frontSize++] = value;
+			}
+			m_backSize = 0;
+			m_backValue = identity();
+		}
+		m_frontSize--;
+	}
+
+	/**
+	 * Gets the value of the aggregation over the elements of the window.
+	 * @return The value
+	 */
+	/*@ non_null @*/ public Object getValue()
+	{
+		float front = m_frontSize > 0 ? m_front[m_frontSize - 1] : identity();
+		return toObject(combine(front, m_backValue));
+	}
+
+	/**
+	 * Gets the identity element of the operator.
+	 * @return The identity element
+	 */
+	protected abstract float identity();
+
+	/**
+	 * Applies the operator on two values.
+	 * @param x The first value
+	 * @param y The second value
+	 * @return The result
+	 */
+	protected abstract float combine(float x, float y);
+
+	/**
+	 * Converts an element of the vector into the value handled by the
+	 * operator.
+	 * @param o The element
+	 * @return The value
+	 */
+	protected abstract float toFloat(/*@ null @*/ Object o);
+
+	/**
+	 * Converts the value of the aggregation into the object that the
+	 * original function returns.
+	 * @param v The value
+	 * @return The object
+	 */
+	/*@ non_null @*/ protected abstract Object toObject(float v);
+
+	/**
+	 * Converts an element into a number, throwing the same exception as
+	 * {@link VectorSum} if it is not a number.
+	 * @param o The element
+	 * @return The number
+	 */
+	protected static float toNumber(/*@ null @*/ Object o)
+	{
+		if (!(o instanceof Number))
+		{
+			throw new InvalidArgumentTypeException("Expected a number");
+		}
+		return ((Number) o).floatValue();
+	}
+
+	/**
+	 * Converts an element into a Boolean encoded as a number, throwing the
+	 * same exception as {@link VectorAnd} if it is not a Boolean.
+	 * @param o The element
+	 * @return 1 for true, 0 for false
+	 */
+	protected static float toBoolean(/*@ null @*/ Object o)
+	{
+		if (!(o instanceof Boolean))
+		{
+			throw new InvalidArgumentTypeException("Expected a Boolean");
+		}
+		return ((Boolean) o) ? 1 : 0;
+	}
+
+	/**
+	 * Sliding aggregation computing the sum of the elements.
+	 */
+	protected static class Sum extends SlidingAggregation
+	{
+		/**
+		 * Creates a new aggregation.
+		 * @param width The maximum number of elements in the window
+		 */
+		public Sum(int width)
+		{
+			super(width);
+		}
+
+		@Override
+		protected float identity()
+		{
+			return 0;
+		}
+
+		@Override
+		protected float combine(float x, float y)
+		{
+			return x + y;
+		}
+
+		@Override
+		protected float toFloat(Object o)
+		{
+			return toNumber(o);
+		}
+
+		@Override
+		protected Object toObject(float v)
+		{
+			return v;
+		}
+	}
+
+	/**
+	 * Sliding aggregation computing the product of the elements.
+	 */
+	protected static class Product extends SlidingAggregation
+	{
+		/**
+		 * Creates a new aggregation.
+		 * @param width The maximum number of elements in the window
+		 */
+		public Product(int width)
+		{
+			super(width);
+		}
+
+		@Override
+		protected float identity()
+		{
+			return 1;
+		}
+
+		@Override
+		protected float combine(float x, float y)
+		{
+			return x * y;
+		}
+
+		@Override
+		protected float toFloat(Object o)
+		{
+			return toNumber(o);
+		}
+
+		@Override
+		protected Object toObject(float v)
+		{
+			return v;
+		}
+	}
+
+	/**
+	 * Sliding aggregation computing the conjunction of the elements.
+	 */
+	protected static class And extends SlidingAggregation
+	{
+		/**
+		 * Creates a new aggregation.
+		 * @param width The maximum number of elements in the window
+		 */
+		public And(int width)
+		{
+			super(width);
+		}
+
+		@Override
+		protected float identity()
+		{
+			return 1;
+		}
+
+		@Override
+		protected float combine(float x, float y)
+		{
+			return Math.min(x, y);
+		}
+
+		@Override
+		protected float toFloat(Object o)
+		{
+			return toBoolean(o);
+		}
+
+		@Override
+		protected Object toObject(float v)
+		{
+			return v != 0;
+		}
+	}
+
+	/**
+	 * Sliding aggregation computing the disjunction of the elements.
+	 */
+	protected static class Or extends SlidingAggregation
+	{
+		/**
+		 * Creates a new aggregation.
+		 * @param width The maximum number of elements in the window
+		 */
+		public Or(int width)
+		{
+			super(width);
+		}
+
+		@Override
+		protected float identity()
+		{
+			return 0;
+		}
+
+		@Override
+		protected float combine(float x, float y)
+		{
+			return Math.max(x, y);
+		}
+
+		@Override
+		protected float toFloat(Object o)
+		{
+			return toBoolean(o);
+		}
+
+		@Override
+		protected Object toObject(float v)
+		{
+			return v != 0;
+		}
+	}
+}
@@ -18,7 +18,14 @@
 package ca.uqac.lif.petitpoucet.function.vector;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import ca.uqac.lif.dag.LabelledNode;
 import ca.uqac.lif.dag.NestedNode;
@@ -28,6 +35,7 @@ import ca.uqac.lif.dag.Pin;
 import ca.uqac.lif.petitpoucet.Part;
 import ca.uqac.lif.petitpoucet.PartNode;
 import ca.uqac.lif.petitpoucet.function.Function;
+import ca.uqac.lif.petitpoucet.function.FunctionException;
 import ca.uqac.lif.petitpoucet.function.NthInput;
 import ca.uqac.lif.petitpoucet.function.NthOutput;
 import ca.uqac.lif.petitpoucet.function.RelationNodeFactory;
@@ -35,10 +43,38 @@ import ca.uqac.lif.petitpoucet.function.RelationNodeFactory;
 /**
  * Applies a m:1 function to m-uples of elements at matching positions in
  * m input vectors.
+ * <p>
+ * By default, the function is applied to each element in sequence. Calling
+ * {@link #parallel(ExecutorService) parallel()} makes the function split
+ * the input vectors into contiguous ranges of elements, which are processed
+ * as separate tasks of an executor. The output vector is the same in both
+ * cases, and an instance of the inner function is kept for each element
+ * in both cases, so that explanations are not affected by this choice.
+ * Both modes can be combined with the {@link #lazy(boolean) lazy} mode.
+ * When the inputs are streams, the elements are always processed
+ * sequentially, as they are read.
  * @author Sylvain Hallé
  */
 public class VectorApply extends ParameterizedVectorFunction
 {
+	/**
+	 * The default number of elements processed by each task when the function
+	 * is evaluated in parallel.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+	/**
+	 * The executor used to apply the function to the elements in parallel.
+	 * Null if the elements are processed sequentially.
+	 */
+	/*@ null @*/ protected ExecutorService m_executor;
+
+	/**
+	 * The number of elements processed by each task when the function is
+	 * evaluated in parallel.
+	 */
+	protected int m_chunkSize = DEFAULT_CHUNK_SIZE;
+
 	/**
 	 * Creates a new instance of the function.
 	 * @param f The function to apply on each element of the input vector
@@ -48,30 +84,178 @@ public class VectorApply extends ParameterizedVectorFunction
 		super(f);
 	}
 
+	/**
+	 * Sets the function to process the elements of its input vectors in
+	 * parallel, using the default number of elements per task.
+	 * @param executor The executor running the tasks; null to process the
+	 * elements sequentially
+	 * @return This function
+	 */
+	/*@ non_null @*/ public VectorApply parallel(/*@ null @*/ ExecutorService executor)
+	{
+		return parallel(executor, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Sets the function to process the elements of its input vectors in
+	 * parallel.
+	 * @param executor The executor running the tasks; null to process the
+	 * elements sequentially
+	 * @param chunk_size The number of elements processed by each task
+	 * @return This function
+	 */
+	/*@ non_null @*/ public VectorApply parallel(/*@ null @*/ ExecutorService executor, int chunk_size)
+	{
+		if (chunk_size < 1)
+		{
+			throw new IllegalArgumentException("Chunk size must be positive");
+		}
+		m_executor = executor;
+		m_chunkSize = chunk_size;
+		return this;
+	}
+
+	@Override
+	/*@ non_null @*/ public VectorApply lazy(boolean lazy)
+	{
+		super.lazy(lazy);
+		return this;
+	}
+
 	@Override
 	protected List<?> getVectorValue(List<?> ... in_lists)
 	{
 		m_lastInstances.clear();
 		int min_len = getMinLength();
-		List<Object> out_list = new ArrayList<>(min_len);
-		for (int i = 0; i < min_len; i++)
+		Object[] outs = new Object[min_len];
+		Function[] instances = m_lazy || m_valuesOnly ? null : new Function[min_len];
+		if (m_executor == null || min_len <= m_chunkSize)
+		{
+			apply(in_lists, 0, min_len, outs, instances);
+		}
+		else
+		{
+			applyParallel(in_lists, min_len, outs, instances);
+		}
+		if (instances != null)
+		{
+			m_lastInstances.addAll(Arrays.asList(instances));
+		}
+		return new ArrayList<Object>(Arrays.asList(outs));
+	}
+
+	@Override
+	/*@ non_null @*/ protected Iterator<?> getVectorStream(Iterator<?> ... inputs)
+	{
+		m_lastInstances.clear();
+		return new ApplyIterator(inputs);
+	}
+
+	/**
+	 * Applies the function to a range of elements of the input vectors.
+	 * @param in_lists The input vectors
+	 * @param from The index of the first element of the range
+	 * @param to The index of the element after the last element of the range
+	 * @param outs The array where the output value for each element is
+	 * written
+	 * @param instances The array where the instance of the function used for
+	 * each element is written; null if instances are not kept
+	 */
+	protected void apply(List<?>[] in_lists, int from, int to, Object[] outs, /*@ null @*/ Function[] instances)
+	{
+		for (int i = from; i < to; i++)
+		{
+			Function new_f = m_function.duplicate(true);
+			outs[i] = applyTo(new_f, in_lists, i);
+			if (instances != null)
+			{
+				instances[i] = new_f;
+			}
+		}
+	}
+
+	/**
+	 * Evaluates an instance of the inner function on the elements at a given
+	 * position in the input vectors.
+	 * @param f The instance of the function
+	 * @param in_lists The input vectors
+	 * @param i The position
+	 * @return The output value of the function
+	 */
+	protected static Object applyTo(Function f, List<?>[] in_lists, int i)
+	{
+		Object[] ins = new Object[in_lists.length];
+		for (int j = 0; j < ins.length; j++)
+		{
+			ins[j] = in_lists[j].get(i);
+		}
+		return f.evaluate(ins)[0];
+	}
+
+	@Override
+	/*@ non_null @*/ protected Function rebuildInstance(int elem_index)
+	{
+		Function new_f = m_function.duplicate(true);
+		applyTo(new_f, m_lastInputs, elem_index);
+		return new_f;
+	}
+
+	/**
+	 * Applies the function to all the elements of the input vectors, by
+	 * splitting them into ranges processed by separate tasks. Since each task
+	 * writes in a distinct range of the output arrays, the order of the
+	 * elements is preserved.
+	 * @param in_lists The input vectors
+	 * @param min_len The number of elements to process
+	 * @param outs The array where the output value for each element is
+	 * written
+	 * @param instances The array where the instance of the function used for
+	 * each element is written; null if instances are not kept
+	 */
+	protected void applyParallel(final List<?>[] in_lists, int min_len, final Object[] outs, final Function[] instances)
+	{
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(min_len / m_chunkSize + 1);
+		for (int start = 0; start < min_len; start += m_chunkSize)
 		{
-			Object[] ins = new Object[in_lists.length];
-			for (int j = 0; j < ins.length; j++)
+			final int from = start;
+			final int to = Math.min(min_len, start + m_chunkSize);
+			tasks.add(new Callable<Void>()
 			{
-				ins[j] = in_lists[j].get(i);
+				@Override
+				public Void call()
+				{
+					apply(in_lists, from, to, outs, instances);
+					return null;
+				}
+			});
+		}
+		try
+		{
+			for (Future<Void> f : m_executor.invokeAll(tasks))
+			{
+				f.get();
 			}
-			Function new_f = (Function) m_function.duplicate(true);
-			Object[] out = new_f.evaluate(ins);
-			out_list.add(out[0]);
-			m_lastInstances.add(new_f);
 		}
-		return out_list;
+		catch (ExecutionException e)
+		{
+			Throwable t = e.getCause();
+			if (t instanceof RuntimeException)
+			{
+				throw (RuntimeException) t;
+			}
+			throw new FunctionException(t);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new FunctionException(e);
+		}
 	}
 
 	@Override
 	/*@ non_null @*/ public PartNode getExplanation(Part part, RelationNodeFactory factory)
 	{
+		checkLineage();
 		PartNode root = factory.getPartNode(part, this);
 		int index = NthOutput.mentionedOutput(part);
 		if (index == 0) // Only one output pin possible
@@ -92,6 +276,22 @@ public class VectorApply extends ParameterizedVectorFunction
 				}
 				return root;
 			}
+			if (!hasInstances())
+			{
+				// The element depends on the elements at the same position in the inputs
+				LabelledNode and = root;
+				if (getInputArity() > 1)
+				{
+					and = factory.getAndNode();
+					root.addChild(and);
+				}
+				Part whole = VectorOutputFunction.replaceElementByOutput(part);
+				for (int i = 0; i < getInputArity(); i++)
+				{
+					and.addChild(factory.getPartNode(VectorOutputFunction.replaceInputByElement(NthOutput.replaceOutByIn(whole, i), i, elem_index), this));
+				}
+				return root;
+			}
 			// Get sub-tree corresponding to evaluation of the inner function
 			NestedNode sub_node = getSubNode(part, elem_index, factory);
 			if (sub_node == null)
@@ -122,7 +322,9 @@ public class VectorApply extends ParameterizedVectorFunction
 	@Override
 	public VectorApply duplicate(boolean with_state)
 	{
-		VectorApply w = new VectorApply((Function) m_function.duplicate(with_state));
+		VectorApply w = new VectorApply(m_function.duplicate(with_state));
+		w.m_executor = m_executor;
+		w.m_chunkSize = m_chunkSize;
 		copyInto(w, with_state);
 		return w;
 	}
@@ -132,4 +334,60 @@ public class VectorApply extends ParameterizedVectorFunction
 	{
 		return "α(" + m_function.toString() + ")";
 	}
+
+	/**
+	 * Iterator applying the inner function on the elements of streams, as
+	 * they are read.
+	 */
+	protected class ApplyIterator implements Iterator<Object>
+	{
+		/**
+		 * The iterators over the elements of each input.
+		 */
+		/*@ non_null @*/ private final Iterator<?>[] m_inputs;
+
+		/**
+		 * Creates a new iterator.
+		 * @param inputs The iterators over the elements of each input
+		 */
+		public ApplyIterator(/*@ non_null @*/ Iterator<?>[] inputs)
+		{
+			super();
+			m_inputs = inputs;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			for (Iterator<?> it : m_inputs)
+			{
+				if (!it.hasNext())
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public Object next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			Object[] ins = new Object[m_inputs.length];
+			for (int i = 0; i < ins.length; i++)
+			{
+				ins[i] = m_inputs[i].next();
+			}
+			Function new_f = m_function.duplicate(true);
+			Object out = new_f.evaluate(ins)[0];
+			if (!m_lazy && !m_valuesOnly)
+			{
+				m_lastInstances.add(new_f);
+			}
+			return out;
+		}
+	}
 }
@@ -78,6 +78,7 @@ public abstract class VectorBooleanConnective extends VectorFunction
 	@Override
 	public PartNode getExplanation(Part part, RelationNodeFactory factory)
 	{
+		checkLineage();
 		PartNode root = factory.getPartNode(part, this);
 		int num_nulls = countWitnesses();
 		if (num_nulls == 0)
@@ -77,6 +77,21 @@ public class VectorEquals extends AtomicFunction
 	 */
 	protected int m_sizeDifference;
 
+	/**
+	 * The number of positions that have been compared the last time the
+	 * function was evaluated, i.e. the length of the shortest list.
+	 */
+	protected int m_numComparisons;
+
+	/**
+	 * The two input vectors, if both were primitive vectors the last time the
+	 * function was evaluated. In such a case, their elements are compared
+	 * without being boxed, and {@link #m_comparisons} stays empty: the
+	 * instances of {@link Equals} are only created when the result is
+	 * explained.
+	 */
+	/*@ null @*/ protected PrimitiveVector[] m_vectors;
+
 	/**
 	 * Creates a new instance of the function.
 	 */
@@ -88,19 +103,25 @@ public class VectorEquals extends AtomicFunction
 		m_isListFirst = false;
 		m_isListSecond = false;
 		m_sizeDifference = 0;
+		m_numComparisons = 0;
+		m_vectors = null;
 	}
 
 	@Override
 	public VectorEquals duplicate(boolean with_state)
 	{
 		VectorEquals e = new VectorEquals();
+		e.m_valuesOnly = m_valuesOnly;
 		if (with_state)
 		{
+			e.m_noLineage = m_noLineage;
 			e.m_comparisons.addAll(m_comparisons);
 			e.m_unequalIndices.addAll(m_unequalIndices);
 			e.m_isListFirst = m_isListFirst;
 			e.m_isListSecond = m_isListSecond;
 			e.m_sizeDifference = m_sizeDifference;
+			e.m_numComparisons = m_numComparisons;
+			e.m_vectors = m_vectors;
 		}
 		return e;
 	}
@@ -110,6 +131,8 @@ public class VectorEquals extends AtomicFunction
 	{
 		m_comparisons.clear();
 		m_unequalIndices.clear();
+		m_numComparisons = 0;
+		m_vectors = null;
 		m_isListFirst = VectorFunction.isAcceptableType(inputs[0]);
 		m_isListSecond = VectorFunction.isAcceptableType(inputs[1]);
 		if (!m_isListFirst || !m_isListSecond)
@@ -120,6 +143,54 @@ public class VectorEquals extends AtomicFunction
 		List<?> list1 = VectorFunction.convertToList(inputs[0]);
 		List<?> list2 = VectorFunction.convertToList(inputs[1]);
 		int min_len = Math.min(list1.size(), list2.size());
+		m_sizeDifference = list1.size() - list2.size();
+		boolean primitive = list1 instanceof PrimitiveVector && list2 instanceof PrimitiveVector;
+		if (m_valuesOnly)
+		{
+			// No comparison needs to be kept; stop at the first difference
+			if (m_sizeDifference != 0)
+			{
+				return new Object[] {false};
+			}
+			if (primitive)
+			{
+				// Compare the numbers as Equals does, without boxing them
+				PrimitiveVector pv1 = (PrimitiveVector) list1, pv2 = (PrimitiveVector) list2;
+				for (int i = 0; i < min_len; i++)
+				{
+					if (pv1.getFloat(i) != pv2.getFloat(i))
+					{
+						return new Object[] {false};
+					}
+				}
+				return new Object[] {true};
+			}
+			Equals eq = new Equals();
+			for (int i = 0; i < min_len; i++)
+			{
+				eq.reset();
+				if (!((Boolean) eq.evaluate(list1.get(i), list2.get(i))[0]))
+				{
+					return new Object[] {false};
+				}
+			}
+			return new Object[] {true};
+		}
+		m_numComparisons = min_len;
+		if (primitive)
+		{
+			// Only the positions where the lists differ need to be recorded
+			PrimitiveVector pv1 = (PrimitiveVector) list1, pv2 = (PrimitiveVector) list2;
+			for (int i = 0; i < min_len; i++)
+			{
+				if (pv1.getFloat(i) != pv2.getFloat(i))
+				{
+					m_unequalIndices.add(i);
+				}
+			}
+			m_vectors = new PrimitiveVector[] {pv1, pv2};
+			return new Object[] {m_unequalIndices.isEmpty() && m_sizeDifference == 0};
+		}
 		for (int i = 0; i < min_len; i++)
 		{
 			Equals eq = new Equals();
@@ -130,13 +201,13 @@ public class VectorEquals extends AtomicFunction
 				m_unequalIndices.add(i);
 			}
 		}
-		m_sizeDifference = list1.size() - list2.size();
 		return new Object[] {m_unequalIndices.isEmpty() && m_sizeDifference == 0};
 	}
 
 	@Override
 	public PartNode getExplanation(Part p, RelationNodeFactory factory)
 	{
+		checkLineage();
 		PartNode root = factory.getPartNode(p, this);
 		if (NthOutput.mentionedOutput(p) != 0)
 		{
@@ -201,7 +272,7 @@ public class VectorEquals extends AtomicFunction
 	protected void explainEqualLists(Part p, LabelledNode root, RelationNodeFactory factory)
 	{
 		// The two lists are equal
-		switch (m_comparisons.size())
+		switch (m_numComparisons)
 		{
 		case 0: // Two empty lists
 			root.addChild(factory.getPartNode(NthOutput.replaceOutByIn(p, 0), this));
@@ -212,7 +283,7 @@ public class VectorEquals extends AtomicFunction
 			break;
 		default: // Two or more elements
 			LabelledNode and = factory.getAndNode();
-			for (int i = 0; i < m_comparisons.size(); i++)
+			for (int i = 0; i < m_numComparisons; i++)
 			{
 				compareElements(i, and, factory);
 			}
@@ -242,7 +313,7 @@ public class VectorEquals extends AtomicFunction
 			compareElements(index, root, factory);
 		}
 		NthInput nth_input = new NthInput(m_sizeDifference > 0 ? 0 : 1);
-		for (int index = m_comparisons.size(); index < m_comparisons.size() + Math.abs(m_sizeDifference); index++)
+		for (int index = m_numComparisons; index < m_numComparisons + Math.abs(m_sizeDifference); index++)
 		{
 			root.addChild(factory.getPartNode(ComposedPart.compose(new NthElement(index), nth_input), this));
 		}
@@ -260,7 +331,7 @@ public class VectorEquals extends AtomicFunction
 	 */
 	protected void compareElements(int index, LabelledNode root, RelationNodeFactory factory)
 	{
-		Equals eq = m_comparisons.get(index);
+		Equals eq = getComparison(index);
 		RelationNodeFactory sub_factory = factory.getFactory(NthOutput.FIRST, eq);
 		PartNode sub_root = eq.getExplanation(NthOutput.FIRST, sub_factory);
 		LeafFetcher fetcher = new LeafFetcher(sub_root);
@@ -288,6 +359,24 @@ public class VectorEquals extends AtomicFunction
 		root.addChild(sub_root);
 	}
 
+	/**
+	 * Gets the instance of {@link Equals} that compared the elements at the
+	 * same index in both input lists. If the inputs were primitive vectors,
+	 * this instance is created and evaluated on demand.
+	 * @param index The position in the lists
+	 * @return The instance of {@link Equals}
+	 */
+	/*@ non_null @*/ protected Equals getComparison(int index)
+	{
+		if (m_vectors == null)
+		{
+			return m_comparisons.get(index);
+		}
+		Equals eq = new Equals();
+		eq.evaluate(m_vectors[0].get(index), m_vectors[1].get(index));
+		return eq;
+	}
+
 	@Override
 	public String toString()
 	{
@@ -19,7 +19,11 @@ package ca.uqac.lif.petitpoucet.function.vector;
 
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.BaseStream;
 
 import ca.uqac.lif.petitpoucet.Part;
 import ca.uqac.lif.petitpoucet.PartNode;
@@ -38,6 +42,13 @@ import ca.uqac.lif.petitpoucet.function.RelationNodeFactory;
  * boilerplate explanation where the whole output is explained by the whole
  * input. Only functions that explain their output differently need to
  * override this method.
+ * <p>
+ * Inputs can also be given as a stream of elements, that is an
+ * {@link Iterator}, a {@link Spliterator} or a {@link BaseStream}. Functions
+ * that can process such a stream in a single pass, without keeping its
+ * elements, override {@link #getStreamValue(Iterator...)}; the others read
+ * the whole stream into a list and process it as usual. Since a stream can
+ * only be read once, its elements must not be read by any other function.
  * 
  * @author Sylvain Hallé
  */
@@ -48,6 +59,13 @@ public abstract class VectorFunction extends AtomicFunction
 	 */
 	/*@ non_null @*/ protected List<?>[] m_lastInputs;
 
+	/**
+	 * A flag indicating if the last inputs given to the function were streams
+	 * that have been processed without being kept. In such a case, the
+	 * entries of {@link #m_lastInputs} are null.
+	 */
+	protected boolean m_streamed;
+
 	/**
 	 * Creates a new instance of input vector function.
 	 * @param in_arity The input arity of the function
@@ -56,11 +74,29 @@ public abstract class VectorFunction extends AtomicFunction
 	{
 		super(in_arity, 1);
 		m_lastInputs = new List[in_arity];
+		m_streamed = false;
 	}
 
 	@Override
 	protected final Object[] getValue(Object ... inputs) throws InvalidArgumentTypeException
 	{
+		m_streamed = false;
+		for (Object o : inputs)
+		{
+			if (isStream(o))
+			{
+				Iterator<?>[] iterators = new Iterator<?>[inputs.length];
+				for (int i = 0; i < inputs.length; i++)
+				{
+					iterators[i] = toIterator(inputs[i]);
+					if (iterators[i] == null)
+					{
+						throw new InvalidArgumentTypeException("Expected a list");
+					}
+				}
+				return new Object[] {getStreamValue(iterators)};
+			}
+		}
 		for (int i = 0; i < m_lastInputs.length; i++)
 		{
 			List<?> to_process = convertToList(inputs[i]);
@@ -76,6 +112,7 @@ public abstract class VectorFunction extends AtomicFunction
 	@Override
 	/*@ non_null @*/ public PartNode getExplanation(Part part, RelationNodeFactory factory)
 	{
+		checkLineage();
 		PartNode root = factory.getPartNode(part, this);
 		int index = NthOutput.mentionedOutput(part);
 		if (index == 0) // Only one output pin possible
@@ -85,6 +122,24 @@ public abstract class VectorFunction extends AtomicFunction
 		return root;
 	}
 
+	/**
+	 * Copies the contents of the current function into another function
+	 * instance. A stateful copy shares the last inputs of the function, so
+	 * that it can explain its output in the same way.
+	 * @param f The other function
+	 * @param with_state Set to {@code true} for a stateful copy, {@code false}
+	 * otherwise
+	 */
+	protected void copyInto(VectorFunction f, boolean with_state)
+	{
+		super.copyInto(f, with_state);
+		if (with_state)
+		{
+			System.arraycopy(m_lastInputs, 0, f.m_lastInputs, 0, m_lastInputs.length);
+			f.m_streamed = m_streamed;
+		}
+	}
+
 	@Override
 	public void reset()
 	{
@@ -93,6 +148,7 @@ public abstract class VectorFunction extends AtomicFunction
 		{
 			m_lastInputs[i] = null;			
 		}
+		m_streamed = false;
 	}
 	
 	/**
@@ -119,13 +175,39 @@ public abstract class VectorFunction extends AtomicFunction
 	}
 
 	protected abstract Object getOutputValue(List<?> ... inputs);
+
+	/**
+	 * Computes the output value of the function when at least one of its
+	 * inputs is a stream. By default, the elements of each stream are put into
+	 * a list, and the method returns the result of
+	 * {@link #getOutputValue(List...) getOutputValue()} on these lists.
+	 * Descendants that can process their inputs in a single pass override
+	 * this method, and set {@link #m_streamed} if they do not keep them.
+	 * @param inputs An iterator over the elements of each input
+	 * @return The output value
+	 */
+	protected Object getStreamValue(Iterator<?> ... inputs)
+	{
+		for (int i = 0; i < inputs.length; i++)
+		{
+			List<Object> list = new ArrayList<Object>();
+			while (inputs[i].hasNext())
+			{
+				list.add(inputs[i].next());
+			}
+			m_lastInputs[i] = list;
+		}
+		return getOutputValue(m_lastInputs);
+	}
 	
 	/**
 	 * Converts an object into a generic list. If the object is already a list,
 	 * it is returned as is. If the object is an array, the contents of the
 	 * array are put into a list and returned. Otherwise, the method returns
 	 * null. This is a helper method so that functions in this package can
-	 * tolerate arrays as their input instead of lists.
+	 * tolerate arrays as their input instead of lists. Arrays of ints, longs
+	 * and doubles are not copied: they are wrapped into a
+	 * {@link PrimitiveVector}.
 	 * @param o The object to convert into a list
 	 * @return The llist
 	 */
@@ -135,6 +217,11 @@ public abstract class VectorFunction extends AtomicFunction
 		{
 			return (List<?>) o;
 		}
+		PrimitiveVector pv = PrimitiveVector.wrap(o);
+		if (pv != null)
+		{
+			return pv;
+		}
 		if (o != null && o.getClass().isArray())
 		{
 			int len = Array.getLength(o);
@@ -148,6 +235,45 @@ public abstract class VectorFunction extends AtomicFunction
 		return null;
 	}
 	
+	/**
+	 * Determines if an object is a stream of elements, that is an
+	 * {@link Iterator}, a {@link Spliterator} or a {@link BaseStream}.
+	 * @param o The object
+	 * @return {@code true} if the object is a stream, {@code false} otherwise
+	 */
+	public static boolean isStream(/*@ null @*/ Object o)
+	{
+		return o instanceof Iterator || o instanceof Spliterator || o instanceof BaseStream;
+	}
+
+	/**
+	 * Gets an iterator over the elements of a stream or a vector.
+	 * @param o The stream or the vector
+	 * @return The iterator, or null if the object is neither a stream nor a
+	 * vector
+	 */
+	/*@ null @*/ public static Iterator<?> toIterator(/*@ null @*/ Object o)
+	{
+		if (o instanceof Iterator)
+		{
+			return (Iterator<?>) o;
+		}
+		if (o instanceof Spliterator)
+		{
+			return Spliterators.iterator((Spliterator<?>) o);
+		}
+		if (o instanceof BaseStream)
+		{
+			return ((BaseStream<?, ?>) o).iterator();
+		}
+		List<?> list = convertToList(o);
+		if (list == null)
+		{
+			return null;
+		}
+		return list.iterator();
+	}
+
 	/**
 	 * Determines if an object is of an acceptable input type for a vector
 	 * function.
@@ -36,7 +36,7 @@ public class VectorOr extends VectorBooleanConnective
 	@Override
 	protected Boolean getOutputValue(List<?> ... in_lists)
 	{
-		boolean total = true;
+		boolean total = false;
 		m_witnesses.clear();
 		for (Object o : in_lists[0])
 		{
@@ -45,7 +45,7 @@ public class VectorOr extends VectorBooleanConnective
 				throw new InvalidArgumentTypeException("Expected a Boolean");
 			}
 			boolean b = (Boolean) o;
-			total = total && b;
+			total = total || b;
 			m_witnesses.add(b);
 		}
 		return total;
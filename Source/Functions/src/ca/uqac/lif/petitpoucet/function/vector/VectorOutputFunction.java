@@ -17,7 +17,7 @@
  */
 package ca.uqac.lif.petitpoucet.function.vector;
 
-import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import ca.uqac.lif.dag.LabelledNode;
@@ -44,6 +44,11 @@ import ca.uqac.lif.petitpoucet.function.RelationNodeFactory;
  * </ul>
  * Only vector functions that explain their output differently need to override
  * this method.
+ * <p>
+ * Descendants that can produce their output vector one element at a time
+ * override {@link #getVectorStream(Iterator...)}. When given a stream, such
+ * functions return as their output an {@link Iterator} that reads the input
+ * streams as its own elements are requested.
  * 
  * @author Sylvain Hallé
  */
@@ -77,10 +82,37 @@ public abstract class VectorOutputFunction extends VectorFunction
 	 * @return The output list
 	 */
 	protected abstract List<?> getVectorValue(List<?> ... in_lists);
+
+	@Override
+	protected Object getStreamValue(Iterator<?> ... inputs)
+	{
+		Iterator<?> out = getVectorStream(inputs);
+		if (out == null)
+		{
+			return super.getStreamValue(inputs);
+		}
+		m_streamed = true;
+		m_lastOutputs = null;
+		return out;
+	}
+
+	/**
+	 * Produces an iterator over the elements of the output vector, computed
+	 * from streams of input elements. The default implementation returns
+	 * null, meaning that the function cannot process its inputs in a single
+	 * pass; the input streams are then read into lists.
+	 * @param inputs An iterator over the elements of each input
+	 * @return The iterator over the output elements, or null
+	 */
+	/*@ null @*/ protected Iterator<?> getVectorStream(Iterator<?> ... inputs)
+	{
+		return null;
+	}
 	
 	@Override
 	/*@ non_null @*/ public PartNode getExplanation(Part part, RelationNodeFactory factory)
 	{
+		checkLineage();
 		PartNode root = factory.getPartNode(part, this);
 		int index = NthOutput.mentionedOutput(part);
 		if (index == 0) // Only one output pin possible
@@ -92,7 +124,7 @@ public abstract class VectorOutputFunction extends VectorFunction
 				root.addChild(factory.getPartNode(NthOutput.replaceOutByIn(part, 0), this));
 				return root;
 			}
-			if (elem_index > m_lastOutputs.size())
+			if (m_lastOutputs == null || elem_index > m_lastOutputs.size())
 			{
 				// Element index outside of size of last output
 				return root;
@@ -138,26 +170,29 @@ public abstract class VectorOutputFunction extends VectorFunction
 			return d; // Nothing to do
 		}
 		ComposedPart cd = (ComposedPart) d;
-		boolean replaced = false;
-		List<Part> parts = new ArrayList<>();
+		int num_inputs = 0;
 		for (int i = 0; i < cd.size(); i++)
 		{
-			Part in_d = cd.get(i);
-			if (in_d instanceof NthInput)
+			if (cd.get(i) instanceof NthInput)
 			{
-				parts.add(new NthElement(n));
-				parts.add(in_d);
-				replaced = true;
-			}
-			else
-			{
-				parts.add(in_d);
+				num_inputs++;
 			}
 		}
-		if (!replaced)
+		if (num_inputs == 0)
 		{
 			return d;
 		}
+		Part[] parts = new Part[cd.size() + num_inputs];
+		int pos = 0;
+		for (int i = 0; i < cd.size(); i++)
+		{
+			Part in_d = cd.get(i);
+			if (in_d instanceof NthInput)
+			{
+				parts[pos++] = new NthElement(n);
+			}
+			parts[pos++] = in_d;
+		}
 		return ComposedPart.compose(parts);
 	}
 
@@ -174,25 +209,27 @@ public abstract class VectorOutputFunction extends VectorFunction
 		}
 		ComposedPart cd = (ComposedPart) d;
 		boolean replaced = false;
-		List<Part> parts = new ArrayList<>();
-		for (int i = 0; i < cd.size() - 1; i++)
+		Part[] parts = cd.toArray();
+		int i = 0;
+		for (; i < parts.length - 1; i++)
 		{
-			Part in_d = cd.get(i);
-			if (in_d instanceof NthElement && cd.get(i + 1) instanceof NthOutput)
+			if (parts[i] instanceof NthElement && parts[i + 1] instanceof NthOutput)
 			{
-				parts.add(cd.get(i + 1));
+				// Null elements are ignored by compose
+				parts[i] = null;
 				replaced = true;
 				i++;
 			}
-			else
-			{
-				parts.add(in_d);
-			}
 		}
 		if (!replaced)
 		{
 			return d;
 		}
+		if (i == parts.length - 1)
+		{
+			// The last designator is only kept if it is part of a replacement
+			parts[i] = null;
+		}
 		return ComposedPart.compose(parts);
 	}
 	
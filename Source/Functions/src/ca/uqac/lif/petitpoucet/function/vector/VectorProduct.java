@@ -53,6 +53,17 @@ public class VectorProduct extends VectorFunction
 	{
 		float total = 1;
 		m_nulls.clear();
+		if (in_lists[0] instanceof PrimitiveVector)
+		{
+			PrimitiveVector pv = (PrimitiveVector) in_lists[0];
+			for (int i = 0; i < pv.size(); i++)
+			{
+				float v = pv.getFloat(i);
+				total *= v;
+				m_nulls.add(v == 0);
+			}
+			return total;
+		}
 		for (Object o : in_lists[0])
 		{
 			if (!(o instanceof Number))
@@ -87,6 +98,7 @@ public class VectorProduct extends VectorFunction
 	@Override
 	public PartNode getExplanation(Part part, RelationNodeFactory factory)
 	{
+		checkLineage();
 		PartNode root = factory.getPartNode(part, this);
 		int num_nulls = countNulls();
 		if (num_nulls == 0)
@@ -17,6 +17,7 @@
  */
 package ca.uqac.lif.petitpoucet.function.vector;
 
+import java.util.Iterator;
 import java.util.List;
 
 import ca.uqac.lif.petitpoucet.function.InvalidArgumentTypeException;
@@ -40,6 +41,15 @@ public class VectorSum extends VectorFunction
 	protected Number getOutputValue(List<?> ... in_lists)
 	{
 		float total = 0;
+		if (in_lists[0] instanceof PrimitiveVector)
+		{
+			PrimitiveVector pv = (PrimitiveVector) in_lists[0];
+			for (int i = 0; i < pv.size(); i++)
+			{
+				total += pv.getFloat(i);
+			}
+			return total;
+		}
 		for (Object o : in_lists[0])
 		{
 			if (!(o instanceof Number))
@@ -50,6 +60,30 @@ public class VectorSum extends VectorFunction
 		}
 		return total;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The elements are added as they are read, and are not kept. The
+	 * explanation of the output, which refers to the whole input, is not
+	 * affected.
+	 */
+	@Override
+	protected Number getStreamValue(Iterator<?> ... inputs)
+	{
+		m_streamed = true;
+		float total = 0;
+		while (inputs[0].hasNext())
+		{
+			Object o = inputs[0].next();
+			if (!(o instanceof Number))
+			{
+				throw new InvalidArgumentTypeException("Expected a number");
+			}
+			total += ((Number) o).floatValue();
+		}
+		return total;
+	}
 	
 	@Override
 	public String toString()
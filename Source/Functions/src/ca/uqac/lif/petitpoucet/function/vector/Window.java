@@ -17,9 +17,13 @@
  */
 package ca.uqac.lif.petitpoucet.function.vector;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
+import ca.uqac.lif.dag.LabelledNode;
 import ca.uqac.lif.dag.NestedNode;
 import ca.uqac.lif.dag.Node;
 import ca.uqac.lif.dag.NodeConnector;
@@ -35,6 +39,24 @@ import ca.uqac.lif.petitpoucet.function.RelationNodeFactory;
 /**
  * Creates an output vector by applying a function on successive "windows" of
  * elements in an input vector.
+ * <p>
+ * When the input is a stream, the function only keeps the elements of the
+ * current window, and its output is an iterator producing one value per
+ * window.
+ * <p>
+ * When the inner function is one of {@link VectorSum}, {@link VectorProduct},
+ * {@link VectorAnd} and {@link VectorOr}, the function can be made
+ * {@link #incremental(boolean) incremental}. Instead of evaluating a copy of
+ * the inner function on each window, it then updates a
+ * {@link SlidingAggregation} as elements enter and leave the window, which
+ * takes linear time in the size of the input instead of being proportional
+ * to the size of the input times the width of the window. No instance of the
+ * inner function is kept in this mode; an element of the output is explained
+ * by the elements of its window, or by those of them that alone decide the
+ * value of the aggregation (such as a zero in a product) when the input is
+ * a list. For sums and products of non-integer values, the order in which
+ * the elements are combined differs, so that the outputs may differ in
+ * their last digits.
  * 
  * @author Sylvain Hallé
  */
@@ -44,36 +66,155 @@ public class Window extends ParameterizedVectorFunction
 	 * The width of the sliding window.
 	 */
 	protected int m_width;
+
+	/**
+	 * A flag indicating if the function updates an aggregation incrementally
+	 * when its inner function allows it.
+	 */
+	protected boolean m_incremental;
 	
 	/**
 	 * Creates a new sliding window function.
 	 * @param f The function to apply on each window
 	 * @param width The width of the sliding window
+	 * @throws IllegalArgumentException If the width is not positive
 	 */
 	public Window(/*@ non_null @*/ Function f, int width)
 	{
 		super(f);
+		if (width < 1)
+		{
+			throw new IllegalArgumentException("Window width must be positive");
+		}
 		m_width = width;
+		m_incremental = false;
+	}
+	
+	@Override
+	/*@ non_null @*/ public Window lazy(boolean lazy)
+	{
+		super.lazy(lazy);
+		return this;
+	}
+	
+	/**
+	 * Sets whether the function updates an aggregation incrementally instead
+	 * of evaluating its inner function on each window. This has no effect if
+	 * the inner function is not one of {@link VectorSum},
+	 * {@link VectorProduct}, {@link VectorAnd} and {@link VectorOr}.
+	 * @param incremental Set to {@code true} to update the aggregation
+	 * incrementally, {@code false} otherwise
+	 * @return This function
+	 */
+	/*@ non_null @*/ public Window incremental(boolean incremental)
+	{
+		m_incremental = incremental;
+		return this;
+	}
+
+	/**
+	 * Determines if the function updates an aggregation incrementally instead
+	 * of keeping instances of its inner function. This does not allocate an
+	 * aggregation, and can be called on every explanation query.
+	 * @return {@code true} if the function is incremental, {@code false}
+	 * otherwise
+	 */
+	/*@ pure @*/ protected boolean isIncremental()
+	{
+		return m_incremental && SlidingAggregation.supports(m_function);
+	}
+
+	/**
+	 * Gets a new sliding aggregation computing the same value as the inner
+	 * function, if the function is in incremental mode.
+	 * @return The aggregation, or null if the function does not update an
+	 * aggregation incrementally
+	 */
+	/*@ null @*/ protected SlidingAggregation getAggregation()
+	{
+		if (!isIncremental())
+		{
+			return null;
+		}
+		return SlidingAggregation.forFunction(m_function, m_width);
+	}
+
+	@Override
+	protected boolean hasInstances()
+	{
+		return super.hasInstances() && !isIncremental();
 	}
 	
 	@Override
 	protected List<?> getVectorValue(List<?> ... in_lists)
 	{
 		List<Object> out_list = new ArrayList<>();
+		SlidingAggregation agg = getAggregation();
+		if (agg != null)
+		{
+			List<?> list = in_lists[0];
+			if (list.size() < m_width)
+			{
+				return out_list;
+			}
+			for (int i = 0; i < list.size(); i++)
+			{
+				if (i >= m_width)
+				{
+					agg.pop();
+				}
+				agg.push(list.get(i));
+				if (i >= m_width - 1)
+				{
+					out_list.add(agg.getValue());
+				}
+			}
+			return out_list;
+		}
 		for (int i = 0; i < in_lists[0].size() - m_width + 1; i++)
 		{
-			List<?> sub_list = in_lists[0].subList(i, i + m_width);
-			Function f = (Function) m_function.duplicate(true);
-			Object[] out = f.evaluate(new Object[] {sub_list});
-			m_lastInstances.add(f);
-			out_list.add(out[0]);
+			Function f = m_function.duplicate(true);
+			out_list.add(applyTo(f, in_lists[0], i));
+			if (!m_lazy && !m_valuesOnly)
+			{
+				m_lastInstances.add(f);
+			}
 		}
 		return out_list;
 	}
 	
+	@Override
+	/*@ non_null @*/ protected Iterator<?> getVectorStream(Iterator<?> ... inputs)
+	{
+		m_lastInstances.clear();
+		return new WindowIterator(inputs[0], getAggregation());
+	}
+
+	/**
+	 * Evaluates an instance of the inner function on the window starting at
+	 * a given position in the input vector.
+	 * @param f The instance of the function
+	 * @param list The input vector
+	 * @param i The position of the first element of the window
+	 * @return The output value of the function
+	 */
+	protected Object applyTo(Function f, List<?> list, int i)
+	{
+		return f.evaluate(new Object[] {list.subList(i, i + m_width)})[0];
+	}
+	
+	@Override
+	/*@ non_null @*/ protected Function rebuildInstance(int elem_index)
+	{
+		Function f = m_function.duplicate(true);
+		applyTo(f, m_lastInputs[0], elem_index);
+		return f;
+	}
+	
 	@Override
 	/*@ non_null @*/ public PartNode getExplanation(Part part, RelationNodeFactory factory)
 	{
+		checkLineage();
 		PartNode root = factory.getPartNode(part, this);
 		int index = NthOutput.mentionedOutput(part);
 		if (index == 0) // Only one output pin possible
@@ -85,6 +226,11 @@ public class Window extends ParameterizedVectorFunction
 				root.addChild(factory.getPartNode(NthOutput.replaceOutByIn(part, 0), this));
 				return root;
 			}
+			if (!hasInstances())
+			{
+				explainWindow(part, elem_index, root, factory);
+				return root;
+			}
 			// Get sub-tree corresponding to evaluation of the inner function
 			NestedNode sub_node = getSubNode(part, elem_index, factory);
 			if (sub_node == null)
@@ -135,6 +281,64 @@ public class Window extends ParameterizedVectorFunction
 		return root;
 	}
 	
+	/**
+	 * Explains an element of the output by the elements of the window it was
+	 * computed from, without going into the inner function. When the input
+	 * list is known and the function is incremental, only the elements of the
+	 * window that alone decide the value of the aggregation are kept, if
+	 * there are any.
+	 * @param part The part designating the element of the output
+	 * @param elem_index The index of the element in the output
+	 * @param root The node under which the explanation is added
+	 * @param factory The factory to obtain node instances
+	 */
+	protected void explainWindow(Part part, int elem_index, PartNode root, RelationNodeFactory factory)
+	{
+		Part whole = NthOutput.replaceOutByIn(VectorOutputFunction.replaceElementByOutput(part), 0);
+		List<?> list = m_lastInputs[0];
+		if (list != null && elem_index + m_width > list.size())
+		{
+			// Element index outside of size of last output
+			return;
+		}
+		if (isIncremental() && list != null)
+		{
+			List<Integer> witnesses = new ArrayList<Integer>();
+			for (int j = 0; j < m_width; j++)
+			{
+				if (SlidingAggregation.isAbsorbing(m_function, list.get(elem_index + j)))
+				{
+					witnesses.add(elem_index + j);
+				}
+			}
+			if (!witnesses.isEmpty())
+			{
+				LabelledNode or = root;
+				if (witnesses.size() > 1)
+				{
+					or = factory.getOrNode();
+					root.addChild(or);
+				}
+				for (int j : witnesses)
+				{
+					or.addChild(factory.getPartNode(replaceInputByElement(whole, 0, j), this));
+				}
+				return;
+			}
+		}
+		// The element depends on all the elements of its window
+		LabelledNode and = root;
+		if (m_width > 1)
+		{
+			and = factory.getAndNode();
+			root.addChild(and);
+		}
+		for (int j = 0; j < m_width; j++)
+		{
+			and.addChild(factory.getPartNode(replaceInputByElement(whole, 0, elem_index + j), this));
+		}
+	}
+
 	public static Part offsetElement(Part d, int offset)
 	{
 		if (!(d instanceof ComposedPart))
@@ -143,19 +347,15 @@ public class Window extends ParameterizedVectorFunction
 		}
 		ComposedPart cd = (ComposedPart) d;
 		boolean replaced = false;
-		List<Part> parts = new ArrayList<>();
-		for (int i = 0; i < cd.size(); i++)
+		Part[] parts = cd.toArray();
+		for (int i = 0; i < parts.length; i++)
 		{
-			Part in_d = cd.get(i);
+			Part in_d = parts[i];
 			if (in_d instanceof NthElement && cd.get(i + 1) instanceof NthInput)
 			{
-				parts.add(new NthElement(((NthElement) in_d).getIndex() + offset));
+				parts[i] = new NthElement(((NthElement) in_d).getIndex() + offset);
 				replaced = true;
 			}
-			else
-			{
-				parts.add(in_d);
-			}
 		}
 		if (!replaced)
 		{
@@ -167,7 +367,8 @@ public class Window extends ParameterizedVectorFunction
 	@Override
 	public Window duplicate(boolean with_state)
 	{
-		Window w = new Window((Function) m_function.duplicate(with_state), m_width);
+		Window w = new Window(m_function.duplicate(with_state), m_width);
+		w.m_incremental = m_incremental;
 		copyInto(w, with_state);
 		return w;
 	}
@@ -177,4 +378,82 @@ public class Window extends ParameterizedVectorFunction
 	{
 		return "W(" + m_width + "," + m_function.toString() + ")";
 	}
+
+	/**
+	 * Iterator applying the inner function on successive windows of a
+	 * stream, keeping only the elements of the current window. If given a
+	 * sliding aggregation, the iterator updates it instead of evaluating the
+	 * inner function.
+	 */
+	protected class WindowIterator implements Iterator<Object>
+	{
+		/**
+		 * The iterator over the elements of the input.
+		 */
+		/*@ non_null @*/ private final Iterator<?> m_input;
+
+		/**
+		 * The elements of the current window.
+		 */
+		/*@ non_null @*/ private final ArrayDeque<Object> m_window;
+
+		/**
+		 * The aggregation over the elements of the current window, or null if
+		 * the inner function is evaluated on each window.
+		 */
+		/*@ null @*/ private final SlidingAggregation m_aggregation;
+
+		/**
+		 * Creates a new iterator.
+		 * @param input The iterator over the elements of the input
+		 * @param agg The aggregation over the elements of the current window,
+		 * or null to evaluate the inner function on each window
+		 */
+		public WindowIterator(/*@ non_null @*/ Iterator<?> input, /*@ null @*/ SlidingAggregation agg)
+		{
+			super();
+			m_input = input;
+			m_window = new ArrayDeque<Object>(m_width);
+			m_aggregation = agg;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			while (m_window.size() < m_width && m_input.hasNext())
+			{
+				Object o = m_input.next();
+				m_window.add(o);
+				if (m_aggregation != null)
+				{
+					m_aggregation.push(o);
+				}
+			}
+			return m_window.size() == m_width;
+		}
+
+		@Override
+		public Object next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			if (m_aggregation != null)
+			{
+				Object out = m_aggregation.getValue();
+				m_window.pollFirst();
+				m_aggregation.pop();
+				return out;
+			}
+			Function f = m_function.duplicate(true);
+			Object out = f.evaluate(new Object[] {new ArrayList<Object>(m_window)})[0];
+			if (!m_lazy && !m_valuesOnly)
+			{
+				m_lastInstances.add(f);
+			}
+			m_window.pollFirst();
+			return out;
+		}
+	}
 }
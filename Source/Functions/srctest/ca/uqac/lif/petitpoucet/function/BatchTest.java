@@ -0,0 +1,240 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import ca.uqac.lif.dag.Node;
+import ca.uqac.lif.petitpoucet.function.number.AbsoluteValue;
+import ca.uqac.lif.petitpoucet.function.vector.VectorSum;
+import ca.uqac.lif.petitpoucet.function.vector.Window;
+
+public class BatchTest
+{
+	@Test
+	public void testCircuit1()
+	{
+		Circuit c = EvaluationPlanTest.multiplyAdd();
+		List<Object[]> inputs = new ArrayList<Object[]>();
+		inputs.add(new Object[] {2, 3, 4});
+		inputs.add(new Object[] {0, 3, 4});
+		inputs.add(new Object[] {-1, 5, 1});
+		List<Object[]> outputs = c.evaluateBatch(inputs);
+		assertEquals(3, outputs.size());
+		assertEquals(10, ((Number) outputs.get(0)[0]).intValue());
+		assertEquals(4, ((Number) outputs.get(1)[0]).intValue());
+		assertEquals(-4, ((Number) outputs.get(2)[0]).intValue());
+	}
+
+	@Test
+	public void testCircuitIterator1()
+	{
+		Circuit c = EvaluationPlanTest.multiplyAdd();
+		Iterator<Object[]> it = c.evaluateBatch(Arrays.asList(new Object[] {2, 3, 4}, new Object[] {0, 3, 4}).iterator());
+		assertTrue(it.hasNext());
+		Object[] first = it.next();
+		assertEquals(10, ((Number) first[0]).intValue());
+		Object[] second = it.next();
+		// The output array is reused
+		assertSame(first, second);
+		assertEquals(4, ((Number) second[0]).intValue());
+		assertFalse(it.hasNext());
+	}
+
+	@Test
+	public void testCircuitInstances1()
+	{
+		Circuit c = EvaluationPlanTest.multiplyAdd();
+		List<Function> instances = new ArrayList<Function>();
+		c.evaluateBatch(Arrays.asList(new Object[] {2, 3, 4}, new Object[] {0, 3, 4}), instances);
+		assertEquals(2, instances.size());
+		Circuit c1 = (Circuit) instances.get(0);
+		Circuit c2 = (Circuit) instances.get(1);
+		assertNotSame(c, c1);
+		assertEquals(10, ((Number) c1.getOutputPin(0).getValue()).intValue());
+		assertEquals(4, ((Number) c2.getOutputPin(0).getValue()).intValue());
+		// Each instance can explain its own result
+		// (the first tuple depends on all three inputs, the second on x and z)
+		assertEquals(3, ExplanationTestUtilities.explain(c1).iterator().next().size());
+		assertEquals(2, ExplanationTestUtilities.explain(c2).iterator().next().size());
+	}
+
+	@Test
+	public void testAtomic1()
+	{
+		AbsoluteValue f = new AbsoluteValue();
+		List<Object[]> outputs = f.evaluateBatch(Arrays.asList(new Object[] {-3}, new Object[] {2}));
+		assertEquals(2, outputs.size());
+		assertEquals(3, ((Number) outputs.get(0)[0]).intValue());
+		assertEquals(2, ((Number) outputs.get(1)[0]).intValue());
+		// The function holds the state of the last evaluation
+		assertEquals(2, ((Number) f.getOutputPin(0).getValue()).intValue());
+	}
+
+	@Test
+	public void testAtomicState1()
+	{
+		// Window keeps the instances of its last evaluation until it is reset
+		Window f = new Window(new VectorSum(), 2);
+		List<Object[]> outputs = f.evaluateBatch(Arrays.asList(new Object[] {Arrays.asList(3, 1, 4)}, new Object[] {Arrays.asList(1, 5)}));
+		assertEquals(Arrays.asList(4f, 5f), numbers(outputs.get(0)[0]));
+		assertEquals(Arrays.asList(6f), numbers(outputs.get(1)[0]));
+		List<Function> instances = new ArrayList<Function>();
+		f.evaluateBatch(Arrays.asList(new Object[] {Arrays.asList(3, 1, 4)}, new Object[] {Arrays.asList(1, 5)}), instances);
+		assertEquals(2, instances.size());
+		assertNotSame(f, instances.get(0));
+		assertEquals(Arrays.asList(4f, 5f), numbers(((Window) instances.get(0)).getOutputPin(0).getValue()));
+	}
+
+	@Test(expected = InvalidNumberOfArgumentsException.class)
+	public void testArity()
+	{
+		Circuit c = EvaluationPlanTest.multiplyAdd();
+		List<Object[]> inputs = new ArrayList<Object[]>();
+		inputs.add(new Object[] {2, 3});
+		c.evaluateBatch(inputs);
+	}
+
+	@Test
+	public void testDefault1()
+	{
+		// A function that does not override the batch methods resets itself
+		// before each tuple
+		Negation f = new Negation();
+		List<Object[]> outputs = f.evaluateBatch(Arrays.asList(new Object[] {3}, new Object[] {-2}));
+		assertEquals(2, outputs.size());
+		assertEquals(-3, outputs.get(0)[0]);
+		assertEquals(2, outputs.get(1)[0]);
+		assertEquals(2, f.m_resets);
+	}
+
+	@Test
+	public void testDefaultInstances1()
+	{
+		Negation f = new Negation();
+		List<Function> instances = new ArrayList<Function>();
+		Iterator<Object[]> it = f.evaluateBatch(Arrays.asList(new Object[] {3}, new Object[] {-2}).iterator(), instances);
+		assertEquals(-3, it.next()[0]);
+		assertEquals(2, it.next()[0]);
+		assertFalse(it.hasNext());
+		assertEquals(2, instances.size());
+		assertNotSame(f, instances.get(0));
+		assertEquals(-3, ((Negation) instances.get(0)).m_lastOutput);
+		assertEquals(2, ((Negation) instances.get(1)).m_lastOutput);
+	}
+
+	/**
+	 * A minimal implementation of {@link Function} that relies on the default
+	 * batch evaluation and "values only" methods of the interface.
+	 */
+	protected static class Negation extends Node implements Function
+	{
+		/**
+		 * The number of times the function has been reset.
+		 */
+		protected int m_resets = 0;
+
+		/**
+		 * The last output value produced by the function.
+		 */
+		protected Object m_lastOutput = null;
+
+		/**
+		 * The context of the function.
+		 */
+		protected final Map<String,Object> m_context = new HashMap<String,Object>();
+
+		public Negation()
+		{
+			super(1, 1);
+		}
+
+		@Override
+		public Object[] evaluate(Object ... inputs)
+		{
+			return evaluateArray(inputs);
+		}
+
+		@Override
+		public Object[] evaluateArray(Object[] inputs)
+		{
+			m_lastOutput = -((Integer) inputs[0]);
+			return new Object[] {m_lastOutput};
+		}
+
+		@Override
+		public void reset()
+		{
+			m_resets++;
+			m_lastOutput = null;
+		}
+
+		@Override
+		public Object getContext(String key)
+		{
+			return m_context.get(key);
+		}
+
+		@Override
+		public void setContext(String key, Object value)
+		{
+			m_context.put(key, value);
+		}
+
+		@Override
+		public Negation duplicate()
+		{
+			return duplicate(false);
+		}
+
+		@Override
+		public Negation duplicate(boolean with_state)
+		{
+			Negation f = new Negation();
+			if (with_state)
+			{
+				f.m_lastOutput = m_lastOutput;
+			}
+			return f;
+		}
+	}
+
+	/**
+	 * Converts a list of numbers into a list of floats.
+	 * @param o The list
+	 * @return The list of floats
+	 */
+	protected static List<Float> numbers(Object o)
+	{
+		List<Float> list = new ArrayList<Float>();
+		for (Object e : (List<?>) o)
+		{
+			list.add(((Number) e).floatValue());
+		}
+		return list;
+	}
+}
@@ -0,0 +1,240 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function;
+
+import static ca.uqac.lif.petitpoucet.function.ExplanationTestUtilities.explain;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import ca.uqac.lif.dag.NodeConnector;
+import ca.uqac.lif.petitpoucet.Clause;
+import ca.uqac.lif.petitpoucet.GraphUtilities;
+import ca.uqac.lif.petitpoucet.PartNode;
+import ca.uqac.lif.petitpoucet.function.booleans.And;
+import ca.uqac.lif.petitpoucet.function.number.IsEven;
+import ca.uqac.lif.petitpoucet.function.number.IsGreaterThan;
+import ca.uqac.lif.petitpoucet.function.vector.Filter;
+import ca.uqac.lif.petitpoucet.function.vector.VectorApply;
+import ca.uqac.lif.petitpoucet.function.vector.VectorSum;
+
+public class EvaluationContextTest
+{
+	@Test
+	public void test1()
+	{
+		Circuit c = EvaluationPlanTest.multiplyAdd();
+		EvaluationPlan plan = c.compile();
+		EvaluationContext ctx_1 = new EvaluationContext(plan);
+		EvaluationContext ctx_2 = new EvaluationContext(plan);
+		assertSame(c, ctx_1.getCircuit());
+		assertEquals(10, ((Number) ctx_1.evaluate(2, 3, 4)[0]).intValue());
+		assertEquals(4, ((Number) ctx_2.evaluate(0, 3, 4)[0]).intValue());
+		// A context can be reused
+		assertEquals(-4, ((Number) ctx_1.evaluate(-1, 5, 1)[0]).intValue());
+	}
+
+	@Test
+	public void testExplain1()
+	{
+		Circuit c = EvaluationPlanTest.multiplyAdd();
+		EvaluationPlan plan = c.compile();
+		EvaluationContext ctx_1 = new EvaluationContext(plan);
+		EvaluationContext ctx_2 = new EvaluationContext(plan);
+		ctx_1.evaluate(2, 3, 4);
+		ctx_2.evaluate(0, 3, 4);
+		PartNode root = ctx_1.getExplanation(NthOutput.FIRST);
+		assertSame(c, root.getSubject());
+		// The first evaluation depends on all three inputs, the second on x and z
+		assertEquals(3, explain(ctx_1).iterator().next().size());
+		assertEquals(2, explain(ctx_2).iterator().next().size());
+		// The explanation refers to the inputs of the circuit
+		for (Clause cl : explain(ctx_2))
+		{
+			for (Object o : cl)
+			{
+				assertTrue(o.toString().endsWith(" of " + c));
+			}
+		}
+	}
+
+	@Test
+	public void testExplainInput()
+	{
+		Circuit c = EvaluationPlanTest.multiplyAdd();
+		c.evaluate(2, 3, 4);
+		Set<Clause> expected = GraphUtilities.asDnf(GraphUtilities.simplify(c.getExplanation(NthInput.FIRST, new RelationNodeFactory())));
+		c.reset();
+		EvaluationContext ctx = c.newContext();
+		ctx.evaluate(2, 3, 4);
+		// The leaves refer to the copies owned by the context, which print
+		// in the same way as the functions of the circuit
+		assertEquals(expected.toString(), GraphUtilities.asDnf(GraphUtilities.simplify(ctx.getExplanation(NthInput.FIRST))).toString());
+	}
+
+	@Test
+	public void testNested()
+	{
+		Circuit c = positiveSum();
+		c.evaluate(Arrays.asList(3, -1, 4));
+		Set<Clause> expected = explain(c);
+		c.reset();
+		EvaluationContext ctx = c.newContext();
+		assertEquals(7, ((Number) ctx.evaluate(Arrays.asList(3, -1, 4))[0]).intValue());
+		assertEquals(expected, explain(ctx));
+		// The sum depends on the elements at positions 0 and 2, and on the
+		// constant of the condition
+		assertEquals(3, expected.iterator().next().size());
+	}
+
+	@Test
+	public void testFailure1()
+	{
+		// The second operand fails when it is not a number; the context reports
+		// the exception thrown by this operand when it is needed
+		Circuit c = new Circuit(2, 1);
+		And and = new And(2, true);
+		IsEven even_1 = new IsEven();
+		IsEven even_2 = new IsEven();
+		c.addNodes(and, even_1, even_2);
+		NodeConnector.connect(even_1, 0, and, 0);
+		NodeConnector.connect(even_2, 0, and, 1);
+		c.associateInput(0, even_1.getInputPin(0));
+		c.associateInput(1, even_2.getInputPin(0));
+		c.associateOutput(0, and.getOutputPin(0));
+		RuntimeException expected = null;
+		try
+		{
+			c.duplicate().evaluate(2, "foo");
+		}
+		catch (RuntimeException e)
+		{
+			expected = e;
+		}
+		assertNotNull(expected);
+		EvaluationContext ctx = c.newContext();
+		assertEquals(false, ctx.evaluate(3, "foo")[0]);
+		try
+		{
+			ctx.evaluate(2, "foo");
+			fail("Expected an exception");
+		}
+		catch (RuntimeException e)
+		{
+			assertEquals(expected.getClass(), e.getClass());
+			assertEquals(expected.getMessage(), e.getMessage());
+		}
+		assertEquals(true, ctx.evaluate(2, 4)[0]);
+	}
+
+	@Test
+	public void testThreads() throws Exception
+	{
+		final Circuit c = positiveSum();
+		final EvaluationPlan plan = c.compile();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try
+		{
+			List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+			for (int t = 0; t < 4; t++)
+			{
+				final int offset = t;
+				futures.add(executor.submit(new Callable<Boolean>()
+				{
+					@Override
+					public Boolean call()
+					{
+						EvaluationContext ctx = new EvaluationContext(plan);
+						for (int i = 0; i < 100; i++)
+						{
+							int size = (i + offset) % 5 + 1;
+							List<Integer> list = new ArrayList<Integer>();
+							for (int j = 0; j < size; j++)
+							{
+								list.add(j % 2 == 0 ? j : -j);
+							}
+							int expected = 0;
+							for (int j = 0; j < size; j += 2)
+							{
+								expected += j;
+							}
+							if (((Number) ctx.evaluate(list)[0]).intValue() != expected)
+							{
+								return false;
+							}
+							Set<Clause> clauses = GraphUtilities.asDnf(GraphUtilities.simplify(ctx.getExplanation(NthOutput.FIRST)));
+							if (clauses.iterator().next().size() != (size + 1) / 2 + 1)
+							{
+								return false;
+							}
+						}
+						return true;
+					}
+				}));
+			}
+			for (Future<Boolean> f : futures)
+			{
+				assertTrue(f.get());
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Creates a circuit that sums the elements of a list that are greater
+	 * than -1, using a nested circuit as the condition of a filter.
+	 * @return The circuit
+	 */
+	protected static Circuit positiveSum()
+	{
+		Circuit gt = new Circuit(1, 1);
+		{
+			IsGreaterThan g = new IsGreaterThan();
+			Constant minus_one = new Constant(-1);
+			gt.addNodes(g, minus_one);
+			gt.associateInput(0, g.getInputPin(0));
+			NodeConnector.connect(minus_one, 0, g, 1);
+			gt.associateOutput(0, g.getOutputPin(0));
+		}
+		Circuit c = new Circuit(1, 1);
+		Fork f = new Fork(2);
+		VectorApply va = new VectorApply(gt);
+		Filter filter = new Filter();
+		VectorSum sum = new VectorSum();
+		c.addNodes(f, va, filter, sum);
+		NodeConnector.connect(f, 0, filter, 0);
+		NodeConnector.connect(f, 1, va, 0);
+		NodeConnector.connect(va, 0, filter, 1);
+		NodeConnector.connect(filter, 0, sum, 0);
+		c.associateInput(0, f.getInputPin(0));
+		c.associateOutput(0, sum.getOutputPin(0));
+		return c;
+	}
+}
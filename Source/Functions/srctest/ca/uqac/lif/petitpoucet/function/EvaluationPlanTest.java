@@ -0,0 +1,289 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function;
+
+import static ca.uqac.lif.petitpoucet.function.ExplanationTestUtilities.explain;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import ca.uqac.lif.dag.LeafCrawler.LeafFetcher;
+import ca.uqac.lif.dag.Node;
+import ca.uqac.lif.dag.NodeConnector;
+import ca.uqac.lif.petitpoucet.Clause;
+import ca.uqac.lif.petitpoucet.ComposedPart;
+import ca.uqac.lif.petitpoucet.Part;
+import ca.uqac.lif.petitpoucet.PartNode;
+import ca.uqac.lif.petitpoucet.function.booleans.And;
+import ca.uqac.lif.petitpoucet.function.booleans.IfThenElse;
+import ca.uqac.lif.petitpoucet.function.number.AbsoluteValue;
+import ca.uqac.lif.petitpoucet.function.number.Addition;
+import ca.uqac.lif.petitpoucet.function.number.IsEven;
+import ca.uqac.lif.petitpoucet.function.number.IsGreaterThan;
+import ca.uqac.lif.petitpoucet.function.number.Multiplication;
+import ca.uqac.lif.petitpoucet.function.strings.Split;
+import ca.uqac.lif.petitpoucet.function.vector.GetSize;
+import ca.uqac.lif.petitpoucet.function.vector.NthElement;
+import ca.uqac.lif.petitpoucet.function.vector.Window;
+
+public class EvaluationPlanTest
+{
+	@Test
+	public void test1()
+	{
+		// This circuit calculates (x*y)+z
+		Circuit c = multiplyAdd();
+		EvaluationPlan plan = c.compile();
+		assertEquals(2, plan.getSize());
+		assertEquals(10, ((Number) plan.evaluate(2, 3, 4)[0]).intValue());
+		// No reset is needed between two evaluations of the plan
+		assertEquals(4, ((Number) plan.evaluate(0, 3, 4)[0]).intValue());
+		assertEquals(4, ((Number) c.getOutputPin(0).getValue()).intValue());
+	}
+
+	@Test
+	public void testExplain1()
+	{
+		Circuit c = multiplyAdd();
+		c.evaluate(0, 3, 4);
+		Set<Clause> expected = explain(c);
+		c.reset();
+		c.evaluate(2, 3, 4);
+		assertNotEquals(expected, explain(c));
+		EvaluationPlan plan = c.compile();
+		plan.evaluate(0, 3, 4);
+		assertEquals(expected, explain(c));
+	}
+
+	@Test
+	public void testStateful1()
+	{
+		// Functions keeping a state are reset before each evaluation
+		Circuit c = splitCircuit();
+		EvaluationPlan plan = c.compile();
+		plan.evaluate("a,b,c");
+		assertEquals(Arrays.asList("dd", "e"), plan.evaluate("dd,e")[0]);
+		Circuit fresh = splitCircuit();
+		fresh.evaluate("dd,e");
+		Part p = ComposedPart.compose(new NthElement(1), NthOutput.FIRST);
+		assertEquals(explainParts(fresh, p), explainParts(c, p));
+	}
+
+	@Test
+	public void testStateful2()
+	{
+		Circuit c = windowCircuit();
+		EvaluationPlan plan = c.compile();
+		plan.evaluate(Arrays.asList(1, 2, 3));
+		assertEquals(Arrays.asList(2, 2, 2), plan.evaluate(Arrays.asList(10, 20, 30, 40))[0]);
+		Circuit fresh = windowCircuit();
+		fresh.evaluate(Arrays.asList(10, 20, 30, 40));
+		Part p = ComposedPart.compose(new NthElement(2), NthOutput.FIRST);
+		Set<Part> expected = explainParts(fresh, p);
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, explainParts(c, p));
+	}
+
+	@Test
+	public void testLongChain()
+	{
+		int length = 20000;
+		Circuit c = new Circuit(1, 1);
+		Addition previous = null;
+		for (int i = 0; i < length; i++)
+		{
+			Addition a = new Addition(2);
+			Constant one = new Constant(1);
+			c.addNodes(a, one);
+			NodeConnector.connect(one, 0, a, 1);
+			if (previous == null)
+			{
+				c.associateInput(0, a.getInputPin(0));
+			}
+			else
+			{
+				NodeConnector.connect(previous, 0, a, 0);
+			}
+			previous = a;
+		}
+		c.associateOutput(0, previous.getOutputPin(0));
+		EvaluationPlan plan = c.compile();
+		assertEquals(2 * length, plan.getSize());
+		assertEquals(length + 3, ((Number) plan.evaluate(3)[0]).intValue());
+	}
+
+	@Test
+	public void testNested()
+	{
+		Circuit gt_0 = new Circuit(1, 1);
+		{
+			IsGreaterThan gt = new IsGreaterThan();
+			Constant zero = new Constant(0);
+			gt_0.addNodes(gt, zero);
+			gt_0.associateInput(0, gt.getInputPin(0));
+			NodeConnector.connect(zero, 0, gt, 1);
+			gt_0.associateOutput(0, gt.getOutputPin(0));
+		}
+		Circuit c = new Circuit(1, 1);
+		AbsoluteValue abs = new AbsoluteValue();
+		c.addNodes(abs, gt_0);
+		NodeConnector.connect(abs, 0, gt_0, 0);
+		c.associateInput(0, abs.getInputPin(0));
+		c.associateOutput(0, gt_0.getOutputPin(0));
+		EvaluationPlan plan = c.compile();
+		assertEquals(true, plan.evaluate(-3)[0]);
+		assertEquals(false, plan.evaluate(0)[0]);
+		assertEquals(false, gt_0.getOutputPin(0).getValue());
+	}
+
+	@Test
+	public void testIfThenElse()
+	{
+		// The "then" branch fails when x is not a number
+		Circuit c = new Circuit(2, 1);
+		IfThenElse ite = new IfThenElse();
+		AbsoluteValue abs = new AbsoluteValue();
+		Constant zero = new Constant(0);
+		c.addNodes(ite, abs, zero);
+		NodeConnector.connect(abs, 0, ite, 1);
+		NodeConnector.connect(zero, 0, ite, 2);
+		c.associateInput(0, ite.getInputPin(0));
+		c.associateInput(1, abs.getInputPin(0));
+		c.associateOutput(0, ite.getOutputPin(0));
+		Object expected = c.evaluate(false, "foo")[0];
+		EvaluationPlan plan = c.compile();
+		assertEquals(expected, plan.evaluate(false, "foo")[0]);
+		assertEquals(3, ((Number) plan.evaluate(true, -3)[0]).intValue());
+	}
+
+	@Test
+	public void testFailFast()
+	{
+		// The second operand fails, but is not needed when the first is false
+		Circuit c = new Circuit(2, 1);
+		And and = new And(2, true);
+		IsEven even_1 = new IsEven();
+		IsEven even_2 = new IsEven();
+		c.addNodes(and, even_1, even_2);
+		NodeConnector.connect(even_1, 0, and, 0);
+		NodeConnector.connect(even_2, 0, and, 1);
+		c.associateInput(0, even_1.getInputPin(0));
+		c.associateInput(1, even_2.getInputPin(0));
+		c.associateOutput(0, and.getOutputPin(0));
+		EvaluationPlan plan = c.compile();
+		assertEquals(false, plan.evaluate(3, "foo")[0]);
+		assertEquals(true, plan.evaluate(2, 4)[0]);
+	}
+
+	@Test(expected = InvalidArgumentTypeException.class)
+	public void testFailure()
+	{
+		Circuit c = new Circuit(1, 1);
+		AbsoluteValue abs = new AbsoluteValue();
+		c.addNodes(abs);
+		c.associateInput(0, abs.getInputPin(0));
+		c.associateOutput(0, abs.getOutputPin(0));
+		c.compile().evaluate("foo");
+	}
+
+	@Test(expected = FunctionException.class)
+	public void testNotConnected()
+	{
+		Circuit c = new Circuit(1, 1);
+		Addition a = new Addition(2);
+		c.addNodes(a);
+		c.associateInput(0, a.getInputPin(0));
+		c.associateOutput(0, a.getOutputPin(0));
+		c.compile();
+	}
+
+	/**
+	 * Creates a circuit that calculates (x*y)+z.
+	 * @return The circuit
+	 */
+	protected static Circuit multiplyAdd()
+	{
+		Circuit c = new Circuit(3, 1);
+		Multiplication m = new Multiplication(2);
+		Addition a = new Addition(2);
+		c.addNodes(m, a);
+		c.associateInput(0, m.getInputPin(0));
+		c.associateInput(1, m.getInputPin(1));
+		c.associateInput(2, a.getInputPin(1));
+		NodeConnector.connect(m, 0, a, 0);
+		c.associateOutput(0, a.getOutputPin(0));
+		return c;
+	}
+
+	/**
+	 * Creates a circuit that splits a string on commas.
+	 * @return The circuit
+	 */
+	protected static Circuit splitCircuit()
+	{
+		Circuit c = new Circuit(1, 1);
+		Split split = new Split(",");
+		c.addNodes(split);
+		c.associateInput(0, split.getInputPin(0));
+		c.associateOutput(0, split.getOutputPin(0));
+		return c;
+	}
+
+	/**
+	 * Creates a circuit that computes the size of each window of width 2 of a
+	 * list. The size is computed by a new instance of a function for each
+	 * window.
+	 * @return The circuit
+	 */
+	protected static Circuit windowCircuit()
+	{
+		Circuit c = new Circuit(1, 1);
+		Window w = new Window(new GetSize(), 2);
+		c.addNodes(w);
+		c.associateInput(0, w.getInputPin(0));
+		c.associateOutput(0, w.getOutputPin(0));
+		return c;
+	}
+
+	/**
+	 * Computes the explanation of a part of a circuit, and keeps only the
+	 * parts of its leaves, so that the explanations of two distinct circuits
+	 * can be compared.
+	 * @param c The circuit
+	 * @param p The part to explain
+	 * @return The set of parts designated by the leaves of the explanation
+	 */
+	protected static Set<Part> explainParts(Circuit c, Part p)
+	{
+		LeafFetcher fetcher = new LeafFetcher(c.getExplanation(p, new RelationNodeFactory()));
+		fetcher.crawl();
+		Set<Part> out = new HashSet<Part>();
+		for (Node n : fetcher.getLeaves())
+		{
+			if (n instanceof PartNode)
+			{
+				out.add(((PartNode) n).getPart());
+			}
+		}
+		return out;
+	}
+}
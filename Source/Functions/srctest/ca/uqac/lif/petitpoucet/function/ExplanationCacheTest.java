@@ -0,0 +1,213 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function;
+
+import static ca.uqac.lif.petitpoucet.function.ExplanationTestUtilities.explain;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import ca.uqac.lif.dag.NestedNode;
+import ca.uqac.lif.dag.NodeConnector;
+import ca.uqac.lif.petitpoucet.Clause;
+import ca.uqac.lif.petitpoucet.ComposedPart;
+import ca.uqac.lif.petitpoucet.Part;
+import ca.uqac.lif.petitpoucet.PartNode;
+import ca.uqac.lif.petitpoucet.function.number.AbsoluteValue;
+import ca.uqac.lif.petitpoucet.function.vector.NthElement;
+import ca.uqac.lif.petitpoucet.function.vector.VectorApply;
+import ca.uqac.lif.petitpoucet.function.vector.VectorSum;
+import ca.uqac.lif.petitpoucet.function.vector.Window;
+
+public class ExplanationCacheTest
+{
+	@Test
+	public void testCircuit1()
+	{
+		Circuit c = absoluteWindow();
+		c.evaluate(Arrays.asList(3, -1, 4, -1, 5));
+		ExplanationCache cache = c.getExplanationCache();
+		Set<Clause> first = explain(c, element(0));
+		assertEquals(0, cache.getHits());
+		assertTrue(cache.size() > 0);
+		// Element 1 of the output shares element 1 of the absolute values
+		Set<Clause> second = explain(c, element(1));
+		assertTrue(cache.getHits() > 0);
+		assertEquals(first.iterator().next().size(), second.iterator().next().size());
+		// The same explanation is obtained without the cache
+		cache.clear();
+		assertEquals(second, explain(c, element(1)));
+	}
+
+	@Test
+	public void testCircuit2()
+	{
+		Circuit c = absoluteWindow();
+		c.evaluate(Arrays.asList(3, -1, 4));
+		Set<Clause> first = explain(c, element(0));
+		long misses = c.getExplanationCache().getMisses();
+		// Asking again for the same part reuses the whole graph
+		assertEquals(first, explain(c, element(0)));
+		assertEquals(misses, c.getExplanationCache().getMisses());
+	}
+
+	@Test
+	public void testCircuit3()
+	{
+		// A subtree taken from the cache does not bring along the parents and
+		// leaves it had in the explanations of earlier queries
+		Circuit c = absoluteWindow();
+		c.evaluate(Arrays.asList(3, -1, 4, -1, 5, -9, 2, -6));
+		int size = -1, leaves = -1;
+		for (int i = 0; i < 7; i++)
+		{
+			PartNode root = c.getExplanation(element(i), new RelationNodeFactory());
+			NestedNode nn = getNested(root);
+			if (i == 0)
+			{
+				size = nn.getNodeCount();
+				leaves = nn.getOutputArity();
+			}
+			assertEquals(size, nn.getNodeCount());
+			assertEquals(leaves, nn.getOutputArity());
+		}
+		assertTrue(c.getExplanationCache().getHits() > 0);
+	}
+
+	@Test
+	public void testShared1()
+	{
+		// Asking for parts whose explanations are in the cache links no new
+		// node to the graphs in the cache, nor to the graphs returned by
+		// earlier queries
+		Circuit c = absoluteWindow();
+		c.evaluate(Arrays.asList(3, -1, 4, -1, 5));
+		ExplanationCache cache = c.getExplanationCache();
+		NestedNode first = getNested(c.getExplanation(element(0), new RelationNodeFactory()));
+		int first_size = first.duplicate(false).getNodeCount();
+		Map<PartNode,Integer> parents = getParentCounts(cache);
+		NestedNode second = getNested(c.getExplanation(element(1), new RelationNodeFactory()));
+		int second_size = second.duplicate(false).getNodeCount();
+		getNested(c.getExplanation(element(1), new RelationNodeFactory()));
+		assertTrue(cache.getHits() > 0);
+		assertEquals(first_size, first.duplicate(false).getNodeCount());
+		assertEquals(second_size, second.duplicate(false).getNodeCount());
+		Map<PartNode,Integer> new_parents = getParentCounts(cache);
+		for (Map.Entry<PartNode,Integer> e : parents.entrySet())
+		{
+			assertEquals(e.getValue(), new_parents.get(e.getKey()));
+		}
+	}
+
+	@Test
+	public void testInvalidate1()
+	{
+		Circuit c = absoluteWindow();
+		c.evaluate(Arrays.asList(3, -1, 4));
+		explain(c, element(0));
+		assertTrue(c.getExplanationCache().size() > 0);
+		c.reset();
+		assertEquals(0, c.getExplanationCache().size());
+		c.evaluate(Arrays.asList(3, -1, 4));
+		explain(c, element(0));
+		assertTrue(c.getExplanationCache().size() > 0);
+		c.evaluate(Arrays.asList(1, 2, 3));
+		assertEquals(0, c.getExplanationCache().size());
+	}
+
+	@Test
+	public void testContext1()
+	{
+		Circuit c = absoluteWindow();
+		EvaluationContext ctx = c.newContext();
+		ctx.evaluate(Arrays.asList(3, -1, 4, -1, 5));
+		Set<Clause> first = explain(ctx, element(1));
+		assertTrue(ctx.m_cache.size() > 0);
+		assertEquals(first, explain(ctx, element(1)));
+		assertTrue(ctx.m_cache.getHits() > 0);
+		ctx.evaluate(Arrays.asList(1, 2, 3));
+		assertEquals(0, ctx.m_cache.size());
+		// The circuit itself is not affected
+		assertEquals(0, c.getExplanationCache().size());
+	}
+
+	/**
+	 * Gets the nested node holding the explanation graph of a circuit.
+	 * @param root The root returned by the circuit
+	 * @return The nested node
+	 */
+	protected static NestedNode getNested(PartNode root)
+	{
+		return (NestedNode) root.getOutputLinks(0).get(0).getNode();
+	}
+
+	/**
+	 * Gets the number of parents of each root stored in a cache.
+	 * @param cache The cache
+	 * @return A map associating each root to its number of parents
+	 */
+	protected static Map<PartNode,Integer> getParentCounts(ExplanationCache cache)
+	{
+		Map<PartNode,Integer> counts = new IdentityHashMap<PartNode,Integer>();
+		for (Map<Part,PartNode> roots : cache.m_roots.values())
+		{
+			for (PartNode root : roots.values())
+			{
+				int count = 0;
+				for (int i = 0; i < root.getInputArity(); i++)
+				{
+					count += root.getInputLinks(i).size();
+				}
+				counts.put(root, count);
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Creates a circuit that computes the sum of the absolute values of
+	 * successive pairs of elements of a list.
+	 * @return The circuit
+	 */
+	protected static Circuit absoluteWindow()
+	{
+		Circuit c = new Circuit(1, 1);
+		VectorApply abs = new VectorApply(new AbsoluteValue());
+		Window win = new Window(new VectorSum(), 2);
+		c.addNodes(abs, win);
+		NodeConnector.connect(abs, 0, win, 0);
+		c.associateInput(0, abs.getInputPin(0));
+		c.associateOutput(0, win.getOutputPin(0));
+		return c;
+	}
+
+	/**
+	 * Gets the part designating an element of the first output.
+	 * @param index The index of the element
+	 * @return The part
+	 */
+	protected static Part element(int index)
+	{
+		return ComposedPart.compose(new NthElement(index), NthOutput.FIRST);
+	}
+}
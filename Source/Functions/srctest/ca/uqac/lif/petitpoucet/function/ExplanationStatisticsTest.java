@@ -0,0 +1,134 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function;
+
+import static ca.uqac.lif.petitpoucet.function.ExplanationTestUtilities.explain;
+import static org.junit.Assert.*;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+import ca.uqac.lif.dag.NodeConnector;
+import ca.uqac.lif.petitpoucet.Clause;
+import ca.uqac.lif.petitpoucet.function.number.AbsoluteValue;
+import ca.uqac.lif.petitpoucet.function.number.Addition;
+
+public class ExplanationStatisticsTest
+{
+	@Test
+	public void testChain1()
+	{
+		Circuit c = absoluteChain(10);
+		c.evaluate(-3);
+		explain(c);
+		ExplanationStatistics stats = c.getExplanationStatistics();
+		assertEquals(1, stats.getQueries());
+		assertEquals(10, stats.getDevelopedParts());
+		assertEquals(9, stats.getLinkedLeaves());
+	}
+
+	@Test
+	public void testChain2()
+	{
+		// The number of nodes examined grows linearly with the length of the chain
+		long[] visited = new long[3];
+		for (int i = 0; i < visited.length; i++)
+		{
+			Circuit c = absoluteChain(10 * (i + 1));
+			c.evaluate(-3);
+			explain(c);
+			visited[i] = c.getExplanationStatistics().getVisitedNodes();
+		}
+		assertEquals(visited[1] - visited[0], visited[2] - visited[1]);
+		assertEquals(2 * visited[0], visited[1]);
+	}
+
+	@Test
+	public void testChain3()
+	{
+		Circuit c = absoluteChain(5);
+		c.evaluate(-3);
+		explain(c);
+		explain(c);
+		ExplanationStatistics stats = c.getExplanationStatistics();
+		assertEquals(2, stats.getQueries());
+		// The second query is answered from the cache
+		assertEquals(5, stats.getDevelopedParts());
+		stats.clear();
+		assertEquals(0, stats.getQueries());
+		assertEquals(0, stats.getVisitedNodes());
+	}
+
+	@Test
+	public void testShared1()
+	{
+		// Both inputs of the addition are connected to the same output
+		Circuit c = new Circuit(1, 1);
+		AbsoluteValue abs = new AbsoluteValue();
+		Addition add = new Addition(2);
+		c.addNodes(abs, add);
+		NodeConnector.connect(abs, 0, add, 0);
+		NodeConnector.connect(abs, 0, add, 1);
+		c.associateInput(0, abs.getInputPin(0));
+		c.associateOutput(0, add.getOutputPin(0));
+		assertEquals(6, ((Number) c.evaluate(-3)[0]).intValue());
+		Set<Clause> clauses = explain(c);
+		ExplanationStatistics stats = c.getExplanationStatistics();
+		assertEquals(2, stats.getDevelopedParts());
+		assertEquals(2, stats.getLinkedLeaves());
+		// Both leaves lead to the single input of the circuit
+		assertEquals(1, clauses.size());
+		assertEquals(1, clauses.iterator().next().size());
+	}
+
+	@Test
+	public void testContext1()
+	{
+		Circuit c = absoluteChain(4);
+		EvaluationContext ctx = c.newContext();
+		ctx.evaluate(-3);
+		ctx.getExplanation(NthOutput.FIRST, new RelationNodeFactory());
+		assertEquals(4, ctx.getExplanationStatistics().getDevelopedParts());
+		assertEquals(0, c.getExplanationStatistics().getQueries());
+	}
+
+	/**
+	 * Creates a circuit made of a chain of functions computing an absolute
+	 * value.
+	 * @param length The number of functions in the chain
+	 * @return The circuit
+	 */
+	protected static Circuit absoluteChain(int length)
+	{
+		Circuit c = new Circuit(1, 1);
+		AbsoluteValue[] chain = new AbsoluteValue[length];
+		for (int i = 0; i < length; i++)
+		{
+			chain[i] = new AbsoluteValue();
+			c.addNodes(chain[i]);
+			if (i > 0)
+			{
+				NodeConnector.connect(chain[i - 1], 0, chain[i], 0);
+			}
+		}
+		c.associateInput(0, chain[0].getInputPin(0));
+		c.associateOutput(0, chain[length - 1].getOutputPin(0));
+		return c;
+	}
+}
@@ -0,0 +1,58 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+import ca.uqac.lif.petitpoucet.Clause;
+import ca.uqac.lif.petitpoucet.GraphUtilities;
+import ca.uqac.lif.petitpoucet.Part;
+
+public class ExplanationTestUtilities
+{
+	@Test
+	public void dummyTest()
+	{
+		// Do nothing
+	}
+
+	/**
+	 * Computes the explanation of the first output of a circuit or a
+	 * context, and converts it into a set of clauses.
+	 * @param q The circuit or context to query
+	 * @return The set of clauses
+	 */
+	public static Set<Clause> explain(ExplanationQueryable q)
+	{
+		return explain(q, NthOutput.FIRST);
+	}
+
+	/**
+	 * Computes the explanation of a part, and converts it into a set of
+	 * clauses.
+	 * @param q The circuit or context to query
+	 * @param part The part to explain
+	 * @return The set of clauses
+	 */
+	public static Set<Clause> explain(ExplanationQueryable q, Part part)
+	{
+		return GraphUtilities.asDnf(GraphUtilities.simplify(q.getExplanation(part, new RelationNodeFactory())));
+	}
+}
@@ -0,0 +1,50 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import ca.uqac.lif.petitpoucet.ComposedPart;
+import ca.uqac.lif.petitpoucet.GraphUtilities;
+import ca.uqac.lif.petitpoucet.PartNode;
+import ca.uqac.lif.petitpoucet.function.vector.NthElement;
+import ca.uqac.lif.petitpoucet.function.vector.VectorSum;
+import ca.uqac.lif.petitpoucet.function.vector.Window;
+
+/**
+ * Unit tests for {@link FunctionLineageGraphUtilities}.
+ */
+public class FunctionLineageGraphUtilitiesTest
+{
+	@Test
+	public void testDependsOnInput1()
+	{
+		Window w = new Window(new VectorSum(), 3);
+		w.evaluate(ParallelExplanationTest.numbers(20));
+		PartNode root = w.getExplanation(ComposedPart.compose(new NthElement(4), NthOutput.FIRST));
+		ForkJoinPool pool = new ForkJoinPool(4);
+		assertTrue(FunctionLineageGraphUtilities.dependsOnInput(root, 0, pool));
+		assertFalse(FunctionLineageGraphUtilities.dependsOnInput(root, 1, pool));
+		assertEquals(3, GraphUtilities.getLeaves(root, pool).size());
+		pool.shutdown();
+	}
+}
@@ -0,0 +1,216 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import ca.uqac.lif.dag.LeafCrawler.LeafFetcher;
+import ca.uqac.lif.dag.Node;
+import ca.uqac.lif.dag.NodeConnector;
+import ca.uqac.lif.petitpoucet.Clause;
+import ca.uqac.lif.petitpoucet.ComposedPart;
+import ca.uqac.lif.petitpoucet.GraphUtilities;
+import ca.uqac.lif.petitpoucet.Part;
+import ca.uqac.lif.petitpoucet.PartNode;
+import ca.uqac.lif.petitpoucet.function.number.AbsoluteValue;
+import ca.uqac.lif.petitpoucet.function.vector.NthElement;
+import ca.uqac.lif.petitpoucet.function.vector.VectorApply;
+import ca.uqac.lif.petitpoucet.function.vector.VectorProduct;
+import ca.uqac.lif.petitpoucet.function.vector.VectorSum;
+import ca.uqac.lif.petitpoucet.function.vector.Window;
+
+public class ParallelExplanationTest
+{
+	@Test
+	public void testAtomic1()
+	{
+		Window w = new Window(new VectorSum(), 3);
+		w.evaluate(numbers(20));
+		List<Part> parts = elements(18, NthOutput.FIRST);
+		RelationNodeFactory factory = new RelationNodeFactory(true);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		List<PartNode> roots = w.getExplanations(parts, factory, pool);
+		pool.shutdown();
+		assertEquals(18, roots.size());
+		for (int i = 0; i < roots.size(); i++)
+		{
+			PartNode root = roots.get(i);
+			assertEquals(parts.get(i), root.getPart());
+			assertEquals(w, root.getSubject());
+			assertEquals(asDnf(w.getExplanation(parts.get(i), new RelationNodeFactory())), asDnf(root));
+		}
+		// Element 2 of the input is part of the first three windows
+		Part in = ComposedPart.compose(new NthElement(2), NthInput.FIRST);
+		assertTrue(factory.hasNodeFor(in, w));
+		assertEquals(3, factory.getPartNode(in, w).getInputLinks(0).size());
+	}
+
+	@Test
+	public void testAtomic2()
+	{
+		// A part occurring twice is explained once
+		Window w = new Window(new VectorSum(), 2);
+		w.evaluate(numbers(5));
+		Part p = ComposedPart.compose(new NthElement(1), NthOutput.FIRST);
+		List<PartNode> roots = w.getExplanations(Arrays.asList(p, NthOutput.FIRST, p));
+		assertEquals(3, roots.size());
+		assertSame(roots.get(0), roots.get(2));
+		assertNotSame(roots.get(0), roots.get(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAtomic3()
+	{
+		Window w = new Window(new VectorSum(), 2);
+		w.evaluate(numbers(5));
+		w.getExplanations(Arrays.asList(NthOutput.FIRST), new RelationNodeFactory(), ForkJoinPool.commonPool());
+	}
+
+	@Test(expected = NoLineageException.class)
+	public void testAtomic4()
+	{
+		Window w = new Window(new VectorSum(), 2);
+		w.setValuesOnly(true);
+		w.evaluate(numbers(5));
+		w.getExplanations(Arrays.asList(NthOutput.FIRST));
+	}
+
+	@Test
+	public void testCircuit1()
+	{
+		ForkJoinPool pool = new ForkJoinPool(4);
+		for (int k = 0; k < 10; k++)
+		{
+			Circuit c = ExplanationCacheTest.absoluteWindow();
+			c.evaluate(numbers(30));
+			List<Part> parts = elements(29, NthOutput.FIRST);
+			List<PartNode> roots = c.getExplanations(parts, new RelationNodeFactory(true), pool);
+			c.getExplanationCache().clear();
+			for (int i = 0; i < roots.size(); i++)
+			{
+				assertEquals(parts.get(i), roots.get(i).getPart());
+				assertEquals(asDnf(c.getExplanation(parts.get(i), new RelationNodeFactory())), asDnf(roots.get(i)));
+			}
+		}
+		pool.shutdown();
+	}
+
+	@Test
+	public void testCircuit2()
+	{
+		// A batch mixing input and output parts gives the same explanations as
+		// individual queries
+		Circuit c = new Circuit(1, 2);
+		Fork f = new Fork(2);
+		Window win = new Window(new VectorProduct(), 2);
+		VectorSum sum = new VectorSum();
+		c.addNodes(f, win, sum);
+		NodeConnector.connect(f, 0, win, 0);
+		NodeConnector.connect(f, 1, sum, 0);
+		c.associateInput(0, f.getInputPin(0));
+		c.associateOutput(0, win.getOutputPin(0));
+		c.associateOutput(1, sum.getOutputPin(0));
+		c.evaluate(Arrays.asList(1, 0, 1));
+		List<Part> parts = Arrays.asList(ComposedPart.compose(new NthElement(1), NthInput.FIRST), ComposedPart.compose(new NthElement(0), NthOutput.FIRST));
+		ForkJoinPool pool = new ForkJoinPool(2);
+		List<PartNode> roots = c.getExplanations(parts, new RelationNodeFactory(true), pool);
+		pool.shutdown();
+		for (int i = 0; i < roots.size(); i++)
+		{
+			assertEquals(parts.get(i), roots.get(i).getPart());
+			assertEquals(asDnf(c.getExplanation(parts.get(i), new RelationNodeFactory())), asDnf(roots.get(i)));
+		}
+		LeafFetcher fetcher = new LeafFetcher(roots.get(1));
+		fetcher.crawl();
+		Set<Node> leaves = fetcher.getLeaves();
+		assertEquals(1, leaves.size());
+		PartNode leaf = (PartNode) leaves.iterator().next();
+		assertEquals(parts.get(0), leaf.getPart());
+		assertSame(c, leaf.getSubject());
+	}
+
+	@Test
+	public void testContext1()
+	{
+		Circuit c = new Circuit(1, 1);
+		VectorApply abs = new VectorApply(new AbsoluteValue());
+		c.addNodes(abs);
+		c.associateInput(0, abs.getInputPin(0));
+		c.associateOutput(0, abs.getOutputPin(0));
+		EvaluationContext ctx = c.newContext();
+		ctx.evaluate(numbers(10));
+		List<Part> parts = elements(10, NthOutput.FIRST);
+		List<PartNode> roots = ctx.getExplanations(parts);
+		for (int i = 0; i < roots.size(); i++)
+		{
+			Set<Clause> clauses = asDnf(roots.get(i));
+			assertEquals(1, clauses.size());
+			assertEquals(1, clauses.iterator().next().size());
+		}
+		assertEquals(10, ctx.getExplanationStatistics().getQueries());
+	}
+
+	/**
+	 * Creates a list of numbers alternating in sign.
+	 * @param size The size of the list
+	 * @return The list
+	 */
+	protected static List<Object> numbers(int size)
+	{
+		List<Object> list = new ArrayList<Object>(size);
+		for (int i = 0; i < size; i++)
+		{
+			list.add(i % 2 == 0 ? i : -i);
+		}
+		return list;
+	}
+
+	/**
+	 * Creates the list of parts designating the first elements of a pin.
+	 * @param size The number of elements
+	 * @param pin The part designating the pin
+	 * @return The list of parts
+	 */
+	protected static List<Part> elements(int size, Part pin)
+	{
+		List<Part> parts = new ArrayList<Part>(size);
+		for (int i = 0; i < size; i++)
+		{
+			parts.add(ComposedPart.compose(new NthElement(i), pin));
+		}
+		return parts;
+	}
+
+	/**
+	 * Converts an explanation into a set of clauses.
+	 * @param root The root of the explanation
+	 * @return The set of clauses
+	 */
+	protected static Set<Clause> asDnf(PartNode root)
+	{
+		return GraphUtilities.asDnf(GraphUtilities.simplify(root));
+	}
+}
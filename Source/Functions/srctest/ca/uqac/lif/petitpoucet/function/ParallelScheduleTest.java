@@ -0,0 +1,231 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ca.uqac.lif.dag.NodeConnector;
+import ca.uqac.lif.petitpoucet.function.number.AbsoluteValue;
+import ca.uqac.lif.petitpoucet.function.number.Addition;
+
+public class ParallelScheduleTest
+{
+	@Test
+	public void test1()
+	{
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try
+		{
+			Circuit c = EvaluationPlanTest.multiplyAdd();
+			EvaluationPlan plan = c.compile();
+			assertEquals(10, ((Number) plan.evaluateParallel(pool, 2, 3, 4)[0]).intValue());
+			assertEquals(4, ((Number) plan.evaluateParallel(pool, 0, 3, 4)[0]).intValue());
+			assertEquals(4, ((Number) c.getOutputPin(0).getValue()).intValue());
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testBranches() throws InterruptedException
+	{
+		// Each branch waits for the other one: the circuit can only be evaluated
+		// if both branches run at the same time
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try
+		{
+			CountDownLatch latch = new CountDownLatch(2);
+			Circuit c = new Circuit(2, 1);
+			Rendezvous r1 = new Rendezvous(latch);
+			Rendezvous r2 = new Rendezvous(latch);
+			Addition add = new Addition(2);
+			c.addNodes(r1, r2, add);
+			NodeConnector.connect(r1, 0, add, 0);
+			NodeConnector.connect(r2, 0, add, 1);
+			c.associateInput(0, r1.getInputPin(0));
+			c.associateInput(1, r2.getInputPin(0));
+			c.associateOutput(0, add.getOutputPin(0));
+			assertEquals(5, ((Number) c.compile().evaluateParallel(pool, 2, 3)[0]).intValue());
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testDiamond()
+	{
+		// Computes |x| + |x|
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			Circuit c = new Circuit(1, 1);
+			Fork f = new Fork(2);
+			AbsoluteValue abs_1 = new AbsoluteValue();
+			AbsoluteValue abs_2 = new AbsoluteValue();
+			Addition add = new Addition(2);
+			c.addNodes(f, abs_1, abs_2, add);
+			NodeConnector.connect(f, 0, abs_1, 0);
+			NodeConnector.connect(f, 1, abs_2, 0);
+			NodeConnector.connect(abs_1, 0, add, 0);
+			NodeConnector.connect(abs_2, 0, add, 1);
+			c.associateInput(0, f.getInputPin(0));
+			c.associateOutput(0, add.getOutputPin(0));
+			EvaluationPlan plan = c.compile();
+			for (int i = -50; i < 50; i++)
+			{
+				assertEquals(2 * Math.abs(i), ((Number) plan.evaluateParallel(pool, i)[0]).intValue());
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testLongChain()
+	{
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try
+		{
+			int length = 20000;
+			Circuit c = new Circuit(1, 1);
+			Addition previous = null;
+			for (int i = 0; i < length; i++)
+			{
+				Addition a = new Addition(2);
+				Constant one = new Constant(1);
+				c.addNodes(a, one);
+				NodeConnector.connect(one, 0, a, 1);
+				if (previous == null)
+				{
+					c.associateInput(0, a.getInputPin(0));
+				}
+				else
+				{
+					NodeConnector.connect(previous, 0, a, 0);
+				}
+				previous = a;
+			}
+			c.associateOutput(0, previous.getOutputPin(0));
+			assertEquals(length + 3, ((Number) c.compile().evaluateParallel(pool, 3)[0]).intValue());
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	@Test(expected = InvalidArgumentTypeException.class)
+	public void testFailure()
+	{
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try
+		{
+			Circuit c = new Circuit(1, 1);
+			AbsoluteValue abs = new AbsoluteValue();
+			c.addNodes(abs);
+			c.associateInput(0, abs.getInputPin(0));
+			c.associateOutput(0, abs.getOutputPin(0));
+			c.compile().evaluateParallel(pool, "foo");
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testContext()
+	{
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try
+		{
+			Circuit c = EvaluationContextTest.positiveSum();
+			c.evaluate(Arrays.asList(3, -1, 4));
+			Object expected = ExplanationTestUtilities.explain(c);
+			c.reset();
+			EvaluationContext ctx = c.newContext();
+			assertEquals(7, ((Number) ctx.evaluateParallel(pool, Arrays.asList(3, -1, 4))[0]).intValue());
+			assertEquals(expected, ExplanationTestUtilities.explain(ctx));
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * A function that returns its input, but only once another instance
+	 * sharing the same latch is being evaluated at the same time.
+	 */
+	protected static class Rendezvous extends AtomicFunction
+	{
+		/**
+		 * The latch shared by the instances.
+		 */
+		protected final CountDownLatch m_latch;
+
+		/**
+		 * Creates a new instance of the function.
+		 * @param latch The latch shared by the instances
+		 */
+		public Rendezvous(CountDownLatch latch)
+		{
+			super(1, 1);
+			m_latch = latch;
+		}
+
+		@Override
+		protected Object[] getValue(Object ... inputs)
+		{
+			m_latch.countDown();
+			try
+			{
+				if (!m_latch.await(10, TimeUnit.SECONDS))
+				{
+					throw new FunctionException("Branches not evaluated concurrently");
+				}
+			}
+			catch (InterruptedException e)
+			{
+				throw new FunctionException(e);
+			}
+			return new Object[] {inputs[0]};
+		}
+
+		@Override
+		public Rendezvous duplicate(boolean with_state)
+		{
+			Rendezvous r = new Rendezvous(m_latch);
+			copyInto(r, with_state);
+			return r;
+		}
+	}
+}
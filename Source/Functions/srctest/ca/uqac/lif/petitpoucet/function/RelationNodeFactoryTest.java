@@ -0,0 +1,175 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import ca.uqac.lif.petitpoucet.PartNode;
+import ca.uqac.lif.petitpoucet.function.number.Addition;
+
+public class RelationNodeFactoryTest
+{
+	@Test
+	public void testScope1()
+	{
+		RelationNodeFactory global = RelationNodeFactory.getFactory();
+		Addition add = new Addition(2);
+		add.evaluate(1, 2);
+		try (RelationNodeFactory f = RelationNodeFactory.openScope())
+		{
+			assertSame(f, RelationNodeFactory.getFactory());
+			PartNode root = add.getExplanation(NthOutput.FIRST);
+			assertTrue(f.hasNodeFor(NthOutput.FIRST, add));
+			assertTrue(f.hasNodeFor(NthInput.FIRST, add));
+			assertSame(root, f.getPartNode(NthOutput.FIRST, add));
+			assertFalse(global.hasNodeFor(NthOutput.FIRST, add));
+		}
+		assertSame(global, RelationNodeFactory.getFactory());
+	}
+
+	@Test
+	public void testScope2()
+	{
+		RelationNodeFactory outer = RelationNodeFactory.openScope();
+		RelationNodeFactory inner = new RelationNodeFactory().open();
+		assertSame(inner, RelationNodeFactory.getFactory());
+		inner.close();
+		assertSame(outer, RelationNodeFactory.getFactory());
+		outer.close();
+		assertSame(RelationNodeFactory.s_factory, RelationNodeFactory.getFactory());
+	}
+
+	@Test
+	public void testScope3()
+	{
+		RelationNodeFactory f = RelationNodeFactory.openScope();
+		f.getPartNode(NthOutput.FIRST, "foo");
+		RelationNodeFactory child = f.getFactory(NthOutput.FIRST, "foo");
+		assertTrue(child.isThreadSafe());
+		child.getPartNode(NthInput.FIRST, "bar");
+		f.close();
+		assertEquals(0, f.getNodeStore().size());
+		assertEquals(0, child.getNodeStore().size());
+	}
+
+	@Test
+	public void testScope4() throws InterruptedException
+	{
+		// A scope only applies to the thread that opened it
+		RelationNodeFactory[] seen = new RelationNodeFactory[1];
+		try (RelationNodeFactory f = RelationNodeFactory.openScope())
+		{
+			Thread t = new Thread(() -> seen[0] = RelationNodeFactory.getFactory());
+			t.start();
+			t.join();
+			assertNotSame(f, seen[0]);
+			assertSame(RelationNodeFactory.s_factory, seen[0]);
+		}
+	}
+
+	@Test
+	public void testScope5() throws InterruptedException
+	{
+		// A scope cannot be closed by a thread other than the one that opened it
+		RelationNodeFactory f = RelationNodeFactory.openScope();
+		f.getPartNode(NthOutput.FIRST, "foo");
+		Throwable[] thrown = new Throwable[1];
+		Thread t = new Thread(() -> {
+			try
+			{
+				f.close();
+			}
+			catch (IllegalStateException e)
+			{
+				thrown[0] = e;
+			}
+		});
+		t.start();
+		t.join();
+		assertNotNull(thrown[0]);
+		assertSame(f, RelationNodeFactory.getFactory());
+		assertTrue(f.hasNodeFor(NthOutput.FIRST, "foo"));
+		f.close();
+		assertSame(RelationNodeFactory.s_factory, RelationNodeFactory.getFactory());
+	}
+
+	@Test
+	public void testScope6()
+	{
+		// A scope opened twice is closed at once
+		RelationNodeFactory f = RelationNodeFactory.openScope();
+		f.open();
+		f.close();
+		assertSame(RelationNodeFactory.s_factory, RelationNodeFactory.getFactory());
+	}
+
+	@Test
+	public void testConcurrent1() throws InterruptedException
+	{
+		RelationNodeFactory f = new RelationNodeFactory(true);
+		int num_threads = 4;
+		List<List<PartNode>> results = new ArrayList<List<PartNode>>();
+		List<Thread> threads = new ArrayList<Thread>();
+		CountDownLatch start = new CountDownLatch(1);
+		for (int t = 0; t < num_threads; t++)
+		{
+			List<PartNode> nodes = new ArrayList<PartNode>();
+			results.add(nodes);
+			threads.add(new Thread(() -> {
+				try
+				{
+					start.await();
+				}
+				catch (InterruptedException e)
+				{
+					return;
+				}
+				for (int i = 0; i < 1000; i++)
+				{
+					nodes.add(f.getPartNode(new NthInput(i), "foo"));
+				}
+			}));
+		}
+		for (Thread t : threads)
+		{
+			t.start();
+		}
+		start.countDown();
+		for (Thread t : threads)
+		{
+			t.join();
+		}
+		for (int i = 0; i < 1000; i++)
+		{
+			PartNode pn = results.get(0).get(i);
+			for (int t = 1; t < num_threads; t++)
+			{
+				assertSame(pn, results.get(t).get(i));
+			}
+		}
+		assertEquals(1000, f.getNodeStore().size());
+		assertEquals(1000, f.getNodeStore().getMisses());
+		assertEquals(3000, f.getNodeStore().getHits());
+	}
+}
@@ -0,0 +1,222 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import ca.uqac.lif.petitpoucet.Clause;
+import ca.uqac.lif.petitpoucet.ComposedPart;
+import ca.uqac.lif.petitpoucet.Part;
+import ca.uqac.lif.petitpoucet.PartNode;
+import ca.uqac.lif.petitpoucet.function.strings.Contains;
+import ca.uqac.lif.petitpoucet.function.strings.Replace;
+import ca.uqac.lif.petitpoucet.function.strings.Split;
+import ca.uqac.lif.petitpoucet.function.vector.NthElement;
+import ca.uqac.lif.petitpoucet.function.vector.VectorEquals;
+
+public class ValuesOnlyTest
+{
+	@Test
+	public void testCircuit1()
+	{
+		Circuit c = EvaluationContextTest.positiveSum();
+		Set<Clause> expected;
+		c.evaluate(Arrays.asList(3, -1, 4));
+		expected = ExplanationTestUtilities.explain(c);
+		c.reset();
+		c.setValuesOnly(true);
+		assertTrue(c.isValuesOnly());
+		assertEquals(7, ((Number) c.evaluate(Arrays.asList(3, -1, 4))[0]).intValue());
+		try
+		{
+			c.getExplanation(NthOutput.FIRST);
+			fail("Expected a NoLineageException");
+		}
+		catch (NoLineageException e)
+		{
+			// Expected
+		}
+		// Lineage is recorded again once the mode is turned off
+		c.reset();
+		c.setValuesOnly(false);
+		assertEquals(7, ((Number) c.evaluate(Arrays.asList(3, -1, 4))[0]).intValue());
+		assertEquals(expected, ExplanationTestUtilities.explain(c));
+	}
+
+	@Test
+	public void testCircuit2()
+	{
+		// The mode is propagated to the copies made by a context
+		Circuit c = EvaluationContextTest.positiveSum();
+		c.setValuesOnly(true);
+		EvaluationContext ctx = c.newContext();
+		assertEquals(7, ((Number) ctx.evaluate(Arrays.asList(3, -1, 4))[0]).intValue());
+		try
+		{
+			ctx.getExplanation(NthOutput.FIRST);
+			fail("Expected a NoLineageException");
+		}
+		catch (NoLineageException e)
+		{
+			// Expected
+		}
+	}
+
+	@Test
+	public void testCircuit3()
+	{
+		// The circuit checks the mode of functions that override the
+		// explanation without checking it themselves
+		Identity id = new Identity(1)
+		{
+			@Override
+			public PartNode getExplanation(Part p, RelationNodeFactory factory)
+			{
+				return factory.getPartNode(p, this);
+			}
+		};
+		Circuit c = new Circuit(1, 1);
+		c.addNodes(id);
+		c.associateInput(0, id.getInputPin(0));
+		c.associateOutput(0, id.getOutputPin(0));
+		c.setValuesOnly(true);
+		c.evaluate(3);
+		try
+		{
+			c.getExplanation(NthOutput.FIRST);
+			fail("Expected a NoLineageException");
+		}
+		catch (NoLineageException e)
+		{
+			// Expected
+		}
+		c.reset();
+		c.setValuesOnly(false);
+		c.evaluate(3);
+		assertNotNull(c.getExplanation(NthOutput.FIRST));
+	}
+
+	@Test
+	public void testAtomic1()
+	{
+		Split s = new Split(",");
+		s.setValuesOnly(true);
+		List<?> result = (List<?>) s.evaluate("foo,bar,baz")[0];
+		assertEquals(Arrays.asList("foo", "bar", "baz"), result);
+		try
+		{
+			s.getExplanation(ComposedPart.compose(new NthElement(0), NthOutput.FIRST));
+			fail("Expected a NoLineageException");
+		}
+		catch (NoLineageException e)
+		{
+			// Expected
+		}
+	}
+
+	@Test(expected = NoLineageException.class)
+	public void testAtomic4()
+	{
+		// The overload taking a factory is checked as well
+		Split s = new Split(",");
+		s.setValuesOnly(true);
+		s.evaluate("foo,bar,baz");
+		s.getExplanation(ComposedPart.compose(new NthElement(0), NthOutput.FIRST), RelationNodeFactory.getFactory());
+	}
+
+	@Test
+	public void testAtomic5()
+	{
+		// What counts is the mode of the last evaluation
+		Split s = new Split(",");
+		s.evaluate("foo,bar,baz");
+		s.setValuesOnly(true);
+		Part p = ComposedPart.compose(new NthElement(0), NthOutput.FIRST);
+		assertNotNull(s.getExplanation(p));
+		s.reset();
+		s.evaluate("foo,bar,baz");
+		s.setValuesOnly(false);
+		try
+		{
+			s.getExplanation(p);
+			fail("Expected a NoLineageException");
+		}
+		catch (NoLineageException e)
+		{
+			// Expected
+		}
+		s.reset();
+		s.evaluate("foo,bar,baz");
+		assertNotNull(s.getExplanation(p));
+		// A stateful copy inherits the state of the last evaluation
+		s.setValuesOnly(true);
+		s.reset();
+		s.evaluate("foo,bar,baz");
+		s.setValuesOnly(false);
+		try
+		{
+			s.duplicate(true).getExplanation(p);
+			fail("Expected a NoLineageException");
+		}
+		catch (NoLineageException e)
+		{
+			// Expected
+		}
+	}
+
+	@Test
+	public void testAtomic2()
+	{
+		Replace r = new Replace("a", "xy");
+		r.setValuesOnly(true);
+		assertEquals("bxyrbxyz", r.evaluate("barbaz")[0]);
+		Contains c = new Contains();
+		c.setValuesOnly(true);
+		assertEquals(true, c.evaluate("barbaz", "ba.")[0]);
+		assertEquals(false, c.duplicate(false).evaluate("barbaz", "q")[0]);
+		assertTrue(c.duplicate(false).isValuesOnly());
+	}
+
+	@Test
+	public void testAtomic3()
+	{
+		VectorEquals v = new VectorEquals();
+		v.setValuesOnly(true);
+		assertEquals(true, v.evaluate(Arrays.asList(1, 2), Arrays.asList(1, 2))[0]);
+		v.reset();
+		assertEquals(false, v.evaluate(Arrays.asList(1, 2), Arrays.asList(1, 3))[0]);
+		v.reset();
+		assertEquals(false, v.evaluate(Arrays.asList(1, 2), Arrays.asList(1))[0]);
+	}
+
+	@Test
+	public void testDefault1()
+	{
+		// A function that does not support the mode ignores it
+		BatchTest.Negation f = new BatchTest.Negation();
+		f.setValuesOnly(true);
+		assertFalse(f.isValuesOnly());
+		assertEquals(-3, f.evaluate(3)[0]);
+	}
+}
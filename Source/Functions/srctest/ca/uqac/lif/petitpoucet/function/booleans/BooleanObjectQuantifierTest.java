@@ -29,6 +29,7 @@ import ca.uqac.lif.petitpoucet.ComposedPart;
 import ca.uqac.lif.petitpoucet.OrNode;
 import ca.uqac.lif.petitpoucet.PartNode;
 import ca.uqac.lif.petitpoucet.function.NthInput;
+import ca.uqac.lif.petitpoucet.function.booleans.BooleanObjectQuantifier.FunctionIndex;
 import ca.uqac.lif.petitpoucet.function.NthOutput;
 import ca.uqac.lif.petitpoucet.function.number.IsEven;
 import ca.uqac.lif.petitpoucet.function.number.IsOdd;
@@ -67,6 +68,26 @@ public class BooleanObjectQuantifierTest
 		}
 	}
 	
+	@Test
+	public void testForAllLazy1()
+	{
+		AllObjects q = new AllObjects(new IsOdd()).lazy(true);
+		Boolean b = (Boolean) q.evaluate(getList(1, 2, 3, 4))[0];
+		assertFalse(b);
+		for (FunctionIndex fi : q.m_conditions)
+		{
+			assertNull(fi.m_function);
+		}
+		PartNode root = q.getExplanation(NthOutput.FIRST);
+		OrNode conn = (OrNode) root.getOutputLinks(0).get(0).getNode();
+		assertEquals(2, conn.getOutputLinks(0).size());
+		PartNode child1 = (PartNode) conn.getOutputLinks(0).get(1).getNode();
+		PartNode child2 = (PartNode) child1.getOutputLinks(0).get(0).getNode();
+		PartNode child3 = (PartNode) child2.getOutputLinks(0).get(0).getNode();
+		assertEquals(ComposedPart.compose(new NthElement(3), NthInput.FIRST), child3.getPart());
+		assertEquals(q, child3.getSubject());
+	}
+	
 	@Test
 	public void testForAll2()
 	{
@@ -18,10 +18,14 @@
 package ca.uqac.lif.petitpoucet.function.strings;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 
 import org.junit.Test;
 
+import ca.uqac.lif.petitpoucet.ComposedPart;
 import ca.uqac.lif.petitpoucet.Part;
+import ca.uqac.lif.petitpoucet.PartPath;
+import ca.uqac.lif.petitpoucet.function.NthInput;
 
 /**
  * Unit tests for {@link Range}.
@@ -98,10 +102,29 @@ public class RangeTest
 		assertEquals(o, r2.overlaps(r1));
 	}
 	
+	@Test
+	public void testHash1()
+	{
+		assertNotEquals(new Range(3, 8).hashCode(), new Range(4, 7).hashCode());
+		assertEquals(new Range(3, 8).hashCode(), new Range(3, 8).hashCode());
+	}
+	
 	@Test
 	public void testMentionedRange()
 	{
 		Range r = new Range(3, 8);
 		assertEquals(r, Range.mentionedRange((Part)r));
 	}
+	
+	@Test
+	public void testMentionedRange2()
+	{
+		Range r1 = new Range(3, 8), r2 = new Range(0, 1);
+		Part d = ComposedPart.compose(r1, r2, NthInput.FIRST);
+		assertEquals(r1, Range.mentionedRange(d));
+		assertEquals(ComposedPart.compose(r1, NthInput.FIRST), Range.removeRange(d));
+		assertEquals(PartPath.pack(3, 8), r1.getCode());
+		assertEquals(3, PartPath.first(r1.getCode()));
+		assertEquals(-8, PartPath.second(PartPath.pack(3, -8)));
+	}
 }
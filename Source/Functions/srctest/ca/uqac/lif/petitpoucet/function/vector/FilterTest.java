@@ -19,6 +19,7 @@ package ca.uqac.lif.petitpoucet.function.vector;
 
 import static org.junit.Assert.*;
 
+import java.util.Iterator;
 import java.util.List;
 
 import org.junit.Test;
@@ -112,4 +113,19 @@ public class FilterTest
 		PartNode pn2 = (PartNode) in_and.getOutputLinks(0).get(1).getNode();
 		assertEquals(ComposedPart.compose(new NthElement(5), NthInput.SECOND), pn2.getPart());
 	}
+
+	@Test
+	public void testStream1()
+	{
+		List<?> list1 = VectorTestUtilities.getList(1, 2, 3, 4, 5, 6);
+		List<?> list2 = VectorTestUtilities.getList(false, true, true, false, false, true);
+		Filter f = new Filter();
+		Object out = f.evaluate(list1.iterator(), list2.stream())[0];
+		assertTrue(out instanceof Iterator);
+		assertEquals(VectorTestUtilities.getList(2, 3, 6), VectorTestUtilities.readAll(out));
+		PartNode root = f.getExplanation(ComposedPart.compose(new NthElement(1), NthOutput.FIRST));
+		AndNode and = (AndNode) root.getOutputLinks(0).get(0).getNode();
+		PartNode pn = (PartNode) and.getOutputLinks(0).get(0).getNode();
+		assertEquals(ComposedPart.compose(new NthElement(2), NthInput.FIRST), pn.getPart());
+	}
 }
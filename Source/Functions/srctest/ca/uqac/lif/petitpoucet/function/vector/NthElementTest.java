@@ -28,6 +28,37 @@ import ca.uqac.lif.petitpoucet.function.NthOutput;
 
 public class NthElementTest
 {
+	@Test
+	public void testHash1()
+	{
+		Part p1 = ComposedPart.compose(new NthElement(0), new NthInput(1));
+		Part p2 = ComposedPart.compose(new NthElement(1), new NthInput(0));
+		Part p3 = ComposedPart.compose(new NthInput(1), new NthElement(0));
+		Part p4 = ComposedPart.compose(new NthElement(0), new NthOutput(1));
+		assertNotEquals(p1.hashCode(), p2.hashCode());
+		assertNotEquals(p1.hashCode(), p3.hashCode());
+		assertNotEquals(p1.hashCode(), p4.hashCode());
+		assertNotEquals(new NthElement(0).hashCode(), new NthInput(0).hashCode());
+		assertEquals(p1.hashCode(), ComposedPart.compose(new NthElement(0), new NthInput(1)).hashCode());
+	}
+	
+	@Test
+	public void testPath1()
+	{
+		ComposedPart cd = (ComposedPart) ComposedPart.compose(new NthElement(3), new NthElement(7), new NthInput(2));
+		assertEquals(NthElement.TAG, cd.getTag(0));
+		assertEquals(7, cd.getCode(1));
+		assertEquals(NthInput.TAG, cd.getTag(2));
+		assertEquals(2, cd.indexOfTag(NthInput.TAG));
+		assertEquals(-1, cd.indexOfTag(NthOutput.TAG));
+		assertEquals(7, NthElement.mentionedElement(cd));
+		assertEquals(2, NthInput.mentionedInput(cd));
+		assertEquals(-1, NthOutput.mentionedOutput(cd));
+		assertEquals(cd, new ComposedPart(new NthElement(3), new NthElement(7), new NthInput(2)));
+		assertNotEquals(cd, new ComposedPart(new NthElement(3), new NthElement(8), new NthInput(2)));
+		assertNotEquals(cd, new ComposedPart(new NthElement(3), new NthElement(7), new NthOutput(2)));
+	}
+	
 	@Test
 	public void testReplace1()
 	{
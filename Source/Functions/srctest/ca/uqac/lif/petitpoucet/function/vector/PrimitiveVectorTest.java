@@ -0,0 +1,137 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2023 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function.vector;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import ca.uqac.lif.petitpoucet.AndNode;
+import ca.uqac.lif.petitpoucet.ComposedPart;
+import ca.uqac.lif.petitpoucet.PartNode;
+import ca.uqac.lif.petitpoucet.function.Equals;
+import ca.uqac.lif.petitpoucet.function.NthInput;
+import ca.uqac.lif.petitpoucet.function.NthOutput;
+
+public class PrimitiveVectorTest
+{
+	@Test
+	public void testWrap1()
+	{
+		int[] array = new int[] {3, 1, 4};
+		PrimitiveVector pv = PrimitiveVector.wrap(array);
+		assertEquals(3, pv.size());
+		assertEquals(Arrays.asList(3, 1, 4), pv);
+		assertEquals(4f, pv.getFloat(2), 0);
+		assertSame(array, pv.getArray());
+		// The vector is a view of the array
+		array[1] = 5;
+		assertEquals(5L, pv.getLong(1));
+	}
+
+	@Test
+	public void testWrap2()
+	{
+		assertEquals(Arrays.asList(3L, 1L), PrimitiveVector.wrap(new long[] {3, 1}));
+		assertEquals(Arrays.asList(0.5, 1.5), PrimitiveVector.wrap(new double[] {0.5, 1.5}));
+		assertNull(PrimitiveVector.wrap((Object) new float[] {1}));
+		assertNull(PrimitiveVector.wrap((Object) "foo"));
+	}
+
+	@Test
+	public void testConvert1()
+	{
+		double[] array = new double[] {0.5, 1.5};
+		assertTrue(VectorFunction.convertToList(array) instanceof PrimitiveVector);
+		assertSame(array, ((PrimitiveVector) VectorFunction.convertToList(array)).getArray());
+		// Other arrays are still copied into a list
+		assertEquals(Arrays.asList("a", "b"), VectorFunction.convertToList(new String[] {"a", "b"}));
+	}
+
+	@Test
+	public void testSum1()
+	{
+		VectorSum sum = new VectorSum();
+		assertEquals(6, ((Number) sum.evaluate(new int[] {1, 2, 3})[0]).intValue());
+		sum.reset();
+		assertEquals(2, ((Number) sum.evaluate(new double[] {0.5, 1.5})[0]).intValue());
+	}
+
+	@Test
+	public void testProductLineage1()
+	{
+		VectorProduct prod = new VectorProduct();
+		assertEquals(0, ((Number) prod.evaluate(new long[] {5, 0, 6})[0]).intValue());
+		PartNode root = prod.getExplanation(NthOutput.FIRST);
+		assertEquals(1, root.getOutputLinks(0).size());
+		PartNode pn = (PartNode) root.getOutputLinks(0).get(0).getNode();
+		assertEquals(ComposedPart.compose(new NthElement(1), NthInput.FIRST), pn.getPart());
+	}
+
+	@Test
+	public void testEquals1()
+	{
+		VectorEquals eq = new VectorEquals();
+		eq.setValuesOnly(true);
+		assertEquals(true, eq.evaluate(new int[] {1, 2}, new double[] {1, 2})[0]);
+		eq.reset();
+		assertEquals(false, eq.evaluate(new int[] {1, 2}, new long[] {1, 3})[0]);
+	}
+
+	@Test
+	public void testEqualsLineage1()
+	{
+		VectorEquals eq = new VectorEquals();
+		assertEquals(false, eq.evaluate(new int[] {1, 2}, new int[] {1, 3})[0]);
+		PartNode root = eq.getExplanation(NthOutput.FIRST);
+		assertEquals(1, root.getOutputLinks(0).size());
+	}
+
+	@Test
+	public void testEqualsLineage2()
+	{
+		// The witnesses are the same as for lists of boxed numbers
+		VectorEquals eq = new VectorEquals();
+		assertEquals(false, eq.evaluate(new int[] {1, 2, 3}, new double[] {1, 2, 4})[0]);
+		assertTrue(eq.m_comparisons.isEmpty());
+		PartNode root = eq.getExplanation(NthOutput.FIRST);
+		PartNode child_1 = (PartNode) root.getOutputLinks(0).get(0).getNode();
+		assertTrue(child_1.getSubject() instanceof Equals);
+		AndNode child_2 = (AndNode) child_1.getOutputLinks(0).get(0).getNode();
+		PartNode child_3 = (PartNode) child_2.getOutputLinks(0).get(0).getNode();
+		PartNode child_4 = (PartNode) child_3.getOutputLinks(0).get(0).getNode();
+		assertEquals(ComposedPart.compose(new NthElement(2), NthInput.FIRST), child_4.getPart());
+		assertEquals(eq, child_4.getSubject());
+	}
+
+	@Test
+	public void testEqualsLineage3()
+	{
+		VectorEquals eq = new VectorEquals();
+		assertEquals(true, eq.evaluate(new int[] {1, 2}, new long[] {1, 2})[0]);
+		PartNode root = eq.getExplanation(NthOutput.FIRST);
+		AndNode and = (AndNode) root.getOutputLinks(0).get(0).getNode();
+		assertEquals(2, and.getOutputLinks(0).size());
+		VectorEquals copy = eq.duplicate(true);
+		root = copy.getExplanation(NthOutput.FIRST);
+		and = (AndNode) root.getOutputLinks(0).get(0).getNode();
+		assertEquals(2, and.getOutputLinks(0).size());
+	}
+}
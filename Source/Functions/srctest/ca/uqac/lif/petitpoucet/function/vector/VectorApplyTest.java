@@ -24,6 +24,7 @@ import ca.uqac.lif.dag.Node;
 import ca.uqac.lif.dag.Pin;
 import ca.uqac.lif.petitpoucet.ComposedPart;
 import ca.uqac.lif.petitpoucet.PartNode;
+import ca.uqac.lif.petitpoucet.function.InvalidArgumentTypeException;
 import ca.uqac.lif.petitpoucet.function.NthInput;
 import ca.uqac.lif.petitpoucet.function.NthOutput;
 import ca.uqac.lif.petitpoucet.function.number.AbsoluteValue;
@@ -32,7 +33,11 @@ import ca.uqac.lif.petitpoucet.function.number.Multiplication;
 import static ca.uqac.lif.petitpoucet.function.vector.VectorTestUtilities.getList;
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class VectorApplyTest
 {
@@ -130,4 +135,148 @@ public class VectorApplyTest
 		PartNode leaf = (PartNode) pin2.getNode();
 		assertEquals(ComposedPart.compose(new NthElement(1), NthInput.SECOND), leaf.getPart());
 	}
+	
+	@Test
+	public void testParallel1()
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try
+		{
+			List<Object> in_list = new ArrayList<Object>();
+			for (int i = 0; i < 1000; i++)
+			{
+				in_list.add(i % 2 == 0 ? i : -i);
+			}
+			VectorApply f = new VectorApply(new AbsoluteValue()).parallel(executor, 7);
+			List<?> out_list = (List<?>) f.evaluate(in_list)[0];
+			assertEquals(1000, out_list.size());
+			for (int i = 0; i < 1000; i++)
+			{
+				assertEquals(i, ((Number) out_list.get(i)).intValue());
+			}
+			assertEquals(1000, f.m_lastInstances.size());
+			// The duplicate is also parallel
+			VectorApply f2 = f.duplicate(false);
+			assertEquals(out_list, f2.evaluate(in_list)[0]);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void testParallelExplain1()
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try
+		{
+			List<?> in_list = getList(-1, 2, -3, 4, -5);
+			VectorApply f = new VectorApply(new AbsoluteValue()).parallel(executor, 2);
+			f.evaluate(in_list);
+			Node root = f.getExplanation(ComposedPart.compose(new NthElement(3), NthOutput.FIRST));
+			Pin<?> pin = root.getOutputLinks(0).get(0);
+			NestedNode nn = (NestedNode) pin.getNode();
+			Pin<?> pin2 = nn.getOutputLinks(0).get(0);
+			PartNode in_node = (PartNode) pin2.getNode();
+			assertEquals(in_node.getPart(), ComposedPart.compose(new NthElement(3), NthInput.FIRST));
+			assertEquals(f, in_node.getSubject());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+	
+	@Test(expected = InvalidArgumentTypeException.class)
+	public void testParallelFailure()
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try
+		{
+			List<?> in_list = getList(-1, 2, "foo", 4, -5);
+			VectorApply f = new VectorApply(new AbsoluteValue()).parallel(executor, 2);
+			f.evaluate(in_list);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void testLazy1()
+	{
+		List<?> in_list = getList(-1, 2, -3);
+		VectorApply f = new VectorApply(new AbsoluteValue()).lazy(true);
+		List<?> out_list = (List<?>) f.evaluate(in_list)[0];
+		assertEquals(3, ((Number) out_list.get(2)).intValue());
+		assertTrue(f.m_lastInstances.isEmpty());
+		Node root = f.getExplanation(ComposedPart.compose(new NthElement(2), NthOutput.FIRST));
+		NestedNode nn = (NestedNode) root.getOutputLinks(0).get(0).getNode();
+		assertEquals(1, nn.getOutputArity());
+		PartNode in_node = (PartNode) nn.getOutputLinks(0).get(0).getNode();
+		assertEquals(in_node.getPart(), ComposedPart.compose(new NthElement(2), NthInput.FIRST));
+		assertEquals(f, in_node.getSubject());
+	}
+	
+	@Test
+	public void testLazy2()
+	{
+		// A stateful copy of a lazy function can rebuild its instances
+		VectorApply f = new VectorApply(new AbsoluteValue()).lazy(true);
+		f.evaluate(getList(-1, 2, -3));
+		VectorApply copy = f.duplicate(true);
+		Node root = copy.getExplanation(ComposedPart.compose(new NthElement(2), NthOutput.FIRST));
+		NestedNode nn = (NestedNode) root.getOutputLinks(0).get(0).getNode();
+		PartNode in_node = (PartNode) nn.getOutputLinks(0).get(0).getNode();
+		assertEquals(in_node.getPart(), ComposedPart.compose(new NthElement(2), NthInput.FIRST));
+		assertEquals(copy, in_node.getSubject());
+	}
+	
+	@Test
+	public void testLazyParallel1()
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try
+		{
+			List<?> in_list = getList(-1, 2, -3, 4, -5);
+			VectorApply f = new VectorApply(new AbsoluteValue()).lazy(true).parallel(executor, 2);
+			List<?> out_list = (List<?>) f.evaluate(in_list)[0];
+			assertEquals(5, ((Number) out_list.get(4)).intValue());
+			assertTrue(f.m_lastInstances.isEmpty());
+			// Lazy mode is kept by duplication
+			assertTrue(f.duplicate(false).m_lazy);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testStream1()
+	{
+		VectorApply f = new VectorApply(new Multiplication(2));
+		Object out = f.evaluate(getList(-1, 2, -3).iterator(), getList(2, 2, 2).stream())[0];
+		assertTrue(out instanceof Iterator);
+		List<?> out_list = VectorTestUtilities.readAll(out);
+		assertEquals(-6, ((Number) out_list.get(2)).intValue());
+		assertEquals(3, f.m_lastInstances.size());
+		Node root = f.getExplanation(ComposedPart.compose(new NthElement(1), NthOutput.FIRST));
+		assertTrue(root.getOutputLinks(0).get(0).getNode() instanceof NestedNode);
+	}
+
+	@Test
+	public void testStreamLazy1()
+	{
+		VectorApply f = new VectorApply(new AbsoluteValue()).lazy(true);
+		Object out = f.evaluate(getList(-1, 2, -3).iterator())[0];
+		assertEquals(3, ((Number) VectorTestUtilities.readAll(out).get(2)).intValue());
+		assertTrue(f.m_lastInstances.isEmpty());
+		Node root = f.getExplanation(ComposedPart.compose(new NthElement(2), NthOutput.FIRST));
+		PartNode pn = (PartNode) root.getOutputLinks(0).get(0).getNode();
+		assertEquals(ComposedPart.compose(new NthElement(2), NthInput.FIRST), pn.getPart());
+		assertEquals(f, pn.getSubject());
+	}
 }
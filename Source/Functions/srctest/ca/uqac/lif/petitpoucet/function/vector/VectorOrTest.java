@@ -0,0 +1,78 @@
+/*
+    Petit Poucet, a library for tracking links between objects.
+    Copyright (C) 2016-2021 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.petitpoucet.function.vector;
+
+import static ca.uqac.lif.petitpoucet.function.vector.VectorTestUtilities.getList;
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import ca.uqac.lif.dag.Node;
+import ca.uqac.lif.dag.Pin;
+import ca.uqac.lif.petitpoucet.ComposedPart;
+import ca.uqac.lif.petitpoucet.PartNode;
+import ca.uqac.lif.petitpoucet.function.NthInput;
+import ca.uqac.lif.petitpoucet.function.NthOutput;
+
+/**
+ * Unit tests for {@link VectorOr}.
+ */
+public class VectorOrTest
+{
+	@Test
+	public void test1()
+	{
+		VectorOr f = new VectorOr();
+		assertEquals(true, f.evaluate(getList(false, true, false))[0]);
+		f.reset();
+		assertEquals(false, f.evaluate(getList(false, false, false))[0]);
+		f.reset();
+		assertEquals(true, f.evaluate(getList(true, true))[0]);
+		f.reset();
+		assertEquals(false, f.evaluate(getList())[0]);
+	}
+
+	@Test
+	public void testExplain1()
+	{
+		// A single true element is enough to explain a true output
+		VectorOr f = new VectorOr();
+		f.evaluate(getList(false, true, false));
+		Node root = f.getExplanation(NthOutput.FIRST);
+		List<Pin<? extends Node>> links = root.getOutputLinks(0);
+		assertEquals(1, links.size());
+		PartNode pn = (PartNode) links.get(0).getNode();
+		assertEquals(ComposedPart.compose(new NthElement(1), NthInput.FIRST), pn.getPart());
+		assertEquals(f, pn.getSubject());
+	}
+
+	@Test
+	public void testExplain2()
+	{
+		// A false output is explained by the whole input
+		VectorOr f = new VectorOr();
+		f.evaluate(getList(false, false));
+		Node root = f.getExplanation(NthOutput.FIRST);
+		List<Pin<? extends Node>> links = root.getOutputLinks(0);
+		assertEquals(1, links.size());
+		PartNode pn = (PartNode) links.get(0).getNode();
+		assertEquals(ComposedPart.compose(NthInput.FIRST), pn.getPart());
+	}
+}
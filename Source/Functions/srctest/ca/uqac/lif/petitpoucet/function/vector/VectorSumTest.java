@@ -29,6 +29,7 @@ import static ca.uqac.lif.petitpoucet.function.vector.VectorTestUtilities.getLis
 import static org.junit.Assert.*;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public class VectorSumTest
 {
@@ -55,4 +56,19 @@ public class VectorSumTest
 		assertEquals(pn.getPart(), NthInput.FIRST);
 		assertEquals(f, pn.getSubject());
 	}
+
+	@Test
+	public void testStream1()
+	{
+		VectorSum f = new VectorSum();
+		assertEquals(6, ((Number) f.evaluate(Stream.of(1, 2, 3))[0]).intValue());
+		f.reset();
+		assertEquals(6, ((Number) f.evaluate(getList(1, 2, 3).iterator())[0]).intValue());
+		f.reset();
+		assertEquals(6, ((Number) f.evaluate(getList(1, 2, 3).spliterator())[0]).intValue());
+		assertNull(f.m_lastInputs[0]);
+		Node root = f.getExplanation(NthOutput.FIRST);
+		PartNode pn = (PartNode) root.getOutputLinks(0).get(0).getNode();
+		assertEquals(pn.getPart(), NthInput.FIRST);
+	}
 }
@@ -19,6 +19,7 @@ package ca.uqac.lif.petitpoucet.function.vector;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import org.junit.Test;
@@ -42,5 +43,20 @@ public class VectorTestUtilities
 		list.addAll(Arrays.asList(arguments));
 		return list;
 	}
-	
+
+	/**
+	 * Reads all the elements of an iterator into a list.
+	 * @param o The iterator
+	 * @return The list containing the elements
+	 */
+	public static List<?> readAll(Object o)
+	{
+		List<Object> list = new ArrayList<>();
+		Iterator<?> it = (Iterator<?>) o;
+		while (it.hasNext())
+		{
+			list.add(it.next());
+		}
+		return list;
+	}
 }
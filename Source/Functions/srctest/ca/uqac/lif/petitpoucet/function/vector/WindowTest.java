@@ -24,6 +24,7 @@ import ca.uqac.lif.dag.Node;
 import ca.uqac.lif.dag.Pin;
 import ca.uqac.lif.petitpoucet.AndNode;
 import ca.uqac.lif.petitpoucet.ComposedPart;
+import ca.uqac.lif.petitpoucet.OrNode;
 import ca.uqac.lif.petitpoucet.PartNode;
 import ca.uqac.lif.petitpoucet.function.NthInput;
 import ca.uqac.lif.petitpoucet.function.NthOutput;
@@ -31,7 +32,10 @@ import ca.uqac.lif.petitpoucet.function.NthOutput;
 import static ca.uqac.lif.petitpoucet.function.vector.VectorTestUtilities.getList;
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 
 public class WindowTest
 {
@@ -141,4 +145,173 @@ public class WindowTest
 		ComposedPart new_cd = (ComposedPart) Window.offsetElement(cd, 5);
 		assertEquals(new_cd, ComposedPart.compose(new NthElement(10), new NthElement(7), NthInput.FIRST));
 	}
+	
+	@Test
+	public void testLazy1()
+	{
+		List<?> in_list = getList(3, 1, 4, 1, 5);
+		Window f = new Window(new VectorSum(), 2).lazy(true);
+		List<?> out_list = (List<?>) f.evaluate(in_list)[0];
+		assertEquals(4, out_list.size());
+		assertEquals(5, ((Number) out_list.get(2)).intValue());
+		assertTrue(f.m_lastInstances.isEmpty());
+		Node root = f.getExplanation(ComposedPart.compose(new NthElement(2), NthOutput.FIRST));
+		NestedNode nn = (NestedNode) root.getOutputLinks(0).get(0).getNode();
+		AndNode and = (AndNode) nn.getOutputLinks(0).get(0).getNode();
+		assertEquals(2, and.getOutputLinks(0).size());
+		PartNode in_node = (PartNode) and.getOutputLinks(0).get(1).getNode();
+		assertEquals(in_node.getPart(), ComposedPart.compose(new NthElement(3), NthInput.FIRST));
+		assertEquals(f, in_node.getSubject());
+	}
+
+	@Test
+	public void testLazy2()
+	{
+		// A stateful copy of a lazy function can rebuild its instances
+		Window f = new Window(new VectorSum(), 2).lazy(true);
+		f.evaluate(getList(3, 1, 4, 1, 5));
+		Window copy = f.duplicate(true);
+		Node root = copy.getExplanation(ComposedPart.compose(new NthElement(2), NthOutput.FIRST));
+		NestedNode nn = (NestedNode) root.getOutputLinks(0).get(0).getNode();
+		AndNode and = (AndNode) nn.getOutputLinks(0).get(0).getNode();
+		PartNode in_node = (PartNode) and.getOutputLinks(0).get(1).getNode();
+		assertEquals(in_node.getPart(), ComposedPart.compose(new NthElement(3), NthInput.FIRST));
+		assertEquals(copy, in_node.getSubject());
+	}
+
+	@Test
+	public void testStream1()
+	{
+		Window f = new Window(new VectorSum(), 2);
+		Object out = f.evaluate(getList(3, 1, 4, 1, 5).iterator())[0];
+		assertTrue(out instanceof Iterator);
+		List<?> out_list = VectorTestUtilities.readAll(out);
+		assertEquals(4, out_list.size());
+		assertEquals(5, ((Number) out_list.get(2)).intValue());
+		assertEquals(4, f.m_lastInstances.size());
+		Node root = f.getExplanation(ComposedPart.compose(new NthElement(2), NthOutput.FIRST));
+		NestedNode nn = (NestedNode) root.getOutputLinks(0).get(0).getNode();
+		AndNode and = (AndNode) nn.getOutputLinks(0).get(0).getNode();
+		PartNode in_node = (PartNode) and.getOutputLinks(0).get(1).getNode();
+		assertEquals(in_node.getPart(), ComposedPart.compose(new NthElement(3), NthInput.FIRST));
+	}
+
+	@Test
+	public void testStreamLazy1()
+	{
+		Window f = new Window(new VectorSum(), 2).lazy(true);
+		Object out = f.evaluate(getList(3, 1, 4, 1, 5).iterator())[0];
+		assertEquals(4, VectorTestUtilities.readAll(out).size());
+		assertTrue(f.m_lastInstances.isEmpty());
+		// The elements are gone: element 2 is explained by its window
+		Node root = f.getExplanation(ComposedPart.compose(new NthElement(2), NthOutput.FIRST));
+		AndNode and = (AndNode) root.getOutputLinks(0).get(0).getNode();
+		assertEquals(2, and.getOutputLinks(0).size());
+		PartNode in_node = (PartNode) and.getOutputLinks(0).get(1).getNode();
+		assertEquals(in_node.getPart(), ComposedPart.compose(new NthElement(3), NthInput.FIRST));
+		assertEquals(f, in_node.getSubject());
+	}
+
+	@Test
+	public void testWidth1()
+	{
+		// A stream gives the same windows as a list, and a width that is not
+		// positive is refused for both
+		List<?> in_list = getList(3, 1, 4, 1, 5);
+		for (int width = -2; width < 8; width++)
+		{
+			Window f;
+			try
+			{
+				f = new Window(new VectorSum(), width);
+			}
+			catch (IllegalArgumentException e)
+			{
+				assertTrue(width < 1);
+				continue;
+			}
+			assertTrue(width >= 1);
+			List<?> from_list = (List<?>) f.evaluate(in_list)[0];
+			assertEquals(Math.max(0, in_list.size() - width + 1), from_list.size());
+			Object out = new Window(new VectorSum(), width).evaluate(in_list.iterator())[0];
+			assertEquals(from_list, VectorTestUtilities.readAll(out));
+		}
+	}
+
+	@Test
+	public void testIncremental1()
+	{
+		Random r = new Random(0);
+		List<Object> in_list = new ArrayList<Object>();
+		for (int i = 0; i < 200; i++)
+		{
+			in_list.add(r.nextInt(20) - 5);
+		}
+		for (int width = 1; width < 8; width++)
+		{
+			Window f1 = new Window(new VectorSum(), width);
+			Window f2 = new Window(new VectorSum(), width).incremental(true);
+			assertEquals(f1.evaluate(in_list)[0], f2.evaluate(in_list)[0]);
+			assertTrue(f2.m_lastInstances.isEmpty());
+			Window f3 = new Window(new VectorProduct(), width);
+			Window f4 = new Window(new VectorProduct(), width).incremental(true);
+			assertEquals(f3.evaluate(in_list)[0], f4.evaluate(in_list)[0]);
+		}
+	}
+
+	@Test
+	public void testIncremental2()
+	{
+		List<?> in_list = getList(true, false, true, true, false, false);
+		Window f1 = new Window(new VectorAnd(), 3).incremental(true);
+		assertEquals(getList(false, false, false, false), f1.evaluate(in_list)[0]);
+		Window f2 = new Window(new VectorOr(), 3).incremental(true);
+		assertEquals(getList(true, true, true, true), f2.evaluate(in_list)[0]);
+		Window f3 = new Window(new VectorAnd(), 2).incremental(true);
+		assertEquals(getList(false, false, true, false, false), f3.evaluate(in_list)[0]);
+		assertEquals(0, ((List<?>) new Window(new VectorAnd(), 7).incremental(true).evaluate(in_list)[0]).size());
+	}
+
+	@Test
+	public void testIncrementalExplain1()
+	{
+		List<?> in_list = getList(3, 1, 4, 1, 5);
+		Window f = new Window(new VectorSum(), 2).incremental(true);
+		f.evaluate(in_list);
+		Node root = f.getExplanation(ComposedPart.compose(new NthElement(2), NthOutput.FIRST));
+		AndNode and = (AndNode) root.getOutputLinks(0).get(0).getNode();
+		assertEquals(2, and.getOutputLinks(0).size());
+		PartNode in_node = (PartNode) and.getOutputLinks(0).get(0).getNode();
+		assertEquals(ComposedPart.compose(new NthElement(2), NthInput.FIRST), in_node.getPart());
+		in_node = (PartNode) and.getOutputLinks(0).get(1).getNode();
+		assertEquals(ComposedPart.compose(new NthElement(3), NthInput.FIRST), in_node.getPart());
+	}
+
+	@Test
+	public void testIncrementalExplain2()
+	{
+		List<?> in_list = getList(3, 0, 4, 0, 5);
+		Window f = new Window(new VectorProduct(), 3).incremental(true);
+		assertEquals(getList(0f, 0f, 0f), f.evaluate(in_list)[0]);
+		// Window 1 has two zeros: either of them explains the output
+		Node root = f.getExplanation(ComposedPart.compose(new NthElement(1), NthOutput.FIRST));
+		OrNode or = (OrNode) root.getOutputLinks(0).get(0).getNode();
+		assertEquals(2, or.getOutputLinks(0).size());
+		PartNode in_node = (PartNode) or.getOutputLinks(0).get(1).getNode();
+		assertEquals(ComposedPart.compose(new NthElement(3), NthInput.FIRST), in_node.getPart());
+		// Window 2 has a single zero
+		root = f.getExplanation(ComposedPart.compose(new NthElement(2), NthOutput.FIRST));
+		in_node = (PartNode) root.getOutputLinks(0).get(0).getNode();
+		assertEquals(ComposedPart.compose(new NthElement(3), NthInput.FIRST), in_node.getPart());
+	}
+
+	@Test
+	public void testIncrementalStream1()
+	{
+		Window f = new Window(new VectorSum(), 2).incremental(true);
+		Object out = f.evaluate(getList(3, 1, 4, 1, 5).iterator())[0];
+		assertEquals(getList(4f, 5f, 5f, 6f), VectorTestUtilities.readAll(out));
+		Window w = f.duplicate(false);
+		assertTrue(w.m_incremental);
+	}
 }